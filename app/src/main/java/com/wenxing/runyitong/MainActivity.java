@@ -12,7 +12,11 @@ import com.wenxing.runyitong.fragment.RegistrationFragment;
 
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.wenxing.runyitong.R;
+import com.wenxing.runyitong.adapter.HospitalAdapter;
+import com.wenxing.runyitong.adapter.ProductAdapter;
+import com.wenxing.runyitong.utils.JankMonitor;
 import com.wenxing.runyitong.utils.OverlayPermissionManager;
+import com.wenxing.runyitong.utils.ViewPrewarmer;
 import android.content.Intent;
 
 public class MainActivity extends AppCompatActivity {
@@ -73,6 +77,10 @@ public class MainActivity extends AppCompatActivity {
             // 设置底部导航点击事件
             setupBottomNavigation();
             
+            // 主线程空闲时预加载挂号页和商品页的列表卡片，首次切到这两页时不再同步加载整屏卡片
+            ViewPrewarmer.getInstance().prewarm(this, HospitalAdapter.ROW_TYPE);
+            ViewPrewarmer.getInstance().prewarm(this, ProductAdapter.ROW_TYPE);
+            
             logMemoryUsage("onCreate end");
         } catch (Exception e) {
             android.util.Log.e("MainActivity", "Error in onCreate", e);
@@ -225,6 +233,9 @@ public class MainActivity extends AppCompatActivity {
         
         currentFragment = fragment;
         
+        // 之后的帧统计计入该Fragment
+        JankMonitor.getInstance().enterScreen(fragment.getClass().getSimpleName());
+        
         // 保存当前Fragment状态
         saveCurrentFragment(fragment);
         
@@ -338,6 +349,11 @@ public class MainActivity extends AppCompatActivity {
         android.util.Log.d("MainActivity", "onResume called - 应用回到前台");
         logMemoryUsage("onResume");
         
+        // 帧统计归属到当前显示的Fragment，而不是MainActivity
+        if (currentFragment != null) {
+            JankMonitor.getInstance().enterScreen(currentFragment.getClass().getSimpleName());
+        }
+        
         // 延迟重置对话框状态，防止从微信返回时立即重复显示对话框
         // 但允许用户在一段时间后重新触发
         new android.os.Handler(android.os.Looper.getMainLooper()).postDelayed(() -> {
@@ -3,7 +3,12 @@ package com.wenxing.runyitong;
 import android.app.Application;
 import android.util.Log;
 
+import com.bumptech.glide.Glide;
 import com.wenxing.runyitong.utils.CrashHandler;
+import com.wenxing.runyitong.utils.FlightRecorder;
+import com.wenxing.runyitong.utils.JankMonitor;
+import com.wenxing.runyitong.utils.MemoryCoordinator;
+import com.wenxing.runyitong.utils.TempFileArena;
 import com.wenxing.runyitong.api.ApiClient;
 
 /**
@@ -32,6 +37,15 @@ public class MyApplication extends Application {
             CrashHandler.getInstance().init(this);
             Log.d(TAG, "CrashHandler initialized");
             
+            // 按页面统计掉帧
+            JankMonitor.getInstance().install(this);
+            
+            // 统一处理内存回调，按压力等级收缩各缓存
+            startMemoryCoordinator();
+            
+            // 后台清理上次运行遗留的临时文件
+            TempFileArena.getInstance(this).sweepAsync();
+            
             // 记录应用启动信息
             logAppStartInfo();
             
@@ -42,6 +56,31 @@ public class MyApplication extends Application {
         Log.d(TAG, "Application onCreate completed");
     }
     
+    /**
+     * 启动内存协调器并登记应用级缓存，位图池等模块在首次使用时自行登记
+     */
+    private void startMemoryCoordinator() {
+        MemoryCoordinator coordinator = MemoryCoordinator.getInstance();
+        coordinator.start(this);
+        // Glide自身也监听内存回调，这里登记是为了在堆使用率过高时由协调器主动收缩
+        coordinator.register("Glide", MemoryCoordinator.Priority.REBUILDABLE, new MemoryCoordinator.TrimmableCache() {
+            @Override
+            public long getSizeBytes() {
+                return -1;
+            }
+            
+            @Override
+            public void trimToFraction(float keepFraction) {
+                if (keepFraction <= 0f) {
+                    Glide.get(MyApplication.this).clearMemory();
+                } else {
+                    // UI_HIDDEN级别下Glide把内存缓存收缩到一半
+                    Glide.get(MyApplication.this).trimMemory(TRIM_MEMORY_UI_HIDDEN);
+                }
+            }
+        });
+    }
+    
     /**
      * 获取Application实例
      */
@@ -81,6 +120,7 @@ public class MyApplication extends Application {
     public void onLowMemory() {
         super.onLowMemory();
         Log.w(TAG, "Application onLowMemory called");
+        FlightRecorder.record(FlightRecorder.Category.MEMORY, "onLowMemory");
         
         // 记录低内存时的状态
         Runtime runtime = Runtime.getRuntime();
@@ -88,14 +128,18 @@ public class MyApplication extends Application {
         long maxMemory = runtime.maxMemory();
         Log.w(TAG, "Low memory - Usage: " + (usedMemory / 1024 / 1024) + "MB / " + (maxMemory / 1024 / 1024) + "MB");
         
-        // 强制垃圾回收
-        System.gc();
+        // 缓存由MemoryCoordinator收缩，这里只记录状态
+        Log.w(TAG, MemoryCoordinator.getInstance().getStats());
     }
     
     @Override
     public void onTrimMemory(int level) {
         super.onTrimMemory(level);
         Log.w(TAG, "Application onTrimMemory called with level: " + level);
+        FlightRecorder.record(FlightRecorder.Category.MEMORY, "onTrimMemory", level);
+        
+        // 缓存由MemoryCoordinator按级别收缩
+        Log.d(TAG, MemoryCoordinator.getInstance().getStats());
         
         // 根据不同级别采取不同的内存清理策略
         switch (level) {
@@ -38,6 +38,7 @@ import androidx.annotation.Nullable;
 import com.alipay.sdk.app.PayTask;
 import com.wenxing.runyitong.R;
 import com.wenxing.runyitong.model.Product;
+import com.wenxing.runyitong.utils.TaskScheduler;
 
 // 微信支付SDK导入
 import com.tencent.mm.opensdk.modelpay.PayReq;
@@ -313,7 +314,8 @@ public class ProductDetailActivity extends AppCompatActivity {
                         RequestOptions options = new RequestOptions()
                                 .placeholder(R.drawable.ic_launcher_background) // 加载中的占位图
                                 .error(R.drawable.ic_launcher_background) // 加载失败的占位图
-                                .fitCenter(); // 确保图片完整显示
+                                .fitCenter() // 确保图片完整显示
+                                .override(imageWidth, Target.SIZE_ORIGINAL); // 按显示宽度解码，不等布局测量
                         
                         // 使用Glide加载图片并获取实际高度
                         Glide.with(this)
@@ -548,9 +550,8 @@ public class ProductDetailActivity extends AppCompatActivity {
                      }
                  };
                  
-                 // 必须异步调用
-                 Thread payThread = new Thread(payRunnable);
-                 payThread.start();
+                 // 必须异步调用，用户正在等待支付结果
+                 TaskScheduler.getInstance().execute(TaskScheduler.Lane.UI_CRITICAL, payRunnable);
              }
              
              @Override
@@ -0,0 +1,104 @@
+package com.wenxing.runyitong;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.Registry;
+import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.integration.okhttp3.OkHttpUrlLoader;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
+import com.bumptech.glide.load.engine.cache.MemorySizeCalculator;
+import com.bumptech.glide.load.model.GlideUrl;
+import com.bumptech.glide.module.AppGlideModule;
+import com.bumptech.glide.request.RequestOptions;
+import com.wenxing.runyitong.api.ApiClient;
+
+import java.io.InputStream;
+
+/**
+ * 应用级Glide配置
+ * 按设备档次设置内存缓存、位图池和磁盘缓存大小，低内存设备默认用RGB_565解码；
+ * 图片请求走ApiClient的OkHttp连接池，与接口请求复用连接
+ */
+@GlideModule
+public final class RunyitongGlideModule extends AppGlideModule {
+    private static final String TAG = "RunyitongGlideModule";
+
+    private static final String DISK_CACHE_NAME = "image_cache";
+    private static final long MB = 1024 * 1024;
+
+    // 设备档次，按系统给应用的堆上限划分
+    private enum DeviceClass {
+        // 低内存设备或堆上限不超过128MB：缓存一屏，磁盘50MB
+        LOW(1, 1, 50 * MB),
+        // 堆上限不超过256MB：缓存两屏，磁盘150MB
+        MEDIUM(2, 2, 150 * MB),
+        // 其余：缓存三屏，磁盘250MB
+        HIGH(3, 3, 250 * MB);
+
+        final float memoryCacheScreens;
+        final float bitmapPoolScreens;
+        final long diskCacheBytes;
+
+        DeviceClass(float memoryCacheScreens, float bitmapPoolScreens, long diskCacheBytes) {
+            this.memoryCacheScreens = memoryCacheScreens;
+            this.bitmapPoolScreens = bitmapPoolScreens;
+            this.diskCacheBytes = diskCacheBytes;
+        }
+    }
+
+    @Override
+    public void applyOptions(@NonNull Context context, @NonNull GlideBuilder builder) {
+        DeviceClass deviceClass = getDeviceClass(context);
+
+        MemorySizeCalculator.Builder calculatorBuilder = new MemorySizeCalculator.Builder(context)
+                .setMemoryCacheScreens(deviceClass.memoryCacheScreens);
+        // Android O及以上Glide默认使用硬件位图，位图池作用很小，保留Glide的默认值
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+            calculatorBuilder.setBitmapPoolScreens(deviceClass.bitmapPoolScreens);
+        }
+        builder.setMemorySizeCalculator(calculatorBuilder.build());
+        builder.setDiskCache(new InternalCacheDiskCacheFactory(context, DISK_CACHE_NAME, deviceClass.diskCacheBytes));
+
+        if (deviceClass == DeviceClass.LOW) {
+            // 有透明通道的图片Glide仍会使用ARGB_8888
+            builder.setDefaultRequestOptions(new RequestOptions().format(DecodeFormat.PREFER_RGB_565));
+        }
+
+        Log.d(TAG, "Glide配置: 设备档次=" + deviceClass + ", 磁盘缓存=" + deviceClass.diskCacheBytes / MB + "MB");
+    }
+
+    @Override
+    public void registerComponents(@NonNull Context context, @NonNull Glide glide, @NonNull Registry registry) {
+        registry.replace(GlideUrl.class, InputStream.class,
+                new OkHttpUrlLoader.Factory(ApiClient.getImageHttpClient()));
+    }
+
+    @Override
+    public boolean isManifestParsingEnabled() {
+        // 不使用旧版清单声明的模块，跳过启动时的清单解析
+        return false;
+    }
+
+    private static DeviceClass getDeviceClass(Context context) {
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        if (activityManager == null) {
+            return DeviceClass.MEDIUM;
+        }
+        int memoryClass = activityManager.getMemoryClass();
+        if (activityManager.isLowRamDevice() || memoryClass <= 128) {
+            return DeviceClass.LOW;
+        }
+        if (memoryClass <= 256) {
+            return DeviceClass.MEDIUM;
+        }
+        return DeviceClass.HIGH;
+    }
+}
@@ -5,8 +5,10 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 
 import android.app.DatePickerDialog;
+import android.content.ClipData;
 import android.content.Intent;
 import android.content.SharedPreferences;
+import android.net.Uri;
 import android.os.Bundle;
 import android.text.TextUtils;
 import android.util.Log;
@@ -15,21 +17,28 @@ import android.view.View;
 import android.widget.Button;
 import android.widget.DatePicker;
 import android.widget.EditText;
+import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
+
 import com.wenxing.runyitong.R;
 import com.wenxing.runyitong.api.ApiClient;
 import com.wenxing.runyitong.api.ApiResponse;
 import com.wenxing.runyitong.api.ApiService;
 import com.wenxing.runyitong.model.PhysicalExamReport;
+import com.wenxing.runyitong.utils.BatchImageUploader;
 
 import retrofit2.Call;
 
 import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
@@ -43,6 +52,15 @@ public class AddPhysicalExamActivity extends AppCompatActivity {
     private Button btnSave;
     private Calendar calendar;
     
+    // 多页报告图片：选择后立即并行压缩上传，保存时汇总到一份报告
+    private Button btnAddReportImages, btnRetryReportImages;
+    private TextView tvReportImagesStatus;
+    private BatchImageUploader reportImageUploader;
+    private ActivityResultLauncher<Intent> reportImagesLauncher;
+    // 点击保存时图片尚未上传完，上传结束后自动继续保存
+    private boolean saveWhenImagesUploaded = false;
+    private boolean ignoreFailedImages = false;
+    
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -78,6 +96,112 @@ public class AddPhysicalExamActivity extends AppCompatActivity {
                 savePhysicalExamReport();
             }
         });
+        
+        initReportImageUpload();
+    }
+    
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (reportImageUploader != null) {
+            reportImageUploader.cancel();
+        }
+    }
+    
+    /**
+     * 初始化报告图片多选与批量上传
+     */
+    private void initReportImageUpload() {
+        reportImagesLauncher = registerForActivityResult(
+                new ActivityResultContracts.StartActivityForResult(),
+                result -> {
+                    if (result.getResultCode() == RESULT_OK && result.getData() != null) {
+                        onReportImagesSelected(result.getData());
+                    }
+                });
+        
+        reportImageUploader = new BatchImageUploader(this, ApiClient.getApiService(), new BatchImageUploader.Listener() {
+            @Override
+            public void onItemChanged(BatchImageUploader.Item item) {
+                updateReportImagesStatus();
+            }
+            
+            @Override
+            public void onBatchFinished(List<String> uploadedUrls, int failedCount) {
+                updateReportImagesStatus();
+                if (saveWhenImagesUploaded) {
+                    saveWhenImagesUploaded = false;
+                    showLoading(false);
+                    savePhysicalExamReport();
+                }
+            }
+        });
+        
+        btnAddReportImages.setOnClickListener(v -> {
+            Intent intent = new Intent(Intent.ACTION_GET_CONTENT);
+            intent.setType("image/*");
+            intent.putExtra(Intent.EXTRA_ALLOW_MULTIPLE, true);
+            intent.addCategory(Intent.CATEGORY_OPENABLE);
+            reportImagesLauncher.launch(Intent.createChooser(intent, "选择报告图片"));
+        });
+        
+        btnRetryReportImages.setOnClickListener(v -> reportImageUploader.retryFailed());
+    }
+    
+    private void onReportImagesSelected(Intent data) {
+        List<Uri> uris = new ArrayList<>();
+        ClipData clipData = data.getClipData();
+        if (clipData != null) {
+            for (int i = 0; i < clipData.getItemCount(); i++) {
+                uris.add(clipData.getItemAt(i).getUri());
+            }
+        } else if (data.getData() != null) {
+            uris.add(data.getData());
+        }
+        Log.d(TAG, "选择报告图片: " + uris.size() + " 张");
+        reportImageUploader.addImages(uris);
+    }
+    
+    /**
+     * 刷新每页图片的上传状态
+     */
+    private void updateReportImagesStatus() {
+        List<BatchImageUploader.Item> items = reportImageUploader.getItems();
+        if (items.isEmpty()) {
+            tvReportImagesStatus.setVisibility(View.GONE);
+            btnRetryReportImages.setVisibility(View.GONE);
+            return;
+        }
+        
+        StringBuilder status = new StringBuilder();
+        for (int i = 0; i < items.size(); i++) {
+            BatchImageUploader.Item item = items.get(i);
+            if (status.length() > 0) {
+                status.append('\n');
+            }
+            status.append("第").append(i + 1).append("页  ");
+            switch (item.getState()) {
+                case PENDING:
+                    status.append("等待上传");
+                    break;
+                case COMPRESSING:
+                    status.append("正在压缩");
+                    break;
+                case UPLOADING:
+                    status.append("上传中 ").append(item.getProgressPercent()).append('%');
+                    break;
+                case DONE:
+                    status.append("已上传");
+                    break;
+                case FAILED:
+                    status.append("失败：").append(item.getError());
+                    break;
+            }
+        }
+        tvReportImagesStatus.setText(status);
+        tvReportImagesStatus.setVisibility(View.VISIBLE);
+        btnRetryReportImages.setVisibility(
+                reportImageUploader.isFinished() && reportImageUploader.getFailedCount() > 0 ? View.VISIBLE : View.GONE);
     }
     
     private void initViews() {
@@ -91,6 +215,9 @@ public class AddPhysicalExamActivity extends AppCompatActivity {
         etAbnormalItems = findViewById(R.id.et_abnormal_items);
         etSuggestions = findViewById(R.id.et_suggestions);
         btnSave = findViewById(R.id.btn_save);
+        btnAddReportImages = findViewById(R.id.btn_add_report_images);
+        btnRetryReportImages = findViewById(R.id.btn_retry_report_images);
+        tvReportImagesStatus = findViewById(R.id.tv_report_images_status);
     }
     
     private void updateExamDateText() {
@@ -149,6 +276,32 @@ public class AddPhysicalExamActivity extends AppCompatActivity {
             return;
         }
         
+        // 报告图片还在上传时，等全部结束后自动继续保存
+        if (!reportImageUploader.isFinished()) {
+            saveWhenImagesUploaded = true;
+            showLoading(true);
+            Toast.makeText(this, "正在上传报告图片，完成后自动保存", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        
+        int failedImages = reportImageUploader.getFailedCount();
+        if (failedImages > 0 && !ignoreFailedImages) {
+            new AlertDialog.Builder(this)
+                .setTitle("部分图片上传失败")
+                .setMessage("有 " + failedImages + " 张报告图片上传失败，是否重试？")
+                .setPositiveButton("重试", (dialog, which) -> {
+                    saveWhenImagesUploaded = true;
+                    showLoading(true);
+                    reportImageUploader.retryFailed();
+                })
+                .setNegativeButton("忽略并保存", (dialog, which) -> {
+                    ignoreFailedImages = true;
+                    savePhysicalExamReport();
+                })
+                .show();
+            return;
+        }
+        
         // 创建新的体检报告对象
         PhysicalExamReport newReport = new PhysicalExamReport();
         // 注意：ID由服务器生成，这里不设置
@@ -180,7 +333,7 @@ public class AddPhysicalExamActivity extends AppCompatActivity {
         newReport.setAbnormalItems(abnormalItemsMap);
         
         newReport.setRecommendations(suggestions);
-        newReport.setReportUrl(""); // 暂时为空
+        newReport.setReportUrls(reportImageUploader.getUploadedUrls()); // 多页报告按页序汇总
         newReport.setCreatedAt(new Date());
         newReport.setUpdatedAt(new Date());
         
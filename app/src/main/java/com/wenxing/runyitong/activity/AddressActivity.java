@@ -30,6 +30,7 @@ import com.wenxing.runyitong.api.ApiService;
 import com.wenxing.runyitong.api.ApiResponse;
 import com.wenxing.runyitong.api.AddressListResponse;
 import com.wenxing.runyitong.model.Address;
+import com.wenxing.runyitong.utils.JankMonitor;
 import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Response;
@@ -159,6 +160,7 @@ public class AddressActivity extends AppCompatActivity {
         rvAddresses.setLayoutManager(new LinearLayoutManager(this));
         addressAdapter = new AddressAdapter(addressList);
         rvAddresses.setAdapter(addressAdapter);
+        JankMonitor.getInstance().trackScroll(rvAddresses);
     }
 
     private void setupClickListeners() {
@@ -1225,9 +1227,20 @@ public class AddressActivity extends AppCompatActivity {
         rvCities.setAdapter(cityAdapterHolder[0]);
         rvDistricts.setAdapter(districtAdapterHolder[0]);
         
+        // 三列滑动计入掉帧监控，对话框关闭时解除
+        JankMonitor jankMonitor = JankMonitor.getInstance();
+        jankMonitor.trackScroll(rvProvinces);
+        jankMonitor.trackScroll(rvCities);
+        jankMonitor.trackScroll(rvDistricts);
+        
         builder.setView(view);
         AlertDialog dialog = builder.create();
         dialogHolder[0] = dialog;
+        dialog.setOnDismissListener(dialogInterface -> {
+            jankMonitor.untrackScroll(rvProvinces);
+            jankMonitor.untrackScroll(rvCities);
+            jankMonitor.untrackScroll(rvDistricts);
+        });
         
         // 当对话框显示时，如果有预选值则恢复状态
         dialog.setOnShowListener(dialogInterface -> {
@@ -2041,6 +2054,7 @@ public class AddressActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        JankMonitor.getInstance().untrackScroll(rvAddresses);
         if (locationManager != null && locationListener != null) {
             locationManager.removeUpdates(locationListener);
         }
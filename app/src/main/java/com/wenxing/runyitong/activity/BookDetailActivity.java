@@ -3,7 +3,6 @@ package com.wenxing.runyitong.activity;
 import android.Manifest;
 import android.content.Intent;
 import android.content.pm.PackageManager;
-import android.net.Uri;
 import android.os.Bundle;
 import android.os.Environment;
 import android.os.Handler;
@@ -31,7 +30,11 @@ import com.wenxing.runyitong.adapter.BookPageAdapter;
 import com.wenxing.runyitong.adapter.DownloadedBookAdapter;
 import com.wenxing.runyitong.api.ApiClient;
 import com.wenxing.runyitong.model.Book;
-import com.wenxing.runyitong.model.BookPage;
+import com.wenxing.runyitong.utils.BookPageRepository;
+import com.wenxing.runyitong.utils.BookmarkManager;
+import com.wenxing.runyitong.utils.DownloadedBookCatalog;
+import com.wenxing.runyitong.utils.ReadingPositionStore;
+import com.wenxing.runyitong.utils.TaskScheduler;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -60,26 +63,26 @@ public class BookDetailActivity extends AppCompatActivity {
     private static final int STORAGE_PERMISSION_REQUEST_CODE = 1001;
     
     private Book book;
-    private List<BookPage> bookPages;
     private BookPageAdapter pageAdapter;
+    private BookPageRepository pageRepository;
     private List<File> downloadedBooks;
     private DownloadedBookAdapter downloadedBookAdapter;
     private ApiService apiService;
+    private ReadingPositionStore readingPositionStore;
+    private DownloadedBookCatalog bookCatalog;
+    private final DownloadedBookCatalog.CatalogListener catalogListener = this::refreshDownloadedBookList;
     
     private ImageView bookCoverImageView;
     private TextView bookTitleTextView;
     private TextView bookAuthorTextView;
     private TextView bookDescriptionTextView;
     private RecyclerView pagesRecyclerView;
+    private RecyclerView textPagesRecyclerView;
+    private View textPagesCard;
     private ProgressBar loadingProgressBar;
-    private Button loadMoreButton;
     private Button downloadButton;
     private TextView pageInfoTextView;
     
-    private int currentPage = 1;
-    private int totalPages = 0;
-    private boolean isLoading = false;
-    
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -105,6 +108,9 @@ public class BookDetailActivity extends AppCompatActivity {
             book.setDescription("这是一本测试书籍");
         }
         
+        readingPositionStore = new ReadingPositionStore(this);
+        bookCatalog = DownloadedBookCatalog.getInstance(this);
+        
         initViews();
         setupRecyclerView();
         displayBookInfo();
@@ -126,17 +132,11 @@ public class BookDetailActivity extends AppCompatActivity {
         bookDescriptionTextView = findViewById(R.id.book_description_detail);
         pagesRecyclerView = findViewById(R.id.pages_recycler_view);
         loadingProgressBar = findViewById(R.id.loading_progress_bar);
-        loadMoreButton = findViewById(R.id.load_more_button);
+        textPagesRecyclerView = findViewById(R.id.text_pages_recycler_view);
+        textPagesCard = findViewById(R.id.text_pages_card);
         downloadButton = findViewById(R.id.download_button);
         pageInfoTextView = findViewById(R.id.page_info_text);
         
-        loadMoreButton.setOnClickListener(new View.OnClickListener() {
-            @Override
-            public void onClick(View v) {
-                loadNextPage();
-            }
-        });
-        
         downloadButton.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
@@ -146,11 +146,21 @@ public class BookDetailActivity extends AppCompatActivity {
     }
     
     private void setupRecyclerView() {
-        bookPages = new ArrayList<>();
-        pageAdapter = new BookPageAdapter(this, bookPages);
+        // 正文按批次从仓库加载，先读磁盘缓存，滚动时预取和释放
+        pageAdapter = new BookPageAdapter(this, new ArrayList<>());
+        textPagesRecyclerView.setLayoutManager(new LinearLayoutManager(this));
+        textPagesRecyclerView.setAdapter(pageAdapter);
+        if (book != null && book.getId() > 0) {
+            pageRepository = new BookPageRepository(this, book.getId(), PAGES_PER_REQUEST);
+            pageAdapter.setPageSource(pageRepository);
+            textPagesCard.setVisibility(View.VISIBLE);
+        }
         
         downloadedBooks = new ArrayList<>();
         downloadedBookAdapter = new DownloadedBookAdapter(this, downloadedBooks);
+        downloadedBookAdapter.setCatalog(bookCatalog);
+        bookCatalog.addListener(catalogListener);
+        bookCatalog.startWatching();
         
         // 设置下载书籍的点击监听器
         downloadedBookAdapter.setOnBookClickListener(new DownloadedBookAdapter.OnBookClickListener() {
@@ -173,6 +183,7 @@ public class BookDetailActivity extends AppCompatActivity {
                     }
                     
                     Log.d(TAG, "Opening PDF with title: " + bookTitle);
+                    bookCatalog.onBookOpened(bookFile);
                     openPDFReader(bookFile.getAbsolutePath(), bookTitle);
                     
                 } catch (Exception e) {
@@ -241,17 +252,6 @@ public class BookDetailActivity extends AppCompatActivity {
         }
     }
     
-    private void loadNextPage() {
-        if (!isLoading) {
-            loadBookPages(currentPage);
-        }
-    }
-    
-    private void loadBookPages(int page) {
-        // 简化的页面加载逻辑
-        Toast.makeText(this, "页面加载功能暂未实现", Toast.LENGTH_SHORT).show();
-    }
-    
     private void startDownload() {
         Log.d(TAG, "startDownload method called");
         if (book == null) {
@@ -324,7 +324,7 @@ public class BookDetailActivity extends AppCompatActivity {
         downloadButton.setText("下载中...");
         
         // 执行下载过程
-        new Thread(new Runnable() {
+        TaskScheduler.getInstance().execute(TaskScheduler.Lane.USER_VISIBLE, new Runnable() {
             @Override
             public void run() {
                 try {
@@ -489,6 +489,9 @@ public class BookDetailActivity extends AppCompatActivity {
                         Log.d(TAG, "Created local PDF with full content: " + fileName + ", size: " + pdfFile.length() + " bytes");
                     }
                     
+                    // 后台为新书建立索引和封面
+                    bookCatalog.onBookAdded(pdfFile);
+                    
                     // 更新UI
                     runOnUiThread(new Runnable() {
                         @Override
@@ -543,7 +546,7 @@ public class BookDetailActivity extends AppCompatActivity {
                     });
                 }
             }
-        }).start();
+        });
     }
     
     private void openPDFReader(String pdfFilePath, String bookTitle) {
@@ -553,35 +556,11 @@ public class BookDetailActivity extends AppCompatActivity {
             return;
         }
         
-        try {
-            File pdfFile = new File(pdfFilePath);
-            
-            // 使用FileProvider获取安全的URI
-            Uri pdfUri = androidx.core.content.FileProvider.getUriForFile(
-                this,
-                getPackageName() + ".fileprovider",
-                pdfFile
-            );
-            
-            // 创建Intent使用系统默认PDF阅读器
-            Intent intent = new Intent(Intent.ACTION_VIEW);
-            intent.setDataAndType(pdfUri, "application/pdf");
-            intent.setFlags(Intent.FLAG_ACTIVITY_NO_HISTORY);
-            intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
-            
-            // 检查是否有应用可以处理PDF文件
-            if (intent.resolveActivity(getPackageManager()) != null) {
-                startActivity(intent);
-                Log.d(TAG, "Opening PDF with system reader: " + pdfFilePath + ", title: " + bookTitle);
-            } else {
-                // 如果没有PDF阅读器，提示用户安装
-                Toast.makeText(this, "未找到PDF阅读器，请安装PDF阅读应用", Toast.LENGTH_LONG).show();
-                Log.w(TAG, "No PDF reader app found on device");
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to open PDF with system reader", e);
-            Toast.makeText(this, "无法打开PDF文件：" + e.getMessage(), Toast.LENGTH_LONG).show();
-        }
+        Intent intent = new Intent(this, PDFReaderActivity.class);
+        intent.putExtra(PDFReaderActivity.EXTRA_PDF_PATH, pdfFilePath);
+        intent.putExtra(PDFReaderActivity.EXTRA_BOOK_TITLE, bookTitle);
+        startActivity(intent);
+        Log.d(TAG, "Opening PDF with in-app reader: " + pdfFilePath + ", title: " + bookTitle);
     }
     
     private String getBookContent(String bookName) {
@@ -762,7 +741,7 @@ public class BookDetailActivity extends AppCompatActivity {
         
         try {
             // 获取下载目录
-            File downloadDir = new File(Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS), "books");
+            File downloadDir = bookCatalog.getBooksDirectory();
             
             Log.d(TAG, "Using download directory path: " + downloadDir.getAbsolutePath());
             
@@ -783,42 +762,9 @@ public class BookDetailActivity extends AppCompatActivity {
                 return;
             }
             
-            // 清空现有数据
-            downloadedBooks.clear();
-            
-            // 扫描PDF文件
-            File[] allFiles = downloadDir.listFiles();
-            if (allFiles != null) {
-                for (File file : allFiles) {
-                    if (file.isFile() && file.getName().toLowerCase().endsWith(".pdf")) {
-                        // 验证PDF文件有效性
-                        if (isValidPDFFile(file.getAbsolutePath())) {
-                            downloadedBooks.add(file);
-                            Log.d(TAG, "Added valid book: " + file.getName() + " (" + file.length() + " bytes)");
-                        } else {
-                            Log.w(TAG, "Skipped invalid PDF file: " + file.getName());
-                        }
-                    }
-                }
-            } else {
-                Log.w(TAG, "No files found in download directory or directory is not accessible");
-            }
-            
-            Log.d(TAG, "Found " + downloadedBooks.size() + " valid books");
-            
-            // 更新UI
-            runOnUiThread(new Runnable() {
-                @Override
-                public void run() {
-                    downloadedBookAdapter.notifyDataSetChanged();
-                    
-                    if (downloadedBooks.size() > 0) {
-                        pageInfoTextView.setText(String.format("共找到 %d 本已下载的书籍", downloadedBooks.size()));
-                    } else {
-                        pageInfoTextView.setText("暂无已下载的书籍");
-                    }
-                }
-            });
+            // 直接读取书籍目录索引，不再扫描文件夹；目录在应用外被修改过时后台对账后再刷新
+            refreshDownloadedBookList();
+            bookCatalog.syncIfDirectoryChanged();
             
         } catch (Exception e) {
             Log.e(TAG, "Error loading downloaded books", e);
@@ -832,6 +778,20 @@ public class BookDetailActivity extends AppCompatActivity {
         }
     }
     
+    private void refreshDownloadedBookList() {
+        downloadedBooks.clear();
+        downloadedBooks.addAll(bookCatalog.getBookFiles());
+        downloadedBookAdapter.notifyDataSetChanged();
+        
+        Log.d(TAG, "Found " + downloadedBooks.size() + " books in catalog");
+        
+        if (downloadedBooks.size() > 0) {
+            pageInfoTextView.setText(String.format("共找到 %d 本已下载的书籍", downloadedBooks.size()));
+        } else {
+            pageInfoTextView.setText("暂无已下载的书籍");
+        }
+    }
+    
     private void copyExampleBooks() {
         Log.d(TAG, "Creating example books");
         
@@ -890,6 +850,7 @@ public class BookDetailActivity extends AppCompatActivity {
                         document.close();
                     }
                     
+                    bookCatalog.onBookAdded(bookFile);
                     Log.d(TAG, "Created example book: " + fileName);
                 } catch (Exception e) {
                     Log.e(TAG, "Failed to create example book: " + fileName, e);
@@ -949,6 +910,10 @@ public class BookDetailActivity extends AppCompatActivity {
     private void deleteBook(File bookFile, int position) {
         try {
             if (bookFile.delete()) {
+                // 书籍已删除，阅读进度、快照和书签一并清除
+                readingPositionStore.clearReadingState(bookFile.getAbsolutePath());
+                BookmarkManager.getInstance(this).clearBookmarks(bookFile.getAbsolutePath());
+                bookCatalog.onBookRemoved(bookFile);
                 downloadedBooks.remove(position);
                 downloadedBookAdapter.notifyItemRemoved(position);
                 downloadedBookAdapter.notifyItemRangeChanged(position, downloadedBooks.size());
@@ -973,5 +938,20 @@ public class BookDetailActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        if (pageAdapter != null) {
+            // 先清理适配器：停止排版预计算并从内存协调器注销文本排版缓存
+            pageAdapter.cleanup();
+            textPagesRecyclerView.setAdapter(null);
+        }
+        if (pageRepository != null) {
+            pageRepository.shutdown();
+        }
+        if (readingPositionStore != null) {
+            readingPositionStore.shutdown();
+        }
+        if (bookCatalog != null) {
+            bookCatalog.removeListener(catalogListener);
+            bookCatalog.stopWatching();
+        }
     }
 }
\ No newline at end of file
@@ -26,6 +26,7 @@ import com.wenxing.runyitong.api.DepartmentListResponse;
 import com.wenxing.runyitong.api.DoctorListResponse;
 import com.wenxing.runyitong.model.Department;
 import com.wenxing.runyitong.model.Doctor;
+import com.wenxing.runyitong.utils.ViewPrewarmer;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -166,6 +167,7 @@ public class HospitalDepartmentListActivity extends AppCompatActivity {
             loadDoctors(hospitalId, department.getId());
         });
         recyclerDepartments.setAdapter(departmentAdapter);
+        ViewPrewarmer.getInstance().attach(recyclerDepartments, DepartmentAdapter.ROW_TYPE);
 
         // 创建医生适配器
         doctorAdapter = new DoctorAdapter(doctorList, doctor -> {
@@ -175,6 +177,7 @@ public class HospitalDepartmentListActivity extends AppCompatActivity {
             // 这里可以根据需要跳转到医生详情页面或预约页面
         });
         recyclerDoctors.setAdapter(doctorAdapter);
+        ViewPrewarmer.getInstance().attach(recyclerDoctors, DoctorAdapter.ROW_TYPE);
     }
 
     private void setupListeners() {
@@ -34,6 +34,7 @@ import com.wenxing.runyitong.api.ApiService;
 import com.wenxing.runyitong.api.LoginRequest;
 import com.wenxing.runyitong.api.LoginResponse;
 import com.wenxing.runyitong.utils.UXEnhancementUtils;
+import com.wenxing.runyitong.utils.InputValidator;
 import com.wenxing.runyitong.utils.ValidationManager;
 import com.wenxing.runyitong.utils.SecurityManager;
 import com.wenxing.runyitong.utils.ErrorHandlingManager;
@@ -1187,7 +1188,7 @@ public class LoginActivity extends AppCompatActivity {
             return true; // 空值在其他地方处理
         }
         
-        ValidationManager.ValidationResult result = ValidationManager.validateUsername(username);
+        InputValidator.ValidationResult result = ValidationManager.validateUsername(username);
         if (!result.isValid()) {
             UXEnhancementUtils.showEnhancedError(tilUsername, result.getErrorMessage(), etUsername);
             return false;
@@ -1202,7 +1203,7 @@ public class LoginActivity extends AppCompatActivity {
             return true; // 空值在其他地方处理
         }
         
-        ValidationManager.ValidationResult result = ValidationManager.validatePassword(password);
+        InputValidator.ValidationResult result = ValidationManager.validatePassword(password);
         if (!result.isValid()) {
             UXEnhancementUtils.showEnhancedError(tilPassword, result.getErrorMessage(), etPassword);
             return false;
@@ -22,6 +22,7 @@ import com.wenxing.runyitong.api.ApiClient;
 import com.wenxing.runyitong.api.ApiService;
 import com.wenxing.runyitong.api.ApiResponse;
 import com.wenxing.runyitong.api.AppointmentListResponse;
+import com.wenxing.runyitong.utils.ViewPrewarmer;
 import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Response;
@@ -95,6 +96,7 @@ public class MyAppointmentsActivity extends AppCompatActivity {
         appointmentAdapter.updateAppointments(appointmentList);
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
         recyclerView.setAdapter(appointmentAdapter);
+        ViewPrewarmer.getInstance().attach(recyclerView, AppointmentAdapter.ROW_TYPE);
         
         // 设置点击事件
         appointmentAdapter.setOnAppointmentClickListener(new AppointmentAdapter.OnAppointmentClickListener() {
@@ -19,6 +19,7 @@ import com.wenxing.runyitong.api.ApiService;
 import com.wenxing.runyitong.api.ApiResponse;
 import com.wenxing.runyitong.model.Order;
 import com.wenxing.runyitong.api.OrderListResponse;
+import com.wenxing.runyitong.utils.ViewPrewarmer;
 import java.util.ArrayList;
 import java.util.List;
 import retrofit2.Call;
@@ -102,6 +103,7 @@ public class OrderActivity extends AppCompatActivity {
         allOrderList = new ArrayList<>();
         orderAdapter = new OrderAdapter(this, orderList);
         ordersRecyclerView.setAdapter(orderAdapter);
+        ViewPrewarmer.getInstance().attach(ordersRecyclerView, OrderAdapter.ROW_TYPE);
     }
     
     private void setupFilterButtons() {
@@ -0,0 +1,343 @@
+package com.wenxing.runyitong.activity;
+
+import androidx.appcompat.app.AlertDialog;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.widget.Toolbar;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import android.content.Intent;
+import android.graphics.Bitmap;
+import android.graphics.pdf.PdfRenderer;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.ParcelFileDescriptor;
+import android.util.Log;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.widget.EditText;
+import android.widget.Toast;
+
+import com.wenxing.runyitong.R;
+import com.wenxing.runyitong.adapter.PDFPageAdapter;
+import com.wenxing.runyitong.utils.BookmarkManager;
+import com.wenxing.runyitong.utils.PDFSearchUtils;
+import com.wenxing.runyitong.utils.PDFTextIndex;
+import com.wenxing.runyitong.utils.PDFZoomUtils;
+import com.wenxing.runyitong.utils.ReadingPositionStore;
+import com.wenxing.runyitong.utils.TaskScheduler;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * 应用内PDF阅读页
+ * 打开时恢复上次的阅读位置和缩放并先显示快照，离开时保存阅读进度；长按页面添加或移除书签；
+ * 搜索在后台建立文本索引，命中位置以高亮层显示在页面上
+ */
+public class PDFReaderActivity extends AppCompatActivity {
+
+    private static final String TAG = "PDFReaderActivity";
+    public static final String EXTRA_PDF_PATH = "extra_pdf_path";
+    public static final String EXTRA_BOOK_TITLE = "extra_book_title";
+
+    private static final int MENU_OPEN_EXTERNAL = 1;
+    private static final int MENU_BOOKMARKS = 2;
+    private static final int MENU_SEARCH = 3;
+    private static final int MENU_SEARCH_PREVIOUS = 4;
+    private static final int MENU_SEARCH_NEXT = 5;
+    private static final int MENU_SEARCH_CLEAR = 6;
+
+    private String pdfPath;
+    private ParcelFileDescriptor fileDescriptor;
+    private PdfRenderer pdfRenderer;
+    private RecyclerView recyclerView;
+    private LinearLayoutManager layoutManager;
+    private PDFPageAdapter pdfPageAdapter;
+    private ReadingPositionStore readingPositionStore;
+    private PDFZoomUtils.ZoomMode zoomMode;
+    private BookmarkManager bookmarkManager;
+    // 文本索引只在后台任务中创建和访问
+    private volatile PDFTextIndex textIndex;
+    private Future<?> searchTask;
+    private boolean hasSearchResults = false;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_pdf_reader);
+
+        pdfPath = getIntent().getStringExtra(EXTRA_PDF_PATH);
+        String bookTitle = getIntent().getStringExtra(EXTRA_BOOK_TITLE);
+
+        Toolbar toolbar = findViewById(R.id.toolbar);
+        setSupportActionBar(toolbar);
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setTitle(bookTitle != null ? bookTitle : "PDF阅读");
+            getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+        }
+
+        if (pdfPath == null || !openRenderer(new File(pdfPath))) {
+            Toast.makeText(this, "无法打开PDF文件", Toast.LENGTH_SHORT).show();
+            finish();
+            return;
+        }
+
+        readingPositionStore = new ReadingPositionStore(this);
+        zoomMode = PDFZoomUtils.loadZoomMode(this);
+
+        recyclerView = findViewById(R.id.pdf_pages_recycler_view);
+        layoutManager = new LinearLayoutManager(this);
+        recyclerView.setLayoutManager(layoutManager);
+        pdfPageAdapter = new PDFPageAdapter(this, pdfRenderer);
+        bookmarkManager = BookmarkManager.getInstance(this);
+        pdfPageAdapter.setBookmarkSource(bookmarkManager, pdfPath);
+        pdfPageAdapter.setOnPageLongClickListener((position, page) -> pdfPageAdapter.toggleBookmark(position));
+        recyclerView.setAdapter(pdfPageAdapter);
+
+        restoreReadingPosition();
+    }
+
+    private boolean openRenderer(File pdfFile) {
+        try {
+            fileDescriptor = ParcelFileDescriptor.open(pdfFile, ParcelFileDescriptor.MODE_READ_ONLY);
+            pdfRenderer = new PdfRenderer(fileDescriptor);
+            Log.d(TAG, "打开PDF: " + pdfFile.getAbsolutePath() + ", 页数: " + pdfRenderer.getPageCount());
+            return true;
+        } catch (IOException | SecurityException e) {
+            Log.e(TAG, "打开PDF失败: " + pdfFile.getAbsolutePath(), e);
+            closeRenderer(pdfRenderer, fileDescriptor);
+            pdfRenderer = null;
+            fileDescriptor = null;
+            return false;
+        }
+    }
+
+    /**
+     * 有保存的阅读进度时，先显示快照并跳到上次的位置
+     */
+    private void restoreReadingPosition() {
+        ReadingPositionStore.ReadingState state = readingPositionStore.getReadingState(pdfPath);
+        if (state == null) {
+            return;
+        }
+        zoomMode = state.getZoomMode();
+        Bitmap snapshot = readingPositionStore.loadSnapshot(pdfPath);
+        pdfPageAdapter.restoreReadingState(state, snapshot);
+    }
+
+    private void saveReadingPosition() {
+        if (pdfPageAdapter == null || readingPositionStore == null) {
+            return;
+        }
+        ReadingPositionStore.ReadingState state = pdfPageAdapter.captureReadingState(pdfPath, zoomMode);
+        if (state != null) {
+            readingPositionStore.saveReadingState(state, pdfPageAdapter.getReadingPageBitmap(state));
+        }
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        saveReadingPosition();
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        menu.add(Menu.NONE, MENU_SEARCH, Menu.NONE, "搜索");
+        menu.add(Menu.NONE, MENU_SEARCH_PREVIOUS, Menu.NONE, "上一个结果");
+        menu.add(Menu.NONE, MENU_SEARCH_NEXT, Menu.NONE, "下一个结果");
+        menu.add(Menu.NONE, MENU_SEARCH_CLEAR, Menu.NONE, "清除搜索");
+        menu.add(Menu.NONE, MENU_BOOKMARKS, Menu.NONE, "书签");
+        menu.add(Menu.NONE, MENU_OPEN_EXTERNAL, Menu.NONE, "用其他应用打开");
+        return true;
+    }
+
+    @Override
+    public boolean onPrepareOptionsMenu(Menu menu) {
+        menu.findItem(MENU_SEARCH_PREVIOUS).setVisible(hasSearchResults);
+        menu.findItem(MENU_SEARCH_NEXT).setVisible(hasSearchResults);
+        menu.findItem(MENU_SEARCH_CLEAR).setVisible(hasSearchResults);
+        return super.onPrepareOptionsMenu(menu);
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == android.R.id.home) {
+            finish();
+            return true;
+        }
+        if (item.getItemId() == MENU_SEARCH) {
+            showSearchDialog();
+            return true;
+        }
+        if (item.getItemId() == MENU_SEARCH_PREVIOUS) {
+            pdfPageAdapter.showPreviousSearchResult();
+            return true;
+        }
+        if (item.getItemId() == MENU_SEARCH_NEXT) {
+            pdfPageAdapter.showNextSearchResult();
+            return true;
+        }
+        if (item.getItemId() == MENU_SEARCH_CLEAR) {
+            pdfPageAdapter.clearSearchResults();
+            hasSearchResults = false;
+            invalidateOptionsMenu();
+            return true;
+        }
+        if (item.getItemId() == MENU_BOOKMARKS) {
+            showBookmarks();
+            return true;
+        }
+        if (item.getItemId() == MENU_OPEN_EXTERNAL) {
+            openWithExternalReader();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    private void showSearchDialog() {
+        EditText input = new EditText(this);
+        input.setHint("输入要搜索的内容");
+        input.setSingleLine(true);
+        new AlertDialog.Builder(this)
+                .setTitle("搜索")
+                .setView(input)
+                .setPositiveButton("搜索", (dialog, which) -> searchText(input.getText().toString()))
+                .setNegativeButton("取消", null)
+                .show();
+    }
+
+    /**
+     * 在后台线程建立文本索引并搜索，完成后在页面上显示命中位置并跳到第一个结果
+     */
+    private void searchText(String query) {
+        if (!PDFSearchUtils.isValidSearchQuery(query) || pdfPageAdapter == null) {
+            Toast.makeText(this, "请输入有效的搜索内容", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (searchTask != null) {
+            searchTask.cancel(true);
+        }
+        Toast.makeText(this, "正在搜索...", Toast.LENGTH_SHORT).show();
+        searchTask = TaskScheduler.getInstance().submit(TaskScheduler.Lane.USER_VISIBLE, () -> {
+            List<PDFSearchUtils.SearchResult> results;
+            try {
+                if (textIndex == null) {
+                    PDFTextIndex index = new PDFTextIndex(pdfPath);
+                    index.open();
+                    textIndex = index;
+                }
+                results = PDFSearchUtils.searchInPDF(textIndex, query, new PDFSearchUtils.SearchOptions());
+            } catch (IOException e) {
+                Log.e(TAG, "建立PDF文本索引失败", e);
+                runOnUiThread(() -> Toast.makeText(this, "无法搜索该PDF文件", Toast.LENGTH_SHORT).show());
+                return;
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            runOnUiThread(() -> {
+                if (isFinishing() || isDestroyed() || pdfPageAdapter == null) {
+                    return;
+                }
+                pdfPageAdapter.setSearchResults(results);
+                hasSearchResults = !results.isEmpty();
+                invalidateOptionsMenu();
+                Toast.makeText(this, PDFSearchUtils.getSearchStatistics(results, query), Toast.LENGTH_SHORT).show();
+                if (hasSearchResults) {
+                    pdfPageAdapter.showSearchResult(0);
+                }
+            });
+        });
+    }
+
+    /**
+     * 列出本书的书签，点击跳到对应页
+     */
+    private void showBookmarks() {
+        if (bookmarkManager == null) {
+            return;
+        }
+        List<BookmarkManager.Bookmark> bookmarks = bookmarkManager.getBookmarks(pdfPath);
+        if (bookmarks.isEmpty()) {
+            Toast.makeText(this, "暂无书签，长按页面可添加书签", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        String[] items = new String[bookmarks.size()];
+        for (int i = 0; i < bookmarks.size(); i++) {
+            BookmarkManager.Bookmark bookmark = bookmarks.get(i);
+            String title = bookmark.getTitle() != null ? bookmark.getTitle() : "";
+            items[i] = "第 " + (bookmark.getPageNumber() + 1) + " 页  " + title;
+        }
+        new AlertDialog.Builder(this)
+                .setTitle("书签")
+                .setItems(items, (dialog, which) ->
+                        layoutManager.scrollToPositionWithOffset(bookmarks.get(which).getPageNumber(), 0))
+                .setNegativeButton("取消", null)
+                .show();
+    }
+
+    private void openWithExternalReader() {
+        try {
+            Uri pdfUri = androidx.core.content.FileProvider.getUriForFile(
+                    this, getPackageName() + ".fileprovider", new File(pdfPath));
+            Intent intent = new Intent(Intent.ACTION_VIEW);
+            intent.setDataAndType(pdfUri, "application/pdf");
+            intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+            if (intent.resolveActivity(getPackageManager()) != null) {
+                startActivity(intent);
+            } else {
+                Toast.makeText(this, "未找到PDF阅读器，请安装PDF阅读应用", Toast.LENGTH_LONG).show();
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "使用其他应用打开PDF失败", e);
+            Toast.makeText(this, "无法打开PDF文件：" + e.getMessage(), Toast.LENGTH_LONG).show();
+        }
+    }
+
+    private static void closeRenderer(PdfRenderer renderer, ParcelFileDescriptor descriptor) {
+        if (renderer != null) {
+            renderer.close();
+        }
+        if (descriptor != null) {
+            try {
+                descriptor.close();
+            } catch (IOException e) {
+                Log.w(TAG, "关闭PDF文件失败", e);
+            }
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // PdfRenderer由渲染线程独占，在渲染线程退出前的最后一个任务中关闭，主线程不等待
+        final PdfRenderer renderer = pdfRenderer;
+        final ParcelFileDescriptor descriptor = fileDescriptor;
+        pdfRenderer = null;
+        fileDescriptor = null;
+        if (pdfPageAdapter != null) {
+            // 先解除绑定，适配器在回调中注销内存协调器和卡顿监控
+            recyclerView.setAdapter(null);
+            pdfPageAdapter.cleanup(() -> closeRenderer(renderer, descriptor));
+            pdfPageAdapter = null;
+        } else {
+            closeRenderer(renderer, descriptor);
+        }
+        if (searchTask != null) {
+            searchTask.cancel(true);
+        }
+        // 文本索引的方法带锁，在后台关闭，不等正在进行的搜索
+        TaskScheduler.getInstance().execute(TaskScheduler.Lane.MAINTENANCE, () -> {
+            if (textIndex != null) {
+                textIndex.close();
+            }
+        });
+        if (readingPositionStore != null) {
+            readingPositionStore.shutdown();
+        }
+    }
+}
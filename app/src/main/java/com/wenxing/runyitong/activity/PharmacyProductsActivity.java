@@ -19,6 +19,7 @@ import com.wenxing.runyitong.api.ApiClient;
 import com.wenxing.runyitong.api.ApiResponse;
 import com.wenxing.runyitong.api.ProductListResponse;
 import com.wenxing.runyitong.model.Product;
+import com.wenxing.runyitong.utils.ViewPrewarmer;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -86,6 +87,8 @@ public class PharmacyProductsActivity extends AppCompatActivity {
         productAdapter = new ProductAdapter(this, productList);
         recyclerView.setLayoutManager(new GridLayoutManager(this, 2));
         recyclerView.setAdapter(productAdapter);
+        productAdapter.attachPreloader(recyclerView);
+        ViewPrewarmer.getInstance().attach(recyclerView, ProductAdapter.ROW_TYPE);
         
         // 设置商品点击事件
         productAdapter.setOnItemClickListener(product -> {
@@ -138,9 +138,12 @@ public class PhysicalExamDetailActivity extends AppCompatActivity {
         tvAbnormalItems.setText(examReport.getAbnormalItems() != null ? examReport.getAbnormalItems().toString() : "暂无异常项目");
         tvRecommendations.setText(examReport.getRecommendations() != null ? examReport.getRecommendations() : "暂无建议");
         
-        // 根据是否有报告URL决定是否显示查看报告按钮
-        if (examReport.getReportUrl() == null || examReport.getReportUrl().isEmpty()) {
+        // 根据是否有报告原件决定是否显示查看报告按钮，多页报告显示页数
+        int reportPageCount = examReport.getReportUrls().size();
+        if (reportPageCount == 0) {
             btnViewReport.setVisibility(View.GONE);
+        } else if (reportPageCount > 1) {
+            btnViewReport.setText(btnViewReport.getText() + "（共" + reportPageCount + "页）");
         }
     }
     
@@ -23,6 +23,7 @@ import com.wenxing.runyitong.api.ApiResponse;
 import com.wenxing.runyitong.api.RegisterResponse;
 import com.wenxing.runyitong.api.RegisterRequest;
 import com.wenxing.runyitong.api.SmsCodeResponse;
+import com.wenxing.runyitong.utils.InputValidator;
 import com.wenxing.runyitong.utils.ValidationManager;
 import retrofit2.Call;
 import retrofit2.Callback;
@@ -936,7 +937,7 @@ public class RegisterActivity extends AppCompatActivity {
 
     private boolean validateUsernameSms() {
         String username = etUsernameSms.getText().toString().trim();
-        ValidationManager.ValidationResult result = ValidationManager.validateUsername(username);
+        InputValidator.ValidationResult result = ValidationManager.validateUsername(username);
         if (!result.isValid()) {
             tilUsernameSms.setError(result.getErrorMessage());
             return false;
@@ -953,7 +954,7 @@ public class RegisterActivity extends AppCompatActivity {
             return false;
         }
         
-        ValidationManager.ValidationResult result = ValidationManager.validatePassword(password);
+        InputValidator.ValidationResult result = ValidationManager.validatePassword(password);
         if (!result.isValid()) {
             tilPasswordSms.setError(result.getErrorMessage());
             return false;
@@ -980,7 +981,7 @@ public class RegisterActivity extends AppCompatActivity {
 
     private boolean validateUsername() {
         String username = etUsername.getText().toString().trim();
-        ValidationManager.ValidationResult result = ValidationManager.validateUsername(username);
+        InputValidator.ValidationResult result = ValidationManager.validateUsername(username);
         if (!result.isValid()) {
             tilUsername.setError(result.getErrorMessage());
             return false;
@@ -992,7 +993,7 @@ public class RegisterActivity extends AppCompatActivity {
 
     private boolean validateEmail() {
         String email = etEmail.getText().toString().trim();
-        ValidationManager.ValidationResult result = ValidationManager.validateEmail(email);
+        InputValidator.ValidationResult result = ValidationManager.validateEmail(email);
         if (!result.isValid()) {
             tilEmail.setError(result.getErrorMessage());
             return false;
@@ -1004,7 +1005,7 @@ public class RegisterActivity extends AppCompatActivity {
 
     private boolean validatePhone() {
         String phone = etPhone.getText().toString().trim();
-        ValidationManager.ValidationResult result = ValidationManager.validatePhone(phone);
+        InputValidator.ValidationResult result = ValidationManager.validatePhone(phone);
         if (!result.isValid()) {
             tilPhone.setError(result.getErrorMessage());
             return false;
@@ -1016,7 +1017,7 @@ public class RegisterActivity extends AppCompatActivity {
 
     private boolean validateVerificationCode() {
         String code = etVerificationCode.getText().toString().trim();
-        ValidationManager.ValidationResult result = ValidationManager.validateVerificationCode(code);
+        InputValidator.ValidationResult result = ValidationManager.validateVerificationCode(code);
         if (!result.isValid()) {
             tilVerificationCode.setError(result.getErrorMessage());
             return false;
@@ -1033,7 +1034,7 @@ public class RegisterActivity extends AppCompatActivity {
             return false;
         }
         
-        ValidationManager.ValidationResult result = ValidationManager.validatePassword(password);
+        InputValidator.ValidationResult result = ValidationManager.validatePassword(password);
         if (!result.isValid()) {
             tilPassword.setError(result.getErrorMessage());
             return false;
@@ -5,6 +5,7 @@ import androidx.appcompat.widget.Toolbar;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.text.TextUtils;
 import android.view.MenuItem;
 import android.webkit.WebSettings;
 import android.webkit.WebView;
@@ -14,6 +15,8 @@ import android.widget.Toast;
 import com.wenxing.runyitong.R;
 import com.wenxing.runyitong.model.PhysicalExamReport;
 
+import java.util.List;
+
 public class ReportViewerActivity extends AppCompatActivity {
 
     private static final String TAG = "ReportViewerActivity";
@@ -77,7 +80,7 @@ public class ReportViewerActivity extends AppCompatActivity {
     }
     
     private void loadReportContent() {
-        // 由于没有实际的报告URL，我们创建一个HTML内容来显示报告信息
+        // 报告信息生成HTML显示，上传的报告原件按页附在末尾
         String reportContent = generateReportHtml();
         webView.loadDataWithBaseURL(null, reportContent, "text/html", "UTF-8", null);
     }
@@ -96,6 +99,7 @@ public class ReportViewerActivity extends AppCompatActivity {
         htmlBuilder.append("h1, h2 { color: #2196F3; }");
         htmlBuilder.append(".section { margin-bottom: 20px; padding: 15px; border: 1px solid #E0E0E0; border-radius: 5px; }");
         htmlBuilder.append(".label { font-weight: bold; color: #666; }");
+        htmlBuilder.append(".page { width: 100%; margin-bottom: 10px; border: 1px solid #E0E0E0; }");
         htmlBuilder.append("</style>");
         htmlBuilder.append("</head>");
         htmlBuilder.append("<body>");
@@ -156,6 +160,24 @@ public class ReportViewerActivity extends AppCompatActivity {
             htmlBuilder.append("</div>");
         }
         
+        // 报告原件，多页报告按页序显示
+        List<String> reportUrls = physicalExamReport.getReportUrls();
+        if (!reportUrls.isEmpty()) {
+            htmlBuilder.append("<div class='section'>");
+            htmlBuilder.append("<h2>报告原件（共").append(reportUrls.size()).append("页）</h2>");
+            for (int i = 0; i < reportUrls.size(); i++) {
+                String url = TextUtils.htmlEncode(reportUrls.get(i));
+                htmlBuilder.append("<p><span class='label'>第").append(i + 1).append("页</span></p>");
+                if (url.toLowerCase().endsWith(".pdf")) {
+                    // PDF文件无法内嵌显示，提供链接
+                    htmlBuilder.append("<p><a href='").append(url).append("'>打开报告文件</a></p>");
+                } else {
+                    htmlBuilder.append("<img class='page' src='").append(url).append("'>");
+                }
+            }
+            htmlBuilder.append("</div>");
+        }
+        
         htmlBuilder.append("</body>");
         htmlBuilder.append("</html>");
         
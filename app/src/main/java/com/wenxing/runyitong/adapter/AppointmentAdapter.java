@@ -1,7 +1,6 @@
 package com.wenxing.runyitong.adapter;
 
 import android.content.Context;
-import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.LinearLayout;
@@ -13,6 +12,7 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.wenxing.runyitong.R;
 import com.wenxing.runyitong.model.Appointment;
+import com.wenxing.runyitong.utils.ViewPrewarmer;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -25,6 +25,12 @@ import java.util.Locale;
  */
 public class AppointmentAdapter extends RecyclerView.Adapter<AppointmentAdapter.AppointmentViewHolder> {
 
+    // ViewHolder是内部类，引用所属Adapter的监听器，不跨页面共享回收池
+    public static final ViewPrewarmer.RowType ROW_TYPE = new ViewPrewarmer.RowType("appointment", R.layout.item_appointment)
+            .prewarm(4)
+            .maxRecycled(8)
+            .notShared();
+
     private Context context;
     private List<Appointment> appointments;
     private OnAppointmentClickListener listener;
@@ -113,7 +119,7 @@ public class AppointmentAdapter extends RecyclerView.Adapter<AppointmentAdapter.
     @NonNull
     @Override
     public AppointmentViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        View view = LayoutInflater.from(context).inflate(R.layout.item_appointment, parent, false);
+        View view = ViewPrewarmer.getInstance().inflate(parent, ROW_TYPE);
         return new AppointmentViewHolder(view);
     }
 
@@ -2,6 +2,7 @@ package com.wenxing.runyitong.adapter;
 
 import android.content.Context;
 import android.util.Log;
+import android.util.SparseArray;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -9,54 +10,133 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
+import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
 import com.wenxing.runyitong.R;
 import com.wenxing.runyitong.model.BookPage;
+import com.wenxing.runyitong.utils.BookPageRepository;
+import com.wenxing.runyitong.utils.BookTextLayoutCache;
 
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * 书籍文字页面适配器
+ * 设置BookPageRepository后按批次分页加载：接近末尾时预取下一批，
+ * 远离可视区域的批次被释放（需要时从磁盘缓存重新读取），
+ * 正文在后台用PrecomputedText排版，主线程绑定时不再测量文字。
+ */
 public class BookPageAdapter extends RecyclerView.Adapter<BookPageAdapter.PageViewHolder> {
     private static final String TAG = "BookPageAdapter";
+    // 距可视区域超过该批数的页面被释放
+    private static final int EVICT_DISTANCE_BATCHES = 2;
+    // 距已加载末尾不足该页数时预取下一批
+    private static final int PREFETCH_THRESHOLD = 3;
+    // 提前排版可视区域之后的页数
+    private static final int PRECOMPUTE_AHEAD = 4;
+
     private Context context;
-    private List<BookPage> pages;
-    
+    // 按位置保存的已加载页面，被释放的位置为空，显示占位并重新加载
+    private final SparseArray<BookPage> pages = new SparseArray<>();
+    private int itemCount = 0;
+
+    private BookPageRepository repository;
+    private boolean reachedEnd = false;
+
+    private final BookTextLayoutCache layoutCache = new BookTextLayoutCache();
+    private PrecomputedTextCompat.Params textParams;
+    private float contentTextSize = 0f;
+    private int contentWidth = 0;
+
+    private RecyclerView attachedRecyclerView;
+    private final RecyclerView.OnScrollListener windowScrollListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+            onViewportChanged(false);
+        }
+
+        @Override
+        public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+            if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                onViewportChanged(true);
+            }
+        }
+    };
+
     public BookPageAdapter(Context context, List<BookPage> pages) {
         if (context == null) {
             throw new IllegalArgumentException("Context cannot be null");
         }
         this.context = context;
-        this.pages = pages != null ? pages : new ArrayList<>();
-        Log.d(TAG, "BookPageAdapter created with " + this.pages.size() + " pages");
+        putPages(0, pages);
+        Log.d(TAG, "BookPageAdapter created with " + this.itemCount + " pages");
+    }
+
+    /**
+     * 使用分页仓库作为数据源，清空现有页面并加载第一批
+     */
+    public void setPageSource(BookPageRepository repository) {
+        this.repository = repository;
+        int oldCount = itemCount;
+        pages.clear();
+        itemCount = 0;
+        reachedEnd = false;
+        if (oldCount > 0) {
+            notifyItemRangeRemoved(0, oldCount);
+        }
+
+        if (repository != null) {
+            requestBatch(1);
+        }
+    }
+
+    public boolean hasReachedEnd() {
+        return reachedEnd;
     }
-    
+
     @NonNull
     @Override
     public PageViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(context).inflate(R.layout.book_page_item, parent, false);
-        return new PageViewHolder(view);
+        PageViewHolder holder = new PageViewHolder(view);
+
+        // 所有条目样式相同，以第一个创建的条目为准获取排版参数
+        if (textParams == null) {
+            textParams = TextViewCompat.getTextMetricsParams(holder.pageContentTextView);
+            contentTextSize = holder.pageContentTextView.getTextSize();
+        }
+        holder.pageContentTextView.addOnLayoutChangeListener((v, left, top, right, bottom,
+                oldLeft, oldTop, oldRight, oldBottom) -> {
+            int width = v.getWidth() - v.getPaddingLeft() - v.getPaddingRight();
+            if (width > 0) {
+                contentWidth = width;
+            }
+        });
+        return holder;
     }
-    
+
     @Override
     public void onBindViewHolder(@NonNull PageViewHolder holder, int position) {
-        if (pages == null || position < 0 || position >= pages.size()) {
-            Log.e(TAG, "Invalid position or null pages list: position=" + position + ", pages size=" + (pages != null ? pages.size() : "null"));
+        if (position < 0 || position >= itemCount) {
+            Log.e(TAG, "Invalid position: position=" + position + ", item count=" + itemCount);
             return;
         }
-        
+
         BookPage page = pages.get(position);
         if (page == null) {
-            Log.e(TAG, "Page at position " + position + " is null");
+            // 页面已被释放或尚未加载
+            bindPlaceholder(holder, position);
+            requestBatch(batchForPosition(position));
             return;
         }
-        
-        Log.d(TAG, "Binding page: " + page.getPageNumber() + " at position " + position);
-        
+
         // 设置页码
         holder.pageNumberTextView.setText("第 " + page.getPageNumber() + " 页");
-        
+
         // 设置标题
         if (page.getTitle() != null && !page.getTitle().isEmpty()) {
             holder.pageTitleTextView.setText(page.getTitle());
@@ -64,16 +144,16 @@ public class BookPageAdapter extends RecyclerView.Adapter<BookPageAdapter.PageVi
         } else {
             holder.pageTitleTextView.setVisibility(View.GONE);
         }
-        
+
         // 设置内容
         if (page.getContent() != null && !page.getContent().isEmpty()) {
-            holder.pageContentTextView.setText(page.getContent());
-            holder.pageContentTextView.setVisibility(View.VISIBLE);
+            bindContent(holder, page);
         } else {
+            holder.layoutKey = null;
             holder.pageContentTextView.setText("此页暂无文字内容");
-            holder.pageContentTextView.setVisibility(View.VISIBLE);
         }
-        
+        holder.pageContentTextView.setVisibility(View.VISIBLE);
+
         // 设置图片
         if (page.getImageUrl() != null && !page.getImageUrl().isEmpty()) {
             holder.pageImageView.setVisibility(View.VISIBLE);
@@ -93,59 +173,272 @@ public class BookPageAdapter extends RecyclerView.Adapter<BookPageAdapter.PageVi
             Glide.with(context).clear(holder.pageImageView);
         }
     }
-    
+
+    private void bindPlaceholder(PageViewHolder holder, int position) {
+        holder.layoutKey = null;
+        holder.pageNumberTextView.setText("第 " + (position + 1) + " 页");
+        holder.pageTitleTextView.setVisibility(View.GONE);
+        holder.pageContentTextView.setText("正在加载...");
+        holder.pageContentTextView.setVisibility(View.VISIBLE);
+        holder.pageImageView.setVisibility(View.GONE);
+        Glide.with(context).clear(holder.pageImageView);
+    }
+
+    /**
+     * 绑定正文：已排版直接设置，否则在后台排版完成后再设置
+     */
+    private void bindContent(PageViewHolder holder, BookPage page) {
+        if (textParams == null || contentWidth <= 0) {
+            // 首屏还没有宽度信息，直接设置文字
+            holder.layoutKey = null;
+            holder.pageContentTextView.setText(page.getContent());
+            return;
+        }
+
+        String key = BookTextLayoutCache.buildKey(page.getId(), contentWidth, contentTextSize);
+        holder.layoutKey = key;
+
+        PrecomputedTextCompat cached = layoutCache.get(key);
+        if (cached != null) {
+            applyPrecomputedText(holder, cached, page.getContent());
+            return;
+        }
+
+        holder.pageContentTextView.setText("");
+        layoutCache.precompute(key, page.getContent(), textParams, (readyKey, text) -> {
+            // ViewHolder可能已被复用
+            if (readyKey.equals(holder.layoutKey)) {
+                applyPrecomputedText(holder, text, page.getContent());
+            }
+        });
+    }
+
+    private void applyPrecomputedText(PageViewHolder holder, PrecomputedTextCompat text, String fallback) {
+        try {
+            TextViewCompat.setPrecomputedText(holder.pageContentTextView, text);
+        } catch (IllegalArgumentException e) {
+            // 排版参数与TextView不一致（例如字体已变化），退回普通设置
+            Log.w(TAG, "Precomputed text params mismatch, falling back to setText");
+            holder.pageContentTextView.setText(fallback);
+        }
+    }
+
     @Override
     public int getItemCount() {
-        int count = pages != null ? pages.size() : 0;
-        Log.d(TAG, "getItemCount: " + count);
-        return count;
+        return itemCount;
     }
-    
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        attachedRecyclerView = recyclerView;
+        recyclerView.addOnScrollListener(windowScrollListener);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        recyclerView.removeOnScrollListener(windowScrollListener);
+        if (attachedRecyclerView == recyclerView) {
+            attachedRecyclerView = null;
+        }
+    }
+
+    /**
+     * 可视区域变化：预取下一批、预排版前方页面，停止滚动时释放远处页面
+     */
+    private void onViewportChanged(boolean settled) {
+        if (attachedRecyclerView == null || !(attachedRecyclerView.getLayoutManager() instanceof LinearLayoutManager)) {
+            return;
+        }
+
+        LinearLayoutManager layoutManager = (LinearLayoutManager) attachedRecyclerView.getLayoutManager();
+        int first = layoutManager.findFirstVisibleItemPosition();
+        int last = layoutManager.findLastVisibleItemPosition();
+        if (first == RecyclerView.NO_POSITION || last == RecyclerView.NO_POSITION) {
+            return;
+        }
+
+        if (repository != null && !reachedEnd && last >= itemCount - PREFETCH_THRESHOLD) {
+            requestBatch(batchForPosition(itemCount));
+        }
+
+        precomputeAhead(last + 1, Math.min(itemCount - 1, last + PRECOMPUTE_AHEAD));
+
+        if (settled) {
+            evictOutside(first, last);
+        }
+    }
+
+    private void precomputeAhead(int from, int to) {
+        if (textParams == null || contentWidth <= 0) {
+            return;
+        }
+        for (int position = from; position <= to; position++) {
+            BookPage page = pages.get(position);
+            if (page != null && page.hasContent()) {
+                String key = BookTextLayoutCache.buildKey(page.getId(), contentWidth, contentTextSize);
+                layoutCache.precompute(key, page.getContent(), textParams, null);
+            }
+        }
+    }
+
+    /**
+     * 释放距离可视区域较远的页面，只在有仓库可重新加载时生效
+     */
+    private void evictOutside(int first, int last) {
+        if (repository == null) {
+            return;
+        }
+
+        int distance = EVICT_DISTANCE_BATCHES * repository.getBatchSize();
+        int keepFrom = first - distance;
+        int keepTo = last + distance;
+        int evicted = 0;
+        for (int i = pages.size() - 1; i >= 0; i--) {
+            int position = pages.keyAt(i);
+            if (position < keepFrom || position > keepTo) {
+                pages.removeAt(i);
+                evicted++;
+            }
+        }
+
+        if (evicted > 0) {
+            Log.d(TAG, "Evicted " + evicted + " pages outside [" + keepFrom + ", " + keepTo + "], resident: " + pages.size());
+        }
+    }
+
+    private int batchForPosition(int position) {
+        if (repository == null) {
+            return 0;
+        }
+        return position / repository.getBatchSize() + 1;
+    }
+
+    private void requestBatch(int batch) {
+        if (repository == null || batch < 1 || repository.isLoading(batch)) {
+            return;
+        }
+        if (reachedEnd && (batch - 1) * repository.getBatchSize() >= itemCount) {
+            return;
+        }
+
+        final BookPageRepository source = repository;
+        repository.loadBatch(batch, new BookPageRepository.BatchCallback() {
+            @Override
+            public void onBatchLoaded(int loadedBatch, List<BookPage> batchPages, boolean isLastBatch) {
+                if (repository != source) {
+                    return;
+                }
+                int start = (loadedBatch - 1) * source.getBatchSize();
+                if (isLastBatch) {
+                    reachedEnd = true;
+                }
+                putPages(start, batchPages);
+            }
+
+            @Override
+            public void onBatchFailed(int failedBatch, String errorMessage) {
+                Log.e(TAG, "Failed to load batch " + failedBatch + ": " + errorMessage);
+            }
+        });
+    }
+
+    /**
+     * 从start位置写入页面，超出当前条目数的部分作为新条目插入
+     */
+    private void putPages(int start, List<BookPage> newPages) {
+        if (newPages == null || newPages.isEmpty()) {
+            return;
+        }
+
+        int oldCount = itemCount;
+        for (int i = 0; i < newPages.size(); i++) {
+            pages.put(start + i, newPages.get(i));
+        }
+        int end = start + newPages.size();
+
+        if (end > oldCount) {
+            itemCount = end;
+            int changedEnd = Math.min(end, oldCount);
+            if (changedEnd > start) {
+                notifyItemRangeChanged(start, changedEnd - start);
+            }
+            int insertStart = Math.max(start, oldCount);
+            notifyItemRangeInserted(insertStart, end - insertStart);
+        } else {
+            notifyItemRangeChanged(start, newPages.size());
+        }
+    }
+
     public void updatePages(List<BookPage> newPages) {
         Log.d(TAG, "Updating pages list. New size: " + (newPages != null ? newPages.size() : 0));
-        this.pages = newPages != null ? newPages : new ArrayList<>();
+        repository = null;
+        pages.clear();
+        itemCount = 0;
+        reachedEnd = false;
+        if (newPages != null) {
+            for (int i = 0; i < newPages.size(); i++) {
+                pages.put(i, newPages.get(i));
+            }
+            itemCount = newPages.size();
+        }
         notifyDataSetChanged();
     }
-    
+
     public void addPages(List<BookPage> newPages) {
         if (newPages != null && !newPages.isEmpty()) {
-            if (pages == null) {
-                pages = new ArrayList<>();
-            }
-            int startPosition = pages.size();
-            pages.addAll(newPages);
-            notifyItemRangeInserted(startPosition, newPages.size());
-            Log.d(TAG, "Added " + newPages.size() + " pages. Total: " + pages.size());
+            putPages(itemCount, newPages);
+            Log.d(TAG, "Added " + newPages.size() + " pages. Total: " + itemCount);
         } else {
             Log.d(TAG, "No new pages to add");
         }
     }
-    
+
     public void clearPages() {
-        if (pages != null) {
-            int size = pages.size();
-            pages.clear();
+        int size = itemCount;
+        pages.clear();
+        itemCount = 0;
+        reachedEnd = false;
+        if (size > 0) {
             notifyItemRangeRemoved(0, size);
-            Log.d(TAG, "Cleared all pages");
         }
+        Log.d(TAG, "Cleared all pages");
     }
-    
+
     public BookPage getPage(int position) {
-        if (pages != null && position >= 0 && position < pages.size()) {
+        if (position >= 0 && position < itemCount) {
             return pages.get(position);
         }
         return null;
     }
-    
+
+    /**
+     * 返回当前驻留内存的页面，按位置排序
+     */
     public List<BookPage> getPages() {
-        return pages != null ? new ArrayList<>(pages) : new ArrayList<>();
+        List<BookPage> result = new ArrayList<>(pages.size());
+        for (int i = 0; i < pages.size(); i++) {
+            result.add(pages.valueAt(i));
+        }
+        return result;
     }
-    
+
     public boolean isEmpty() {
-        return pages == null || pages.isEmpty();
+        return itemCount == 0;
     }
-    
+
     public void cleanup() {
+        if (attachedRecyclerView != null) {
+            attachedRecyclerView.removeOnScrollListener(windowScrollListener);
+            attachedRecyclerView = null;
+        }
+        if (repository != null) {
+            repository.shutdown();
+            repository = null;
+        }
+        layoutCache.shutdown();
+
         if (context != null) {
             // 清理Glide缓存
             try {
@@ -156,13 +449,15 @@ public class BookPageAdapter extends RecyclerView.Adapter<BookPageAdapter.PageVi
         }
         Log.d(TAG, "Adapter cleanup completed");
     }
-    
+
     public static class PageViewHolder extends RecyclerView.ViewHolder {
         TextView pageNumberTextView;
         TextView pageTitleTextView;
         TextView pageContentTextView;
         ImageView pageImageView;
-        
+        // 当前绑定正文的排版缓存键，用于丢弃复用后才完成的排版结果
+        String layoutKey;
+
         public PageViewHolder(@NonNull View itemView) {
             super(itemView);
             pageNumberTextView = itemView.findViewById(R.id.page_number);
@@ -171,4 +466,4 @@ public class BookPageAdapter extends RecyclerView.Adapter<BookPageAdapter.PageVi
             pageImageView = itemView.findViewById(R.id.page_image);
         }
     }
-}
\ No newline at end of file
+}
@@ -12,19 +12,36 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.ListPreloader;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.load.resource.bitmap.CenterCrop;
 import com.bumptech.glide.load.resource.bitmap.RoundedCorners;
 import com.bumptech.glide.request.RequestOptions;
+import com.bumptech.glide.util.FixedPreloadSizeProvider;
 import com.wenxing.runyitong.R;
 import com.wenxing.runyitong.model.Book;
 
 
+import java.util.Collections;
 import java.util.List;
 
-public class BookshelfAdapter extends RecyclerView.Adapter<BookshelfAdapter.BookViewHolder> {
+public class BookshelfAdapter extends RecyclerView.Adapter<BookshelfAdapter.BookViewHolder>
+        implements ListPreloader.PreloadModelProvider<String> {
     private static final String TAG = "BookshelfAdapter";
+    // 封面尺寸，与bookshelf_item.xml一致
+    private static final int COVER_WIDTH_DP = 100;
+    private static final int COVER_HEIGHT_DP = 140;
+    // 向滚动方向预加载的书籍数，约为三列网格的三行
+    private static final int MAX_PRELOAD = 9;
+
     private List<Book> books;
     private Context context;
     private OnBookClickListener onBookClickListener;
+    private final int coverWidth;
+    private final int coverHeight;
+    private final RequestOptions coverOptions;
 
     public interface OnBookClickListener {
         void onBookClick(Book book);
@@ -34,6 +51,43 @@ public class BookshelfAdapter extends RecyclerView.Adapter<BookshelfAdapter.Book
         this.context = context;
         this.books = books;
         Log.d(TAG, "BookshelfAdapter created with " + (books != null ? books.size() : 0) + " books");
+
+        // 按封面尺寸解码并裁剪，预加载与绑定使用同一尺寸才能命中内存缓存
+        float density = context.getResources().getDisplayMetrics().density;
+        this.coverWidth = Math.round(COVER_WIDTH_DP * density);
+        this.coverHeight = Math.round(COVER_HEIGHT_DP * density);
+        this.coverOptions = new RequestOptions()
+                .transform(new CenterCrop(), new RoundedCorners(12))
+                .override(coverWidth, coverHeight)
+                .format(DecodeFormat.PREFER_RGB_565)
+                .placeholder(R.drawable.ic_book_placeholder)
+                .error(R.drawable.ic_book_placeholder);
+    }
+
+    /**
+     * 为书架网格挂载封面预加载，滚动时提前加载即将出现的封面
+     */
+    public void attachPreloader(RecyclerView recyclerView) {
+        recyclerView.addOnScrollListener(new RecyclerViewPreloader<>(Glide.with(context), this,
+                new FixedPreloadSizeProvider<>(coverWidth, coverHeight), MAX_PRELOAD));
+    }
+
+    @NonNull
+    @Override
+    public List<String> getPreloadItems(int position) {
+        if (books == null || position < 0 || position >= books.size()) {
+            return Collections.emptyList();
+        }
+        String coverUrl = books.get(position).getCoverUrl();
+        if (coverUrl == null || coverUrl.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(coverUrl);
+    }
+
+    @Override
+    public RequestBuilder<?> getPreloadRequestBuilder(@NonNull String coverUrl) {
+        return Glide.with(context).load(coverUrl).apply(coverOptions);
     }
 
     public void setOnBookClickListener(OnBookClickListener listener) {
@@ -60,10 +114,7 @@ public class BookshelfAdapter extends RecyclerView.Adapter<BookshelfAdapter.Book
         if (book.getCoverUrl() != null && !book.getCoverUrl().isEmpty()) {
             Glide.with(context)
                     .load(book.getCoverUrl())
-                    .apply(new RequestOptions()
-                            .transform(new RoundedCorners(12))
-                            .placeholder(R.drawable.ic_book_placeholder)
-                            .error(R.drawable.ic_book_placeholder))
+                    .apply(coverOptions)
                     .into(holder.bookCover);
         } else {
             holder.bookCover.setImageResource(R.drawable.ic_book_placeholder);
@@ -1,6 +1,5 @@
 package com.wenxing.runyitong.adapter;
 
-import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
@@ -9,9 +8,15 @@ import androidx.cardview.widget.CardView;
 import androidx.recyclerview.widget.RecyclerView;
 import com.wenxing.runyitong.R;
 import com.wenxing.runyitong.model.Department;
+import com.wenxing.runyitong.utils.ViewPrewarmer;
 import java.util.List;
 
 public class DepartmentAdapter extends RecyclerView.Adapter<DepartmentAdapter.DepartmentViewHolder> {
+
+    // 挂号页和医院科室页共用
+    public static final ViewPrewarmer.RowType ROW_TYPE = new ViewPrewarmer.RowType("department", R.layout.item_department)
+            .prewarm(8)
+            .maxRecycled(12);
     
     private List<Department> departmentList;
     private OnDepartmentClickListener listener;
@@ -29,8 +34,7 @@ public class DepartmentAdapter extends RecyclerView.Adapter<DepartmentAdapter.De
     @NonNull
     @Override
     public DepartmentViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        View view = LayoutInflater.from(parent.getContext())
-                .inflate(R.layout.item_department, parent, false);
+        View view = ViewPrewarmer.getInstance().inflate(parent, ROW_TYPE);
         return new DepartmentViewHolder(view);
     }
     
@@ -1,6 +1,5 @@
 package com.wenxing.runyitong.adapter;
 
-import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
@@ -9,9 +8,15 @@ import androidx.cardview.widget.CardView;
 import androidx.recyclerview.widget.RecyclerView;
 import com.wenxing.runyitong.R;
 import com.wenxing.runyitong.model.Doctor;
+import com.wenxing.runyitong.utils.ViewPrewarmer;
 import java.util.List;
 
 public class DoctorAdapter extends RecyclerView.Adapter<DoctorAdapter.DoctorViewHolder> {
+
+    // 挂号页和医院科室页共用
+    public static final ViewPrewarmer.RowType ROW_TYPE = new ViewPrewarmer.RowType("doctor", R.layout.item_doctor)
+            .prewarm(6)
+            .maxRecycled(10);
     
     private List<Doctor> doctorList;
     private OnDoctorClickListener listener;
@@ -29,8 +34,7 @@ public class DoctorAdapter extends RecyclerView.Adapter<DoctorAdapter.DoctorView
     @NonNull
     @Override
     public DoctorViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        View view = LayoutInflater.from(parent.getContext())
-                .inflate(R.layout.item_doctor, parent, false);
+        View view = ViewPrewarmer.getInstance().inflate(parent, ROW_TYPE);
         return new DoctorViewHolder(view);
     }
     
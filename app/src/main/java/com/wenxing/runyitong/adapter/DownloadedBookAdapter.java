@@ -1,6 +1,7 @@
 package com.wenxing.runyitong.adapter;
 
 import android.content.Context;
+import android.content.res.ColorStateList;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -8,9 +9,12 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.core.widget.ImageViewCompat;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.bumptech.glide.Glide;
 import com.wenxing.runyitong.R;
+import com.wenxing.runyitong.utils.DownloadedBookCatalog;
 
 import java.io.File;
 import java.text.SimpleDateFormat;
@@ -22,6 +26,8 @@ public class DownloadedBookAdapter extends RecyclerView.Adapter<DownloadedBookAd
     private Context context;
     private List<File> downloadedBooks;
     private OnBookClickListener onBookClickListener;
+    private DownloadedBookCatalog catalog;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.getDefault());
 
     public interface OnBookClickListener {
         void onBookClick(File bookFile);
@@ -40,6 +46,11 @@ public class DownloadedBookAdapter extends RecyclerView.Adapter<DownloadedBookAd
         this.onBookClickListener = listener;
     }
     
+    // 设置书籍目录，绑定时直接使用目录中缓存的元数据和封面
+    public void setCatalog(DownloadedBookCatalog catalog) {
+        this.catalog = catalog;
+    }
+    
     // 删除书籍的方法
     public void removeBook(int position) {
         if (downloadedBooks != null && position >= 0 && position < downloadedBooks.size()) {
@@ -106,46 +117,49 @@ public class DownloadedBookAdapter extends RecyclerView.Adapter<DownloadedBookAd
             }
             
             File bookFile = downloadedBooks.get(position);
-            if (bookFile == null || !bookFile.exists()) {
-                android.util.Log.e("DownloadedBookAdapter", "Book file is null or does not exist at position " + position);
+            if (bookFile == null) {
+                android.util.Log.e("DownloadedBookAdapter", "Book file is null at position " + position);
                 return;
             }
-            android.util.Log.d("DownloadedBookAdapter", "Binding book at position " + position + ": " + bookFile.getName());
             
             // 检查ViewHolder的TextView是否为null
-            if (holder.bookNameTextView == null) {
-                android.util.Log.e("DownloadedBookAdapter", "bookNameTextView is null!");
-                return;
-            }
-            if (holder.fileSizeTextView == null) {
-                android.util.Log.e("DownloadedBookAdapter", "fileSizeTextView is null!");
-                return;
-            }
-            if (holder.downloadTimeTextView == null) {
-                android.util.Log.e("DownloadedBookAdapter", "downloadTimeTextView is null!");
+            if (holder.bookNameTextView == null || holder.fileSizeTextView == null || holder.downloadTimeTextView == null) {
+                android.util.Log.e("DownloadedBookAdapter", "Some TextViews are null at position " + position);
                 return;
             }
             
-            // 设置书籍名称（去掉.pdf扩展名）
-            String fileName = bookFile.getName();
-            if (fileName.endsWith(".pdf")) {
-                fileName = fileName.substring(0, fileName.length() - 4);
+            DownloadedBookCatalog.BookEntry entry = catalog != null ? catalog.getEntry(bookFile) : null;
+            
+            // 优先使用目录中的元数据，避免在UI线程访问文件系统
+            String title;
+            long fileSize;
+            long lastModified;
+            if (entry != null) {
+                title = entry.getTitle();
+                fileSize = entry.getFileSize();
+                lastModified = entry.getLastModified();
+            } else {
+                title = bookFile.getName();
+                if (title.endsWith(".pdf")) {
+                    title = title.substring(0, title.length() - 4);
+                }
+                fileSize = bookFile.length();
+                lastModified = bookFile.lastModified();
             }
-            holder.bookNameTextView.setText(fileName);
-            android.util.Log.d("DownloadedBookAdapter", "Set book name: " + fileName);
             
-            // 设置文件大小
-            long fileSize = bookFile.length();
+            holder.bookNameTextView.setText(title);
+            
             String fileSizeText = formatFileSize(fileSize);
+            if (entry != null && entry.getPageCount() > 0) {
+                fileSizeText += " · " + entry.getPageCount() + " 页";
+            }
             holder.fileSizeTextView.setText(fileSizeText);
-            android.util.Log.d("DownloadedBookAdapter", "Set file size: " + fileSizeText);
             
             // 设置下载时间（文件修改时间）
-            long lastModified = bookFile.lastModified();
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.getDefault());
-            String downloadTime = sdf.format(new Date(lastModified));
-            holder.downloadTimeTextView.setText("下载时间: " + downloadTime);
-            android.util.Log.d("DownloadedBookAdapter", "Set download time: " + downloadTime);
+            holder.downloadTimeTextView.setText("下载时间: " + dateFormat.format(new Date(lastModified)));
+            
+            // 封面缩略图
+            bindCover(holder, entry);
             
             // 确保卡片可见
             holder.itemView.setVisibility(android.view.View.VISIBLE);
@@ -153,7 +167,7 @@ public class DownloadedBookAdapter extends RecyclerView.Adapter<DownloadedBookAd
             // 设置打开按钮点击事件
             if (holder.openButton != null) {
                 holder.openButton.setOnClickListener(v -> {
-                    if (onBookClickListener != null && bookFile != null && bookFile.exists()) {
+                    if (onBookClickListener != null && bookFile.exists()) {
                         onBookClickListener.onBookClick(bookFile);
                     }
                 });
@@ -172,18 +186,35 @@ public class DownloadedBookAdapter extends RecyclerView.Adapter<DownloadedBookAd
             
             // 保留整个item的点击事件（用于打开书籍）
             holder.itemView.setOnClickListener(v -> {
-                if (onBookClickListener != null && bookFile != null && bookFile.exists()) {
+                if (onBookClickListener != null && bookFile.exists()) {
                     onBookClickListener.onBookClick(bookFile);
                 }
             });
             
-            android.util.Log.d("DownloadedBookAdapter", "Successfully bound book at position " + position);
-            
         } catch (Exception e) {
             android.util.Log.e("DownloadedBookAdapter", "Error binding book at position " + position, e);
         }
     }
 
+    private void bindCover(DownloadedBookViewHolder holder, DownloadedBookCatalog.BookEntry entry) {
+        if (holder.bookIconImageView == null) {
+            return;
+        }
+        
+        if (entry != null && entry.hasCover()) {
+            // 封面是彩色图片，去掉图标的着色
+            ImageViewCompat.setImageTintList(holder.bookIconImageView, null);
+            Glide.with(context)
+                    .load(entry.getCoverFile())
+                    .placeholder(R.drawable.ic_book_placeholder)
+                    .into(holder.bookIconImageView);
+        } else {
+            Glide.with(context).clear(holder.bookIconImageView);
+            ImageViewCompat.setImageTintList(holder.bookIconImageView, holder.defaultIconTint);
+            holder.bookIconImageView.setImageResource(R.drawable.ic_book_placeholder);
+        }
+    }
+
     @Override
     public int getItemCount() {
         return downloadedBooks != null ? downloadedBooks.size() : 0;
@@ -206,6 +237,7 @@ public class DownloadedBookAdapter extends RecyclerView.Adapter<DownloadedBookAd
         TextView downloadTimeTextView;
         ImageView deleteButton;
         ImageView openButton;
+        ColorStateList defaultIconTint;
 
         public DownloadedBookViewHolder(@NonNull View itemView) {
             super(itemView);
@@ -217,6 +249,9 @@ public class DownloadedBookAdapter extends RecyclerView.Adapter<DownloadedBookAd
             downloadTimeTextView = itemView.findViewById(R.id.download_time);
             deleteButton = itemView.findViewById(R.id.delete_button);
             openButton = itemView.findViewById(R.id.open_button);
+            if (bookIconImageView != null) {
+                defaultIconTint = ImageViewCompat.getImageTintList(bookIconImageView);
+            }
             
             // 检查所有View是否找到
             android.util.Log.d("DownloadedBookAdapter", "bookIconImageView: " + (bookIconImageView != null ? "found" : "NULL"));
@@ -4,7 +4,6 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.net.Uri;
-import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
@@ -28,6 +27,7 @@ import android.widget.LinearLayout;
 import android.util.TypedValue;
 import android.view.Gravity;
 import com.wenxing.runyitong.utils.OverlayPermissionManager;
+import com.wenxing.runyitong.utils.ViewPrewarmer;
 import android.app.Activity;
 import android.widget.ImageView;
 import android.text.SpannableString;
@@ -36,6 +36,11 @@ import android.text.Spannable;
 import android.graphics.Typeface;
 
 public class HospitalAdapter extends RecyclerView.Adapter<HospitalAdapter.HospitalViewHolder> {
+
+    // 医院卡片较重，预热约一屏的数量
+    public static final ViewPrewarmer.RowType ROW_TYPE = new ViewPrewarmer.RowType("hospital", R.layout.item_hospital)
+            .prewarm(8)
+            .maxRecycled(12);
     
     private List<Hospital> hospitalList;
     private OnHospitalClickListener listener;
@@ -72,8 +77,7 @@ public class HospitalAdapter extends RecyclerView.Adapter<HospitalAdapter.Hospit
     @NonNull
     @Override
     public HospitalViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        View view = LayoutInflater.from(parent.getContext())
-                .inflate(R.layout.item_hospital, parent, false);
+        View view = ViewPrewarmer.getInstance().inflate(parent, ROW_TYPE);
         return new HospitalViewHolder(view);
     }
     
@@ -401,9 +405,12 @@ public class HospitalAdapter extends RecyclerView.Adapter<HospitalAdapter.Hospit
             if (accessibilityService != null && isAccessibilityServiceEnabled()) {
                 try {
                     android.util.Log.d("HospitalAdapter", "方法1：使用无障碍服务自动搜索");
-                    accessibilityService.startWeChatSearch(searchKeyword);;
-                    Toast.makeText(context, "正在自动打开微信搜索：" + searchKeyword, Toast.LENGTH_SHORT).show();
-                    success = true;
+                    success = accessibilityService.startWeChatSearch(searchKeyword);
+                    if (success) {
+                        Toast.makeText(context, "正在自动打开微信搜索：" + searchKeyword, Toast.LENGTH_SHORT).show();
+                    } else {
+                        errorMessage += "方法1失败：无障碍服务未能启动搜索; ";
+                    }
                 } catch (Exception e) {
                     android.util.Log.e("HospitalAdapter", "方法1异常：" + e.getMessage());
                     errorMessage += "方法1异常：" + e.getMessage() + "; ";
@@ -479,9 +486,12 @@ public class HospitalAdapter extends RecyclerView.Adapter<HospitalAdapter.Hospit
             if (accessibilityService != null && isAccessibilityServiceEnabled()) {
                 try {
                     android.util.Log.d("HospitalAdapter", "方法1：使用无障碍服务自动搜索");
-                    accessibilityService.performWeChatSearch();
-                    Toast.makeText(context, "正在自动打开微信搜索：" + searchKeyword, Toast.LENGTH_SHORT).show();
-                    success = true;
+                    success = accessibilityService.startWeChatSearch(searchKeyword);
+                    if (success) {
+                        Toast.makeText(context, "正在自动打开微信搜索：" + searchKeyword, Toast.LENGTH_SHORT).show();
+                    } else {
+                        errorMessage += "方法1失败：无障碍服务未能启动搜索; ";
+                    }
                 } catch (Exception e) {
                     android.util.Log.e("HospitalAdapter", "方法1异常：" + e.getMessage());
                     errorMessage += "方法1异常：" + e.getMessage() + "; ";
@@ -1,7 +1,6 @@
 package com.wenxing.runyitong.adapter;
 
 import android.content.Context;
-import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
@@ -9,10 +8,16 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 import com.wenxing.runyitong.R;
 import com.wenxing.runyitong.model.Order;
+import com.wenxing.runyitong.utils.ViewPrewarmer;
 import java.util.List;
 
 public class OrderAdapter extends RecyclerView.Adapter<OrderAdapter.OrderViewHolder> {
 
+    // 订单卡片
+    public static final ViewPrewarmer.RowType ROW_TYPE = new ViewPrewarmer.RowType("order", R.layout.order_item)
+            .prewarm(4)
+            .maxRecycled(8);
+
     private Context context;
     private List<Order> orderList;
 
@@ -33,7 +38,7 @@ public class OrderAdapter extends RecyclerView.Adapter<OrderAdapter.OrderViewHol
     @NonNull
     @Override
     public OrderViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        View view = LayoutInflater.from(context).inflate(R.layout.order_item, parent, false);
+        View view = ViewPrewarmer.getInstance().inflate(parent, ROW_TYPE);
         return new OrderViewHolder(view);
     }
 
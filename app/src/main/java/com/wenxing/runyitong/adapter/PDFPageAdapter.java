@@ -3,12 +3,14 @@ package com.wenxing.runyitong.adapter;
 import android.animation.ObjectAnimator;
 import android.content.Context;
 import android.graphics.Bitmap;
+import android.graphics.RectF;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.graphics.pdf.PdfRenderer;
 import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
+import android.util.SparseArray;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -19,28 +21,37 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.wenxing.runyitong.R;
 import com.wenxing.runyitong.model.PDFPageModel;
+import com.wenxing.runyitong.utils.BookmarkManager;
+import com.wenxing.runyitong.utils.JankMonitor;
+import com.wenxing.runyitong.utils.MemoryCoordinator;
+import com.wenxing.runyitong.utils.PDFReadAheadController;
+import com.wenxing.runyitong.utils.PDFRenderScheduler;
+import com.wenxing.runyitong.utils.PDFSearchHighlightDrawable;
 import com.wenxing.runyitong.utils.PDFSearchUtils;
 import com.wenxing.runyitong.utils.PDFZoomUtils;
+import com.wenxing.runyitong.utils.ReadingPositionStore;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
-public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageViewHolder> {
+public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageViewHolder>
+        implements PDFReadAheadController.PrerenderTarget {
     private static final String TAG = "PDFPageAdapter";
     private static final int BITMAP_QUALITY = 85;
     private static final float DEFAULT_ZOOM = 1.0f;
     private static final int ANIMATION_DURATION = 300;
+    private static final float PREVIEW_SCALE = 0.5f; // 预读预览相对最终分辨率的比例
+    private static final long DEFAULT_PAGE_BYTES = 1240L * 1754 * 4; // 未渲染过页面时按A4@150dpi估算
     
     private Context context;
     private List<PDFPageModel> pages;
     private PdfRenderer pdfRenderer;
-    private ExecutorService executorService;
+    private PDFRenderScheduler renderScheduler; // 单线程独占PdfRenderer
     private Handler mainHandler;
     private OnPageClickListener onPageClickListener;
     
@@ -48,10 +59,74 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
     private float zoomLevel = PDFZoomUtils.DEFAULT_ZOOM;
     private List<PDFSearchUtils.SearchResult> searchResults;
     private int highlightedPageIndex = -1;
+    // 按页分组的搜索结果和当前选中的结果下标，只用于绘制高亮层
+    private final SparseArray<List<PDFSearchUtils.SearchResult>> searchResultsByPage = new SparseArray<>();
+    private int activeSearchIndex = -1;
     private OnPageLongClickListener onPageLongClickListener;
     private float currentZoom = DEFAULT_ZOOM;
     private boolean isZoomEnabled = true;
     
+    // 可视区域跟踪与预读
+    private RecyclerView attachedRecyclerView;
+    private PDFReadAheadController readAheadController;
+    private long lastPageBytes = 0;
+    
+    // 恢复阅读位置时预渲染的相邻页数
+    private static final int RESUME_PRERENDER_RADIUS = 2;
+    private ReadingPositionStore.ReadingState pendingRestoreState;
+    
+    // 书签状态来源，绑定页面时只做内存查找
+    private BookmarkManager bookmarkManager;
+    private String bookmarkPdfPath;
+    // 已渲染的页面位图登记到内存协调器，内存紧张时释放可视区域外的页面
+    private final MemoryCoordinator.TrimmableCache pageBitmapCache = new MemoryCoordinator.TrimmableCache() {
+        @Override
+        public long getSizeBytes() {
+            long bytes = 0;
+            if (pages != null) {
+                for (PDFPageModel page : pages) {
+                    Bitmap bitmap = page != null ? page.getPageBitmap() : null;
+                    if (bitmap != null && !bitmap.isRecycled()) {
+                        bytes += bitmap.getAllocationByteCount();
+                    }
+                }
+            }
+            return bytes;
+        }
+        
+        @Override
+        public void trimToFraction(float keepFraction) {
+            int first = -1;
+            int last = -1;
+            if (attachedRecyclerView != null && attachedRecyclerView.getLayoutManager() instanceof LinearLayoutManager) {
+                LinearLayoutManager layoutManager = (LinearLayoutManager) attachedRecyclerView.getLayoutManager();
+                first = layoutManager.findFirstVisibleItemPosition();
+                last = layoutManager.findLastVisibleItemPosition();
+            }
+            if (first == RecyclerView.NO_POSITION || last == RecyclerView.NO_POSITION) {
+                releasePagesOutside(-1, -1);
+                return;
+            }
+            // 部分收缩时保留相邻页面，避免来回滑动时重新渲染
+            int margin = keepFraction > 0f ? 1 : 0;
+            releasePagesOutside(first - margin, last + margin);
+        }
+    };
+    
+    private final RecyclerView.OnScrollListener viewportScrollListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+            updateVisibleRange();
+        }
+        
+        @Override
+        public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+            if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                updateVisibleRange();
+            }
+        }
+    };
+    
     // 接口定义
     public interface OnPageClickListener {
         void onPageClick(int pageNumber, PDFPageModel page);
@@ -69,12 +144,12 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
         this.context = context;
         this.pdfRenderer = pdfRenderer;
         this.pages = new ArrayList<>();
-        this.executorService = Executors.newFixedThreadPool(3); // 限制并发线程数
         this.mainHandler = new Handler(Looper.getMainLooper());
         this.searchResults = new ArrayList<>();
         
         // 如果pdfRenderer不为空，立即初始化页面
         if (pdfRenderer != null) {
+            this.renderScheduler = new PDFRenderScheduler(pdfRenderer);
             initializePages();
         }
         
@@ -90,7 +165,6 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
         this.context = context;
         this.pdfRenderer = null; // 稍后通过setPdfRenderer设置
         this.pages = pages != null ? new ArrayList<>(pages) : new ArrayList<>();
-        this.executorService = Executors.newFixedThreadPool(3);
         this.mainHandler = new Handler(Looper.getMainLooper());
         this.searchResults = new ArrayList<>();
         
@@ -157,6 +231,9 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
             return;
         }
         
+        if (bookmarkManager != null) {
+            page.setBookmarked(bookmarkManager.hasBookmark(bookmarkPdfPath, page.getPageNumber()));
+        }
         holder.bind(page, position);
     }
     
@@ -168,9 +245,88 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
     @Override
     public void onViewRecycled(@NonNull PDFPageViewHolder holder) {
         super.onViewRecycled(holder);
+        
+        // 页面已离开屏幕，取消尚未完成的渲染
+        PDFPageModel page = holder.currentPage;
+        if (page != null && page.isLoading() && renderScheduler != null) {
+            renderScheduler.cancel(page.getPageNumber());
+        }
+        
         holder.cleanup();
     }
     
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        attachedRecyclerView = recyclerView;
+        recyclerView.addOnScrollListener(viewportScrollListener);
+        JankMonitor.getInstance().trackScroll(recyclerView);
+        MemoryCoordinator.getInstance().register(memoryRegistryName(), MemoryCoordinator.Priority.REBUILDABLE, pageBitmapCache);
+        
+        if (readAheadController == null) {
+            readAheadController = new PDFReadAheadController(this);
+        }
+        readAheadController.attach(recyclerView);
+        
+        if (pendingRestoreState != null) {
+            scrollToReadingState(pendingRestoreState);
+            pendingRestoreState = null;
+        }
+    }
+    
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        recyclerView.removeOnScrollListener(viewportScrollListener);
+        JankMonitor.getInstance().untrackScroll(recyclerView);
+        if (attachedRecyclerView == recyclerView) {
+            MemoryCoordinator.getInstance().unregister(memoryRegistryName());
+            attachedRecyclerView = null;
+            if (readAheadController != null) {
+                readAheadController.detach();
+            }
+        }
+    }
+    
+    private String memoryRegistryName() {
+        return TAG + "@" + Integer.toHexString(System.identityHashCode(this));
+    }
+    
+    /**
+     * 把当前可视区域同步给渲染调度器，并补齐被取消后仍停留在屏幕上的页面
+     */
+    private void updateVisibleRange() {
+        if (attachedRecyclerView == null || renderScheduler == null || pages == null || pages.isEmpty()) {
+            return;
+        }
+        
+        RecyclerView.LayoutManager layoutManager = attachedRecyclerView.getLayoutManager();
+        if (!(layoutManager instanceof LinearLayoutManager)) {
+            return;
+        }
+        
+        LinearLayoutManager linearLayoutManager = (LinearLayoutManager) layoutManager;
+        int first = linearLayoutManager.findFirstVisibleItemPosition();
+        int last = linearLayoutManager.findLastVisibleItemPosition();
+        if (first == RecyclerView.NO_POSITION || last == RecyclerView.NO_POSITION) {
+            return;
+        }
+        first = Math.max(0, first);
+        last = Math.min(pages.size() - 1, last);
+        if (first > last) {
+            return;
+        }
+        
+        renderScheduler.setVisibleRange(pages.get(first).getPageNumber(), pages.get(last).getPageNumber());
+        
+        for (int position = first; position <= last; position++) {
+            PDFPageModel page = pages.get(position);
+            if (page != null && !page.isLoaded() && !page.isLoading() && !page.hasError()) {
+                loadPageBitmap(page, position, isScrollingFast());
+            }
+        }
+    }
+    
     // ViewHolder 类
     public class PDFPageViewHolder extends RecyclerView.ViewHolder {
         private TextView pageHeaderNumber;
@@ -182,6 +338,8 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
         private TextView errorMessage;
         private TextView retryButton;
         private View pageOverlay;
+        private PDFSearchHighlightDrawable searchOverlay;
+        private final RectF contentRect = new RectF();
         
         private PDFPageModel currentPage;
         private int currentPosition;
@@ -202,6 +360,56 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
             errorMessage = itemView.findViewById(R.id.error_message);
             retryButton = itemView.findViewById(R.id.retry_page_button);
             pageOverlay = itemView.findViewById(R.id.page_overlay);
+            
+            // 搜索高亮作为页面图像的前景绘制，不写入页面位图
+            searchOverlay = new PDFSearchHighlightDrawable();
+            pageImageView.setForeground(searchOverlay);
+            pageImageView.addOnLayoutChangeListener((v, left, top, right, bottom,
+                    oldLeft, oldTop, oldRight, oldBottom) -> updateOverlayBounds());
+        }
+        
+        /**
+         * 刷新本页的搜索高亮，只重绘高亮层
+         */
+        void updateSearchOverlay() {
+            if (currentPage == null) {
+                searchOverlay.clearHits();
+                return;
+            }
+            
+            List<PDFSearchUtils.SearchResult> pageResults = searchResultsByPage.get(currentPage.getPageNumber());
+            if (pageResults == null || pageResults.isEmpty()) {
+                searchOverlay.clearHits();
+                return;
+            }
+            
+            PDFSearchUtils.SearchResult activeResult = getActiveSearchResult();
+            List<RectF> hitRects = new ArrayList<>();
+            List<RectF> activeRects = null;
+            for (PDFSearchUtils.SearchResult result : pageResults) {
+                if (result == activeResult) {
+                    activeRects = result.getHitRects();
+                } else {
+                    hitRects.addAll(result.getHitRects());
+                }
+            }
+            searchOverlay.setHits(hitRects, activeRects);
+        }
+        
+        /**
+         * 把位图在ImageView中的实际显示区域同步给高亮层
+         */
+        private void updateOverlayBounds() {
+            Drawable drawable = pageImageView.getDrawable();
+            if (drawable == null || drawable.getIntrinsicWidth() <= 0 || drawable.getIntrinsicHeight() <= 0) {
+                searchOverlay.setContentRect(null);
+                return;
+            }
+            
+            contentRect.set(0, 0, drawable.getIntrinsicWidth(), drawable.getIntrinsicHeight());
+            pageImageView.getImageMatrix().mapRect(contentRect);
+            contentRect.offset(pageImageView.getPaddingLeft(), pageImageView.getPaddingTop());
+            searchOverlay.setContentRect(contentRect);
         }
         
         private void setupClickListeners() {
@@ -249,13 +457,17 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
                 
                 // 如果页面未加载，开始加载
                 if (!page.isLoaded() && !page.isLoading()) {
-                    loadPageBitmap(page, position);
+                    loadPageBitmap(page, position, isScrollingFast());
+                    // 直接把加载中或出错的状态显示到当前视图
+                    updateUIForLoadingState(page.getLoadingState());
                 } else if (page.isLoaded()) {
                     displayPageBitmap(page);
                 }
                 
                 // 更新页脚信息
                 updateFooterInfo(page);
+                
+                updateSearchOverlay();
             } catch (Exception e) {
                 Log.e(TAG, "绑定页面时发生错误，position: " + position, e);
             }
@@ -292,10 +504,19 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
         }
         
         private void showContent() {
+            showContent(true);
+        }
+        
+        private void showContent(boolean animate) {
             loadingContainer.setVisibility(View.GONE);
             errorContainer.setVisibility(View.GONE);
             pageImageView.setVisibility(View.VISIBLE);
             
+            if (!animate) {
+                pageImageView.setAlpha(1f);
+                return;
+            }
+            
             // 添加淡入动画
             pageImageView.setAlpha(0f);
             ObjectAnimator animator = ObjectAnimator.ofFloat(pageImageView, "alpha", 0f, 1f);
@@ -329,7 +550,11 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
                 if (bitmap != null && !bitmap.isRecycled()) {
                     // 验证bitmap尺寸
                     if (bitmap.getWidth() > 0 && bitmap.getHeight() > 0) {
+                        // 预览升级为高分辨率时直接替换，不再淡入
+                        boolean alreadyShowing = pageImageView.getVisibility() == View.VISIBLE
+                                && pageImageView.getDrawable() != null;
                         pageImageView.setImageBitmap(bitmap);
+                        updateOverlayBounds();
                         
                         // 更新页面大小信息
                         if (pageHeaderSize != null) {
@@ -342,7 +567,7 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
                         }
                         
                         // 显示内容
-                        showContent();
+                        showContent(!alreadyShowing);
                         
                         Log.d(TAG, "页面 " + (page.getPageNumber() + 1) + " bitmap显示成功");
                     } else {
@@ -406,6 +631,8 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
                     }
                     pageImageView.setImageBitmap(null);
                 }
+                searchOverlay.clearHits();
+                searchOverlay.setContentRect(null);
                 
                 // 停止所有动画
                 if (loadingProgress != null) {
@@ -424,6 +651,18 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
     
     // 加载页面位图
     private void loadPageBitmap(PDFPageModel page, int position) {
+        loadPageBitmap(page, position, false);
+    }
+    
+    private boolean isScrollingFast() {
+        return readAheadController != null && readAheadController.isScrollingFast();
+    }
+    
+    private float getTargetZoom() {
+        return Math.max(zoomLevel, currentZoom);
+    }
+    
+    private void loadPageBitmap(PDFPageModel page, int position, boolean preview) {
         if (page == null) {
             Log.w(TAG, "页面为空，无法加载");
             return;
@@ -433,7 +672,7 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
             Log.w(TAG, "PdfRenderer为空，无法加载页面 " + (page.getPageNumber() + 1));
             page.setErrorMessage("PDF渲染器未初始化");
             page.setLoadingState(PDFPageModel.LoadingState.ERROR);
-            notifyItemChanged(position);
+            postPageChanged(position);
             return;
         }
         
@@ -442,141 +681,284 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
             return;
         }
         
-        // 检查executorService是否可用
-        if (executorService == null || executorService.isShutdown()) {
-            Log.w(TAG, "ExecutorService不可用，无法加载页面");
+        // 检查渲染调度器是否可用
+        if (renderScheduler == null || !renderScheduler.isRunning()) {
+            Log.w(TAG, "渲染调度器不可用，无法加载页面");
             page.setErrorMessage("服务不可用");
             page.setLoadingState(PDFPageModel.LoadingState.ERROR);
-            notifyItemChanged(position);
+            postPageChanged(position);
             return;
         }
         
         page.setLoadingState(PDFPageModel.LoadingState.LOADING);
-        notifyItemChanged(position);
+        postPageChanged(position);
         
-        executorService.execute(() -> {
-            PdfRenderer.Page pdfPage = null;
-            Bitmap bitmap = null;
-            try {
-                // 检查页面索引是否有效
-                if (page.getPageNumber() < 0 || page.getPageNumber() >= pdfRenderer.getPageCount()) {
-                    throw new IllegalArgumentException("页面索引超出范围: " + page.getPageNumber());
-                }
-                
-                pdfPage = pdfRenderer.openPage(page.getPageNumber());
-                
-                // 先获取原始尺寸，避免在close后访问
-                int originalWidth = pdfPage.getWidth();
-                int originalHeight = pdfPage.getHeight();
-                
-                // 验证原始尺寸
-                if (originalWidth <= 0 || originalHeight <= 0) {
-                    throw new IllegalStateException("页面尺寸无效: " + originalWidth + "x" + originalHeight);
+        final float targetZoom = getTargetZoom();
+        float requestedZoom = preview ? targetZoom * PREVIEW_SCALE : targetZoom;
+        renderScheduler.submit(page.getPageNumber(), requestedZoom, new PDFRenderScheduler.RenderCallback() {
+            @Override
+            public void onRenderComplete(int pageIndex, Bitmap bitmap, int originalWidth, int originalHeight, float zoom) {
+                if (!isCurrentPage(page, position)) {
+                    // 页面列表已变化，结果不再需要
+                    bitmap.recycle();
+                    return;
                 }
                 
-                // 使用新的缩放级别计算尺寸
-                float effectiveZoom = Math.max(0.1f, Math.min(5.0f, Math.max(zoomLevel, currentZoom)));
-                int width = Math.max(1, (int) (originalWidth * effectiveZoom));
-                int height = Math.max(1, (int) (originalHeight * effectiveZoom));
-                
-                // 限制最大尺寸以避免内存问题
-                final int MAX_SIZE = 2048;
-                if (width > MAX_SIZE || height > MAX_SIZE) {
-                    float scale = Math.min((float) MAX_SIZE / width, (float) MAX_SIZE / height);
-                    width = Math.max(1, (int) (width * scale));
-                    height = Math.max(1, (int) (height * scale));
+                if (!preview) {
+                    lastPageBytes = bitmap.getByteCount();
                 }
                 
-                // 检查内存使用情况
-                long requiredMemory = (long) width * height * 4; // ARGB_8888 = 4 bytes per pixel
-                Runtime runtime = Runtime.getRuntime();
-                long availableMemory = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+                page.setPageBitmap(bitmap);
+                page.setOriginalWidth(originalWidth);
+                page.setOriginalHeight(originalHeight);
+                page.setZoomLevel(targetZoom);
+                page.setPreview(preview);
+                page.setLoadingState(PDFPageModel.LoadingState.LOADED);
+                notifyItemChanged(position);
                 
-                if (requiredMemory > availableMemory * 0.8) { // 使用80%的可用内存作为阈值
-                    throw new OutOfMemoryError("内存不足，无法创建bitmap: 需要 " + (requiredMemory / 1024 / 1024) + "MB");
+                Log.d(TAG, "页面 " + (page.getPageNumber() + 1) + (preview ? " 预览" : "") + " 加载完成，耗时: " + page.getLoadDurationString());
+            }
+            
+            @Override
+            public void onRenderFailed(int pageIndex, String errorMessage) {
+                if (!isCurrentPage(page, position)) {
+                    return;
                 }
-                
-                bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-                pdfPage.render(bitmap, null, null, PdfRenderer.Page.RENDER_MODE_FOR_DISPLAY);
-                
-                // 检查是否有搜索结果需要高亮
-                if (searchResults != null) {
-                    for (PDFSearchUtils.SearchResult result : searchResults) {
-                        if (result.getPageNumber() == page.getPageNumber()) {
-                            page.setBookmarked(true); // 临时用书签状态表示搜索高亮
-                            break;
-                        }
-                    }
+                page.setErrorMessage(errorMessage);
+                page.setLoadingState(PDFPageModel.LoadingState.ERROR);
+                notifyItemChanged(position);
+            }
+            
+            @Override
+            public void onRenderCancelled(int pageIndex) {
+                // 恢复为待加载，重新进入屏幕时会再次请求
+                if (page.isLoading()) {
+                    page.setLoadingState(PDFPageModel.LoadingState.PENDING);
                 }
-                
-                final Bitmap finalBitmap = bitmap;
-                final int finalOriginalWidth = originalWidth;
-                final int finalOriginalHeight = originalHeight;
-                final float finalEffectiveZoom = effectiveZoom;
-                
-                // 在主线程更新UI
-                mainHandler.post(() -> {
-                    try {
-                        if (finalBitmap != null && !finalBitmap.isRecycled()) {
-                            page.setPageBitmap(finalBitmap);
-                            page.setOriginalWidth(finalOriginalWidth);
-                            page.setOriginalHeight(finalOriginalHeight);
-                            page.setZoomLevel(finalEffectiveZoom);
-                            page.setLoadingState(PDFPageModel.LoadingState.LOADED);
-                            notifyItemChanged(position);
-                            
-                            Log.d(TAG, "页面 " + (page.getPageNumber() + 1) + " 加载完成，耗时: " + page.getLoadDurationString());
-                        } else {
-                            throw new IllegalStateException("Bitmap无效或已回收");
-                        }
-                    } catch (Exception e) {
-                        Log.e(TAG, "UI更新失败", e);
-                        page.setErrorMessage("UI更新失败: " + e.getMessage());
-                        page.setLoadingState(PDFPageModel.LoadingState.ERROR);
-                        notifyItemChanged(position);
-                        // 回收bitmap
-                        if (finalBitmap != null && !finalBitmap.isRecycled()) {
-                            finalBitmap.recycle();
-                        }
-                    }
-                });
-                
-            } catch (OutOfMemoryError e) {
-                Log.e(TAG, "内存不足，无法加载页面 " + (page.getPageNumber() + 1), e);
-                
-                mainHandler.post(() -> {
-                    page.setErrorMessage("内存不足");
-                    page.setLoadingState(PDFPageModel.LoadingState.ERROR);
-                    notifyItemChanged(position);
-                });
-                
-                // 回收bitmap
-                if (bitmap != null && !bitmap.isRecycled()) {
+            }
+        });
+    }
+    
+    /**
+     * loadPageBitmap可能在onBindViewHolder或滚动回调中调用，此时RecyclerView不允许notify，
+     * 同步分支的状态变化延后到下一个消息再通知
+     */
+    private void postPageChanged(int position) {
+        mainHandler.post(() -> {
+            if (pages != null && position >= 0 && position < pages.size()) {
+                notifyItemChanged(position);
+            }
+        });
+    }
+    
+    private boolean isCurrentPage(PDFPageModel page, int position) {
+        return pages != null && position >= 0 && position < pages.size() && pages.get(position) == page;
+    }
+    
+    // 预读相关（PDFReadAheadController.PrerenderTarget）
+    @Override
+    public int getPageCount() {
+        return getItemCount();
+    }
+    
+    @Override
+    public void prerenderPage(int position, boolean preview) {
+        if (pages == null || position < 0 || position >= pages.size()) {
+            return;
+        }
+        PDFPageModel page = pages.get(position);
+        if (page != null && !page.isLoaded() && !page.isLoading() && !page.hasError()) {
+            loadPageBitmap(page, position, preview);
+        }
+    }
+    
+    @Override
+    public void upgradePage(int position) {
+        if (pages == null || position < 0 || position >= pages.size() || renderScheduler == null) {
+            return;
+        }
+        
+        PDFPageModel page = pages.get(position);
+        if (page == null || !page.isLoaded() || !page.isPreview()) {
+            return;
+        }
+        
+        // 升级期间继续显示预览，完成后直接替换
+        final float targetZoom = getTargetZoom();
+        renderScheduler.submit(page.getPageNumber(), targetZoom, new PDFRenderScheduler.RenderCallback() {
+            @Override
+            public void onRenderComplete(int pageIndex, Bitmap bitmap, int originalWidth, int originalHeight, float zoom) {
+                if (!isCurrentPage(page, position) || !page.isPreview()) {
                     bitmap.recycle();
+                    return;
                 }
-            } catch (Exception e) {
-                Log.e(TAG, "加载页面 " + (page.getPageNumber() + 1) + " 失败", e);
-                
-                mainHandler.post(() -> {
-                    page.setErrorMessage("加载失败: " + e.getMessage());
-                    page.setLoadingState(PDFPageModel.LoadingState.ERROR);
-                    notifyItemChanged(position);
-                });
-                
-                // 回收bitmap
-                if (bitmap != null && !bitmap.isRecycled()) {
-                    bitmap.recycle();
+                lastPageBytes = bitmap.getByteCount();
+                // 预览位图还在视图上显示，只替换引用不回收
+                page.replacePageBitmap(bitmap);
+                page.setOriginalWidth(originalWidth);
+                page.setOriginalHeight(originalHeight);
+                page.setPreview(false);
+                notifyItemChanged(position);
+            }
+            
+            @Override
+            public void onRenderFailed(int pageIndex, String errorMessage) {
+                Log.w(TAG, "页面 " + (pageIndex + 1) + " 升级分辨率失败: " + errorMessage);
+            }
+            
+            @Override
+            public void onRenderCancelled(int pageIndex) {
+                // 保留预览，下次停止滚动时再升级
+            }
+        });
+    }
+    
+    @Override
+    public void releasePagesOutside(int firstKept, int lastKept) {
+        if (pages == null) {
+            return;
+        }
+        
+        int released = 0;
+        for (int position = 0; position < pages.size(); position++) {
+            if (position >= firstKept && position <= lastKept) {
+                continue;
+            }
+            PDFPageModel page = pages.get(position);
+            if (page != null && page.hasBitmap()) {
+                // 不主动recycle，缓存中的视图可能仍引用该位图
+                page.releaseBitmap();
+                released++;
+            }
+        }
+        
+        if (released > 0) {
+            Log.d(TAG, "释放预读窗口外的页面: " + released + " 页");
+        }
+    }
+    
+    @Override
+    public long estimatePageBytes(boolean preview) {
+        long bytes = lastPageBytes > 0 ? lastPageBytes : DEFAULT_PAGE_BYTES;
+        return preview ? (long) (bytes * PREVIEW_SCALE * PREVIEW_SCALE) : bytes;
+    }
+    
+    @Override
+    public void onReadAheadChanged(int readAheadCount) {
+        // 调度器的取消范围需要覆盖预读窗口
+        if (renderScheduler != null) {
+            renderScheduler.setPrefetchDistance(Math.max(PDFRenderScheduler.DEFAULT_PREFETCH_DISTANCE, readAheadCount));
+        }
+    }
+    
+    /**
+     * 恢复阅读位置：立即显示上次保存的快照，并在用户操作前预渲染目标页及相邻页面
+     * @param state 保存的阅读状态
+     * @param snapshot 上次阅读页面的低分辨率快照，可为空
+     */
+    public void restoreReadingState(ReadingPositionStore.ReadingState state, Bitmap snapshot) {
+        if (state == null || pages == null || pages.isEmpty()) {
+            return;
+        }
+        
+        int position = Math.max(0, Math.min(pages.size() - 1, state.getPageNumber()));
+        
+        // 缩放级别直接生效，不触发整页重新渲染
+        float zoom = PDFZoomUtils.clampZoomLevel(state.getZoomLevel());
+        this.currentZoom = zoom;
+        this.zoomLevel = zoom;
+        
+        PDFPageModel page = pages.get(position);
+        if (page != null && snapshot != null && !snapshot.isRecycled() && !page.isLoaded() && !page.isLoading()) {
+            page.setPageBitmap(snapshot);
+            page.setZoomLevel(zoom);
+            page.setPreview(true);
+            page.setLoadingState(PDFPageModel.LoadingState.LOADED);
+            notifyItemChanged(position);
+        }
+        
+        if (attachedRecyclerView != null) {
+            scrollToReadingState(state);
+        } else {
+            pendingRestoreState = state;
+        }
+        
+        // 目标页优先升级，随后预渲染相邻页面
+        if (renderScheduler != null) {
+            int first = Math.max(0, position - RESUME_PRERENDER_RADIUS);
+            int last = Math.min(pages.size() - 1, position + RESUME_PRERENDER_RADIUS);
+            renderScheduler.setVisibleRange(pages.get(position).getPageNumber(), pages.get(position).getPageNumber());
+            upgradePage(position);
+            prerenderPage(position, false);
+            for (int i = 1; i <= RESUME_PRERENDER_RADIUS; i++) {
+                if (position + i <= last) {
+                    prerenderPage(position + i, false);
                 }
-            } finally {
-                if (pdfPage != null) {
-                    try {
-                        pdfPage.close();
-                    } catch (Exception e) {
-                        Log.w(TAG, "关闭PDF页面时发生错误", e);
-                    }
+                if (position - i >= first) {
+                    prerenderPage(position - i, false);
                 }
             }
-        });
+        }
+        
+        Log.d(TAG, "恢复阅读位置: 第 " + (position + 1) + " 页, 缩放 " + zoom);
+    }
+    
+    /**
+     * 记录当前阅读状态，列表尚未显示时返回null
+     */
+    public ReadingPositionStore.ReadingState captureReadingState(String pdfPath, PDFZoomUtils.ZoomMode zoomMode) {
+        if (attachedRecyclerView == null || pages == null || pages.isEmpty()) {
+            return null;
+        }
+        
+        RecyclerView.LayoutManager layoutManager = attachedRecyclerView.getLayoutManager();
+        if (!(layoutManager instanceof LinearLayoutManager)) {
+            return null;
+        }
+        
+        LinearLayoutManager linearLayoutManager = (LinearLayoutManager) layoutManager;
+        int position = linearLayoutManager.findFirstVisibleItemPosition();
+        if (position == RecyclerView.NO_POSITION || position >= pages.size()) {
+            return null;
+        }
+        
+        int offset = 0;
+        View firstView = linearLayoutManager.findViewByPosition(position);
+        if (firstView != null) {
+            offset = linearLayoutManager.getOrientation() == RecyclerView.VERTICAL
+                    ? firstView.getTop() - attachedRecyclerView.getPaddingTop()
+                    : firstView.getLeft() - attachedRecyclerView.getPaddingLeft();
+        }
+        
+        return new ReadingPositionStore.ReadingState(pdfPath, pages.get(position).getPageNumber(), offset, currentZoom, zoomMode);
+    }
+    
+    /**
+     * 当前阅读页面的位图，用于保存快照
+     */
+    public Bitmap getReadingPageBitmap(ReadingPositionStore.ReadingState state) {
+        if (state == null || pages == null) {
+            return null;
+        }
+        for (PDFPageModel page : pages) {
+            if (page != null && page.getPageNumber() == state.getPageNumber()) {
+                return page.hasBitmap() ? page.getPageBitmap() : null;
+            }
+        }
+        return null;
+    }
+    
+    private void scrollToReadingState(ReadingPositionStore.ReadingState state) {
+        if (attachedRecyclerView == null || pages == null || pages.isEmpty()) {
+            return;
+        }
+        RecyclerView.LayoutManager layoutManager = attachedRecyclerView.getLayoutManager();
+        int position = Math.max(0, Math.min(pages.size() - 1, state.getPageNumber()));
+        if (layoutManager instanceof LinearLayoutManager) {
+            ((LinearLayoutManager) layoutManager).scrollToPositionWithOffset(position, state.getScrollOffset());
+        } else {
+            attachedRecyclerView.scrollToPosition(position);
+        }
     }
     
     // 公共方法
@@ -595,18 +977,27 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
             
             Log.d(TAG, "设置缩放级别: " + zoom);
             
-            // 清理所有已加载的页面，强制重新加载
-            if (pages != null) {
-                for (PDFPageModel page : pages) {
-                    if (page != null) {
-                        page.cleanup();
-                        page.setLoadingState(PDFPageModel.LoadingState.PENDING);
-                    }
+            if (renderScheduler != null) {
+                // 连续缩放只触发一次重新渲染
+                renderScheduler.requestZoom(zoom, appliedZoom -> applyZoom());
+            } else {
+                applyZoom();
+            }
+        }
+    }
+    
+    private void applyZoom() {
+        // 清理所有已加载的页面，强制重新加载
+        if (pages != null) {
+            for (PDFPageModel page : pages) {
+                if (page != null) {
+                    page.cleanup();
+                    page.setLoadingState(PDFPageModel.LoadingState.PENDING);
                 }
             }
-            
-            notifyDataSetChanged();
         }
+        
+        notifyDataSetChanged();
     }
     
     public float getCurrentZoom() {
@@ -624,6 +1015,9 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
     public void refreshPage(int pageNumber) {
         if (pageNumber >= 0 && pageNumber < pages.size()) {
             PDFPageModel page = pages.get(pageNumber);
+            if (renderScheduler != null) {
+                renderScheduler.cancel(page.getPageNumber());
+            }
             page.cleanup();
             page.setLoadingState(PDFPageModel.LoadingState.PENDING);
             notifyItemChanged(pageNumber);
@@ -631,6 +1025,9 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
     }
     
     public void refreshAllPages() {
+        if (renderScheduler != null) {
+            renderScheduler.invalidateAll();
+        }
         if (pages != null) {
             for (PDFPageModel page : pages) {
                 if (page != null) {
@@ -671,10 +1068,27 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
         return null;
     }
     
+    /**
+     * 设置书签存储，之后页面的书签状态从中读取，切换书签时同步保存
+     */
+    public void setBookmarkSource(BookmarkManager bookmarkManager, String pdfPath) {
+        this.bookmarkManager = bookmarkManager;
+        this.bookmarkPdfPath = pdfPath;
+        notifyDataSetChanged();
+    }
+    
     public void toggleBookmark(int pageNumber) {
         if (pageNumber >= 0 && pageNumber < pages.size()) {
             PDFPageModel page = pages.get(pageNumber);
-            page.setBookmarked(!page.isBookmarked());
+            boolean bookmarked = !page.isBookmarked();
+            if (bookmarkManager != null) {
+                if (bookmarked) {
+                    bookmarkManager.addBookmark(bookmarkPdfPath, page.getPageNumber(), page.getPageTitle(), null);
+                } else {
+                    bookmarkManager.removeBookmark(bookmarkPdfPath, page.getPageNumber());
+                }
+            }
+            page.setBookmarked(bookmarked);
             notifyItemChanged(pageNumber);
             
             String message = page.isBookmarked() ? "已添加书签" : "已移除书签";
@@ -691,8 +1105,123 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
         this.zoomLevel = PDFZoomUtils.clampZoomLevel(zoomLevel);
     }
     
+    /**
+     * 设置搜索结果，命中位置由页面上的高亮层绘制，不会重新渲染页面
+     */
     public void setSearchResults(List<PDFSearchUtils.SearchResult> searchResults) {
-        this.searchResults = searchResults;
+        this.searchResults = searchResults != null ? searchResults : new ArrayList<>();
+        this.activeSearchIndex = -1;
+        
+        searchResultsByPage.clear();
+        for (PDFSearchUtils.SearchResult result : this.searchResults) {
+            List<PDFSearchUtils.SearchResult> pageResults = searchResultsByPage.get(result.getPageNumber());
+            if (pageResults == null) {
+                pageResults = new ArrayList<>();
+                searchResultsByPage.put(result.getPageNumber(), pageResults);
+            }
+            pageResults.add(result);
+        }
+        
+        refreshSearchOverlays();
+    }
+    
+    public void clearSearchResults() {
+        setSearchResults(null);
+    }
+    
+    /**
+     * 选中第index个搜索结果并滚动到所在页面，只重绘前后两页的高亮层
+     * @return 结果所在页码，无效时返回-1
+     */
+    public int showSearchResult(int index) {
+        if (searchResults == null || index < 0 || index >= searchResults.size()) {
+            return -1;
+        }
+        
+        PDFSearchUtils.SearchResult previous = getActiveSearchResult();
+        activeSearchIndex = index;
+        PDFSearchUtils.SearchResult current = searchResults.get(index);
+        
+        if (previous != null && previous.getPageNumber() != current.getPageNumber()) {
+            refreshSearchOverlay(previous.getPageNumber());
+        }
+        refreshSearchOverlay(current.getPageNumber());
+        
+        int position = findPositionForPage(current.getPageNumber());
+        if (attachedRecyclerView != null && position != RecyclerView.NO_POSITION) {
+            attachedRecyclerView.scrollToPosition(position);
+        }
+        return current.getPageNumber();
+    }
+    
+    public int showNextSearchResult() {
+        if (searchResults == null || searchResults.isEmpty()) {
+            return -1;
+        }
+        return showSearchResult((activeSearchIndex + 1) % searchResults.size());
+    }
+    
+    public int showPreviousSearchResult() {
+        if (searchResults == null || searchResults.isEmpty()) {
+            return -1;
+        }
+        int index = activeSearchIndex <= 0 ? searchResults.size() - 1 : activeSearchIndex - 1;
+        return showSearchResult(index);
+    }
+    
+    public int getActiveSearchIndex() {
+        return activeSearchIndex;
+    }
+    
+    private PDFSearchUtils.SearchResult getActiveSearchResult() {
+        if (searchResults == null || activeSearchIndex < 0 || activeSearchIndex >= searchResults.size()) {
+            return null;
+        }
+        return searchResults.get(activeSearchIndex);
+    }
+    
+    private int findPositionForPage(int pageNumber) {
+        if (pages == null) {
+            return RecyclerView.NO_POSITION;
+        }
+        if (pageNumber >= 0 && pageNumber < pages.size() && pages.get(pageNumber).getPageNumber() == pageNumber) {
+            return pageNumber;
+        }
+        for (int i = 0; i < pages.size(); i++) {
+            if (pages.get(i).getPageNumber() == pageNumber) {
+                return i;
+            }
+        }
+        return RecyclerView.NO_POSITION;
+    }
+    
+    /**
+     * 直接更新已绑定的ViewHolder，未显示的页面会在绑定时刷新
+     */
+    private void refreshSearchOverlay(int pageNumber) {
+        if (attachedRecyclerView == null) {
+            return;
+        }
+        int position = findPositionForPage(pageNumber);
+        if (position == RecyclerView.NO_POSITION) {
+            return;
+        }
+        RecyclerView.ViewHolder holder = attachedRecyclerView.findViewHolderForAdapterPosition(position);
+        if (holder instanceof PDFPageViewHolder) {
+            ((PDFPageViewHolder) holder).updateSearchOverlay();
+        }
+    }
+    
+    private void refreshSearchOverlays() {
+        if (attachedRecyclerView == null) {
+            return;
+        }
+        for (int i = 0; i < attachedRecyclerView.getChildCount(); i++) {
+            RecyclerView.ViewHolder holder = attachedRecyclerView.getChildViewHolder(attachedRecyclerView.getChildAt(i));
+            if (holder instanceof PDFPageViewHolder) {
+                ((PDFPageViewHolder) holder).updateSearchOverlay();
+            }
+        }
     }
     
     public void setHighlightedPage(int pageIndex) {
@@ -704,8 +1233,14 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
     }
     
     public void setPdfRenderer(PdfRenderer pdfRenderer) {
+        if (renderScheduler != null) {
+            renderScheduler.shutdown();
+            renderScheduler = null;
+        }
+        
         this.pdfRenderer = pdfRenderer;
         if (pdfRenderer != null) {
+            renderScheduler = new PDFRenderScheduler(pdfRenderer);
             initializePages();
             Log.d(TAG, "PdfRenderer 已设置，页面已初始化");
         } else {
@@ -716,6 +1251,14 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
     
     // 清理资源
     public void cleanup() {
+        cleanup(null);
+    }
+    
+    /**
+     * 清理资源，不等待正在执行的渲染
+     * @param onRendererReleased 渲染线程退出前执行，调用方在其中关闭PdfRenderer
+     */
+    public void cleanup(Runnable onRendererReleased) {
         Log.d(TAG, "开始清理PDFPageAdapter资源");
         
         // 清理所有页面资源
@@ -728,23 +1271,28 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
             pages.clear();
         }
         
-        // 关闭线程池
-        if (executorService != null && !executorService.isShutdown()) {
-            try {
-                executorService.shutdown();
-                // 等待正在执行的任务完成
-                if (!executorService.awaitTermination(2, java.util.concurrent.TimeUnit.SECONDS)) {
-                    executorService.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                executorService.shutdownNow();
-                Thread.currentThread().interrupt();
-            }
+        // 关闭渲染调度器，当前页渲染完后由渲染线程执行onRendererReleased
+        if (renderScheduler != null) {
+            renderScheduler.shutdown(onRendererReleased);
+            renderScheduler = null;
+        } else if (onRendererReleased != null) {
+            onRendererReleased.run();
+        }
+        
+        if (attachedRecyclerView != null) {
+            attachedRecyclerView.removeOnScrollListener(viewportScrollListener);
+            attachedRecyclerView = null;
+        }
+        if (readAheadController != null) {
+            readAheadController.detach();
+            readAheadController = null;
         }
         
         // 清理其他引用
         pdfRenderer = null;
         searchResults = null;
+        searchResultsByPage.clear();
+        activeSearchIndex = -1;
         onPageClickListener = null;
         onPageLongClickListener = null;
         
@@ -5,7 +5,6 @@ import android.app.Application;
 import android.content.Context;
 import android.content.Intent;
 import android.util.Log;
-import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageView;
@@ -13,7 +12,12 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.ListPreloader;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader;
+import com.bumptech.glide.load.DecodeFormat;
 import com.bumptech.glide.request.RequestOptions;
+import com.bumptech.glide.util.FixedPreloadSizeProvider;
 
 import com.wenxing.runyitong.activity.PharmacyProductsActivity;
 
@@ -22,23 +26,82 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.wenxing.runyitong.R;
 import com.wenxing.runyitong.model.Product;
+import com.wenxing.runyitong.utils.ViewPrewarmer;
 
+import java.util.Collections;
 import java.util.List;
 
-public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductViewHolder> {
+public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductViewHolder>
+        implements ListPreloader.PreloadModelProvider<String> {
+
+    // 商品页和药店商品页共用，两列网格约一屏
+    public static final ViewPrewarmer.RowType ROW_TYPE = new ViewPrewarmer.RowType("product", R.layout.product_item)
+            .prewarm(6)
+            .maxRecycled(12);
+
+    // 商品网格列数，与ProductFragment和PharmacyProductsActivity中的GridLayoutManager一致
+    private static final int SPAN_COUNT = 2;
+    // 商品图片高度，与product_item.xml一致
+    private static final int IMAGE_HEIGHT_DP = 120;
+    // 卡片外边距(4dp*2)加内边距(12dp*2)
+    private static final int CELL_HORIZONTAL_INSET_DP = 32;
+    // 向滚动方向预加载的商品数
+    private static final int MAX_PRELOAD = 6;
 
     private Context context;
     private List<Product> productList;
+    private final int imageWidth;
+    private final int imageHeight;
+    private final RequestOptions thumbnailOptions;
 
     public ProductAdapter(Context context, List<Product> productList) {
         this.context = context;
         this.productList = productList;
+
+        // 按单元格尺寸解码，避免把原图整张解码进小格子；预加载与绑定使用同一尺寸才能命中内存缓存
+        float density = context.getResources().getDisplayMetrics().density;
+        int screenWidth = context.getResources().getDisplayMetrics().widthPixels;
+        this.imageWidth = Math.max(1, screenWidth / SPAN_COUNT - Math.round(CELL_HORIZONTAL_INSET_DP * density));
+        this.imageHeight = Math.round(IMAGE_HEIGHT_DP * density);
+        this.thumbnailOptions = new RequestOptions()
+                .placeholder(R.drawable.ic_launcher_background) // 占位图
+                .error(R.drawable.ic_launcher_background) // 加载错误时显示的图
+                .centerCrop() // 图片缩放类型
+                .override(imageWidth, imageHeight)
+                .format(DecodeFormat.PREFER_RGB_565); // 商品图不透明，每像素2字节
+    }
+
+    /**
+     * 为商品网格挂载图片预加载，滚动时提前加载即将出现的商品图片
+     */
+    public void attachPreloader(RecyclerView recyclerView) {
+        recyclerView.addOnScrollListener(new RecyclerViewPreloader<>(Glide.with(context), this,
+                new FixedPreloadSizeProvider<>(imageWidth, imageHeight), MAX_PRELOAD));
+    }
+
+    @NonNull
+    @Override
+    public List<String> getPreloadItems(int position) {
+        if (productList == null || position < 0 || position >= productList.size()) {
+            return Collections.emptyList();
+        }
+        Product product = productList.get(position);
+        String imageUrl = product != null ? product.getFeaturedImageFile() : null;
+        if (imageUrl == null || imageUrl.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(imageUrl);
+    }
+
+    @Override
+    public RequestBuilder<?> getPreloadRequestBuilder(@NonNull String imageUrl) {
+        return Glide.with(context).load(imageUrl).apply(thumbnailOptions);
     }
 
     @NonNull
     @Override
     public ProductViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        View view = LayoutInflater.from(context).inflate(R.layout.product_item, parent, false);
+        View view = ViewPrewarmer.getInstance().inflate(parent, ROW_TYPE);
         return new ProductViewHolder(view);
     }
 
@@ -98,10 +161,7 @@ public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductV
                     // 使用Glide加载图片
                     Glide.with(context)
                             .load(imageUrl)
-                            .apply(new RequestOptions()
-                                    .placeholder(R.drawable.ic_launcher_background) // 占位图
-                                    .error(R.drawable.ic_launcher_background) // 加载错误时显示的图
-                                    .centerCrop()) // 图片缩放类型
+                            .apply(thumbnailOptions)
                             .into(holder.productImage);
                 } catch (Exception e) {
                     Log.e("ProductAdapter", "加载商品图片失败: " + e.getMessage());
@@ -1,22 +1,32 @@
 package com.wenxing.runyitong.adapter;
 
+import android.graphics.Typeface;
+import android.text.SpannableString;
+import android.text.Spanned;
+import android.text.TextUtils;
+import android.text.style.ForegroundColorSpan;
+import android.text.style.StyleSpan;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
 import androidx.recyclerview.widget.RecyclerView;
 import com.wenxing.runyitong.R;
 import java.util.List;
+import java.util.Locale;
 
 /**
  * 症状历史记录适配器
- * 用于在RecyclerView中显示症状历史记录列表
+ * 用于在RecyclerView中显示症状历史记录列表，输入联想时高亮与输入匹配的部分
  */
 public class SymptomsHistoryAdapter extends RecyclerView.Adapter<SymptomsHistoryAdapter.ViewHolder> {
     
     private List<String> historyList;
+    // 当前输入，为空时显示最近记录不做高亮
+    private String highlightQuery = "";
     private OnItemClickListener onItemClickListener;
     private OnItemDeleteListener onItemDeleteListener;
     
@@ -82,10 +92,44 @@ public class SymptomsHistoryAdapter extends RecyclerView.Adapter<SymptomsHistory
      * @param newHistoryList 新的历史记录列表
      */
     public void updateHistory(List<String> newHistoryList) {
-        this.historyList = newHistoryList;
+        updateSuggestions(newHistoryList, "");
+    }
+    
+    /**
+     * 更新输入联想结果
+     * @param suggestions 匹配的历史记录
+     * @param query 当前输入，匹配部分高亮显示
+     */
+    public void updateSuggestions(List<String> suggestions, String query) {
+        this.historyList = suggestions;
+        this.highlightQuery = query != null ? query.trim().toLowerCase(Locale.ROOT) : "";
         notifyDataSetChanged();
     }
     
+    /**
+     * 高亮症状中与输入各片段匹配的部分
+     */
+    private CharSequence highlight(TextView textView, String symptom) {
+        if (TextUtils.isEmpty(highlightQuery)) {
+            return symptom;
+        }
+        SpannableString spannable = new SpannableString(symptom);
+        String lowerSymptom = symptom.toLowerCase(Locale.ROOT);
+        int color = ContextCompat.getColor(textView.getContext(), R.color.primary_color);
+        for (String segment : highlightQuery.split("[^\\p{L}\\p{N}]+")) {
+            if (segment.isEmpty() || lowerSymptom.length() != symptom.length()) {
+                continue;
+            }
+            int start = lowerSymptom.indexOf(segment);
+            if (start >= 0) {
+                int end = start + segment.length();
+                spannable.setSpan(new ForegroundColorSpan(color), start, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                spannable.setSpan(new StyleSpan(Typeface.BOLD), start, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            }
+        }
+        return spannable;
+    }
+    
     /**
      * 删除指定位置的项目
      * @param position 位置
@@ -117,7 +161,7 @@ public class SymptomsHistoryAdapter extends RecyclerView.Adapter<SymptomsHistory
          * @param position 位置
          */
         public void bind(String symptom, int position) {
-            tvSymptom.setText(symptom);
+            tvSymptom.setText(highlight(tvSymptom, symptom));
             
             // 设置点击事件
             itemView.setOnClickListener(v -> {
@@ -1,5 +1,6 @@
 package com.wenxing.runyitong.api;
 
+import okhttp3.Dispatcher;
 import okhttp3.OkHttpClient;
 import okhttp3.logging.HttpLoggingInterceptor;
 import okhttp3.Interceptor;
@@ -9,16 +10,11 @@ import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 import java.util.concurrent.TimeUnit;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonDeserializer;
-import java.util.Date;
-import java.text.SimpleDateFormat;
-import java.text.ParseException;
-import java.util.Locale;
 import java.io.IOException;
 import android.util.Log;
 import android.content.Context;
 import android.content.SharedPreferences;
+import com.wenxing.runyitong.utils.FlightRecorder;
 
 public class ApiClient {
     // 根据运行环境选择合适的服务器地址
@@ -49,6 +45,8 @@ public class ApiClient {
     }
     private static Retrofit retrofit = null;
     private static ApiService apiService = null;
+    private static OkHttpClient okHttpClient = null;
+    private static OkHttpClient imageHttpClient = null;
     
     /**
      * 初始化ApiClient，需要传入ApplicationContext
@@ -90,72 +88,16 @@ public class ApiClient {
     }
     
     /**
-     * 获取Retrofit实例
+     * 获取接口请求使用的OkHttpClient
      */
-    public static Retrofit getRetrofitInstance() {
-        if (retrofit == null) {
+    public static synchronized OkHttpClient getOkHttpClient() {
+        if (okHttpClient == null) {
             // 创建日志拦截器
             HttpLoggingInterceptor loggingInterceptor = new HttpLoggingInterceptor();
             loggingInterceptor.setLevel(HttpLoggingInterceptor.Level.BODY);
             
             // 创建重试拦截器
-            Interceptor retryInterceptor = new Interceptor() {
-                @Override
-                public Response intercept(Chain chain) throws IOException {
-                    Request request = chain.request();
-                    Response response = null;
-                    IOException exception = null;
-                    
-                    // 最多重试3次
-                    int maxRetries = 3;
-                    for (int i = 0; i < maxRetries; i++) {
-                        try {
-                            response = chain.proceed(request);
-                            
-                            // 如果响应成功或者是客户端错误（4xx），不需要重试
-                            if (response.isSuccessful() || (response.code() >= 400 && response.code() < 500)) {
-                                return response;
-                            }
-                            
-                            // 服务器错误（5xx）或网络错误，进行重试
-                            if (i < maxRetries - 1) {
-                                Log.w("ApiClient", "Request failed, retrying... (" + (i + 1) + "/" + maxRetries + ")");
-                                response.close();
-                                
-                                // 等待一段时间再重试（指数退避）
-                                try {
-                                    Thread.sleep((long) Math.pow(2, i) * 1000);
-                                } catch (InterruptedException e) {
-                                    Thread.currentThread().interrupt();
-                                    throw new IOException("Request interrupted", e);
-                                }
-                            }
-                        } catch (IOException e) {
-                            exception = e;
-                            if (i < maxRetries - 1) {
-                                Log.w("ApiClient", "Network error, retrying... (" + (i + 1) + "/" + maxRetries + "): " + e.getMessage());
-                                
-                                // 等待一段时间再重试
-                                try {
-                                    Thread.sleep((long) Math.pow(2, i) * 1000);
-                                } catch (InterruptedException ie) {
-                                    Thread.currentThread().interrupt();
-                                    throw new IOException("Request interrupted", ie);
-                                }
-                            }
-                        }
-                    }
-                    
-                    // 如果所有重试都失败了
-                    if (response != null) {
-                        return response;
-                    } else if (exception != null) {
-                        throw exception;
-                    } else {
-                        throw new IOException("Unknown error occurred");
-                    }
-                }
-            };
+            Interceptor retryInterceptor = new RetryInterceptor();
             
             // 创建认证拦截器
             Interceptor authInterceptor = new Interceptor() {
@@ -180,40 +122,50 @@ public class ApiClient {
             };
             
             // 创建OkHttpClient
-            OkHttpClient okHttpClient = new OkHttpClient.Builder()
+            okHttpClient = new OkHttpClient.Builder()
                     .addInterceptor(authInterceptor)  // 添加认证拦截器
                     .addInterceptor(retryInterceptor)
                     .addInterceptor(loggingInterceptor)
+                    .addNetworkInterceptor(UploadTask.networkInterceptor())  // 上传进度与响应阶段
+                    .addNetworkInterceptor(FlightRecorder.networkInterceptor())  // 请求记入飞行记录
                     .connectTimeout(45, TimeUnit.SECONDS)  // 增加连接超时时间
                     .readTimeout(60, TimeUnit.SECONDS)     // 增加读取超时时间
                     .writeTimeout(60, TimeUnit.SECONDS)    // 增加写入超时时间
                     .build();
-            
+        }
+        return okHttpClient;
+    }
+    
+    /**
+     * 获取图片加载使用的OkHttpClient
+     * 与接口请求共用连接池，图片和接口在同一后端时可复用已建立的连接；
+     * 调度器单独创建，列表滚动时大量图片请求不会占满接口请求的并发名额；去掉拦截器，避免按BODY级别打印图片内容和对图片做接口级重试
+     */
+    public static synchronized OkHttpClient getImageHttpClient() {
+        if (imageHttpClient == null) {
+            OkHttpClient.Builder builder = getOkHttpClient().newBuilder()
+                    .connectTimeout(15, TimeUnit.SECONDS)
+                    .readTimeout(30, TimeUnit.SECONDS)
+                    .dispatcher(new Dispatcher());
+            builder.interceptors().clear();
+            builder.networkInterceptors().clear();
+            imageHttpClient = builder.build();
+        }
+        return imageHttpClient;
+    }
+    
+    /**
+     * 获取Retrofit实例
+     */
+    public static Retrofit getRetrofitInstance() {
+        if (retrofit == null) {
             // 创建自定义Gson实例处理日期格式
-            Gson gson = new GsonBuilder()
-                    .setDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSSSS")
-                    .registerTypeAdapter(Date.class, (JsonDeserializer<Date>) (json, typeOfT, context) -> {
-                        try {
-                            String dateString = json.getAsString();
-                            SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSSSS", Locale.getDefault());
-                            return format.parse(dateString);
-                        } catch (ParseException e) {
-                            try {
-                                // 尝试另一种格式
-                                String dateString = json.getAsString();
-                                SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS", Locale.getDefault());
-                                return format.parse(dateString);
-                            } catch (ParseException ex) {
-                                return null;
-                            }
-                        }
-                    })
-                    .create();
+            Gson gson = ApiGson.create();
             
             // 创建Retrofit实例
             retrofit = new Retrofit.Builder()
                     .baseUrl(BASE_URL)
-                    .client(okHttpClient)
+                    .client(getOkHttpClient())
                     .addConverterFactory(GsonConverterFactory.create(gson))
                     .build();
         }
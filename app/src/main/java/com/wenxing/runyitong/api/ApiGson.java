@@ -0,0 +1,44 @@
+package com.wenxing.runyitong.api;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonDeserializer;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * 接口响应使用的Gson配置
+ * 从ApiClient中独立出来，不依赖Android框架类，JVM基准测试模块解析录制的响应时使用同一份配置
+ */
+public final class ApiGson {
+
+    private ApiGson() {}
+
+    /**
+     * 创建自定义Gson实例处理日期格式
+     */
+    public static Gson create() {
+        return new GsonBuilder()
+                .setDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSSSS")
+                .registerTypeAdapter(Date.class, (JsonDeserializer<Date>) (json, typeOfT, context) -> {
+                    try {
+                        String dateString = json.getAsString();
+                        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSSSS", Locale.getDefault());
+                        return format.parse(dateString);
+                    } catch (ParseException e) {
+                        try {
+                            // 尝试另一种格式
+                            String dateString = json.getAsString();
+                            SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS", Locale.getDefault());
+                            return format.parse(dateString);
+                        } catch (ParseException ex) {
+                            return null;
+                        }
+                    }
+                })
+                .create();
+    }
+}
@@ -0,0 +1,62 @@
+package com.wenxing.runyitong.api;
+
+import com.wenxing.runyitong.utils.TempFileArena;
+
+import java.io.IOException;
+
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+
+/**
+ * 以临时文件区租约为内容的RequestBody
+ * 请求体本身不释放租约，由发起请求的一方在请求结束（含重试）后释放。
+ */
+public class LeasedFileRequestBody extends RequestBody {
+
+    private final MediaType contentType;
+    private final TempFileArena.Lease lease;
+
+    public LeasedFileRequestBody(MediaType contentType, TempFileArena.Lease lease) {
+        this.contentType = contentType;
+        this.lease = lease;
+    }
+
+    public TempFileArena.Lease getLease() {
+        return lease;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return contentType;
+    }
+
+    @Override
+    public long contentLength() {
+        return lease.getFile().length();
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        try (Source source = Okio.source(lease.getFile())) {
+            sink.writeAll(source);
+        }
+    }
+
+    /**
+     * 取出表单项背后的临时文件租约，不是临时文件时返回null
+     */
+    public static TempFileArena.Lease leaseOf(MultipartBody.Part part) {
+        if (part == null) {
+            return null;
+        }
+        RequestBody body = part.body();
+        if (body instanceof ProgressRequestBody) {
+            body = ((ProgressRequestBody) body).getDelegate();
+        }
+        return body instanceof LeasedFileRequestBody ? ((LeasedFileRequestBody) body).getLease() : null;
+    }
+}
@@ -0,0 +1,86 @@
+package com.wenxing.runyitong.api;
+
+import java.io.IOException;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ForwardingSink;
+import okio.Okio;
+import okio.Sink;
+
+/**
+ * 统计已发送字节数的RequestBody包装
+ * 日志拦截器把请求体写入内存Buffer时不计入进度，只统计真正写往网络的字节
+ */
+public class ProgressRequestBody extends RequestBody {
+
+    /**
+     * 发送进度回调，在OkHttp网络线程调用
+     */
+    public interface Listener {
+        void onRequestProgress(long bytesWritten, long contentLength);
+        void onRequestComplete(long contentLength);
+    }
+
+    private final RequestBody delegate;
+    private final Listener listener;
+
+    public ProgressRequestBody(RequestBody delegate, Listener listener) {
+        this.delegate = delegate;
+        this.listener = listener;
+    }
+
+    public Listener getListener() {
+        return listener;
+    }
+
+    public RequestBody getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return delegate.contentType();
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        return delegate.contentLength();
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        if (sink instanceof Buffer) {
+            // 日志等内存拷贝，不是真正的上传
+            delegate.writeTo(sink);
+            return;
+        }
+
+        final long contentLength = contentLength();
+        CountingSink countingSink = new CountingSink(sink, contentLength);
+        BufferedSink bufferedSink = Okio.buffer(countingSink);
+        listener.onRequestProgress(0, contentLength);
+        delegate.writeTo(bufferedSink);
+        bufferedSink.flush();
+        listener.onRequestComplete(contentLength);
+    }
+
+    private final class CountingSink extends ForwardingSink {
+        private final long contentLength;
+        private long bytesWritten = 0;
+
+        CountingSink(Sink delegate, long contentLength) {
+            super(delegate);
+            this.contentLength = contentLength;
+        }
+
+        @Override
+        public void write(Buffer source, long byteCount) throws IOException {
+            super.write(source, byteCount);
+            bytesWritten += byteCount;
+            listener.onRequestProgress(bytesWritten, contentLength);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.wenxing.runyitong.api;
+
+import java.io.IOException;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Source;
+
+/**
+ * 统计已接收字节数的ResponseBody包装
+ */
+public class ProgressResponseBody extends ResponseBody {
+
+    /**
+     * 接收进度回调，在读取响应的线程调用
+     */
+    public interface Listener {
+        void onResponseProgress(long bytesRead, long contentLength, boolean done);
+    }
+
+    private final ResponseBody delegate;
+    private final Listener listener;
+    private BufferedSource bufferedSource;
+
+    public ProgressResponseBody(ResponseBody delegate, Listener listener) {
+        this.delegate = delegate;
+        this.listener = listener;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return delegate.contentType();
+    }
+
+    @Override
+    public long contentLength() {
+        return delegate.contentLength();
+    }
+
+    @Override
+    public BufferedSource source() {
+        if (bufferedSource == null) {
+            bufferedSource = Okio.buffer(new CountingSource(delegate.source()));
+        }
+        return bufferedSource;
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    private final class CountingSource extends ForwardingSource {
+        private long bytesRead = 0;
+
+        CountingSource(Source delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public long read(Buffer sink, long byteCount) throws IOException {
+            long read = super.read(sink, byteCount);
+            boolean done = read == -1;
+            if (!done) {
+                bytesRead += read;
+            }
+            listener.onResponseProgress(bytesRead, contentLength(), done);
+            return read;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.wenxing.runyitong.api;
+
+import android.util.Log;
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * 重试拦截器
+ * 服务器错误（5xx）和网络错误按指数退避重试，客户端错误（4xx）直接返回。
+ * ApiClient和JVM压测工具共用，压测时可以直接比较重试策略的改动
+ */
+public class RetryInterceptor implements Interceptor {
+    private static final String TAG = "ApiClient";
+
+    private final int maxRetries;
+    private final long baseDelayMs;
+
+    public RetryInterceptor() {
+        // 最多重试3次，首次等待1秒
+        this(3, 1000);
+    }
+
+    public RetryInterceptor(int maxRetries, long baseDelayMs) {
+        this.maxRetries = maxRetries;
+        this.baseDelayMs = baseDelayMs;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        Response response = null;
+        IOException exception = null;
+
+        for (int i = 0; i < maxRetries; i++) {
+            try {
+                response = chain.proceed(request);
+
+                // 如果响应成功或者是客户端错误（4xx），不需要重试
+                if (response.isSuccessful() || (response.code() >= 400 && response.code() < 500)) {
+                    return response;
+                }
+
+                // 服务器错误（5xx）或网络错误，进行重试
+                if (i < maxRetries - 1) {
+                    Log.w(TAG, "Request failed, retrying... (" + (i + 1) + "/" + maxRetries + ")");
+                    response.close();
+                    backoff(i);
+                }
+            } catch (IOException e) {
+                exception = e;
+                if (i < maxRetries - 1) {
+                    Log.w(TAG, "Network error, retrying... (" + (i + 1) + "/" + maxRetries + "): " + e.getMessage());
+                    backoff(i);
+                }
+            }
+        }
+
+        // 如果所有重试都失败了
+        if (response != null) {
+            return response;
+        } else if (exception != null) {
+            throw exception;
+        } else {
+            throw new IOException("Unknown error occurred");
+        }
+    }
+
+    // 等待一段时间再重试（指数退避）
+    private void backoff(int attempt) throws IOException {
+        try {
+            Thread.sleep((long) Math.pow(2, attempt) * baseDelayMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Request interrupted", e);
+        }
+    }
+}
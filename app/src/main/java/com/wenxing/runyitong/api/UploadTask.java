@@ -0,0 +1,176 @@
+package com.wenxing.runyitong.api;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import okhttp3.Interceptor;
+import okhttp3.MultipartBody;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+/**
+ * 可观察的上传任务
+ * 通过ProgressRequestBody统计真实发送字节，请求体发完后进入等待服务端阶段，
+ * 收到响应头后进入接收阶段。观察者回调都在主线程。
+ */
+public class UploadTask implements ProgressRequestBody.Listener, ProgressResponseBody.Listener {
+
+    /**
+     * 上传阶段
+     */
+    public enum Phase {
+        PREPARING,
+        UPLOADING,
+        WAITING_SERVER,
+        RECEIVING,
+        COMPLETED
+    }
+
+    /**
+     * 上传观察者，在主线程回调
+     */
+    public interface Observer {
+        void onUploadPhaseChanged(UploadTask task, Phase phase);
+        void onUploadProgress(UploadTask task, long bytesSent, long totalBytes);
+    }
+
+    // 进度回调最小间隔，避免频繁刷新界面
+    private static final long MIN_PROGRESS_INTERVAL_MS = 100;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<Observer> observers = new CopyOnWriteArrayList<>();
+
+    private volatile Phase phase = Phase.PREPARING;
+    private volatile long bytesSent = 0;
+    private volatile long totalBytes = -1;
+    private long lastProgressTime = 0;
+
+    public void addObserver(Observer observer) {
+        observers.add(observer);
+    }
+
+    public void removeObserver(Observer observer) {
+        observers.remove(observer);
+    }
+
+    public void clearObservers() {
+        observers.clear();
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * 包装上传的表单项，使其发送进度归属于本任务
+     */
+    public MultipartBody.Part wrap(MultipartBody.Part part) {
+        return MultipartBody.Part.create(part.headers(), new ProgressRequestBody(part.body(), this));
+    }
+
+    @Override
+    public void onRequestProgress(long bytesWritten, long contentLength) {
+        // 重试时会从头重新发送
+        if (phase != Phase.UPLOADING) {
+            synchronized (this) {
+                lastProgressTime = 0;
+            }
+            setPhase(Phase.UPLOADING);
+        }
+        bytesSent = bytesWritten;
+        totalBytes = contentLength;
+
+        long now = SystemClock.uptimeMillis();
+        synchronized (this) {
+            if (bytesWritten < contentLength && now - lastProgressTime < MIN_PROGRESS_INTERVAL_MS) {
+                return;
+            }
+            lastProgressTime = now;
+        }
+        dispatchProgress(bytesWritten, contentLength);
+    }
+
+    @Override
+    public void onRequestComplete(long contentLength) {
+        bytesSent = contentLength;
+        dispatchProgress(contentLength, contentLength);
+        setPhase(Phase.WAITING_SERVER);
+    }
+
+    @Override
+    public void onResponseProgress(long bytesRead, long contentLength, boolean done) {
+        if (done) {
+            setPhase(Phase.COMPLETED);
+        }
+    }
+
+    private void onResponseStarted() {
+        setPhase(Phase.RECEIVING);
+    }
+
+    private void setPhase(Phase newPhase) {
+        if (phase == newPhase) {
+            return;
+        }
+        phase = newPhase;
+        mainHandler.post(() -> {
+            for (Observer observer : observers) {
+                observer.onUploadPhaseChanged(this, newPhase);
+            }
+        });
+    }
+
+    private void dispatchProgress(long sent, long total) {
+        mainHandler.post(() -> {
+            for (Observer observer : observers) {
+                observer.onUploadProgress(this, sent, total);
+            }
+        });
+    }
+
+    /**
+     * 网络拦截器：识别请求中属于上传任务的表单项，标记响应阶段并统计接收字节
+     */
+    public static Interceptor networkInterceptor() {
+        return chain -> {
+            Request request = chain.request();
+            UploadTask task = findTask(request.body());
+            Response response = chain.proceed(request);
+            if (task == null || response.body() == null) {
+                return response;
+            }
+            task.onResponseStarted();
+            return response.newBuilder()
+                    .body(new ProgressResponseBody(response.body(), task))
+                    .build();
+        };
+    }
+
+    private static UploadTask findTask(RequestBody body) {
+        if (!(body instanceof MultipartBody)) {
+            return null;
+        }
+        for (MultipartBody.Part part : ((MultipartBody) body).parts()) {
+            if (part.body() instanceof ProgressRequestBody) {
+                ProgressRequestBody.Listener listener = ((ProgressRequestBody) part.body()).getListener();
+                if (listener instanceof UploadTask) {
+                    return (UploadTask) listener;
+                }
+            }
+        }
+        return null;
+    }
+}
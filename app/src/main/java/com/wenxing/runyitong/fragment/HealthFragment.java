@@ -161,9 +161,11 @@ public class HealthFragment extends Fragment {
             // 设置适配器
             if (chineseMedicineBooksRecyclerView != null) {
                 chineseMedicineBooksRecyclerView.setAdapter(chineseMedicineBookAdapter);
+                chineseMedicineBookAdapter.attachPreloader(chineseMedicineBooksRecyclerView);
             }
             if (westernMedicineBooksRecyclerView != null) {
                 westernMedicineBooksRecyclerView.setAdapter(westernMedicineBookAdapter);
+                westernMedicineBookAdapter.attachPreloader(westernMedicineBooksRecyclerView);
             }
         }
     }
@@ -11,7 +11,9 @@ import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
 import android.provider.MediaStore;
+import android.text.Editable;
 import android.text.TextUtils;
+import android.text.TextWatcher;
 import android.view.Gravity;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -32,14 +34,19 @@ import androidx.fragment.app.Fragment;
 import java.io.File;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.concurrent.Future;
 import com.wenxing.runyitong.R;
 import com.wenxing.runyitong.api.ApiClient;
 import com.wenxing.runyitong.api.ApiResponse;
 import com.wenxing.runyitong.api.ApiService;
+import com.wenxing.runyitong.api.LeasedFileRequestBody;
+import com.wenxing.runyitong.api.UploadTask;
 import com.wenxing.runyitong.utils.SymptomsHistoryManager;
 import com.wenxing.runyitong.adapter.SymptomsHistoryAdapter;
 import androidx.recyclerview.widget.RecyclerView;
@@ -63,7 +70,13 @@ import com.wenxing.runyitong.model.FacialFeatures;
 import com.wenxing.runyitong.model.FacialRegions;
 import com.wenxing.runyitong.model.TCMFaceDiagnosis;
 import com.wenxing.runyitong.model.TCMFaceRecommendations;
+import com.wenxing.runyitong.utils.AdaptiveImageEncoder;
+import com.wenxing.runyitong.utils.ImageEditSession;
+import com.wenxing.runyitong.utils.ImageQualityAnalyzer;
+import com.wenxing.runyitong.utils.ImageRegionDecoder;
 import com.wenxing.runyitong.utils.ImageUtils;
+import com.wenxing.runyitong.utils.JankMonitor;
+import com.wenxing.runyitong.utils.TempFileArena;
 import com.wenxing.runyitong.model.PrescriptionCreate;
 import com.wenxing.runyitong.model.Prescription;
 import android.content.SharedPreferences;
@@ -93,9 +106,11 @@ public class PrescriptionFragment extends Fragment {
     private ApiService apiService;
     private Handler timeoutHandler;
     private Runnable timeoutRunnable;
-    private Runnable progressUpdateRunnable;
     private Call<ApiResponse<SymptomAnalysis>> currentCall;
-    private int progressStep = 0;
+    // 当前图片上传任务，显示真实的发送字节和等待阶段
+    private UploadTask currentUploadTask;
+    // 当前请求的上传临时文件，请求结束后释放
+    private TempFileArena.Lease currentUploadLease;
     
     // 图片处理相关
     private Call<ApiResponse<OCRResult>> ocrCall;
@@ -105,6 +120,15 @@ public class PrescriptionFragment extends Fragment {
     private Call<ApiResponse<TongueDiagnosisResult>> tongueDiagnosisCall;
     private Call<ApiResponse<ImageUploadResult>> uploadCall;
     private Uri selectedImageUri;
+    // 图片处理线程上的任务，页面销毁时取消
+    private Future<?> imageInfoTask;
+    private Future<?> imageEditTask;
+    private Future<?> thumbnailTask;
+    private Future<?> qualityCheckTask;
+    private Future<?> uploadPrepareTask;
+    // 非破坏性编辑：只记录步骤，预览按屏幕分辨率渲染，上传时才导出一次
+    private ImageEditSession imageEditSession;
+    private android.graphics.Bitmap editPreviewBitmap;
     private String imageSource = "unknown"; // 记录图片来源："camera" 或 "gallery"
     
     // 图片选择相关
@@ -120,6 +144,8 @@ public class PrescriptionFragment extends Fragment {
     private CardView cvHistoryDropdown;
     private TextView tvClearHistory;
     private boolean isHistoryDropdownVisible = false;
+    // 下拉框最多显示的历史记录条数
+    private static final int MAX_HISTORY_SUGGESTIONS = 10;
     
     // 状态保存相关
     private static final String KEY_SYMPTOMS_TEXT = "symptoms_text";
@@ -166,7 +192,7 @@ public class PrescriptionFragment extends Fragment {
         tvClearHistory = view.findViewById(R.id.tv_clear_history);
         
         // 初始化历史记录管理器
-        historyManager = new SymptomsHistoryManager(getContext());
+        historyManager = SymptomsHistoryManager.getInstance(getContext());
         
         // 设置历史记录列表
         setupHistoryRecyclerView();
@@ -218,7 +244,7 @@ public class PrescriptionFragment extends Fragment {
      * 设置历史记录RecyclerView
      */
     private void setupHistoryRecyclerView() {
-        historyAdapter = new SymptomsHistoryAdapter(historyManager.getHistory());
+        historyAdapter = new SymptomsHistoryAdapter(historyManager.getRecentHistory(MAX_HISTORY_SUGGESTIONS));
         rvHistory.setLayoutManager(new LinearLayoutManager(getContext()));
         rvHistory.setAdapter(historyAdapter);
         
@@ -232,10 +258,9 @@ public class PrescriptionFragment extends Fragment {
         // 设置历史记录项删除事件
         historyAdapter.setOnItemDeleteListener((symptom, position) -> {
             historyManager.removeSymptom(symptom);
-            historyAdapter.updateHistory(historyManager.getHistory());
             
-            // 如果没有历史记录了，隐藏下拉框
-            if (!historyManager.hasHistory()) {
+            // 如果没有匹配的历史记录了，隐藏下拉框
+            if (!refreshHistorySuggestions()) {
                 hideHistoryDropdown();
             }
         });
@@ -259,6 +284,29 @@ public class PrescriptionFragment extends Fragment {
             }
         });
         
+        // 输入时按当前内容联想历史记录
+        etSymptoms.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+            
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+            
+            @Override
+            public void afterTextChanged(Editable s) {
+                if (!etSymptoms.hasFocus() || !etSymptoms.isEnabled()) {
+                    return;
+                }
+                if (isHistoryDropdownVisible ? refreshHistorySuggestions() : historyManager.hasHistory()) {
+                    showHistoryDropdown();
+                } else {
+                    hideHistoryDropdown();
+                }
+            }
+        });
+        
         // 设置症状输入框的点击监听器
         etSymptoms.setOnClickListener(v -> {
             if (historyManager.hasHistory()) {
@@ -273,7 +321,7 @@ public class PrescriptionFragment extends Fragment {
                 .setMessage("确定要清空所有症状历史记录吗？")
                 .setPositiveButton("确定", (dialog, which) -> {
                     historyManager.clearHistory();
-                    historyAdapter.updateHistory(historyManager.getHistory());
+                    historyAdapter.updateHistory(new ArrayList<>());
                     hideHistoryDropdown();
                     Toast.makeText(getContext(), "历史记录已清空", Toast.LENGTH_SHORT).show();
                 })
@@ -282,14 +330,25 @@ public class PrescriptionFragment extends Fragment {
         });
     }
     
+    /**
+     * 按输入框当前内容刷新下拉框：未输入时显示最近记录，否则显示联想结果
+     * @return 是否有可显示的记录
+     */
+    private boolean refreshHistorySuggestions() {
+        String query = etSymptoms.getText().toString().trim();
+        List<String> suggestions = query.isEmpty()
+                ? historyManager.getRecentHistory(MAX_HISTORY_SUGGESTIONS)
+                : historyManager.suggest(query, MAX_HISTORY_SUGGESTIONS);
+        historyAdapter.updateSuggestions(suggestions, query);
+        return !suggestions.isEmpty();
+    }
+    
     /**
      * 显示历史记录下拉框
      */
     private void showHistoryDropdown() {
-        if (!isHistoryDropdownVisible && historyManager.hasHistory()) {
-            // 更新历史记录数据
-            historyAdapter.updateHistory(historyManager.getHistory());
-            
+        if (!isHistoryDropdownVisible && refreshHistorySuggestions()) {
+            cvHistoryDropdown.animate().cancel();
             cvHistoryDropdown.setVisibility(View.VISIBLE);
             isHistoryDropdownVisible = true;
             
@@ -307,13 +366,12 @@ public class PrescriptionFragment extends Fragment {
      */
     private void hideHistoryDropdown() {
         if (isHistoryDropdownVisible) {
+            // 立即更新状态，动画期间继续输入可以重新显示
+            isHistoryDropdownVisible = false;
             cvHistoryDropdown.animate()
                 .alpha(0f)
                 .setDuration(200)
-                .withEndAction(() -> {
-                    cvHistoryDropdown.setVisibility(View.GONE);
-                    isHistoryDropdownVisible = false;
-                })
+                .withEndAction(() -> cvHistoryDropdown.setVisibility(View.GONE))
                 .start();
         }
     }
@@ -360,10 +418,6 @@ public class PrescriptionFragment extends Fragment {
             btnUploadPrescription.setEnabled(false);
             btnSelectImageSource.setEnabled(false);
             etSymptoms.setEnabled(false);
-            
-            // 开始动态更新进度提示
-            progressStep = 0;
-           // startProgressUpdate();
         } else {
             llLoading.setVisibility(View.GONE);
             tvAnalysisResult.setVisibility(View.VISIBLE);
@@ -372,94 +426,10 @@ public class PrescriptionFragment extends Fragment {
             btnSelectImageSource.setEnabled(true);
             etSymptoms.setEnabled(true);
             
-            // 停止进度更新
-         //   stopProgressUpdate();
-        }
-    }
-    
-    /**
-     * 开始进度更新
-     */
-    private void startProgressUpdate() {
-        progressUpdateRunnable = new Runnable() {
-            @Override
-            public void run() {
-                if (llLoading.getVisibility() == View.VISIBLE) {
-                    String[] messages = {
-                        "AI正在分析您的症状\n预计需要10-30秒，请耐心等待",
-                        "正在理解症状描述\n分析中...",
-                        "正在匹配中医理论\n请稍候...",
-                        "正在生成处方建议\n即将完成..."
-                    };
-                    
-                    if (progressStep < messages.length) {
-                        tvLoadingText.setText(messages[progressStep]);
-                        progressStep++;
-                        timeoutHandler.postDelayed(this, 3000); // 每5秒更新一次
-                    }
-                }
-            }
-        };
-        timeoutHandler.post(progressUpdateRunnable);
-    }
-    
-    /**
-     * 停止进度更新
-     */
-    private void stopProgressUpdate() {
-        if (progressUpdateRunnable != null) {
-            timeoutHandler.removeCallbacks(progressUpdateRunnable);
+            // 停止跟踪上传进度
+            detachUploadTask();
         }
     }
-
-    /**
-     * 启动医学影像分析进度更新
-     */
-    private void startMedicalImageAnalysisProgressUpdate(String imageType) {
-        if (timeoutHandler == null) {
-            timeoutHandler = new Handler(Looper.getMainLooper());
-        }
-        
-        // 显示正在分析片子的等待提示
-        String imageTypeName = getImageTypeDisplayName(imageType);
-        Toast.makeText(getContext(), "🔍 正在分析" + imageTypeName + "片子，请稍候...", Toast.LENGTH_SHORT).show();
-        
-        progressStep = 0;
-        progressUpdateRunnable = new Runnable() {
-            @Override
-            public void run() {
-                if (tvLoadingText != null) {
-                    String[] progressMessages = getImageAnalysisProgressMessages(imageType);
-                    if (progressStep < progressMessages.length) {
-                        tvLoadingText.setText(progressMessages[progressStep]);
-                        progressStep++;
-                        timeoutHandler.postDelayed(this, 3000); // 每8秒更新一次
-                    } else {
-                        // 循环显示最后几条消息
-                        progressStep = Math.max(0, progressMessages.length - 3);
-                        tvLoadingText.setText(progressMessages[progressStep]);
-                        progressStep++;
-                        timeoutHandler.postDelayed(this, 3000);
-                    }
-                }
-            }
-        };
-        timeoutHandler.post(progressUpdateRunnable);
-    }
-
-    /**
-     * 获取医学影像分析进度消息
-     */
-    private String[] getImageAnalysisProgressMessages(String imageType) {
-        String displayName = getImageTypeDisplayName(imageType);
-        return new String[]{
-            "正在对" + displayName + "进行影像预处理...",
-            "AI正在识别" + displayName + "中的特征...",
-            "正在分析" + displayName + "影像内容...",
-            "正在生成" + displayName + "诊断建议...",
-            "即将完成" + displayName + "分析..."
-        };
-    }
     
     @Override
     public void onDestroy() {
@@ -486,13 +456,17 @@ public class PrescriptionFragment extends Fragment {
         if (uploadCall != null && !uploadCall.isCanceled()) {
             uploadCall.cancel();
         }
+        cancelImageTask(imageInfoTask);
+        cancelImageTask(imageEditTask);
+        cancelImageTask(thumbnailTask);
+        cancelImageTask(qualityCheckTask);
+        cancelImageTask(uploadPrepareTask);
+        detachUploadTask();
+        releaseImageEditSession();
         if (timeoutHandler != null) {
             if (timeoutRunnable != null) {
                 timeoutHandler.removeCallbacks(timeoutRunnable);
             }
-            if (progressUpdateRunnable != null) {
-                timeoutHandler.removeCallbacks(progressUpdateRunnable);
-            }
         }
         
         // 停止打字机效果
@@ -530,10 +504,6 @@ public class PrescriptionFragment extends Fragment {
         // 将症状描述添加到历史记录中
         if (historyManager != null) {
             historyManager.addSymptom(symptoms);
-            // 更新历史记录列表
-            if (historyAdapter != null) {
-                historyAdapter.updateHistory(historyManager.getHistory());
-            }
         }
         
         // 隐藏历史记录下拉框
@@ -857,7 +827,7 @@ public class PrescriptionFragment extends Fragment {
         
         // 保存当前文本
         currentTypewriterText = text;
-        isTypewriterActive = true;
+        setTypewriterActive(true);
         
         // 创建Handler用于延时显示字符
         typewriterHandler = new Handler(Looper.getMainLooper());
@@ -883,7 +853,7 @@ public class PrescriptionFragment extends Fragment {
                         
                         // 如果是最后一个字符，标记打字机效果结束
                         if (index == text.length()) {
-                            isTypewriterActive = false;
+                            setTypewriterActive(false);
                         }
                     }
                 }
@@ -905,7 +875,22 @@ public class PrescriptionFragment extends Fragment {
         if (typewriterHandler != null) {
             typewriterHandler.removeCallbacksAndMessages(null);
         }
-        isTypewriterActive = false;
+        setTypewriterActive(false);
+    }
+    
+    /**
+     * 更新打字机状态，打字期间的帧计入掉帧监控的动画阶段
+     */
+    private void setTypewriterActive(boolean active) {
+        if (isTypewriterActive == active) {
+            return;
+        }
+        isTypewriterActive = active;
+        if (active) {
+            JankMonitor.getInstance().beginAnimation();
+        } else {
+            JankMonitor.getInstance().endAnimation();
+        }
     }
     
     /**
@@ -1155,6 +1140,9 @@ public class PrescriptionFragment extends Fragment {
         super.onPause();
         // 保存当前状态
         saveCurrentState();
+        if (historyManager != null) {
+            historyManager.flush();
+        }
     }
     
     /**
@@ -1492,6 +1480,7 @@ public class PrescriptionFragment extends Fragment {
         }
         
         android.util.Log.d("PrescriptionFragment", "设置selectedImageUri");
+        releaseImageEditSession();
         selectedImageUri = imageUri;
         android.util.Log.d("PrescriptionFragment", "selectedImageUri已设置为: " + selectedImageUri);
         
@@ -2214,12 +2203,14 @@ public class PrescriptionFragment extends Fragment {
             Toast.makeText(getContext(), "图片过大，正在压缩...", Toast.LENGTH_SHORT).show();
         }
         
-        // 创建MultipartBody.Part
-        MultipartBody.Part imagePart = ImageUtils.createImagePart(getContext(), selectedImageUri, "image");
-        if (imagePart == null) {
-            Toast.makeText(getContext(), "图片处理失败", Toast.LENGTH_SHORT).show();
-            return;
-        }
+        prepareImagePart(AdaptiveImageEncoder.UploadProfile.OCR, "图片处理失败", this::uploadOCRImage);
+    }
+    
+    /**
+     * 上传图片进行文字识别，图片已在后台压缩编码
+     */
+    private void uploadOCRImage(MultipartBody.Part imagePart) {
+        imagePart = trackUpload(imagePart, "AI正在识别文字...");
         
         showLoading(true);
         tvLoadingText.setText("正在识别文字...");
@@ -2261,12 +2252,14 @@ public class PrescriptionFragment extends Fragment {
             return;
         }
         
-        // 创建MultipartBody.Part
-        MultipartBody.Part imagePart = ImageUtils.createImagePart(getContext(), selectedImageUri, "image");
-        if (imagePart == null) {
-            Toast.makeText(getContext(), "图片处理失败", Toast.LENGTH_SHORT).show();
-            return;
-        }
+        prepareImagePart(AdaptiveImageEncoder.UploadProfile.PRESCRIPTION, "图片处理失败", this::uploadPrescriptionImage);
+    }
+    
+    /**
+     * 上传处方图片进行分析，图片已在后台压缩编码
+     */
+    private void uploadPrescriptionImage(MultipartBody.Part imagePart) {
+        imagePart = trackUpload(imagePart, "AI正在分析处方...");
         
         showLoading(true);
         tvLoadingText.setText("正在分析处方...");
@@ -2311,12 +2304,15 @@ public class PrescriptionFragment extends Fragment {
             return;
         }
         
-        // 创建MultipartBody.Part用于上传
-        MultipartBody.Part imagePart = ImageUtils.createImagePart(getContext(), selectedImageUri, "image");
-        if (imagePart == null) {
-            Toast.makeText(getContext(), "图片处理失败", Toast.LENGTH_SHORT).show();
-            return;
-        }
+        prepareImagePart(AdaptiveImageEncoder.UploadProfile.forMedicalImageType(imageType), "图片处理失败",
+                imagePart -> uploadMedicalImage(imagePart, imageType));
+    }
+    
+    /**
+     * 上传医学影像进行分析，图片已在后台压缩编码
+     */
+    private void uploadMedicalImage(MultipartBody.Part imagePart, String imageType) {
+        imagePart = trackUpload(imagePart, "AI正在分析" + getImageTypeDisplayName(imageType) + "影像...");
         
         // 显示加载界面但不启动普通的进度更新
         llLoading.setVisibility(View.VISIBLE);
@@ -2326,9 +2322,6 @@ public class PrescriptionFragment extends Fragment {
         btnSelectImageSource.setEnabled(false);
         etSymptoms.setEnabled(false);
         
-        // 启动医学影像分析专用的进度更新，显示分析过程的不同阶段
-//        startMedicalImageAnalysisProgressUpdate(imageType);
-        
         // 调用相应的API接口进行医学影像分析
         switch (imageType) {
             case "xray":
@@ -2839,12 +2832,14 @@ public class PrescriptionFragment extends Fragment {
             return;
         }
         
-        // 创建MultipartBody.Part用于上传舌诊图片
-        MultipartBody.Part imagePart = ImageUtils.createImagePart(getContext(), selectedImageUri, "image");
-        if (imagePart == null) {
-            Toast.makeText(getContext(), "舌诊图片处理失败", Toast.LENGTH_SHORT).show();
-            return;
-        }
+        prepareImagePart(AdaptiveImageEncoder.UploadProfile.TONGUE, "舌诊图片处理失败", this::uploadTongueImage);
+    }
+    
+    /**
+     * 上传舌诊图片进行分析，图片已在后台压缩编码
+     */
+    private void uploadTongueImage(MultipartBody.Part imagePart) {
+        imagePart = trackUpload(imagePart, "AI正在分析舌象...");
         
         // 显示加载界面
         llLoading.setVisibility(View.VISIBLE);
@@ -2854,9 +2849,6 @@ public class PrescriptionFragment extends Fragment {
         btnSelectImageSource.setEnabled(false);
         etSymptoms.setEnabled(false);
         
-        // 启动中医舌诊专用的进度更新
-//        startTongueDiagnosisProgressUpdate();
-        
         // 调用中医舌诊API接口
         tongueDiagnosisCall = apiService.analyzeTongueImage(imagePart);
         
@@ -2938,36 +2930,6 @@ public class PrescriptionFragment extends Fragment {
         }
     }
     
-    /**
-     * 启动中医舌诊分析专用的进度更新
-     */
-    private void startTongueDiagnosisProgressUpdate() {
-        final String[] progressMessages = {
-            "正在分析舌质颜色...",
-            "正在检测舌苔厚薄...",
-            "正在评估舌体形态...",
-            "正在进行中医辨证...",
-            "正在生成调理建议...",
-            "分析即将完成..."
-        };
-        
-        final int[] currentIndex = {0};
-        
-        Handler handler = new Handler(Looper.getMainLooper());
-        Runnable progressRunnable = new Runnable() {
-            @Override
-            public void run() {
-                if (llLoading.getVisibility() == View.VISIBLE && currentIndex[0] < progressMessages.length) {
-                    tvLoadingText.setText(progressMessages[currentIndex[0]]);
-                    currentIndex[0]++;
-                    handler.postDelayed(this, 2000); // 每2秒更新一次
-                }
-            }
-        };
-        
-        handler.post(progressRunnable);
-    }
-    
     /**
      * 显示中医舌诊分析结果
      * @param analysisData 舌诊分析数据
@@ -3167,12 +3129,14 @@ public class PrescriptionFragment extends Fragment {
             return;
         }
         
-        // 创建MultipartBody.Part用于上传面诊图片
-        MultipartBody.Part imagePart = ImageUtils.createImagePart(getContext(), selectedImageUri, "image");
-        if (imagePart == null) {
-            Toast.makeText(getContext(), "面诊图片处理失败", Toast.LENGTH_SHORT).show();
-            return;
-        }
+        prepareImagePart(AdaptiveImageEncoder.UploadProfile.FACE, "面诊图片处理失败", this::uploadFaceImage);
+    }
+    
+    /**
+     * 上传面诊图片进行分析，图片已在后台压缩编码
+     */
+    private void uploadFaceImage(MultipartBody.Part imagePart) {
+        imagePart = trackUpload(imagePart, "AI正在分析面象...");
         
         // 显示加载界面
         llLoading.setVisibility(View.VISIBLE);
@@ -3182,9 +3146,6 @@ public class PrescriptionFragment extends Fragment {
         btnSelectImageSource.setEnabled(false);
         etSymptoms.setEnabled(false);
         
-        // 启动中医面诊专用的进度更新
-//        startFaceDiagnosisProgressUpdate();
-        
         // 调用中医面诊API接口
         faceDiagnosisCall = apiService.analyzeFaceImage(imagePart);
         
@@ -3269,36 +3230,6 @@ public class PrescriptionFragment extends Fragment {
         }
     }
     
-    /**
-     * 启动中医面诊分析专用的进度更新
-     */
-    private void startFaceDiagnosisProgressUpdate() {
-        final String[] progressMessages = {
-            "正在分析面部气色...",
-            "正在检测五官特征...",
-            "正在评估面部区域...",
-            "正在进行中医辨证...",
-            "正在生成调理建议...",
-            "分析即将完成..."
-        };
-        
-        final int[] currentIndex = {0};
-        
-        Handler handler = new Handler(Looper.getMainLooper());
-        Runnable progressRunnable = new Runnable() {
-            @Override
-            public void run() {
-                if (llLoading.getVisibility() == View.VISIBLE && currentIndex[0] < progressMessages.length) {
-                    tvLoadingText.setText(progressMessages[currentIndex[0]]);
-                    currentIndex[0]++;
-                    handler.postDelayed(this, 2000); // 每2秒更新一次
-                }
-            }
-        };
-        
-        handler.post(progressRunnable);
-    }
-    
     /**
      * 显示中医面诊分析结果
      * @param analysisData 面诊分析数据
@@ -3558,12 +3489,14 @@ public class PrescriptionFragment extends Fragment {
             return;
         }
         
-        // 创建MultipartBody.Part
-        MultipartBody.Part imagePart = ImageUtils.createImagePart(getContext(), selectedImageUri, "image");
-        if (imagePart == null) {
-            Toast.makeText(getContext(), "图片处理失败", Toast.LENGTH_SHORT).show();
-            return;
-        }
+        prepareImagePart(AdaptiveImageEncoder.UploadProfile.GENERIC, "图片处理失败", this::uploadGenericImage);
+    }
+    
+    /**
+     * 上传图片到服务器保存，图片已在后台压缩编码
+     */
+    private void uploadGenericImage(MultipartBody.Part imagePart) {
+        imagePart = trackUpload(imagePart, "服务器正在保存图片...");
         
         showLoading(true);
         tvLoadingText.setText("正在上传图片...");
@@ -3626,22 +3559,49 @@ public class PrescriptionFragment extends Fragment {
         // 显示加载状态
         pbLoading.setVisibility(View.VISIBLE);
         
-        // 异步加载图片
-        new Thread(() -> {
+        // 预览位图只按屏幕尺寸解码，对话框关闭后归还位图池
+        final android.graphics.Bitmap[] overviewBitmap = new android.graphics.Bitmap[1];
+        final boolean showEditPreview = editPreviewBitmap != null && imageEditSession != null && imageEditSession.hasEdits();
+        final int previewMaxSide = Math.max(getResources().getDisplayMetrics().widthPixels,
+                getResources().getDisplayMetrics().heightPixels);
+        
+        // 异步加载图片信息
+        cancelImageTask(imageInfoTask);
+        imageInfoTask = ImageUtils.submitImageTask(() -> {
             try {
                 // 获取图片信息
                 long imageSize = ImageUtils.getImageSize(getContext(), selectedImageUri);
                 String imageSizeStr = ImageUtils.formatFileSize(imageSize);
                 String imageInfo = ImageUtils.getImageInfo(getContext(), selectedImageUri);
                 
+                // 按EXIF方向摆正并采样解码，避免在主线程解码原图
+                android.graphics.Bitmap overview = null;
+                if (!showEditPreview) {
+                    try (ImageRegionDecoder regionDecoder = ImageRegionDecoder.open(getContext(), selectedImageUri)) {
+                        overview = regionDecoder.decodeOverview(previewMaxSide);
+                    } catch (Exception e) {
+                        Log.w(TAG, "区域解码预览失败: " + e.getMessage());
+                    }
+                }
+                final android.graphics.Bitmap decodedOverview = overview;
+                
                 // 在主线程更新UI
                 if (getActivity() != null) {
                     getActivity().runOnUiThread(() -> {
-                        // 设置图片
-                        imageView.setImageURI(selectedImageUri);
+                        // 设置图片，有未导出的编辑时显示编辑预览
+                        String editInfo = "";
+                        if (showEditPreview && editPreviewBitmap != null && imageEditSession != null) {
+                            imageView.setImageBitmap(editPreviewBitmap);
+                            editInfo = "\n已编辑 " + imageEditSession.getEditCount() + " 步，上传时应用";
+                        } else if (decodedOverview != null) {
+                            overviewBitmap[0] = decodedOverview;
+                            imageView.setImageBitmap(decodedOverview);
+                        } else {
+                            imageView.setImageURI(selectedImageUri);
+                        }
                         
                         // 显示图片信息
-                        tvImageInfo.setText("图片大小: " + imageSizeStr + "\n" + imageInfo);
+                        tvImageInfo.setText("图片大小: " + imageSizeStr + "\n" + imageInfo + editInfo);
                         
                         // 隐藏加载状态
                         pbLoading.setVisibility(View.GONE);
@@ -3655,7 +3615,7 @@ public class PrescriptionFragment extends Fragment {
                     });
                 }
             }
-        }).start();
+        });
         
         // 设置缩放功能
         final float[] currentScale = {1.0f};
@@ -3688,6 +3648,12 @@ public class PrescriptionFragment extends Fragment {
         
         btnClose.setOnClickListener(v -> dialog.dismiss());
         
+        dialog.setOnDismissListener(d -> {
+            imageView.setImageDrawable(null);
+            ImageUtils.releaseBitmap(overviewBitmap[0]);
+            overviewBitmap[0] = null;
+        });
+        
         dialog.show();
     }
     
@@ -4220,31 +4186,34 @@ public class PrescriptionFragment extends Fragment {
             return;
         }
         
+        // 只记录编辑步骤，不修改原图
+        if (imageEditSession == null || !imageEditSession.getSourceUri().equals(selectedImageUri)) {
+            releaseImageEditSession();
+            imageEditSession = new ImageEditSession(selectedImageUri);
+        }
+        imageEditSession.addEdit(operation);
+        
         // 显示加载提示
         showLoading(true);
         tvLoadingText.setText("正在编辑图片...");
         
-        ImageUtils.editImageAsync(getContext(), selectedImageUri, operation, new ImageUtils.ImageProcessCallback() {
+        android.util.DisplayMetrics metrics = getResources().getDisplayMetrics();
+        cancelImageTask(imageEditTask);
+        imageEditTask = imageEditSession.renderPreviewAsync(getContext(), metrics.widthPixels, metrics.heightPixels,
+                new ImageUtils.ImageProcessCallback() {
             @Override
             public void onSuccess(android.graphics.Bitmap result) {
                 if (getActivity() != null) {
                     getActivity().runOnUiThread(() -> {
                         showLoading(false);
+                        setEditPreviewBitmap(result);
+                        Toast.makeText(getContext(), "图片编辑成功", Toast.LENGTH_SHORT).show();
                         
-                        // 保存编辑后的图片
-                        String filename = "edited_image_" + System.currentTimeMillis();
-                        Uri editedUri = ImageUtils.saveBitmapToUri(getContext(), result, filename);
-                        
-                        if (editedUri != null) {
-                            selectedImageUri = editedUri;
-                            Toast.makeText(getContext(), "图片编辑成功", Toast.LENGTH_SHORT).show();
-                            
-                            // 重新显示预览
-                            previewImage();
-                        } else {
-                            Toast.makeText(getContext(), "保存编辑后的图片失败", Toast.LENGTH_SHORT).show();
-                        }
+                        // 重新显示预览
+                        previewImage();
                     });
+                } else {
+                    ImageUtils.releaseBitmap(result);
                 }
             }
             
@@ -4295,22 +4264,235 @@ public class PrescriptionFragment extends Fragment {
         showLoading(true);
         tvLoadingText.setText("正在生成缩略图...");
         
-        // 在后台线程生成缩略图
-        new Thread(() -> {
-            android.graphics.Bitmap thumbnail = ImageUtils.generateThumbnail(getContext(), selectedImageUri);
+        // 在图片处理线程生成缩略图
+        cancelImageTask(thumbnailTask);
+        thumbnailTask = ImageUtils.generateThumbnailAsync(getContext(), selectedImageUri, new ImageUtils.ImageProcessCallback() {
+            @Override
+            public void onSuccess(android.graphics.Bitmap thumbnail) {
+                if (getActivity() != null) {
+                    getActivity().runOnUiThread(() -> {
+                        showLoading(false);
+                        showThumbnailDialog(thumbnail);
+                    });
+                }
+            }
             
+            @Override
+            public void onError(String error) {
+                if (getActivity() != null) {
+                    getActivity().runOnUiThread(() -> {
+                        showLoading(false);
+                        Toast.makeText(getContext(), error, Toast.LENGTH_SHORT).show();
+                    });
+                }
+            }
+        });
+    }
+    
+    /**
+     * 替换编辑预览位图，旧预览归还位图池
+     */
+    private void setEditPreviewBitmap(android.graphics.Bitmap bitmap) {
+        if (editPreviewBitmap != null && editPreviewBitmap != bitmap) {
+            ImageUtils.releaseBitmap(editPreviewBitmap);
+        }
+        editPreviewBitmap = bitmap;
+    }
+    
+    private void releaseImageEditSession() {
+        if (imageEditSession != null) {
+            imageEditSession.release();
+            imageEditSession = null;
+        }
+        setEditPreviewBitmap(null);
+    }
+    
+    /**
+     * 上传图片编码完成回调，在主线程执行
+     */
+    private interface ImagePartCallback {
+        void onImagePartReady(MultipartBody.Part imagePart);
+    }
+    
+    /**
+     * 在图片处理线程准备上传用的图片：只有裁剪时按区域解码原图，其他未导出的编辑先按完整分辨率导出一次，
+     * 再按上传档位压缩编码，完成后回到主线程继续发起请求
+     */
+    private void prepareImagePart(AdaptiveImageEncoder.UploadProfile profile, String failureMessage,
+                                  ImagePartCallback callback) {
+        if (selectedImageUri == null || getContext() == null) {
+            return;
+        }
+        
+        final ImageEditSession session = imageEditSession != null && imageEditSession.hasEdits()
+                ? imageEditSession : null;
+        final Uri sourceUri = selectedImageUri;
+        final Context appContext = getContext().getApplicationContext();
+        cancelImageTask(uploadPrepareTask);
+        uploadPrepareTask = ImageUtils.submitImageTask(() -> {
+            // 只裁剪过时直接从原图区域解码上传，裁剪区域内保留原图细节，也省去一次导出
+            android.graphics.RectF cropRegion = session != null ? session.getCropOnlyRegion() : null;
+            MultipartBody.Part imagePart = cropRegion != null
+                    ? ImageUtils.createRegionImagePart(appContext, session.getSourceUri(), cropRegion, "image", profile)
+                    : null;
+            Uri editedUri = null;
+            if (imagePart == null && !Thread.currentThread().isInterrupted()) {
+                editedUri = session != null ? session.exportBlocking(appContext) : null;
+                if (session != null && editedUri == null) {
+                    Log.w("PrescriptionFragment", "导出编辑结果失败，上传原图");
+                }
+                Uri uploadUri = editedUri != null ? editedUri : sourceUri;
+                imagePart = Thread.currentThread().isInterrupted()
+                        ? null : ImageUtils.createImagePart(appContext, uploadUri, "image", profile);
+            }
+            final Uri exportedUri = editedUri;
+            final MultipartBody.Part preparedPart = imagePart;
+            if (Thread.currentThread().isInterrupted() || getActivity() == null) {
+                return;
+            }
+            getActivity().runOnUiThread(() -> {
+                // 编码期间换了图片，不再上传旧图
+                if (!isAdded() || sourceUri != selectedImageUri) {
+                    return;
+                }
+                if (exportedUri != null && session == imageEditSession) {
+                    selectedImageUri = exportedUri;
+                    releaseImageEditSession();
+                }
+                if (preparedPart == null) {
+                    Toast.makeText(getContext(), failureMessage, Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                callback.onImagePartReady(preparedPart);
+            });
+        });
+    }
+    
+    /**
+     * 在图片处理线程检测照片质量，合格后再执行上传分析
+     * 明显不合格时拦截并引导重拍，轻微问题提示后由用户决定是否继续
+     */
+    private void checkImageQualityThen(ImageQualityAnalyzer.Subject subject, Runnable onAccepted) {
+        final Uri imageUri = selectedImageUri;
+        final Context appContext = getContext() != null ? getContext().getApplicationContext() : null;
+        if (imageUri == null || appContext == null) {
+            onAccepted.run();
+            return;
+        }
+        
+        cancelImageTask(qualityCheckTask);
+        qualityCheckTask = ImageUtils.submitImageTask(() -> {
+            ImageQualityAnalyzer.QualityReport report = null;
+            try {
+                report = ImageQualityAnalyzer.analyze(appContext, imageUri, subject);
+            } catch (Exception e) {
+                // 检测失败不阻断上传，交给服务端判断
+                Log.w("PrescriptionFragment", "照片质量检测失败: " + e.getMessage());
+            }
+            final ImageQualityAnalyzer.QualityReport result = report;
             if (getActivity() != null) {
                 getActivity().runOnUiThread(() -> {
-                    showLoading(false);
-                    
-                    if (thumbnail != null) {
-                        showThumbnailDialog(thumbnail);
+                    if (!isAdded() || imageUri != selectedImageUri) {
+                        return;
+                    }
+                    if (result == null || result.getVerdict() == ImageQualityAnalyzer.Verdict.PASS) {
+                        onAccepted.run();
                     } else {
-                        Toast.makeText(getContext(), "生成缩略图失败", Toast.LENGTH_SHORT).show();
+                        showImageQualityDialog(subject, result, onAccepted);
                     }
                 });
             }
-        }).start();
+        });
+    }
+    
+    /**
+     * 显示照片质量问题
+     */
+    private void showImageQualityDialog(ImageQualityAnalyzer.Subject subject,
+                                        ImageQualityAnalyzer.QualityReport report, Runnable onAccepted) {
+        final String diagnosisType = subject == ImageQualityAnalyzer.Subject.TONGUE ? "tongue" : "face";
+        boolean rejected = report.getVerdict() == ImageQualityAnalyzer.Verdict.REJECT;
+        
+        AlertDialog.Builder builder = new AlertDialog.Builder(getContext())
+                .setTitle(rejected ? "照片不符合分析要求" : "照片质量提示")
+                .setMessage(report.getIssuesText())
+                .setPositiveButton("重新拍摄", (d, which) -> {
+                    currentTongueDiagnosisType = diagnosisType;
+                    showImagePickerDialog();
+                });
+        if (rejected) {
+            builder.setNegativeButton("取消", null);
+        } else {
+            builder.setNegativeButton("仍然上传", (d, which) -> onAccepted.run());
+        }
+        builder.show();
+    }
+    
+    /**
+     * 跟踪图片上传进度：上传阶段显示真实发送字节，发送完成后显示等待服务端的提示
+     * @return 需要替换原表单项提交的包装表单项
+     */
+    private MultipartBody.Part trackUpload(MultipartBody.Part imagePart, String waitingMessage) {
+        detachUploadTask();
+        currentUploadLease = LeasedFileRequestBody.leaseOf(imagePart);
+        currentUploadTask = new UploadTask();
+        currentUploadTask.addObserver(new UploadTask.Observer() {
+            @Override
+            public void onUploadPhaseChanged(UploadTask task, UploadTask.Phase phase) {
+                if (tvLoadingText == null || task != currentUploadTask) {
+                    return;
+                }
+                switch (phase) {
+                    case UPLOADING:
+                        tvLoadingText.setText("正在上传图片...");
+                        break;
+                    case WAITING_SERVER:
+                        tvLoadingText.setText("图片上传完成\n" + waitingMessage);
+                        break;
+                    case RECEIVING:
+                    case COMPLETED:
+                        tvLoadingText.setText("正在接收分析结果...");
+                        break;
+                    default:
+                        break;
+                }
+            }
+            
+            @Override
+            public void onUploadProgress(UploadTask task, long bytesSent, long totalBytes) {
+                if (tvLoadingText == null || task != currentUploadTask
+                        || task.getPhase() != UploadTask.Phase.UPLOADING || totalBytes <= 0) {
+                    return;
+                }
+                int percent = (int) (bytesSent * 100 / totalBytes);
+                tvLoadingText.setText("正在上传图片 " + percent + "%\n"
+                        + ImageUtils.formatFileSize(bytesSent) + " / " + ImageUtils.formatFileSize(totalBytes));
+            }
+        });
+        return currentUploadTask.wrap(imagePart);
+    }
+    
+    /**
+     * 停止跟踪当前上传任务并释放上传临时文件
+     */
+    private void detachUploadTask() {
+        if (currentUploadTask != null) {
+            currentUploadTask.clearObservers();
+            currentUploadTask = null;
+        }
+        if (currentUploadLease != null) {
+            currentUploadLease.release();
+            currentUploadLease = null;
+        }
+    }
+    
+    /**
+     * 取消尚未完成的图片任务
+     */
+    private void cancelImageTask(Future<?> task) {
+        if (task != null && !task.isDone()) {
+            task.cancel(true);
+        }
     }
     
     /**
@@ -4622,6 +4804,7 @@ public class PrescriptionFragment extends Fragment {
         Log.d("PrescriptionFragment", "处理有效图片结果: " + imageUri + ", 来源: " + source);
         
         // 设置选中的图片URI和来源
+        releaseImageEditSession();
         selectedImageUri = imageUri;
         imageSource = source;
         
@@ -4629,15 +4812,15 @@ public class PrescriptionFragment extends Fragment {
         if (currentTongueDiagnosisType != null && !currentTongueDiagnosisType.isEmpty()) {
             Log.d("PrescriptionFragment", "检测到舌面诊类型: " + currentTongueDiagnosisType + ", 直接执行AI分析");
             
-            // 根据图片类型选择执行相应的诊断分析
+            // 根据图片类型选择执行相应的诊断分析，上传前先做本地质量检测
             if ("face".equals(currentTongueDiagnosisType)) {
                 // 执行面诊分析
                 Log.d("PrescriptionFragment", "执行面诊分析");
-                performFaceDiagnosis();
+                checkImageQualityThen(ImageQualityAnalyzer.Subject.FACE, this::performFaceDiagnosis);
             } else if("tongue".equals(currentTongueDiagnosisType)) {
                 // 执行舌诊分析
                 Log.d("PrescriptionFragment", "执行舌诊分析");
-                performTongueDiagnosis();
+                checkImageQualityThen(ImageQualityAnalyzer.Subject.TONGUE, this::performTongueDiagnosis);
             } 
             
             // 重置舌面诊类型
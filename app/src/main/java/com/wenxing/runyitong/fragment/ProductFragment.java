@@ -24,6 +24,7 @@ import com.wenxing.runyitong.model.Product;
 import com.wenxing.runyitong.api.ApiClient;
 import com.wenxing.runyitong.api.ApiResponse;
 import com.wenxing.runyitong.api.ProductListResponse;
+import com.wenxing.runyitong.utils.ViewPrewarmer;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -274,6 +275,8 @@ public class ProductFragment extends Fragment {
             productAdapter = new ProductAdapter(getContext(), filteredProductList);
             productRecyclerView.setLayoutManager(new GridLayoutManager(getContext(), 2));
             productRecyclerView.setAdapter(productAdapter);
+            productAdapter.attachPreloader(productRecyclerView);
+            ViewPrewarmer.getInstance().attach(productRecyclerView, ProductAdapter.ROW_TYPE);
 
             // 设置商品点击事件
             productAdapter.setOnItemClickListener(product -> {
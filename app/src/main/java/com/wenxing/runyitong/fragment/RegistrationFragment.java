@@ -25,6 +25,7 @@ import com.wenxing.runyitong.api.HospitalListResponse;
 import com.wenxing.runyitong.model.*;
 import com.wenxing.runyitong.adapter.*;
 import com.wenxing.runyitong.activity.LoginActivity;
+import com.wenxing.runyitong.utils.ViewPrewarmer;
 import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Response;
@@ -439,6 +440,7 @@ public class RegistrationFragment extends Fragment {
             startActivity(intent);
         });
         recyclerViewHospitals.setAdapter(hospitalAdapter);
+        ViewPrewarmer.getInstance().attach(recyclerViewHospitals, HospitalAdapter.ROW_TYPE);
         android.util.Log.d("RegistrationFragment", "医院适配器设置完成");
     }
     
@@ -453,6 +455,7 @@ public class RegistrationFragment extends Fragment {
             setupTimeSlots(doctor.getAvailableTimes());
         });
         recyclerViewDoctors.setAdapter(doctorAdapter);
+        ViewPrewarmer.getInstance().attach(recyclerViewDoctors, DoctorAdapter.ROW_TYPE);
         android.util.Log.d("RegistrationFragment", "医生适配器设置完成");
     }
     
@@ -464,6 +467,7 @@ public class RegistrationFragment extends Fragment {
             loadDoctorsByHospitalAndDepartment(selectedHospital.getId(), department.getId());
         });
         recyclerViewDepartments.setAdapter(departmentAdapter);
+        ViewPrewarmer.getInstance().attach(recyclerViewDepartments, DepartmentAdapter.ROW_TYPE);
     }
     
     private void loadDoctorsByHospitalAndDepartment(int hospitalId, int departmentId) {
@@ -21,6 +21,7 @@ public class PDFPageModel {
     private int originalWidth;
     private int originalHeight;
     private boolean isBookmarked = false;
+    private boolean isPreview = false; // 当前位图是否为预读时的低分辨率预览
     
     public PDFPageModel() {
         this.loadingState = LoadingState.PENDING;
@@ -69,6 +70,20 @@ public class PDFPageModel {
         }
     }
     
+    /**
+     * 替换为高分辨率位图，不回收旧位图：视图和变更动画可能仍在绘制它，由GC回收
+     */
+    public void replacePageBitmap(Bitmap pageBitmap) {
+        this.pageBitmap = pageBitmap;
+        if (pageBitmap != null && !pageBitmap.isRecycled()) {
+            this.originalWidth = pageBitmap.getWidth();
+            this.originalHeight = pageBitmap.getHeight();
+        } else {
+            this.originalWidth = 0;
+            this.originalHeight = 0;
+        }
+    }
+    
     public LoadingState getLoadingState() {
         return loadingState;
     }
@@ -152,6 +167,14 @@ public class PDFPageModel {
         isBookmarked = bookmarked;
     }
     
+    public boolean isPreview() {
+        return isPreview;
+    }
+    
+    public void setPreview(boolean preview) {
+        isPreview = preview;
+    }
+    
     // Utility methods
     public long getLoadDuration() {
         if (loadStartTime > 0 && loadEndTime > 0 && loadEndTime >= loadStartTime) {
@@ -207,11 +230,21 @@ public class PDFPageModel {
         return loadingState == LoadingState.ERROR;
     }
     
+    /**
+     * 只释放位图引用而不主动recycle，用于释放可能仍被缓存视图引用的页面
+     */
+    public void releaseBitmap() {
+        pageBitmap = null;
+        isPreview = false;
+        resetLoadingState();
+    }
+    
     public void cleanup() {
         if (pageBitmap != null && !pageBitmap.isRecycled()) {
             pageBitmap.recycle();
         }
         pageBitmap = null;
+        isPreview = false;
         errorMessage = null;
         loadStartTime = 0;
         loadEndTime = 0;
@@ -228,6 +261,7 @@ public class PDFPageModel {
                 ", zoomLevel=" + zoomLevel +
                 ", isBookmarked=" + isBookmarked +
                 ", hasBitmap=" + hasBitmap() +
+                ", isPreview=" + isPreview +
                 ", loadDuration=" + getLoadDurationString() +
                 '}';
     }
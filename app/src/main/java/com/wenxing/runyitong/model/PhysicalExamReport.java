@@ -1,8 +1,11 @@
 package com.wenxing.runyitong.model;
 
+import android.text.TextUtils;
+
 import com.google.gson.annotations.SerializedName;
 import com.google.gson.Gson;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -259,6 +262,26 @@ public class PhysicalExamReport implements Serializable {
     public void setReportUrl(String reportUrl) {
         this.reportUrl = reportUrl;
     }
+    
+    /**
+     * 多页报告的图片地址，按页序以逗号分隔保存在report_url中
+     */
+    public List<String> getReportUrls() {
+        List<String> urls = new ArrayList<>();
+        if (reportUrl == null || reportUrl.isEmpty()) {
+            return urls;
+        }
+        for (String url : reportUrl.split(",")) {
+            if (!url.trim().isEmpty()) {
+                urls.add(url.trim());
+            }
+        }
+        return urls;
+    }
+    
+    public void setReportUrls(List<String> urls) {
+        this.reportUrl = urls == null ? "" : TextUtils.join(",", urls);
+    }
 
     public Date getCreatedAt() {
         return createdAt;
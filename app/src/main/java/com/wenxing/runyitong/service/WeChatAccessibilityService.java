@@ -3,12 +3,10 @@ package com.wenxing.runyitong.service;
 import android.accessibilityservice.AccessibilityService;
 import android.accessibilityservice.AccessibilityServiceInfo;
 import android.content.Intent;
-import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
 import android.view.accessibility.AccessibilityEvent;
-import android.view.accessibility.AccessibilityNodeInfo;
 import android.view.WindowManager;
 import android.view.View;
 import android.widget.TextView;
@@ -21,16 +19,26 @@ import android.util.TypedValue;
 import android.view.Gravity;
 import android.provider.Settings;
 
+import com.wenxing.runyitong.utils.AccessibilityStepRunner;
+
+import java.util.Arrays;
 import java.util.List;
 
 public class WeChatAccessibilityService extends AccessibilityService {
     private static final String TAG = "WeChatAccessibilityService";
     private static final String WECHAT_PACKAGE = "com.tencent.mm";
+    private static final String EDIT_TEXT_CLASS = "android.widget.EditText";
+    // 旧版微信首页搜索入口的ID，新版本由步骤执行器按版本缓存
+    private static final String LEGACY_SEARCH_ENTRY_ID = "com.tencent.mm:id/cd7";
+    
+    // 冷启动微信到首页可能较慢
+    private static final long LAUNCH_TIMEOUT_MS = 10000;
+    private static final long SUBMIT_TIMEOUT_MS = 1500;
     
     private static WeChatAccessibilityService instance;
     private String searchKeyword;
-    private boolean isSearching = false;
     private Handler handler = new Handler(Looper.getMainLooper());
+    private AccessibilityStepRunner stepRunner;
     
     // 悬浮窗相关
     private WindowManager windowManager;
@@ -46,12 +54,14 @@ public class WeChatAccessibilityService extends AccessibilityService {
         super.onCreate();
         instance = this;
         windowManager = (WindowManager) getSystemService(WINDOW_SERVICE);
+        stepRunner = new AccessibilityStepRunner(this, WECHAT_PACKAGE, handler);
         Log.d(TAG, "无障碍服务已创建");
     }
     
     @Override
     public void onDestroy() {
         super.onDestroy();
+        stepRunner.cancel();
         hideFloatingGuide();
         instance = null;
         Log.d(TAG, "无障碍服务已销毁");
@@ -63,31 +73,19 @@ public class WeChatAccessibilityService extends AccessibilityService {
         Log.d(TAG, "无障碍服务已连接");
         
         AccessibilityServiceInfo info = new AccessibilityServiceInfo();
-        info.eventTypes = AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED | 
-                         AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED;
+        info.eventTypes = getEventTypes(false);
         info.feedbackType = AccessibilityServiceInfo.FEEDBACK_GENERIC;
-        info.flags = AccessibilityServiceInfo.FLAG_INCLUDE_NOT_IMPORTANT_VIEWS;
+        // 需要view id才能按ID查找和缓存
+        info.flags = AccessibilityServiceInfo.FLAG_INCLUDE_NOT_IMPORTANT_VIEWS |
+                     AccessibilityServiceInfo.FLAG_REPORT_VIEW_IDS;
+        info.notificationTimeout = 100;
         info.packageNames = new String[]{WECHAT_PACKAGE};
         setServiceInfo(info);
     }
     
     @Override
     public void onAccessibilityEvent(AccessibilityEvent event) {
-        if (!isSearching || searchKeyword == null) {
-            return;
-        }
-        
-        String packageName = event.getPackageName() != null ? event.getPackageName().toString() : "";
-        if (!WECHAT_PACKAGE.equals(packageName)) {
-            return;
-        }
-        
-        Log.d(TAG, "微信窗口事件: " + event.getEventType() + ", 类名: " + event.getClassName());
-        
-        // 延迟执行搜索操作，确保界面完全加载
-        handler.postDelayed(() -> {
-            performWeChatSearch();
-        }, 1000);
+        stepRunner.onAccessibilityEvent(event);
     }
     
     @Override
@@ -97,335 +95,116 @@ public class WeChatAccessibilityService extends AccessibilityService {
     
     /**
      * 开始微信搜索
+     * @return 是否已启动微信并开始执行搜索步骤
      */
-    public void startWeChatSearch(String keyword) {
-        if (keyword == null || keyword.trim().isEmpty()) {
-            Log.w(TAG, "搜索关键词为空");
-            return;
-        }
-        
-        this.searchKeyword = keyword.trim();
-        this.isSearching = true;
-        
-        Log.d(TAG, "开始微信搜索: " + searchKeyword);
-        
-        // 启动微信
-        Intent launchIntent = getPackageManager().getLaunchIntentForPackage(WECHAT_PACKAGE);
-        if (launchIntent != null) {
-            launchIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
-            startActivity(launchIntent);
-            Log.d(TAG, "已启动微信应用");
-        } else {
-            Log.e(TAG, "无法启动微信应用");
-            stopSearch();
-        }
+    public boolean startWeChatSearch(String keyword) {
+        return startSearch(keyword, Intent.FLAG_ACTIVITY_NEW_TASK);
     }
     
     /**
      * 直接启动微信搜索（强化版）
-     * 此方法提供更直接、更高效的微信搜索自动化体验
+     * 清掉微信任务栈顶部的页面，从首页开始执行搜索步骤
+     * @return 是否已启动微信并开始执行搜索步骤
      */
-    public void startWeChatSearchDirectly(String keyword) {
+    public boolean startWeChatSearchDirectly(String keyword) {
+        return startSearch(keyword, Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
+    }
+    
+    private boolean startSearch(String keyword, int launchFlags) {
         if (keyword == null || keyword.trim().isEmpty()) {
             Log.w(TAG, "搜索关键词为空");
-            return;
+            return false;
         }
         
-        this.searchKeyword = keyword.trim();
-        this.isSearching = true;
-        
-        Log.d(TAG, "开始直接微信搜索: " + searchKeyword);
-        
-        // 启动微信
         Intent launchIntent = getPackageManager().getLaunchIntentForPackage(WECHAT_PACKAGE);
-        if (launchIntent != null) {
-            launchIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
-            startActivity(launchIntent);
-            Log.d(TAG, "已启动微信应用");
-        } else {
+        if (launchIntent == null) {
             Log.e(TAG, "无法启动微信应用");
             stopSearch();
+            return false;
         }
-    }
-    
-    /**
-     * 执行微信搜索操作
-     */
-    public void performWeChatSearch() {
-        AccessibilityNodeInfo rootNode = getRootInActiveWindow();
-        if (rootNode == null) {
-            Log.w(TAG, "无法获取根节点");
-            return;
-        }
-        
-        try {
-            // 查找搜索按钮或搜索框
-            boolean searchStarted = findAndClickSearch(rootNode);
-            
-            if (searchStarted) {
-                // 延迟输入搜索内容
-                handler.postDelayed(() -> {
-                    inputSearchKeyword();
-                }, 1500);
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "执行搜索操作时出错: " + e.getMessage());
-        } finally {
-            rootNode.recycle();
-        }
-    }
-    
-    /**
-     * 查找并点击搜索按钮
-     */
-    private boolean findAndClickSearch(AccessibilityNodeInfo node) {
-        if (node == null) return false;
         
-        // 查找搜索相关的节点
-        List<AccessibilityNodeInfo> searchNodes = node.findAccessibilityNodeInfosByText("搜索");
-        if (!searchNodes.isEmpty()) {
-            for (AccessibilityNodeInfo searchNode : searchNodes) {
-                if (searchNode.isClickable()) {
-                    Log.d(TAG, "找到搜索按钮，正在点击");
-                    boolean clicked = searchNode.performAction(AccessibilityNodeInfo.ACTION_CLICK);
-                    searchNode.recycle();
-                    if (clicked) {
-                        return true;
-                    }
-                }
-            }
-        }
-        
-        // 查找搜索框 - 遍历所有子节点寻找EditText
-        if (findEditTextAndClick(node)) {
-            return true;
-        }
+        this.searchKeyword = keyword.trim();
+        Log.d(TAG, "开始微信搜索: " + searchKeyword);
         
-        // 尝试通过ID查找搜索相关元素
-        AccessibilityNodeInfo searchById = node.findAccessibilityNodeInfosByViewId("com.tencent.mm:id/cd7").isEmpty() ? 
-            null : node.findAccessibilityNodeInfosByViewId("com.tencent.mm:id/cd7").get(0);
-        if (searchById != null && searchById.isClickable()) {
-            Log.d(TAG, "通过ID找到搜索元素，正在点击");
-            boolean clicked = searchById.performAction(AccessibilityNodeInfo.ACTION_CLICK);
-            searchById.recycle();
-            if (clicked) {
-                return true;
-            }
-        }
+        // 先订阅内容变化事件再启动微信，以免漏掉首页加载完成的事件
+        updateEventTypes(true);
+        stepRunner.start(buildSearchSteps(searchKeyword), (success, detail) -> {
+            Log.d(TAG, success ? "微信搜索自动化完成" : "微信搜索自动化未完成: " + detail);
+            stopSearch();
+        });
         
-        Log.w(TAG, "未找到可点击的搜索元素");
-        return false;
+        launchIntent.setFlags(launchFlags);
+        startActivity(launchIntent);
+        Log.d(TAG, "已启动微信应用");
+        return true;
     }
     
     /**
-     * 输入搜索关键词
+     * 执行微信搜索操作
+     * 对当前窗口立即匹配一次搜索步骤，不必等下一个窗口事件
+     * @return 没有进行中的搜索（未调用startWeChatSearch）时返回false
      */
-    private void inputSearchKeyword() {
-        AccessibilityNodeInfo rootNode = getRootInActiveWindow();
-        if (rootNode == null) {
-            Log.w(TAG, "无法获取根节点进行输入");
-            return;
-        }
-        
-        try {
-            // 查找输入框并输入内容
-            if (findEditTextAndInput(rootNode)) {
-                // 延迟后点击搜索按钮
-                handler.postDelayed(() -> {
-                    clickSearchButton();
-                }, 1000);
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "输入搜索关键词时出错: " + e.getMessage());
-        } finally {
-            rootNode.recycle();
+    public boolean performWeChatSearch() {
+        if (!stepRunner.isRunning()) {
+            Log.w(TAG, "没有进行中的微信搜索");
+            return false;
         }
+        stepRunner.evaluateNow();
+        return true;
     }
     
     /**
-     * 点击搜索按钮
+     * 搜索医院公众号的步骤：打开搜索、输入关键词、提交搜索、切到公众号标签
      */
-    private void clickSearchButton() {
-        AccessibilityNodeInfo rootNode = getRootInActiveWindow();
-        if (rootNode == null) {
-            Log.w(TAG, "无法获取根节点进行搜索");
-            stopSearch();
-            return;
-        }
-        
-        try {
-            // 查找搜索按钮
-            List<AccessibilityNodeInfo> searchButtons = rootNode.findAccessibilityNodeInfosByText("搜索");
-            
-            for (AccessibilityNodeInfo button : searchButtons) {
-                if (button.isClickable()) {
-                    Log.d(TAG, "点击搜索按钮");
-                    button.performAction(AccessibilityNodeInfo.ACTION_CLICK);
-                    button.recycle();
-                    
-                    // 延迟后点击公众号标签
-                    handler.postDelayed(() -> {
-                        clickPublicAccountTab();
-                    }, 2000);
-                    return;
-                }
-            }
-            
-            Log.w(TAG, "未找到搜索按钮");
-        } catch (Exception e) {
-            Log.e(TAG, "点击搜索按钮时出错: " + e.getMessage());
-        } finally {
-            rootNode.recycle();
-            stopSearch();
-        }
+    private List<AccessibilityStepRunner.Step> buildSearchSteps(String keyword) {
+        return Arrays.asList(
+                // 首页的搜索入口；已经在搜索页时直接点输入框
+                new AccessibilityStepRunner.Step("openSearch", AccessibilityStepRunner.Action.CLICK,
+                        AccessibilityStepRunner.NodeMatcher.text("搜索").clickable(),
+                        AccessibilityStepRunner.NodeMatcher.className(EDIT_TEXT_CLASS).focusable(),
+                        AccessibilityStepRunner.NodeMatcher.viewId(LEGACY_SEARCH_ENTRY_ID).clickable())
+                        .timeout(LAUNCH_TIMEOUT_MS),
+                new AccessibilityStepRunner.Step("inputKeyword", AccessibilityStepRunner.Action.SET_TEXT,
+                        AccessibilityStepRunner.NodeMatcher.className(EDIT_TEXT_CLASS).focusable())
+                        .text(keyword),
+                // 新版微信输入后直接出结果，没有搜索按钮时跳过
+                new AccessibilityStepRunner.Step("submitSearch", AccessibilityStepRunner.Action.CLICK,
+                        AccessibilityStepRunner.NodeMatcher.text("搜索").clickable())
+                        .timeout(SUBMIT_TIMEOUT_MS)
+                        .optional(),
+                new AccessibilityStepRunner.Step("publicAccountTab", AccessibilityStepRunner.Action.CLICK,
+                        AccessibilityStepRunner.NodeMatcher.text("公众号").clickable()));
     }
     
     /**
-     * 点击公众号标签
+     * 停止搜索
      */
-    private void clickPublicAccountTab() {
-        AccessibilityNodeInfo rootNode = getRootInActiveWindow();
-        if (rootNode == null) {
-            Log.w(TAG, "无法获取根节点进行公众号标签点击");
-            stopSearch();
-            return;
-        }
-        
-        try {
-            // 查找公众号标签
-            List<AccessibilityNodeInfo> publicAccountNodes = rootNode.findAccessibilityNodeInfosByText("公众号");
-            
-            for (AccessibilityNodeInfo node : publicAccountNodes) {
-                if (node.isClickable()) {
-                    Log.d(TAG, "点击公众号标签");
-                    node.performAction(AccessibilityNodeInfo.ACTION_CLICK);
-                    node.recycle();
-                    
-                    Log.d(TAG, "微信搜索自动化完成");
-                    stopSearch();
-                    return;
-                }
-            }
-            
-            Log.d(TAG, "未找到公众号标签，搜索完成");
-        } catch (Exception e) {
-            Log.e(TAG, "点击公众号标签时出错: " + e.getMessage());
-        } finally {
-            rootNode.recycle();
-            stopSearch();
-        }
+    private void stopSearch() {
+        stepRunner.cancel();
+        searchKeyword = null;
+        updateEventTypes(false);
+        Log.d(TAG, "停止搜索");
     }
     
     /**
-     * 递归查找EditText并点击
+     * 空闲时只接收窗口切换事件，微信界面内容变化不再唤醒服务
      */
-    private boolean findEditTextAndClick(AccessibilityNodeInfo node) {
-        if (node == null) return false;
-        String strClassName = null;
-        if (node.getClassName() != null) {
-            strClassName = node.getClassName().toString();
-        }
-        
-        // 检查当前节点是否是EditText
-        if ("android.widget.EditText".equals(strClassName)) {
-            if (node.isClickable() || node.isFocusable()) {
-                Log.d(TAG, "找到搜索框，正在点击");
-                boolean clicked = node.performAction(AccessibilityNodeInfo.ACTION_CLICK);
-                if (!clicked) {
-                    clicked = node.performAction(AccessibilityNodeInfo.ACTION_FOCUS);
-                }
-                if (clicked) {
-                    return true;
-                }
-            }
-        }
-        
-        // 递归检查子节点
-        try {
-            int childCount = node.getChildCount();
-            for (int i = 0; i < childCount; i++) {
-                AccessibilityNodeInfo child = null;
-                try {
-                    child = node.getChild(i);
-                    if (child != null) {
-                        boolean found = findEditTextAndClick(child);
-                        child.recycle();
-                        if (found) {
-                            return true;
-                        }
-                    }
-                } catch (Exception e) {
-                    Log.e(TAG, "获取或访问子节点时出错: " + e.getMessage());
-                    if (child != null) {
-                        try {
-                            child.recycle();
-                        } catch (Exception re) {
-                            // 忽略回收时的异常
-                        }
-                    }
-                }
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "获取子节点数量时出错: " + e.getMessage());
-        }
-        
-        return false;
+    private static int getEventTypes(boolean searching) {
+        return searching
+                ? AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED | AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED
+                : AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED;
     }
     
-    /**
-     * 递归查找EditText并输入内容
-     */
-    private boolean findEditTextAndInput(AccessibilityNodeInfo node) {
-        if (node == null) return false;
-        
-        // 检查当前节点是否是EditText
-        if ("android.widget.EditText".equals(node.getClassName())) {
-            if (node.isFocused() || node.isFocusable()) {
-                Log.d(TAG, "找到输入框，正在输入: " + searchKeyword);
-                
-                // 清空现有内容
-                Bundle clearArgs = new Bundle();
-                clearArgs.putInt(AccessibilityNodeInfo.ACTION_ARGUMENT_SELECTION_START_INT, 0);
-                clearArgs.putInt(AccessibilityNodeInfo.ACTION_ARGUMENT_SELECTION_END_INT, 
-                    node.getText() != null ? node.getText().length() : 0);
-                node.performAction(AccessibilityNodeInfo.ACTION_SET_SELECTION, clearArgs);
-                
-                // 输入搜索关键词
-                Bundle inputArgs = new Bundle();
-                inputArgs.putCharSequence(AccessibilityNodeInfo.ACTION_ARGUMENT_SET_TEXT_CHARSEQUENCE, searchKeyword);
-                boolean inputSuccess = node.performAction(AccessibilityNodeInfo.ACTION_SET_TEXT, inputArgs);
-                
-                if (inputSuccess) {
-                    Log.d(TAG, "输入成功");
-                    return true;
-                } else {
-                    Log.w(TAG, "输入失败");
-                }
-            }
+    private void updateEventTypes(boolean searching) {
+        AccessibilityServiceInfo info = getServiceInfo();
+        if (info == null) {
+            return;
         }
-        
-        // 递归检查子节点
-        for (int i = 0; i < node.getChildCount(); i++) {
-            AccessibilityNodeInfo child = node.getChild(i);
-            if (child != null) {
-                if (findEditTextAndInput(child)) {
-                    child.recycle();
-                    return true;
-                }
-                child.recycle();
-            }
+        int eventTypes = getEventTypes(searching);
+        if (info.eventTypes != eventTypes) {
+            info.eventTypes = eventTypes;
+            setServiceInfo(info);
         }
-        
-        return false;
-    }
-    
-    /**
-     * 停止搜索
-     */
-    private void stopSearch() {
-        isSearching = false;
-        searchKeyword = null;
-        Log.d(TAG, "停止搜索");
     }
     
     /**
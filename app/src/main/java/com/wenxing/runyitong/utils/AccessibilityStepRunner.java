@@ -0,0 +1,489 @@
+package com.wenxing.runyitong.utils;
+
+import android.accessibilityservice.AccessibilityService;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.text.TextUtils;
+import android.util.Log;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import androidx.core.content.pm.PackageInfoCompat;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 无障碍自动化步骤执行器
+ * 按声明的步骤顺序在目标应用界面上查找节点并执行操作。由窗口事件驱动而不是定时轮询：
+ * 一段时间内连续到达的窗口事件只触发一次匹配，每次匹配从根节点做一次有上限的广度遍历，
+ * 遍历过的节点除命中的那个外立即回收。命中节点的view id按目标应用版本缓存，
+ * 下次先用按ID查找，找不到再遍历
+ */
+public class AccessibilityStepRunner {
+    private static final String TAG = "AccessibilityStepRunner";
+
+    private static final String PREFS_PREFIX = "view_id_cache_";
+    private static final String KEY_VERSION = "app_version";
+
+    // 事件合并窗口，内容变化事件往往成串到达
+    private static final long EVENT_SETTLE_MS = 120;
+    private static final long DEFAULT_STEP_TIMEOUT_MS = 5000;
+    // 单次遍历的节点数和深度上限
+    private static final int MAX_TRAVERSAL_NODES = 400;
+    private static final int MAX_TRAVERSAL_DEPTH = 30;
+
+    public enum Action {
+        // 点击节点，点击失败时尝试获取焦点
+        CLICK,
+        // 替换输入框内容
+        SET_TEXT
+    }
+
+    /**
+     * 节点匹配条件，未设置的条件不参与比较
+     */
+    public static final class NodeMatcher {
+        private String text;
+        private String className;
+        private String viewId;
+        private boolean requireClickable;
+        private boolean requireFocusable;
+
+        private NodeMatcher() {
+        }
+
+        /**
+         * 文本或内容描述与给定值相同
+         */
+        public static NodeMatcher text(String text) {
+            NodeMatcher matcher = new NodeMatcher();
+            matcher.text = text;
+            return matcher;
+        }
+
+        public static NodeMatcher className(String className) {
+            NodeMatcher matcher = new NodeMatcher();
+            matcher.className = className;
+            return matcher;
+        }
+
+        public static NodeMatcher viewId(String viewId) {
+            NodeMatcher matcher = new NodeMatcher();
+            matcher.viewId = viewId;
+            return matcher;
+        }
+
+        public NodeMatcher clickable() {
+            requireClickable = true;
+            return this;
+        }
+
+        /**
+         * 可点击或可获取焦点
+         */
+        public NodeMatcher focusable() {
+            requireFocusable = true;
+            return this;
+        }
+
+        boolean matches(AccessibilityNodeInfo node) {
+            if (requireClickable && !node.isClickable()) {
+                return false;
+            }
+            if (requireFocusable && !node.isClickable() && !node.isFocusable() && !node.isFocused()) {
+                return false;
+            }
+            if (viewId != null && !viewId.equals(node.getViewIdResourceName())) {
+                return false;
+            }
+            if (className != null && !TextUtils.equals(className, node.getClassName())) {
+                return false;
+            }
+            return text == null
+                    || TextUtils.equals(text, node.getText())
+                    || TextUtils.equals(text, node.getContentDescription());
+        }
+    }
+
+    /**
+     * 一个自动化步骤：在当前界面找到任一匹配的节点并执行操作。
+     * 多个匹配条件按声明顺序排优先级，同一次遍历中取优先级最高的节点
+     */
+    public static final class Step {
+        final String name;
+        final Action action;
+        final NodeMatcher[] matchers;
+        private long timeoutMs = DEFAULT_STEP_TIMEOUT_MS;
+        private boolean optional;
+        private CharSequence inputText;
+
+        /**
+         * @param name 步骤名，同时作为view id缓存的键，不同步骤不能重名
+         */
+        public Step(String name, Action action, NodeMatcher... matchers) {
+            this.name = name;
+            this.action = action;
+            this.matchers = matchers;
+        }
+
+        /**
+         * 等待该步骤匹配的最长时间
+         */
+        public Step timeout(long timeoutMs) {
+            this.timeoutMs = timeoutMs;
+            return this;
+        }
+
+        /**
+         * 可选步骤超时后跳过，不算失败
+         */
+        public Step optional() {
+            this.optional = true;
+            return this;
+        }
+
+        /**
+         * SET_TEXT要输入的内容
+         */
+        public Step text(CharSequence inputText) {
+            this.inputText = inputText;
+            return this;
+        }
+
+        int matchRank(AccessibilityNodeInfo node) {
+            for (int i = 0; i < matchers.length; i++) {
+                if (matchers[i].matches(node)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    public interface Callback {
+        void onFinished(boolean success, String detail);
+    }
+
+    private final AccessibilityService service;
+    private final String targetPackage;
+    private final Handler handler;
+    private final SharedPreferences viewIdCache;
+
+    private final Runnable evaluateRunnable = this::evaluate;
+    private final Runnable timeoutRunnable = this::onStepTimeout;
+
+    private List<Step> steps = new ArrayList<>();
+    private int stepIndex;
+    private Callback callback;
+    private boolean running = false;
+    private boolean evaluationPending = false;
+
+    // 统计，结束时打印
+    private long startTime;
+    private int traversalCount;
+    private int visitedNodeCount;
+    private int cacheHitCount;
+
+    public AccessibilityStepRunner(AccessibilityService service, String targetPackage, Handler handler) {
+        this.service = service;
+        this.targetPackage = targetPackage;
+        this.handler = handler;
+        this.viewIdCache = service.getSharedPreferences(PREFS_PREFIX + targetPackage, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * 开始执行步骤，正在执行的流程会被取消
+     */
+    public void start(List<Step> steps, Callback callback) {
+        cancel();
+        if (steps == null || steps.isEmpty()) {
+            return;
+        }
+        this.steps = new ArrayList<>(steps);
+        this.callback = callback;
+        this.stepIndex = 0;
+        this.running = true;
+        this.startTime = SystemClock.elapsedRealtime();
+        this.traversalCount = 0;
+        this.visitedNodeCount = 0;
+        this.cacheHitCount = 0;
+        checkAppVersion();
+        handler.postDelayed(timeoutRunnable, currentStep().timeoutMs);
+        Log.d(TAG, "开始执行" + this.steps.size() + "个步骤");
+    }
+
+    public void cancel() {
+        if (running) {
+            Log.d(TAG, "取消执行，停在步骤: " + currentStep().name);
+        }
+        running = false;
+        evaluationPending = false;
+        callback = null;
+        handler.removeCallbacks(evaluateRunnable);
+        handler.removeCallbacks(timeoutRunnable);
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 转交无障碍事件，只有目标应用的窗口变化会触发匹配
+     */
+    public void onAccessibilityEvent(AccessibilityEvent event) {
+        if (!running || event == null) {
+            return;
+        }
+        int type = event.getEventType();
+        if (type != AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED
+                && type != AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED) {
+            return;
+        }
+        if (!TextUtils.equals(targetPackage, event.getPackageName())) {
+            return;
+        }
+        scheduleEvaluation();
+    }
+
+    /**
+     * 不等事件，立即对当前窗口匹配一次
+     */
+    public void evaluateNow() {
+        handler.removeCallbacks(evaluateRunnable);
+        evaluate();
+    }
+
+    private void scheduleEvaluation() {
+        if (evaluationPending) {
+            return;
+        }
+        evaluationPending = true;
+        handler.postDelayed(evaluateRunnable, EVENT_SETTLE_MS);
+    }
+
+    private Step currentStep() {
+        return steps.get(stepIndex);
+    }
+
+    private void evaluate() {
+        evaluationPending = false;
+        if (!running) {
+            return;
+        }
+        AccessibilityNodeInfo root = service.getRootInActiveWindow();
+        if (root == null) {
+            return;
+        }
+        // 目标应用还没到前台时，活动窗口可能仍是本应用
+        if (!TextUtils.equals(targetPackage, root.getPackageName())) {
+            root.recycle();
+            return;
+        }
+
+        Step step = currentStep();
+        AccessibilityNodeInfo target = null;
+        try {
+            target = findByCachedViewId(root, step);
+            boolean fromCache = target != null;
+            if (fromCache) {
+                root.recycle();
+            } else {
+                target = traverse(root, step);
+            }
+            if (target == null) {
+                return;
+            }
+            if (perform(step, target)) {
+                if (!fromCache) {
+                    rememberViewId(step, target);
+                }
+                advance();
+            } else {
+                Log.w(TAG, "步骤 " + step.name + " 操作失败，等待界面变化后重试");
+            }
+        } catch (RuntimeException e) {
+            // 节点所在窗口在查找过程中关闭等情况
+            Log.e(TAG, "匹配步骤 " + step.name + " 时出错: " + e.getMessage());
+        } finally {
+            if (target != null) {
+                target.recycle();
+            }
+        }
+    }
+
+    /**
+     * 用缓存的view id查找，由目标应用进程一次完成，比逐个取子节点少很多跨进程调用
+     */
+    private AccessibilityNodeInfo findByCachedViewId(AccessibilityNodeInfo root, Step step) {
+        String viewId = viewIdCache.getString(step.name, null);
+        if (viewId == null) {
+            return null;
+        }
+        AccessibilityNodeInfo result = null;
+        List<AccessibilityNodeInfo> nodes = root.findAccessibilityNodeInfosByViewId(viewId);
+        for (AccessibilityNodeInfo node : nodes) {
+            if (result == null && step.matchRank(node) >= 0) {
+                result = node;
+            } else {
+                node.recycle();
+            }
+        }
+        if (result != null) {
+            cacheHitCount++;
+        }
+        return result;
+    }
+
+    /**
+     * 从根节点广度遍历，返回优先级最高的匹配节点，其余节点全部回收（包括根节点）
+     */
+    private AccessibilityNodeInfo traverse(AccessibilityNodeInfo root, Step step) {
+        ArrayDeque<AccessibilityNodeInfo> queue = new ArrayDeque<>();
+        ArrayDeque<Integer> depths = new ArrayDeque<>();
+        queue.add(root);
+        depths.add(0);
+
+        AccessibilityNodeInfo best = null;
+        int bestRank = Integer.MAX_VALUE;
+        int visited = 0;
+        try {
+            while (!queue.isEmpty() && visited < MAX_TRAVERSAL_NODES) {
+                AccessibilityNodeInfo node = queue.poll();
+                int depth = depths.poll();
+                visited++;
+
+                int rank = step.matchRank(node);
+                if (rank >= 0 && rank < bestRank) {
+                    if (best != null) {
+                        best.recycle();
+                    }
+                    best = node;
+                    bestRank = rank;
+                    if (rank == 0) {
+                        break;
+                    }
+                }
+
+                if (depth < MAX_TRAVERSAL_DEPTH) {
+                    int childCount = node.getChildCount();
+                    for (int i = 0; i < childCount; i++) {
+                        AccessibilityNodeInfo child = node.getChild(i);
+                        if (child != null) {
+                            queue.add(child);
+                            depths.add(depth + 1);
+                        }
+                    }
+                }
+                if (node != best) {
+                    node.recycle();
+                }
+            }
+        } finally {
+            for (AccessibilityNodeInfo node : queue) {
+                node.recycle();
+            }
+            traversalCount++;
+            visitedNodeCount += visited;
+        }
+        return best;
+    }
+
+    private boolean perform(Step step, AccessibilityNodeInfo node) {
+        switch (step.action) {
+            case CLICK:
+                Log.d(TAG, "步骤 " + step.name + "：点击节点");
+                return node.performAction(AccessibilityNodeInfo.ACTION_CLICK)
+                        || node.performAction(AccessibilityNodeInfo.ACTION_FOCUS);
+            case SET_TEXT:
+                Log.d(TAG, "步骤 " + step.name + "：输入内容");
+                // 先选中已有内容，部分输入框不选中时SET_TEXT会追加
+                Bundle selectionArgs = new Bundle();
+                selectionArgs.putInt(AccessibilityNodeInfo.ACTION_ARGUMENT_SELECTION_START_INT, 0);
+                selectionArgs.putInt(AccessibilityNodeInfo.ACTION_ARGUMENT_SELECTION_END_INT,
+                        node.getText() != null ? node.getText().length() : 0);
+                node.performAction(AccessibilityNodeInfo.ACTION_SET_SELECTION, selectionArgs);
+
+                Bundle textArgs = new Bundle();
+                textArgs.putCharSequence(AccessibilityNodeInfo.ACTION_ARGUMENT_SET_TEXT_CHARSEQUENCE, step.inputText);
+                return node.performAction(AccessibilityNodeInfo.ACTION_SET_TEXT, textArgs);
+            default:
+                return false;
+        }
+    }
+
+    private void advance() {
+        handler.removeCallbacks(timeoutRunnable);
+        stepIndex++;
+        if (stepIndex >= steps.size()) {
+            finish(true, "全部步骤完成");
+            return;
+        }
+        handler.postDelayed(timeoutRunnable, currentStep().timeoutMs);
+        // 操作后界面未必再发事件（比如输入文字后按钮已在界面上），主动再匹配一次
+        scheduleEvaluation();
+    }
+
+    private void onStepTimeout() {
+        if (!running) {
+            return;
+        }
+        Step step = currentStep();
+        if (step.optional) {
+            Log.d(TAG, "可选步骤 " + step.name + " 超时，跳过");
+            advance();
+        } else {
+            finish(false, "步骤 " + step.name + " 超时");
+        }
+    }
+
+    private void finish(boolean success, String detail) {
+        Callback finishedCallback = callback;
+        long elapsed = SystemClock.elapsedRealtime() - startTime;
+        Log.d(TAG, detail + "，用时" + elapsed + "ms，遍历" + traversalCount + "次，访问节点"
+                + visitedNodeCount + "个，ID缓存命中" + cacheHitCount + "次");
+        running = false;
+        evaluationPending = false;
+        callback = null;
+        handler.removeCallbacks(evaluateRunnable);
+        handler.removeCallbacks(timeoutRunnable);
+        if (finishedCallback != null) {
+            finishedCallback.onFinished(success, detail);
+        }
+    }
+
+    /**
+     * 记录命中节点的view id；命中节点没有ID时清掉可能已失效的旧值
+     */
+    private void rememberViewId(Step step, AccessibilityNodeInfo node) {
+        String viewId = node.getViewIdResourceName();
+        if (viewId != null) {
+            viewIdCache.edit().putString(step.name, viewId).apply();
+        } else if (viewIdCache.contains(step.name)) {
+            viewIdCache.edit().remove(step.name).apply();
+        }
+    }
+
+    /**
+     * 目标应用升级后界面ID可能变化，版本不同时清空缓存
+     */
+    private void checkAppVersion() {
+        String version;
+        try {
+            PackageInfo info = service.getPackageManager().getPackageInfo(targetPackage, 0);
+            version = String.valueOf(PackageInfoCompat.getLongVersionCode(info));
+        } catch (PackageManager.NameNotFoundException e) {
+            return;
+        }
+        if (!version.equals(viewIdCache.getString(KEY_VERSION, null))) {
+            Log.d(TAG, targetPackage + " 版本变为 " + version + "，清空view id缓存");
+            viewIdCache.edit().clear().putString(KEY_VERSION, version).apply();
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package com.wenxing.runyitong.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.Uri;
+import android.os.Build;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 自适应图片编码器
+ * 根据接口的字节预算和当前网络类型选择分辨率、编码格式和质量：
+ * 先在缩小的代理图上二分查找质量，再对目标分辨率编码一次，超出预算时修正一次。
+ * 分辨率不会低于各类分析所需的最小边长。
+ */
+public class AdaptiveImageEncoder {
+    private static final String TAG = "AdaptiveImageEncoder";
+
+    // 代理图最长边，用于快速估算编码体积
+    private static final int PROXY_LONG_SIDE = 512;
+    private static final int MIN_QUALITY = 45;
+    private static final int MAX_QUALITY = 90;
+    // 超出预算多少以内视为命中
+    private static final float BUDGET_TOLERANCE = 1.1f;
+    // 蜂窝网络下行带宽低于此值时按弱网处理
+    private static final int WEAK_LINK_KBPS = 2000;
+
+    /**
+     * 上传接口的编码配置
+     * minLongSide为分析所需的最小长边，maxLongSide为WiFi下的长边上限，byteBudget为WiFi下的字节预算
+     */
+    public enum UploadProfile {
+        OCR(1600, 2048, 700 * 1024, false),
+        PRESCRIPTION(1600, 2048, 700 * 1024, false),
+        EXAM_REPORT(1600, 2048, 700 * 1024, false),
+        TONGUE(1024, 1920, 500 * 1024, true),
+        FACE(1024, 1920, 500 * 1024, true),
+        XRAY(1536, 2560, 1200 * 1024, false),
+        CT(1024, 2048, 900 * 1024, false),
+        MRI(1024, 2048, 900 * 1024, false),
+        ULTRASOUND(800, 1600, 600 * 1024, false),
+        PET_CT(1024, 2048, 900 * 1024, false),
+        GENERIC(1080, 1920, 800 * 1024, true);
+
+        final int minLongSide;
+        final int maxLongSide;
+        final int byteBudget;
+        // 服务端是否接受WebP，医学影像和文字识别保持JPEG
+        final boolean allowWebp;
+
+        UploadProfile(int minLongSide, int maxLongSide, int byteBudget, boolean allowWebp) {
+            this.minLongSide = minLongSide;
+            this.maxLongSide = maxLongSide;
+            this.byteBudget = byteBudget;
+            this.allowWebp = allowWebp;
+        }
+
+        /**
+         * 医学影像类型（xray、ct、ultrasound、mri、petct）对应的配置
+         */
+        public static UploadProfile forMedicalImageType(String imageType) {
+            if (imageType == null) {
+                return GENERIC;
+            }
+            switch (imageType) {
+                case "xray":
+                    return XRAY;
+                case "ct":
+                    return CT;
+                case "ultrasound":
+                    return ULTRASOUND;
+                case "mri":
+                    return MRI;
+                case "petct":
+                    return PET_CT;
+                default:
+                    return GENERIC;
+            }
+        }
+    }
+
+    /**
+     * 网络等级，scale为相对WiFi的预算比例
+     */
+    public enum LinkClass {
+        FAST(1.0f),
+        MODERATE(0.5f),
+        SLOW(0.25f);
+
+        final float scale;
+
+        LinkClass(float scale) {
+            this.scale = scale;
+        }
+    }
+
+    /**
+     * 编码结果，文件由临时文件区租约持有，请求结束后需释放
+     */
+    public static class EncodedImage {
+        private final TempFileArena.Lease lease;
+        private final Bitmap.CompressFormat format;
+        private final int width;
+        private final int height;
+        private final int quality;
+
+        EncodedImage(TempFileArena.Lease lease, Bitmap.CompressFormat format, int width, int height, int quality) {
+            this.lease = lease;
+            this.format = format;
+            this.width = width;
+            this.height = height;
+            this.quality = quality;
+        }
+
+        public File getFile() { return lease.getFile(); }
+        public TempFileArena.Lease getLease() { return lease; }
+        public Bitmap.CompressFormat getFormat() { return format; }
+        public int getWidth() { return width; }
+        public int getHeight() { return height; }
+        public int getQuality() { return quality; }
+
+        public String getMimeType() {
+            return isWebp(format) ? "image/webp" : "image/jpeg";
+        }
+    }
+
+    private AdaptiveImageEncoder() {
+    }
+
+    /**
+     * 按ErrorHandlingManager.getNetworkType判断网络等级，蜂窝网络再按下行带宽细分
+     */
+    public static LinkClass classifyLink(Context context) {
+        String networkType = ErrorHandlingManager.getNetworkType(context);
+        switch (networkType) {
+            case "WiFi":
+            case "以太网":
+                return LinkClass.FAST;
+            case "移动数据":
+                return isWeakCellular(context) ? LinkClass.SLOW : LinkClass.MODERATE;
+            default:
+                return LinkClass.MODERATE;
+        }
+    }
+
+    private static boolean isWeakCellular(Context context) {
+        try {
+            ConnectivityManager connectivityManager =
+                    (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+            if (connectivityManager == null) {
+                return false;
+            }
+            Network network = connectivityManager.getActiveNetwork();
+            NetworkCapabilities capabilities = network != null ? connectivityManager.getNetworkCapabilities(network) : null;
+            if (capabilities == null) {
+                return false;
+            }
+            int downstream = capabilities.getLinkDownstreamBandwidthKbps();
+            return downstream > 0 && downstream < WEAK_LINK_KBPS;
+        } catch (Exception e) {
+            Log.w(TAG, "获取网络带宽失败: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 解码并编码图片到缓存目录的临时文件，需在后台线程调用
+     */
+    public static EncodedImage encode(Context context, Uri imageUri, UploadProfile profile) throws IOException {
+        LinkClass link = classifyLink(context);
+        int maxLongSide = targetLongSide(profile, link);
+
+        // 按EXIF方向摆正解码，采样后长边不小于目标长边
+        Bitmap source;
+        try (ImageRegionDecoder regionDecoder = ImageRegionDecoder.open(context, imageUri)) {
+            source = regionDecoder.decodeOverview(maxLongSide * 2 - 1);
+        } catch (IOException e) {
+            Log.w(TAG, "区域解码不可用，改用普通解码: " + e.getMessage());
+            source = ImageUtils.decodeSampled(context, imageUri, maxLongSide, maxLongSide);
+        }
+        if (source == null) {
+            throw new IOException("无法解码图片: " + imageUri);
+        }
+        try {
+            return encode(context, source, profile, link);
+        } finally {
+            ImageUtils.releaseBitmap(source);
+        }
+    }
+
+    /**
+     * 编码已解码的位图，不会回收source
+     */
+    public static EncodedImage encode(Context context, Bitmap source, UploadProfile profile, LinkClass link) throws IOException {
+        long start = System.currentTimeMillis();
+        int budget = Math.max(64 * 1024, Math.round(profile.byteBudget * link.scale));
+        Bitmap.CompressFormat format = profile.allowWebp && link != LinkClass.FAST
+                ? lossyWebpFormat() : Bitmap.CompressFormat.JPEG;
+
+        int longSide = Math.min(targetLongSide(profile, link), Math.max(source.getWidth(), source.getHeight()));
+        Bitmap scaled = scaleToLongSide(source, longSide);
+        try {
+            int quality = searchQuality(scaled, format, budget);
+            byte[] encoded = compress(scaled, format, quality);
+
+            // 代理估算有偏差时按实际体积修正一次质量
+            if (encoded.length > budget * BUDGET_TOLERANCE && quality > MIN_QUALITY) {
+                quality = Math.max(MIN_QUALITY, Math.round(quality * budget / (float) encoded.length));
+                encoded = compress(scaled, format, quality);
+            }
+
+            // 最低质量仍超预算时缩小分辨率，但不低于分析所需的最小边长
+            int minLongSide = Math.min(profile.minLongSide, Math.max(source.getWidth(), source.getHeight()));
+            while (encoded.length > budget * BUDGET_TOLERANCE && longSide > minLongSide) {
+                longSide = Math.max(minLongSide, Math.round(longSide * 0.8f));
+                Bitmap smaller = scaleToLongSide(source, longSide);
+                if (scaled != source) {
+                    ImageUtils.releaseBitmap(scaled);
+                }
+                scaled = smaller;
+                encoded = compress(scaled, format, quality);
+            }
+
+            TempFileArena.Lease lease = writeTempFile(context, encoded, format);
+            Log.d(TAG, String.format("%s/%s: %dx%d %s q%d, %dKB (预算 %dKB), 耗时 %dms",
+                    profile, link, scaled.getWidth(), scaled.getHeight(), format, quality,
+                    encoded.length / 1024, budget / 1024, System.currentTimeMillis() - start));
+            return new EncodedImage(lease, format, scaled.getWidth(), scaled.getHeight(), quality);
+        } finally {
+            if (scaled != source) {
+                ImageUtils.releaseBitmap(scaled);
+            }
+        }
+    }
+
+    /**
+     * 网络越差长边越小，按预算比例的平方根缩放（体积约与像素数成正比）
+     */
+    private static int targetLongSide(UploadProfile profile, LinkClass link) {
+        int longSide = Math.round(profile.maxLongSide * (float) Math.sqrt(link.scale));
+        return Math.max(profile.minLongSide, Math.min(profile.maxLongSide, longSide));
+    }
+
+    /**
+     * 在代理图上二分查找预计体积不超过预算的最高质量
+     */
+    private static int searchQuality(Bitmap scaled, Bitmap.CompressFormat format, int budget) {
+        int scaledLong = Math.max(scaled.getWidth(), scaled.getHeight());
+        Bitmap proxy = scaledLong > PROXY_LONG_SIDE ? scaleToLongSide(scaled, PROXY_LONG_SIDE) : scaled;
+        try {
+            // 代理图每像素体积偏大，预计结果偏保守
+            float pixelRatio = (scaled.getWidth() * (float) scaled.getHeight())
+                    / (proxy.getWidth() * (float) proxy.getHeight());
+            int low = MIN_QUALITY;
+            int high = MAX_QUALITY;
+            int best = MIN_QUALITY;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long predicted = (long) (compress(proxy, format, mid).length * pixelRatio);
+                if (predicted <= budget) {
+                    best = mid;
+                    low = mid + 5;
+                } else {
+                    high = mid - 5;
+                }
+            }
+            return best;
+        } finally {
+            if (proxy != scaled) {
+                ImageUtils.releaseBitmap(proxy);
+            }
+        }
+    }
+
+    private static Bitmap scaleToLongSide(Bitmap source, int longSide) {
+        int sourceLong = Math.max(source.getWidth(), source.getHeight());
+        if (sourceLong <= longSide) {
+            return source;
+        }
+        float scale = longSide / (float) sourceLong;
+        int width = Math.max(1, Math.round(source.getWidth() * scale));
+        int height = Math.max(1, Math.round(source.getHeight() * scale));
+        Bitmap target = BitmapPool.getInstance().get(width, height, Bitmap.Config.ARGB_8888);
+        target.eraseColor(Color.TRANSPARENT);
+        Matrix matrix = new Matrix();
+        matrix.setScale(width / (float) source.getWidth(), height / (float) source.getHeight());
+        new Canvas(target).drawBitmap(source, matrix, new Paint(Paint.FILTER_BITMAP_FLAG));
+        return target;
+    }
+
+    /**
+     * API 30起WEBP已废弃，改用明确的有损WEBP格式
+     */
+    @SuppressWarnings("deprecation")
+    private static Bitmap.CompressFormat lossyWebpFormat() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                ? Bitmap.CompressFormat.WEBP_LOSSY : Bitmap.CompressFormat.WEBP;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static boolean isWebp(Bitmap.CompressFormat format) {
+        return format == Bitmap.CompressFormat.WEBP
+                || (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R && format == Bitmap.CompressFormat.WEBP_LOSSY);
+    }
+
+    private static byte[] compress(Bitmap bitmap, Bitmap.CompressFormat format, int quality) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        bitmap.compress(format, quality, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private static TempFileArena.Lease writeTempFile(Context context, byte[] data, Bitmap.CompressFormat format) throws IOException {
+        return TempFileArena.getInstance(context).write(TempFileArena.Scope.UPLOAD,
+                "upload_image_", isWebp(format) ? ".webp" : ".jpg", data);
+    }
+}
@@ -0,0 +1,363 @@
+package com.wenxing.runyitong.utils;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.wenxing.runyitong.api.ApiResponse;
+import com.wenxing.runyitong.api.ApiService;
+import com.wenxing.runyitong.api.LeasedFileRequestBody;
+import com.wenxing.runyitong.api.UploadTask;
+import com.wenxing.runyitong.model.ImageUploadResult;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import okhttp3.RequestBody;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * 多图批量上传
+ * 在有界线程池中并行压缩，再按并发上限通过共享的OkHttp连接池上传，
+ * 单张失败自动重试一次，仍失败的可单独重试，最后按页序汇总上传地址。
+ * 除压缩外所有状态只在主线程访问，回调也在主线程。
+ */
+public class BatchImageUploader {
+    private static final String TAG = "BatchImageUploader";
+
+    // 同时压缩的图片数，每个压缩任务持有一张解码中的大图
+    private static final int COMPRESS_THREADS = Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() - 1));
+    // 同时进行的上传数
+    private static final int MAX_CONCURRENT_UPLOADS = 3;
+    // 每张图片自动尝试的次数
+    private static final int MAX_AUTO_ATTEMPTS = 2;
+
+    /**
+     * 单张图片状态
+     */
+    public enum ItemState {
+        PENDING,
+        COMPRESSING,
+        UPLOADING,
+        DONE,
+        FAILED
+    }
+
+    /**
+     * 单张图片
+     */
+    public static class Item {
+        private final int index;
+        private final Uri uri;
+        private ItemState state = ItemState.PENDING;
+        private MultipartBody.Part encodedPart;
+        private String url;
+        private String error;
+        private int attempts = 0;
+        private long bytesSent = 0;
+        private long totalBytes = 0;
+        private Call<ApiResponse<ImageUploadResult>> call;
+
+        Item(int index, Uri uri) {
+            this.index = index;
+            this.uri = uri;
+        }
+
+        public int getIndex() { return index; }
+        public Uri getUri() { return uri; }
+        public ItemState getState() { return state; }
+        public String getUrl() { return url; }
+        public String getError() { return error; }
+        public long getBytesSent() { return bytesSent; }
+        public long getTotalBytes() { return totalBytes; }
+
+        public int getProgressPercent() {
+            return totalBytes > 0 ? (int) (bytesSent * 100 / totalBytes) : 0;
+        }
+    }
+
+    /**
+     * 批量上传回调，在主线程调用
+     */
+    public interface Listener {
+        void onItemChanged(Item item);
+        void onBatchFinished(List<String> uploadedUrls, int failedCount);
+    }
+
+    private final Context appContext;
+    private final ApiService apiService;
+    private final Listener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService compressExecutor;
+
+    private final List<Item> items = new ArrayList<>();
+    private final ArrayDeque<Item> uploadQueue = new ArrayDeque<>();
+    private int activeUploads = 0;
+    private boolean cancelled = false;
+    private long batchStartTime = 0;
+
+    public BatchImageUploader(Context context, ApiService apiService, Listener listener) {
+        this.appContext = context.getApplicationContext();
+        this.apiService = apiService;
+        this.listener = listener;
+
+        this.compressExecutor = TaskScheduler.getInstance().newQueue(
+                "BatchCompress", TaskScheduler.Lane.USER_VISIBLE, COMPRESS_THREADS);
+    }
+
+    /**
+     * 追加图片并立即开始压缩上传，页序按追加顺序
+     */
+    public void addImages(List<Uri> uris) {
+        if (cancelled || uris == null || uris.isEmpty()) {
+            return;
+        }
+        if (isFinished()) {
+            batchStartTime = System.currentTimeMillis();
+        }
+        for (Uri uri : uris) {
+            Item item = new Item(items.size(), uri);
+            items.add(item);
+            compress(item);
+        }
+    }
+
+    /**
+     * 重试所有失败的图片
+     */
+    public void retryFailed() {
+        if (cancelled) {
+            return;
+        }
+        batchStartTime = System.currentTimeMillis();
+        for (Item item : items) {
+            if (item.state == ItemState.FAILED) {
+                item.attempts = 0;
+                item.error = null;
+                if (item.encodedPart != null) {
+                    enqueueUpload(item);
+                } else {
+                    compress(item);
+                }
+            }
+        }
+    }
+
+    /**
+     * 移除一张图片，正在上传的会被取消
+     */
+    public void remove(Item item) {
+        if (item.call != null) {
+            item.call.cancel();
+        }
+        uploadQueue.remove(item);
+        items.remove(item);
+        releaseEncodedPart(item);
+        notifyIfFinished();
+    }
+
+    public List<Item> getItems() {
+        return Collections.unmodifiableList(items);
+    }
+
+    public boolean isFinished() {
+        for (Item item : items) {
+            if (item.state != ItemState.DONE && item.state != ItemState.FAILED) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getFailedCount() {
+        int failed = 0;
+        for (Item item : items) {
+            if (item.state == ItemState.FAILED) {
+                failed++;
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * 按页序返回已上传成功的地址
+     */
+    public List<String> getUploadedUrls() {
+        List<String> urls = new ArrayList<>();
+        for (Item item : items) {
+            if (item.state == ItemState.DONE && item.url != null) {
+                urls.add(item.url);
+            }
+        }
+        return urls;
+    }
+
+    /**
+     * 取消所有未完成的压缩和上传
+     */
+    public void cancel() {
+        cancelled = true;
+        compressExecutor.shutdownNow();
+        for (Item item : items) {
+            if (item.call != null) {
+                item.call.cancel();
+            }
+            releaseEncodedPart(item);
+        }
+        uploadQueue.clear();
+    }
+
+    private void compress(Item item) {
+        setState(item, ItemState.COMPRESSING);
+        compressExecutor.execute(() -> {
+            MultipartBody.Part part = null;
+            String error = null;
+            try {
+                AdaptiveImageEncoder.EncodedImage encoded = AdaptiveImageEncoder.encode(
+                        appContext, item.uri, AdaptiveImageEncoder.UploadProfile.EXAM_REPORT);
+                RequestBody body = new LeasedFileRequestBody(MediaType.parse(encoded.getMimeType()), encoded.getLease());
+                part = MultipartBody.Part.createFormData("image", encoded.getFile().getName(), body);
+            } catch (Exception | OutOfMemoryError e) {
+                Log.e(TAG, "第" + (item.index + 1) + "张图片压缩失败", e);
+                BitmapPool.getInstance().clear();
+                error = "图片处理失败";
+            }
+            final MultipartBody.Part encodedPart = part;
+            final String compressError = error;
+            mainHandler.post(() -> {
+                if (cancelled || !items.contains(item)) {
+                    TempFileArena.Lease lease = LeasedFileRequestBody.leaseOf(encodedPart);
+                    if (lease != null) {
+                        lease.release();
+                    }
+                    return;
+                }
+                if (encodedPart != null) {
+                    item.encodedPart = encodedPart;
+                    enqueueUpload(item);
+                } else {
+                    item.error = compressError;
+                    setState(item, ItemState.FAILED);
+                    notifyIfFinished();
+                }
+            });
+        });
+    }
+
+    private void enqueueUpload(Item item) {
+        setState(item, ItemState.PENDING);
+        uploadQueue.addLast(item);
+        pumpUploads();
+    }
+
+    private void pumpUploads() {
+        while (!cancelled && activeUploads < MAX_CONCURRENT_UPLOADS && !uploadQueue.isEmpty()) {
+            startUpload(uploadQueue.pollFirst());
+        }
+    }
+
+    private void startUpload(Item item) {
+        activeUploads++;
+        item.attempts++;
+        item.bytesSent = 0;
+        setState(item, ItemState.UPLOADING);
+
+        UploadTask uploadTask = new UploadTask();
+        uploadTask.addObserver(new UploadTask.Observer() {
+            @Override
+            public void onUploadPhaseChanged(UploadTask task, UploadTask.Phase phase) {
+            }
+
+            @Override
+            public void onUploadProgress(UploadTask task, long bytesSent, long totalBytes) {
+                if (item.state == ItemState.UPLOADING) {
+                    item.bytesSent = bytesSent;
+                    item.totalBytes = totalBytes;
+                    listener.onItemChanged(item);
+                }
+            }
+        });
+
+        item.call = apiService.uploadImage(uploadTask.wrap(item.encodedPart));
+        item.call.enqueue(new Callback<ApiResponse<ImageUploadResult>>() {
+            @Override
+            public void onResponse(Call<ApiResponse<ImageUploadResult>> call, Response<ApiResponse<ImageUploadResult>> response) {
+                ApiResponse<ImageUploadResult> body = response.body();
+                if (response.isSuccessful() && body != null && body.isSuccess()
+                        && body.getData() != null && body.getData().getUrl() != null) {
+                    onUploadFinished(item, uploadTask, body.getData().getUrl(), null);
+                } else {
+                    String message = body != null && body.getMessage() != null ? body.getMessage() : "HTTP " + response.code();
+                    onUploadFinished(item, uploadTask, null, message);
+                }
+            }
+
+            @Override
+            public void onFailure(Call<ApiResponse<ImageUploadResult>> call, Throwable t) {
+                onUploadFinished(item, uploadTask, null, call.isCanceled() ? null : "网络请求失败");
+            }
+        });
+    }
+
+    private void onUploadFinished(Item item, UploadTask uploadTask, String url, String error) {
+        activeUploads--;
+        uploadTask.clearObservers();
+        item.call = null;
+        if (cancelled || !items.contains(item)) {
+            pumpUploads();
+            return;
+        }
+
+        if (url != null) {
+            item.url = url;
+            item.bytesSent = item.totalBytes;
+            // 上传成功后不再需要保留压缩结果
+            releaseEncodedPart(item);
+            setState(item, ItemState.DONE);
+        } else if (error != null && item.attempts < MAX_AUTO_ATTEMPTS) {
+            Log.w(TAG, "第" + (item.index + 1) + "张图片上传失败，自动重试: " + error);
+            uploadQueue.addLast(item);
+            setState(item, ItemState.PENDING);
+        } else {
+            item.error = error != null ? error : "已取消";
+            setState(item, ItemState.FAILED);
+        }
+
+        pumpUploads();
+        notifyIfFinished();
+    }
+
+    /**
+     * 释放压缩结果占用的临时文件，失败的图片保留以便重试
+     */
+    private void releaseEncodedPart(Item item) {
+        TempFileArena.Lease lease = LeasedFileRequestBody.leaseOf(item.encodedPart);
+        if (lease != null) {
+            lease.release();
+        }
+        item.encodedPart = null;
+    }
+
+    private void setState(Item item, ItemState state) {
+        item.state = state;
+        listener.onItemChanged(item);
+    }
+
+    private void notifyIfFinished() {
+        if (cancelled || items.isEmpty() || !isFinished()) {
+            return;
+        }
+        Log.d(TAG, "批量上传完成: " + items.size() + " 张，失败 " + getFailedCount()
+                + " 张，耗时 " + (System.currentTimeMillis() - batchStartTime) + "ms");
+        listener.onBatchFinished(getUploadedUrls(), getFailedCount());
+    }
+}
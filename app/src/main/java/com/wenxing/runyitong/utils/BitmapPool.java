@@ -0,0 +1,218 @@
+package com.wenxing.runyitong.utils;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 位图复用池
+ * 按分配字节数的尺寸等级（2的幂）分桶保存可变位图，解码时作为inBitmap复用，
+ * 编辑时作为目标位图复用，减少反复拍照编辑带来的GC和OOM。
+ * 池总大小受限，超出时按尺寸等级从大到小淘汰。
+ * 作为可随时丢弃的缓存登记到MemoryCoordinator，内存紧张时最先收缩。
+ */
+public class BitmapPool {
+    private static final String TAG = "BitmapPool";
+    // 最多占用最大堆内存的比例
+    private static final float MAX_POOL_RATIO = 0.125f;
+    private static final long MAX_POOL_BYTES_CAP = 32L * 1024 * 1024;
+    // 同一尺寸等级最多保存的位图数
+    private static final int MAX_PER_BUCKET = 4;
+
+    private static volatile BitmapPool instance;
+
+    private final TreeMap<Integer, ArrayDeque<Bitmap>> buckets = new TreeMap<>();
+    private final long maxBytes;
+    private long pooledBytes = 0;
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long evictedCount = 0;
+
+    private BitmapPool() {
+        long byHeap = (long) (Runtime.getRuntime().maxMemory() * MAX_POOL_RATIO);
+        this.maxBytes = Math.min(byHeap, MAX_POOL_BYTES_CAP);
+        MemoryCoordinator.getInstance().register(TAG, MemoryCoordinator.Priority.DISPOSABLE,
+                new MemoryCoordinator.TrimmableCache() {
+                    @Override
+                    public long getSizeBytes() {
+                        return getPooledBytes();
+                    }
+
+                    @Override
+                    public void trimToFraction(float keepFraction) {
+                        if (keepFraction <= 0f) {
+                            clear();
+                        } else {
+                            trimToSize((long) (getPooledBytes() * keepFraction));
+                        }
+                    }
+                });
+    }
+
+    public static BitmapPool getInstance() {
+        if (instance == null) {
+            synchronized (BitmapPool.class) {
+                if (instance == null) {
+                    instance = new BitmapPool();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 获取可写入width×height的可变位图，尺寸已调整为目标尺寸，内容未清空
+     * 池中没有合适位图时新建
+     */
+    public Bitmap get(int width, int height, Bitmap.Config config) {
+        Bitmap bitmap = getReusable(width, height, config);
+        if (bitmap != null) {
+            return bitmap;
+        }
+        return Bitmap.createBitmap(width, height, config);
+    }
+
+    /**
+     * 获取可复用位图，没有合适位图时返回null
+     */
+    public synchronized Bitmap getReusable(int width, int height, Bitmap.Config config) {
+        if (width <= 0 || height <= 0) {
+            return null;
+        }
+        if (config == null) {
+            config = Bitmap.Config.ARGB_8888;
+        }
+
+        long required = (long) width * height * bytesPerPixel(config);
+        Integer sizeClass = buckets.ceilingKey(sizeClassOf(required));
+        // 只在相邻两个等级内查找，避免用过大的位图承载小图
+        int searched = 0;
+        while (sizeClass != null && searched < 2) {
+            ArrayDeque<Bitmap> bucket = buckets.get(sizeClass);
+            Iterator<Bitmap> iterator = bucket.iterator();
+            while (iterator.hasNext()) {
+                Bitmap candidate = iterator.next();
+                if (candidate.isRecycled()) {
+                    iterator.remove();
+                    continue;
+                }
+                if (candidate.getAllocationByteCount() >= required) {
+                    iterator.remove();
+                    pooledBytes -= candidate.getAllocationByteCount();
+                    if (bucket.isEmpty()) {
+                        buckets.remove(sizeClass);
+                    }
+                    try {
+                        candidate.reconfigure(width, height, config);
+                        hitCount++;
+                        return candidate;
+                    } catch (IllegalArgumentException e) {
+                        candidate.recycle();
+                        break;
+                    }
+                }
+            }
+            sizeClass = buckets.higherKey(sizeClass);
+            searched++;
+        }
+
+        missCount++;
+        return null;
+    }
+
+    /**
+     * 归还不再使用的位图，无法复用或池已满时直接回收
+     * 调用后不得再使用该位图
+     */
+    public synchronized void put(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return;
+        }
+        if (!bitmap.isMutable() || bitmap.getConfig() == null || bitmap.getAllocationByteCount() > maxBytes / 2) {
+            bitmap.recycle();
+            return;
+        }
+
+        int sizeClass = sizeClassOf(bitmap.getAllocationByteCount());
+        ArrayDeque<Bitmap> bucket = buckets.get(sizeClass);
+        if (bucket == null) {
+            bucket = new ArrayDeque<>();
+            buckets.put(sizeClass, bucket);
+        }
+        for (Bitmap pooled : bucket) {
+            if (pooled == bitmap) {
+                return;
+            }
+        }
+        if (bucket.size() >= MAX_PER_BUCKET) {
+            bitmap.recycle();
+            return;
+        }
+
+        bucket.addLast(bitmap);
+        pooledBytes += bitmap.getAllocationByteCount();
+        trimToSize(maxBytes);
+    }
+
+    /**
+     * 淘汰位图直到池大小不超过targetBytes，优先淘汰大尺寸等级
+     */
+    public synchronized void trimToSize(long targetBytes) {
+        while (pooledBytes > targetBytes && !buckets.isEmpty()) {
+            Map.Entry<Integer, ArrayDeque<Bitmap>> largest = buckets.lastEntry();
+            Bitmap evicted = largest.getValue().pollFirst();
+            if (largest.getValue().isEmpty()) {
+                buckets.remove(largest.getKey());
+            }
+            if (evicted != null) {
+                pooledBytes -= evicted.getAllocationByteCount();
+                evicted.recycle();
+                evictedCount++;
+            }
+        }
+    }
+
+    public void clear() {
+        trimToSize(0);
+        Log.d(TAG, "位图池已清空");
+    }
+
+    public synchronized long getPooledBytes() {
+        return pooledBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public synchronized String getStats() {
+        long total = hitCount + missCount;
+        return String.format("位图池: %.1fMB/%.1fMB, 命中率 %.1f%% (%d/%d), 淘汰 %d",
+                pooledBytes / 1024.0 / 1024.0, maxBytes / 1024.0 / 1024.0,
+                total > 0 ? hitCount * 100.0 / total : 0.0, hitCount, total, evictedCount);
+    }
+
+    private static int sizeClassOf(long bytes) {
+        if (bytes <= 1) {
+            return 1;
+        }
+        long highest = Long.highestOneBit(bytes - 1) << 1;
+        return (int) Math.min(Integer.MAX_VALUE, highest);
+    }
+
+    private static int bytesPerPixel(Bitmap.Config config) {
+        switch (config) {
+            case ALPHA_8:
+                return 1;
+            case RGB_565:
+            case ARGB_4444:
+                return 2;
+            default:
+                return 4;
+        }
+    }
+}
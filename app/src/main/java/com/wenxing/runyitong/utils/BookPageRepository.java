@@ -0,0 +1,243 @@
+package com.wenxing.runyitong.utils;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.wenxing.runyitong.api.ApiClient;
+import com.wenxing.runyitong.api.ApiResponse;
+import com.wenxing.runyitong.api.ApiService;
+import com.wenxing.runyitong.model.BookPage;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * 书籍页面仓库
+ * 按批次（即接口的page参数）加载书籍页面，先读本地磁盘缓存，未命中再请求网络，
+ * 网络结果写回磁盘。同一批次的并发请求会合并，回调均在主线程执行。
+ */
+public class BookPageRepository {
+    private static final String TAG = "BookPageRepository";
+    private static final String CACHE_DIR = "book_pages";
+    // 古籍文本基本不会修改，缓存一周后再刷新
+    private static final long CACHE_MAX_AGE_MS = 7L * 24 * 60 * 60 * 1000;
+
+    private final File cacheDir;
+    private final int bookId;
+    private final int batchSize;
+    private final ApiService apiService;
+    private final Gson gson;
+    private final Handler mainHandler;
+    private final ExecutorService diskExecutor;
+    private final Map<Integer, List<BatchCallback>> inFlight = new HashMap<>();
+    private volatile boolean shutdown = false;
+
+    /**
+     * 批次加载回调
+     */
+    public interface BatchCallback {
+        /**
+         * @param batch 批次号（从1开始）
+         * @param pages 该批次的页面
+         * @param isLastBatch 是否已到最后一批
+         */
+        void onBatchLoaded(int batch, List<BookPage> pages, boolean isLastBatch);
+        void onBatchFailed(int batch, String errorMessage);
+    }
+
+    public BookPageRepository(Context context, int bookId, int batchSize) {
+        this.cacheDir = new File(context.getApplicationContext().getFilesDir(), CACHE_DIR + File.separator + bookId);
+        this.bookId = bookId;
+        this.batchSize = Math.max(1, batchSize);
+        this.apiService = ApiClient.getApiService();
+        this.gson = new Gson();
+        this.mainHandler = new Handler(Looper.getMainLooper());
+        this.diskExecutor = TaskScheduler.getInstance().newQueue("BookPageDisk", TaskScheduler.Lane.USER_VISIBLE, 1);
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public boolean isLoading(int batch) {
+        return inFlight.containsKey(batch);
+    }
+
+    /**
+     * 加载批次，需在主线程调用
+     */
+    public void loadBatch(int batch, BatchCallback callback) {
+        if (shutdown || batch < 1) {
+            return;
+        }
+
+        List<BatchCallback> waiting = inFlight.get(batch);
+        if (waiting != null) {
+            // 已在加载，合并回调
+            if (callback != null) {
+                waiting.add(callback);
+            }
+            return;
+        }
+
+        waiting = new ArrayList<>();
+        if (callback != null) {
+            waiting.add(callback);
+        }
+        inFlight.put(batch, waiting);
+
+        diskExecutor.execute(() -> {
+            List<BookPage> cached = readCache(batch);
+            if (cached != null) {
+                Log.d(TAG, "命中页面缓存: 书籍 " + bookId + " 批次 " + batch);
+                mainHandler.post(() -> deliverSuccess(batch, cached));
+            } else {
+                mainHandler.post(() -> fetchFromNetwork(batch));
+            }
+        });
+    }
+
+    /**
+     * 清除本书的磁盘缓存
+     */
+    public void clearCache() {
+        diskExecutor.execute(() -> {
+            File[] files = cacheDir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            Log.d(TAG, "已清除书籍 " + bookId + " 的页面缓存");
+        });
+    }
+
+    public void shutdown() {
+        shutdown = true;
+        inFlight.clear();
+        diskExecutor.shutdown();
+    }
+
+    private void fetchFromNetwork(int batch) {
+        if (shutdown) {
+            return;
+        }
+
+        Call<ApiResponse<List<BookPage>>> call = apiService.getBookPages(bookId, batch, batchSize);
+        call.enqueue(new Callback<ApiResponse<List<BookPage>>>() {
+            @Override
+            public void onResponse(Call<ApiResponse<List<BookPage>>> call, Response<ApiResponse<List<BookPage>>> response) {
+                if (response.isSuccessful() && response.body() != null) {
+                    ApiResponse<List<BookPage>> apiResponse = response.body();
+                    if (apiResponse.isSuccess()) {
+                        List<BookPage> pages = apiResponse.getData() != null ? apiResponse.getData() : new ArrayList<>();
+                        writeCache(batch, pages);
+                        deliverSuccess(batch, pages);
+                    } else {
+                        deliverFailure(batch, "加载页面失败: " + apiResponse.getMessage());
+                    }
+                } else {
+                    deliverFailure(batch, "加载页面失败，请检查网络连接");
+                }
+            }
+
+            @Override
+            public void onFailure(Call<ApiResponse<List<BookPage>>> call, Throwable t) {
+                Log.e(TAG, "请求书籍页面失败: 批次 " + batch, t);
+                deliverFailure(batch, "网络错误: " + t.getMessage());
+            }
+        });
+    }
+
+    private void deliverSuccess(int batch, List<BookPage> pages) {
+        List<BatchCallback> callbacks = inFlight.remove(batch);
+        if (shutdown || callbacks == null) {
+            return;
+        }
+        boolean isLastBatch = pages.size() < batchSize;
+        for (BatchCallback callback : callbacks) {
+            callback.onBatchLoaded(batch, pages, isLastBatch);
+        }
+    }
+
+    private void deliverFailure(int batch, String errorMessage) {
+        List<BatchCallback> callbacks = inFlight.remove(batch);
+        if (shutdown || callbacks == null) {
+            return;
+        }
+        for (BatchCallback callback : callbacks) {
+            callback.onBatchFailed(batch, errorMessage);
+        }
+    }
+
+    private File getCacheFile(int batch) {
+        return new File(cacheDir, "batch_" + batchSize + "_" + batch + ".json");
+    }
+
+    private List<BookPage> readCache(int batch) {
+        File file = getCacheFile(batch);
+        if (!file.exists()) {
+            return null;
+        }
+        if (System.currentTimeMillis() - file.lastModified() > CACHE_MAX_AGE_MS) {
+            Log.d(TAG, "页面缓存已过期: " + file.getName());
+            return null;
+        }
+
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            Type type = new TypeToken<List<BookPage>>() {}.getType();
+            return gson.fromJson(reader, type);
+        } catch (Exception e) {
+            Log.e(TAG, "读取页面缓存失败: " + file.getName(), e);
+            file.delete();
+            return null;
+        }
+    }
+
+    private void writeCache(int batch, List<BookPage> pages) {
+        if (shutdown) {
+            return;
+        }
+        diskExecutor.execute(() -> {
+            if (!cacheDir.exists() && !cacheDir.mkdirs()) {
+                Log.w(TAG, "创建页面缓存目录失败: " + cacheDir.getAbsolutePath());
+                return;
+            }
+
+            File file = getCacheFile(batch);
+            File tempFile = new File(cacheDir, file.getName() + ".tmp");
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(tempFile), StandardCharsets.UTF_8)) {
+                gson.toJson(pages, writer);
+            } catch (Exception e) {
+                Log.e(TAG, "写入页面缓存失败: " + file.getName(), e);
+                tempFile.delete();
+                return;
+            }
+
+            if (!tempFile.renameTo(file)) {
+                Log.w(TAG, "重命名页面缓存失败: " + file.getName());
+                tempFile.delete();
+            }
+        });
+    }
+}
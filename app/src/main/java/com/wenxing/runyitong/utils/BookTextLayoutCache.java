@@ -0,0 +1,140 @@
+package com.wenxing.runyitong.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.core.text.PrecomputedTextCompat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 书籍正文排版缓存
+ * 在后台线程用PrecomputedText预先完成文字测量，主线程绑定时只需设置结果。
+ * 缓存按页面、可用宽度和字号区分，宽度或字号变化后旧结果自然失效并由LRU淘汰。
+ */
+public class BookTextLayoutCache {
+    private static final String TAG = "BookTextLayoutCache";
+    // 缓存上限（字符数），古籍单页通常在数千字以内
+    private static final int MAX_CACHED_CHARS = 200_000;
+
+    private final LruCache<String, PrecomputedTextCompat> cache;
+    private final Map<String, List<LayoutCallback>> pending = new HashMap<>();
+    private final ExecutorService layoutExecutor;
+    private final Handler mainHandler;
+    private volatile boolean shutdown = false;
+
+    /**
+     * 排版完成回调，在主线程执行
+     */
+    public interface LayoutCallback {
+        void onLayoutReady(String key, PrecomputedTextCompat text);
+    }
+
+    public BookTextLayoutCache() {
+        this.cache = new LruCache<String, PrecomputedTextCompat>(MAX_CACHED_CHARS) {
+            @Override
+            protected int sizeOf(String key, PrecomputedTextCompat value) {
+                return Math.max(1, value.length());
+            }
+        };
+        this.layoutExecutor = TaskScheduler.getInstance().newQueue("BookTextLayout", TaskScheduler.Lane.USER_VISIBLE, 1);
+        this.mainHandler = new Handler(Looper.getMainLooper());
+        MemoryCoordinator.getInstance().register(registryName(), MemoryCoordinator.Priority.REBUILDABLE,
+                new MemoryCoordinator.TrimmableCache() {
+                    @Override
+                    public long getSizeBytes() {
+                        // 按每字符两字节粗略估计，不含排版数据
+                        return cache.size() * 2L;
+                    }
+
+                    @Override
+                    public void trimToFraction(float keepFraction) {
+                        cache.trimToSize((int) (cache.size() * keepFraction));
+                    }
+                });
+    }
+
+    public static String buildKey(int pageId, int width, float textSize) {
+        return pageId + "@" + width + "@" + textSize;
+    }
+
+    public PrecomputedTextCompat get(String key) {
+        return cache.get(key);
+    }
+
+    /**
+     * 在后台排版文本，已缓存时直接回调；需在主线程调用
+     */
+    public void precompute(String key, CharSequence text, PrecomputedTextCompat.Params params, LayoutCallback callback) {
+        if (shutdown || key == null || text == null || params == null) {
+            return;
+        }
+
+        PrecomputedTextCompat cached = cache.get(key);
+        if (cached != null) {
+            if (callback != null) {
+                callback.onLayoutReady(key, cached);
+            }
+            return;
+        }
+
+        List<LayoutCallback> waiting = pending.get(key);
+        if (waiting != null) {
+            // 已在排队，合并回调
+            if (callback != null) {
+                waiting.add(callback);
+            }
+            return;
+        }
+        waiting = new ArrayList<>();
+        if (callback != null) {
+            waiting.add(callback);
+        }
+        pending.put(key, waiting);
+
+        layoutExecutor.execute(() -> {
+            PrecomputedTextCompat result = null;
+            try {
+                result = PrecomputedTextCompat.create(text, params);
+            } catch (Exception e) {
+                Log.e(TAG, "预排版文本失败: " + key, e);
+            }
+
+            final PrecomputedTextCompat finalResult = result;
+            mainHandler.post(() -> {
+                List<LayoutCallback> callbacks = pending.remove(key);
+                if (shutdown || finalResult == null) {
+                    return;
+                }
+                cache.put(key, finalResult);
+                if (callbacks != null) {
+                    for (LayoutCallback waitingCallback : callbacks) {
+                        waitingCallback.onLayoutReady(key, finalResult);
+                    }
+                }
+            });
+        });
+    }
+
+    public void clear() {
+        cache.evictAll();
+    }
+
+    private String registryName() {
+        return TAG + "@" + Integer.toHexString(System.identityHashCode(this));
+    }
+
+    public void shutdown() {
+        shutdown = true;
+        MemoryCoordinator.getInstance().unregister(registryName());
+        layoutExecutor.shutdownNow();
+        cache.evictAll();
+        pending.clear();
+    }
+}
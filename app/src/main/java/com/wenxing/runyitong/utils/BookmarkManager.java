@@ -3,29 +3,82 @@ package com.wenxing.runyitong.utils;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.util.Log;
+import android.util.SparseArray;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 import com.google.gson.reflect.TypeToken;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
 
 /**
  * PDF书签管理器
- * 负责书签的增删改查和持久化存储
+ * 负责书签的增删改查和持久化存储。
+ * 所有书签在首次使用时加载到内存，按书籍建立页码整数集合和按页排序的索引，
+ * 另有跨书籍的按时间排序索引；页面绑定时的hasBookmark只做一次哈希查找。
+ * 修改以追加日志的形式在后台写入，日志过长时在后台压缩为快照。
  */
 public class BookmarkManager {
     private static final String TAG = "BookmarkManager";
     private static final String PREF_NAME = "pdf_bookmarks";
     private static final String KEY_BOOKMARKS = "bookmarks_";
-    
-    private Context context;
-    private SharedPreferences sharedPreferences;
-    private Gson gson;
-    
+    private static final String STORE_DIR = "bookmarks";
+    private static final String SNAPSHOT_FILE = "snapshot.json";
+    private static final String JOURNAL_PREFIX = "journal_";
+    private static final String JOURNAL_SUFFIX = ".log";
+    // 日志条数超过该值且超过书签数两倍时压缩
+    private static final int COMPACT_MIN_RECORDS = 64;
+
+    private static final String OP_PUT = "put";
+    private static final String OP_REMOVE = "remove";
+    private static final String OP_CLEAR = "clear";
+
+    private static volatile BookmarkManager instance;
+
+    private static final Comparator<Bookmark> RECENCY_ORDER = (a, b) -> {
+        int result = Long.compare(b.timestamp, a.timestamp);
+        if (result != 0) {
+            return result;
+        }
+        result = a.pdfPath.compareTo(b.pdfPath);
+        return result != 0 ? result : Integer.compare(a.pageNumber, b.pageNumber);
+    };
+
+    private final SharedPreferences sharedPreferences;
+    private final Gson gson;
+    private final File storeDir;
+    private final ExecutorService writeExecutor;
+
+    // 以下字段由this保护
+    private final Map<String, BookIndex> books = new HashMap<>();
+    // 所有书签按修改时间从新到旧排序
+    private final TreeSet<Bookmark> recency = new TreeSet<>(RECENCY_ORDER);
+    // 尚未写入日志的记录
+    private List<String> pendingRecords = new ArrayList<>();
+    private long generation = 0;
+    private int journalRecords = 0;
+    private boolean compactScheduled = false;
+
     /**
      * 书签数据模型
      */
@@ -35,9 +88,9 @@ public class BookmarkManager {
         private String title;
         private String note;
         private long timestamp;
-        
+
         public Bookmark() {}
-        
+
         public Bookmark(String pdfPath, int pageNumber, String title, String note) {
             this.pdfPath = pdfPath;
             this.pageNumber = pageNumber;
@@ -45,232 +98,367 @@ public class BookmarkManager {
             this.note = note;
             this.timestamp = System.currentTimeMillis();
         }
-        
+
+        Bookmark(Bookmark other) {
+            this.pdfPath = other.pdfPath;
+            this.pageNumber = other.pageNumber;
+            this.title = other.title;
+            this.note = other.note;
+            this.timestamp = other.timestamp;
+        }
+
         // Getters and Setters
         public String getPdfPath() { return pdfPath; }
         public void setPdfPath(String pdfPath) { this.pdfPath = pdfPath; }
-        
+
         public int getPageNumber() { return pageNumber; }
         public void setPageNumber(int pageNumber) { this.pageNumber = pageNumber; }
-        
+
         public String getTitle() { return title; }
         public void setTitle(String title) { this.title = title; }
-        
+
         public String getNote() { return note; }
         public void setNote(String note) { this.note = note; }
-        
+
         public long getTimestamp() { return timestamp; }
         public void setTimestamp(long timestamp) { this.timestamp = timestamp; }
-        
+
         @Override
         public boolean equals(Object obj) {
             if (this == obj) return true;
             if (obj == null || getClass() != obj.getClass()) return false;
             Bookmark bookmark = (Bookmark) obj;
-            return pageNumber == bookmark.pageNumber && 
+            return pageNumber == bookmark.pageNumber &&
                    pdfPath != null && pdfPath.equals(bookmark.pdfPath);
         }
-        
+
         @Override
         public int hashCode() {
             return (pdfPath != null ? pdfPath.hashCode() : 0) * 31 + pageNumber;
         }
     }
-    
-    public BookmarkManager(Context context) {
-        this.context = context.getApplicationContext();
-        this.sharedPreferences = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-        this.gson = new Gson();
+
+    /**
+     * 日志记录
+     */
+    private static class LogRecord {
+        String op;
+        Bookmark bookmark;
+        String pdfPath;
+        int pageNumber;
     }
-    
+
     /**
-     * 添加书签
+     * 快照文件内容
      */
-    public boolean addBookmark(String pdfPath, int pageNumber, String title, String note) {
-        try {
-            List<Bookmark> bookmarks = getBookmarks(pdfPath);
-            
-            // 检查是否已存在相同页面的书签
-            for (Bookmark bookmark : bookmarks) {
-                if (bookmark.getPageNumber() == pageNumber) {
-                    Log.d(TAG, "书签已存在，页面: " + pageNumber);
+    private static class Snapshot {
+        long generation;
+        List<Bookmark> bookmarks;
+    }
+
+    /**
+     * 单本书的书签索引：页码集合用于O(1)判断，SparseArray按页码有序保存书签
+     */
+    private static class BookIndex {
+        final IntHashSet pages = new IntHashSet();
+        final SparseArray<Bookmark> byPage = new SparseArray<>();
+    }
+
+    /**
+     * 开放寻址的int集合，避免页码装箱
+     */
+    private static final class IntHashSet {
+        private static final int EMPTY = Integer.MIN_VALUE;
+        private int[] slots = newSlots(8);
+        private int size = 0;
+
+        boolean contains(int value) {
+            int mask = slots.length - 1;
+            for (int i = mix(value) & mask; ; i = (i + 1) & mask) {
+                int slot = slots[i];
+                if (slot == EMPTY) {
                     return false;
                 }
+                if (slot == value) {
+                    return true;
+                }
             }
-            
-            Bookmark newBookmark = new Bookmark(pdfPath, pageNumber, title, note);
-            bookmarks.add(newBookmark);
-            
-            // 按页码排序
-            Collections.sort(bookmarks, Comparator.comparingInt(Bookmark::getPageNumber));
-            
-            saveBookmarks(pdfPath, bookmarks);
-            Log.d(TAG, "添加书签成功，页面: " + pageNumber);
-            return true;
-        } catch (Exception e) {
-            Log.e(TAG, "添加书签失败", e);
+        }
+
+        void add(int value) {
+            if ((size + 1) * 4 > slots.length * 3) {
+                rehash(slots.length * 2);
+            }
+            int mask = slots.length - 1;
+            for (int i = mix(value) & mask; ; i = (i + 1) & mask) {
+                int slot = slots[i];
+                if (slot == value) {
+                    return;
+                }
+                if (slot == EMPTY) {
+                    slots[i] = value;
+                    size++;
+                    return;
+                }
+            }
+        }
+
+        void remove(int value) {
+            int mask = slots.length - 1;
+            int gap = mix(value) & mask;
+            while (slots[gap] != value) {
+                if (slots[gap] == EMPTY) {
+                    return;
+                }
+                gap = (gap + 1) & mask;
+            }
+            // 向后移动同一探测链上的元素填补空位，不使用删除标记
+            for (int j = (gap + 1) & mask; slots[j] != EMPTY; j = (j + 1) & mask) {
+                int home = mix(slots[j]) & mask;
+                if (((j - home) & mask) >= ((j - gap) & mask)) {
+                    slots[gap] = slots[j];
+                    gap = j;
+                }
+            }
+            slots[gap] = EMPTY;
+            size--;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        private void rehash(int capacity) {
+            int[] old = slots;
+            slots = newSlots(capacity);
+            size = 0;
+            for (int value : old) {
+                if (value != EMPTY) {
+                    add(value);
+                }
+            }
+        }
+
+        private static int[] newSlots(int capacity) {
+            int[] slots = new int[capacity];
+            Arrays.fill(slots, EMPTY);
+            return slots;
+        }
+
+        private static int mix(int value) {
+            int h = value * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    private BookmarkManager(Context context) {
+        Context appContext = context.getApplicationContext();
+        this.sharedPreferences = appContext.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        this.gson = new Gson();
+        this.storeDir = new File(appContext.getFilesDir(), STORE_DIR);
+        this.writeExecutor = TaskScheduler.getInstance().newQueue("BookmarkWriter", TaskScheduler.Lane.MAINTENANCE, 1);
+        load();
+    }
+
+    public static BookmarkManager getInstance(Context context) {
+        if (instance == null) {
+            synchronized (BookmarkManager.class) {
+                if (instance == null) {
+                    instance = new BookmarkManager(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 添加书签
+     */
+    public boolean addBookmark(String pdfPath, int pageNumber, String title, String note) {
+        if (pdfPath == null) {
             return false;
         }
+        synchronized (this) {
+            if (hasBookmark(pdfPath, pageNumber)) {
+                Log.d(TAG, "书签已存在，页面: " + pageNumber);
+                return false;
+            }
+            Bookmark bookmark = new Bookmark(pdfPath, pageNumber, title, note);
+            put(bookmark);
+            appendPut(bookmark);
+        }
+        Log.d(TAG, "添加书签成功，页面: " + pageNumber);
+        return true;
     }
-    
+
     /**
      * 删除书签
      */
     public boolean removeBookmark(String pdfPath, int pageNumber) {
-        try {
-            List<Bookmark> bookmarks = getBookmarks(pdfPath);
-            boolean removed = bookmarks.removeIf(bookmark -> bookmark.getPageNumber() == pageNumber);
-            
+        boolean removed;
+        synchronized (this) {
+            removed = remove(pdfPath, pageNumber);
             if (removed) {
-                saveBookmarks(pdfPath, bookmarks);
-                Log.d(TAG, "删除书签成功，页面: " + pageNumber);
-            } else {
-                Log.d(TAG, "书签不存在，页面: " + pageNumber);
+                LogRecord record = new LogRecord();
+                record.op = OP_REMOVE;
+                record.pdfPath = pdfPath;
+                record.pageNumber = pageNumber;
+                append(record);
             }
-            
-            return removed;
-        } catch (Exception e) {
-            Log.e(TAG, "删除书签失败", e);
-            return false;
         }
+        Log.d(TAG, removed ? "删除书签成功，页面: " + pageNumber : "书签不存在，页面: " + pageNumber);
+        return removed;
     }
-    
+
     /**
-     * 检查页面是否有书签
+     * 检查页面是否有书签，页面绑定时调用，只做内存查找
      */
-    public boolean hasBookmark(String pdfPath, int pageNumber) {
-        try {
-            List<Bookmark> bookmarks = getBookmarks(pdfPath);
-            return bookmarks.stream().anyMatch(bookmark -> bookmark.getPageNumber() == pageNumber);
-        } catch (Exception e) {
-            Log.e(TAG, "检查书签失败", e);
-            return false;
-        }
+    public synchronized boolean hasBookmark(String pdfPath, int pageNumber) {
+        BookIndex index = pdfPath != null ? books.get(pdfPath) : null;
+        return index != null && index.pages.contains(pageNumber);
     }
-    
+
     /**
-     * 获取指定PDF的所有书签
+     * 获取指定PDF的所有书签，按页码排序
      */
-    public List<Bookmark> getBookmarks(String pdfPath) {
-        try {
-            String key = KEY_BOOKMARKS + pdfPath.hashCode();
-            String json = sharedPreferences.getString(key, null);
-            
-            if (json == null || json.isEmpty()) {
-                return new ArrayList<>();
+    public synchronized List<Bookmark> getBookmarks(String pdfPath) {
+        List<Bookmark> result = new ArrayList<>();
+        BookIndex index = pdfPath != null ? books.get(pdfPath) : null;
+        if (index != null) {
+            for (int i = 0; i < index.byPage.size(); i++) {
+                result.add(new Bookmark(index.byPage.valueAt(i)));
             }
-            
-            Type listType = new TypeToken<List<Bookmark>>(){}.getType();
-            List<Bookmark> bookmarks = gson.fromJson(json, listType);
-            return bookmarks != null ? bookmarks : new ArrayList<>();
-        } catch (Exception e) {
-            Log.e(TAG, "获取书签列表失败", e);
-            return new ArrayList<>();
         }
+        return result;
     }
-    
+
     /**
      * 获取书签详情
      */
-    public Bookmark getBookmark(String pdfPath, int pageNumber) {
-        try {
-            List<Bookmark> bookmarks = getBookmarks(pdfPath);
-            return bookmarks.stream()
-                    .filter(bookmark -> bookmark.getPageNumber() == pageNumber)
-                    .findFirst()
-                    .orElse(null);
-        } catch (Exception e) {
-            Log.e(TAG, "获取书签详情失败", e);
-            return null;
-        }
+    public synchronized Bookmark getBookmark(String pdfPath, int pageNumber) {
+        BookIndex index = pdfPath != null ? books.get(pdfPath) : null;
+        Bookmark bookmark = index != null ? index.byPage.get(pageNumber) : null;
+        return bookmark != null ? new Bookmark(bookmark) : null;
     }
-    
+
     /**
      * 更新书签信息
      */
     public boolean updateBookmark(String pdfPath, int pageNumber, String title, String note) {
-        try {
-            List<Bookmark> bookmarks = getBookmarks(pdfPath);
-            
-            for (Bookmark bookmark : bookmarks) {
-                if (bookmark.getPageNumber() == pageNumber) {
-                    bookmark.setTitle(title);
-                    bookmark.setNote(note);
-                    bookmark.setTimestamp(System.currentTimeMillis());
-                    
-                    saveBookmarks(pdfPath, bookmarks);
-                    Log.d(TAG, "更新书签成功，页面: " + pageNumber);
-                    return true;
-                }
+        synchronized (this) {
+            BookIndex index = pdfPath != null ? books.get(pdfPath) : null;
+            Bookmark existing = index != null ? index.byPage.get(pageNumber) : null;
+            if (existing == null) {
+                Log.d(TAG, "书签不存在，无法更新，页面: " + pageNumber);
+                return false;
             }
-            
-            Log.d(TAG, "书签不存在，无法更新，页面: " + pageNumber);
-            return false;
-        } catch (Exception e) {
-            Log.e(TAG, "更新书签失败", e);
-            return false;
+            Bookmark updated = new Bookmark(existing);
+            updated.setTitle(title);
+            updated.setNote(note);
+            updated.setTimestamp(System.currentTimeMillis());
+            put(updated);
+            appendPut(updated);
         }
+        Log.d(TAG, "更新书签成功，页面: " + pageNumber);
+        return true;
     }
-    
+
     /**
      * 清空指定PDF的所有书签
      */
     public boolean clearBookmarks(String pdfPath) {
-        try {
-            String key = KEY_BOOKMARKS + pdfPath.hashCode();
-            sharedPreferences.edit().remove(key).apply();
-            Log.d(TAG, "清空书签成功: " + pdfPath);
-            return true;
-        } catch (Exception e) {
-            Log.e(TAG, "清空书签失败", e);
+        if (pdfPath == null) {
             return false;
         }
+        synchronized (this) {
+            clear(pdfPath);
+            LogRecord record = new LogRecord();
+            record.op = OP_CLEAR;
+            record.pdfPath = pdfPath;
+            append(record);
+        }
+        Log.d(TAG, "清空书签成功: " + pdfPath);
+        return true;
     }
-    
+
     /**
      * 获取书签数量
      */
-    public int getBookmarkCount(String pdfPath) {
-        return getBookmarks(pdfPath).size();
+    public synchronized int getBookmarkCount(String pdfPath) {
+        BookIndex index = pdfPath != null ? books.get(pdfPath) : null;
+        return index != null ? index.byPage.size() : 0;
     }
-    
+
     /**
-     * 保存书签列表到SharedPreferences
+     * 获取所有书籍的书签，按添加或修改时间从新到旧排序
      */
-    private void saveBookmarks(String pdfPath, List<Bookmark> bookmarks) {
-        try {
-            String key = KEY_BOOKMARKS + pdfPath.hashCode();
-            String json = gson.toJson(bookmarks);
-            sharedPreferences.edit().putString(key, json).apply();
-        } catch (Exception e) {
-            Log.e(TAG, "保存书签失败", e);
-            throw e;
+    public List<Bookmark> getAllBookmarksByRecency() {
+        return getRecentBookmarks(Integer.MAX_VALUE);
+    }
+
+    /**
+     * 获取最近添加或修改的书签
+     * @param limit 最多返回的条数
+     */
+    public synchronized List<Bookmark> getRecentBookmarks(int limit) {
+        List<Bookmark> result = new ArrayList<>(Math.min(limit, recency.size()));
+        Iterator<Bookmark> iterator = recency.iterator();
+        while (iterator.hasNext() && result.size() < limit) {
+            result.add(new Bookmark(iterator.next()));
         }
+        return result;
     }
-    
+
+    /**
+     * 获取有书签的书籍及书签数量，按最近一次书签时间从新到旧排序
+     */
+    public synchronized Map<String, Integer> getBookmarkedBooks() {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (Bookmark bookmark : recency) {
+            if (!result.containsKey(bookmark.pdfPath)) {
+                result.put(bookmark.pdfPath, books.get(bookmark.pdfPath).byPage.size());
+            }
+        }
+        return result;
+    }
+
     /**
      * 导出书签数据（用于备份）
      */
     public String exportBookmarks(String pdfPath) {
         try {
-            List<Bookmark> bookmarks = getBookmarks(pdfPath);
-            return gson.toJson(bookmarks);
+            return gson.toJson(getBookmarks(pdfPath));
         } catch (Exception e) {
             Log.e(TAG, "导出书签失败", e);
             return null;
         }
     }
-    
+
     /**
-     * 导入书签数据（用于恢复）
+     * 导入书签数据（用于恢复），替换该PDF现有的书签
      */
     public boolean importBookmarks(String pdfPath, String json) {
         try {
             Type listType = new TypeToken<List<Bookmark>>(){}.getType();
             List<Bookmark> bookmarks = gson.fromJson(json, listType);
-            
+
             if (bookmarks != null) {
-                saveBookmarks(pdfPath, bookmarks);
+                synchronized (this) {
+                    clear(pdfPath);
+                    LogRecord record = new LogRecord();
+                    record.op = OP_CLEAR;
+                    record.pdfPath = pdfPath;
+                    append(record);
+                    for (Bookmark bookmark : bookmarks) {
+                        if (bookmark == null) {
+                            continue;
+                        }
+                        Bookmark imported = new Bookmark(bookmark);
+                        imported.setPdfPath(pdfPath);
+                        put(imported);
+                        appendPut(imported);
+                    }
+                }
                 Log.d(TAG, "导入书签成功，数量: " + bookmarks.size());
                 return true;
             }
@@ -280,4 +468,299 @@ public class BookmarkManager {
             return false;
         }
     }
-}
\ No newline at end of file
+
+    // ---- 内存索引，调用方持有this ----
+
+    private void put(Bookmark bookmark) {
+        BookIndex index = books.get(bookmark.pdfPath);
+        if (index == null) {
+            index = new BookIndex();
+            books.put(bookmark.pdfPath, index);
+        }
+        Bookmark previous = index.byPage.get(bookmark.pageNumber);
+        if (previous != null) {
+            recency.remove(previous);
+        }
+        index.pages.add(bookmark.pageNumber);
+        index.byPage.put(bookmark.pageNumber, bookmark);
+        recency.add(bookmark);
+    }
+
+    private boolean remove(String pdfPath, int pageNumber) {
+        BookIndex index = pdfPath != null ? books.get(pdfPath) : null;
+        Bookmark bookmark = index != null ? index.byPage.get(pageNumber) : null;
+        if (bookmark == null) {
+            return false;
+        }
+        recency.remove(bookmark);
+        index.pages.remove(pageNumber);
+        index.byPage.remove(pageNumber);
+        if (index.pages.isEmpty()) {
+            books.remove(pdfPath);
+        }
+        return true;
+    }
+
+    private void clear(String pdfPath) {
+        BookIndex index = books.remove(pdfPath);
+        if (index != null) {
+            for (int i = 0; i < index.byPage.size(); i++) {
+                recency.remove(index.byPage.valueAt(i));
+            }
+        }
+    }
+
+    private void apply(LogRecord record) {
+        if (OP_PUT.equals(record.op) && record.bookmark != null && record.bookmark.pdfPath != null) {
+            put(record.bookmark);
+        } else if (OP_REMOVE.equals(record.op)) {
+            remove(record.pdfPath, record.pageNumber);
+        } else if (OP_CLEAR.equals(record.op) && record.pdfPath != null) {
+            clear(record.pdfPath);
+        }
+    }
+
+    // ---- 持久化 ----
+
+    private void appendPut(Bookmark bookmark) {
+        LogRecord record = new LogRecord();
+        record.op = OP_PUT;
+        record.bookmark = new Bookmark(bookmark);
+        append(record);
+    }
+
+    /**
+     * 记录一条修改，在写入线程批量追加到日志，调用方持有this
+     */
+    private void append(LogRecord record) {
+        boolean schedule = pendingRecords.isEmpty();
+        pendingRecords.add(gson.toJson(record));
+        journalRecords++;
+        if (schedule) {
+            writeExecutor.execute(this::writePending);
+        }
+        if (!compactScheduled && journalRecords > COMPACT_MIN_RECORDS && journalRecords > recency.size() * 2) {
+            compactScheduled = true;
+            writeExecutor.execute(this::compact);
+        }
+    }
+
+    private void writePending() {
+        List<String> records;
+        long journalGeneration;
+        synchronized (this) {
+            if (pendingRecords.isEmpty()) {
+                return;
+            }
+            records = pendingRecords;
+            pendingRecords = new ArrayList<>();
+            journalGeneration = generation;
+        }
+        writeJournal(journalGeneration, records);
+    }
+
+    private void writeJournal(long journalGeneration, List<String> records) {
+        if (!storeDir.isDirectory() && !storeDir.mkdirs()) {
+            Log.e(TAG, "无法创建书签目录: " + storeDir);
+            return;
+        }
+        try (Writer writer = new OutputStreamWriter(
+                new FileOutputStream(journalFile(journalGeneration), true), StandardCharsets.UTF_8)) {
+            for (String record : records) {
+                writer.write(record);
+                writer.write('\n');
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "写入书签日志失败", e);
+        }
+    }
+
+    /**
+     * 把当前书签写成新一代快照并删除旧日志。
+     * 先把未写入的记录补进旧日志再切换代数，任意时刻中断都能从快照和之后的日志完整恢复。
+     */
+    private void compact() {
+        long start = System.currentTimeMillis();
+        List<String> records;
+        long oldGeneration;
+        Snapshot snapshot = new Snapshot();
+        synchronized (this) {
+            compactScheduled = false;
+            records = pendingRecords;
+            pendingRecords = new ArrayList<>();
+            oldGeneration = generation;
+            generation++;
+            journalRecords = 0;
+            snapshot.generation = generation;
+            snapshot.bookmarks = new ArrayList<>(recency.size());
+            for (Bookmark bookmark : recency) {
+                snapshot.bookmarks.add(new Bookmark(bookmark));
+            }
+        }
+
+        if (!records.isEmpty()) {
+            writeJournal(oldGeneration, records);
+        }
+        if (!writeSnapshot(snapshot)) {
+            return;
+        }
+        journalFile(oldGeneration).delete();
+        Log.d(TAG, "书签日志已压缩，书签 " + snapshot.bookmarks.size() + " 条，耗时 "
+                + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    private boolean writeSnapshot(Snapshot snapshot) {
+        if (!storeDir.isDirectory() && !storeDir.mkdirs()) {
+            Log.e(TAG, "无法创建书签目录: " + storeDir);
+            return false;
+        }
+        File target = new File(storeDir, SNAPSHOT_FILE);
+        File temp = new File(storeDir, SNAPSHOT_FILE + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8)) {
+            gson.toJson(snapshot, writer);
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "写入书签快照失败", e);
+            temp.delete();
+            return false;
+        }
+        if (!temp.renameTo(target)) {
+            Log.e(TAG, "替换书签快照失败");
+            temp.delete();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 加载快照并重放不早于快照代数的日志；首次运行时从旧版SharedPreferences迁移
+     */
+    private void load() {
+        long start = System.currentTimeMillis();
+        File snapshotFile = new File(storeDir, SNAPSHOT_FILE);
+        long snapshotGeneration = 0;
+        boolean hasStore = false;
+
+        if (snapshotFile.isFile()) {
+            hasStore = true;
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(snapshotFile), StandardCharsets.UTF_8))) {
+                Snapshot snapshot = gson.fromJson(reader, Snapshot.class);
+                if (snapshot != null) {
+                    snapshotGeneration = snapshot.generation;
+                    if (snapshot.bookmarks != null) {
+                        for (Bookmark bookmark : snapshot.bookmarks) {
+                            if (bookmark != null && bookmark.pdfPath != null) {
+                                put(bookmark);
+                            }
+                        }
+                    }
+                }
+            } catch (IOException | JsonParseException e) {
+                Log.e(TAG, "读取书签快照失败", e);
+            }
+        }
+
+        // 快照写入失败时新一代日志会接在旧日志之后，按代数顺序全部重放
+        List<Long> journalGenerations = new ArrayList<>();
+        File[] files = storeDir.listFiles((dir, name) -> name.startsWith(JOURNAL_PREFIX) && name.endsWith(JOURNAL_SUFFIX));
+        if (files != null) {
+            for (File file : files) {
+                hasStore = true;
+                long fileGeneration = parseGeneration(file.getName());
+                if (fileGeneration < snapshotGeneration) {
+                    // 压缩完成后未来得及删除的旧日志
+                    file.delete();
+                } else {
+                    journalGenerations.add(fileGeneration);
+                }
+            }
+        }
+        Collections.sort(journalGenerations);
+
+        generation = snapshotGeneration;
+        for (long journalGeneration : journalGenerations) {
+            replay(journalFile(journalGeneration));
+            generation = journalGeneration;
+        }
+
+        if (!hasStore) {
+            migrateFromPreferences();
+        }
+        Log.d(TAG, "书签加载完成，共 " + recency.size() + " 条，日志 " + journalRecords + " 条，耗时 "
+                + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    private void replay(File journal) {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(journal), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                try {
+                    LogRecord record = gson.fromJson(line, LogRecord.class);
+                    if (record != null) {
+                        apply(record);
+                        journalRecords++;
+                    }
+                } catch (JsonParseException e) {
+                    // 进程在写入中途被杀死时最后一行可能不完整
+                    Log.w(TAG, "跳过损坏的书签日志记录");
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "读取书签日志失败", e);
+        }
+    }
+
+    /**
+     * 旧版本按PDF分别保存在SharedPreferences中的JSON列表，迁移后写成快照并删除
+     */
+    private void migrateFromPreferences() {
+        Map<String, ?> all = sharedPreferences.getAll();
+        if (all.isEmpty()) {
+            return;
+        }
+        Type listType = new TypeToken<List<Bookmark>>(){}.getType();
+        SharedPreferences.Editor editor = sharedPreferences.edit();
+        for (Map.Entry<String, ?> entry : all.entrySet()) {
+            if (!entry.getKey().startsWith(KEY_BOOKMARKS) || !(entry.getValue() instanceof String)) {
+                continue;
+            }
+            try {
+                List<Bookmark> bookmarks = gson.fromJson((String) entry.getValue(), listType);
+                if (bookmarks != null) {
+                    for (Bookmark bookmark : bookmarks) {
+                        if (bookmark != null && bookmark.pdfPath != null) {
+                            put(bookmark);
+                        }
+                    }
+                }
+            } catch (JsonParseException e) {
+                Log.e(TAG, "迁移书签失败: " + entry.getKey(), e);
+            }
+            editor.remove(entry.getKey());
+        }
+
+        Snapshot snapshot = new Snapshot();
+        snapshot.generation = generation;
+        snapshot.bookmarks = new ArrayList<>(recency);
+        if (writeSnapshot(snapshot)) {
+            editor.apply();
+            Log.d(TAG, "已从旧版存储迁移书签 " + recency.size() + " 条");
+        }
+    }
+
+    private File journalFile(long journalGeneration) {
+        return new File(storeDir, JOURNAL_PREFIX + journalGeneration + JOURNAL_SUFFIX);
+    }
+
+    private static long parseGeneration(String name) {
+        try {
+            return Long.parseLong(name.substring(JOURNAL_PREFIX.length(), name.length() - JOURNAL_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -1,31 +1,59 @@
 package com.wenxing.runyitong.utils;
 
+import android.app.ActivityManager;
+import android.app.Application;
+import android.app.ApplicationExitInfo;
 import android.content.Context;
+import android.content.SharedPreferences;
 import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.os.Build;
+import android.os.Looper;
 import android.util.Log;
 
+import androidx.annotation.RequiresApi;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
-import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 /**
  * 全局异常处理器
- * 用于捕获和记录应用程序中未处理的异常
+ * 用于捕获和记录应用程序中未处理的异常。崩溃、主线程卡顿和上次运行的ANR/原生崩溃
+ * 都写成报告，并附带飞行记录器中崩溃前的事件。
  */
 public class CrashHandler implements Thread.UncaughtExceptionHandler {
     
     private static final String TAG = "CrashHandler";
     private static final String CRASH_DIR = "crashes";
+    // 卡顿报告单独存放、单独计数，频繁卡顿时不会把崩溃报告挤掉
+    private static final String STALL_DIR = "stalls";
+    private static final String STALL_PREFIX = "stall_";
+    private static final int MAX_CRASH_FILES = 10;
+    private static final int MAX_STALL_FILES = 20;
+    private static final String PREF_NAME = "crash_handler";
+    private static final String KEY_LAST_EXIT_TIMESTAMP = "last_exit_timestamp";
+    // 系统ANR trace只保留开头部分，主线程堆栈在最前面
+    private static final int MAX_TRACE_CHARS = 256 * 1024;
+    private static final String LINE = System.lineSeparator();
     
-    private static CrashHandler instance;
+    private static volatile CrashHandler instance;
     private Context context;
     private Thread.UncaughtExceptionHandler defaultHandler;
+    private MainThreadWatchdog watchdog;
     
     private CrashHandler() {}
     
@@ -48,6 +76,24 @@ public class CrashHandler implements Thread.UncaughtExceptionHandler {
         this.context = context.getApplicationContext();
         this.defaultHandler = Thread.getDefaultUncaughtExceptionHandler();
         Thread.setDefaultUncaughtExceptionHandler(this);
+        
+        // 飞行记录器先读出上次运行的事件，再开始记录本次运行
+        FlightRecorder.getInstance().init(this.context);
+        if (this.context instanceof Application) {
+            FlightRecorder.trackScreens((Application) this.context);
+        }
+        watchdog = new MainThreadWatchdog(this::onMainThreadStall);
+        watchdog.start();
+        
+        TaskScheduler.getInstance().execute(TaskScheduler.Lane.MAINTENANCE, () -> {
+            try {
+                moveLegacyStallFiles();
+                reportPreviousExit();
+            } catch (Exception e) {
+                Log.e(TAG, "Error checking previous exit", e);
+            }
+        });
+        
         Log.d(TAG, "CrashHandler initialized");
     }
     
@@ -56,15 +102,18 @@ public class CrashHandler implements Thread.UncaughtExceptionHandler {
         Log.e(TAG, "Uncaught exception in thread: " + thread.getName(), ex);
         
         try {
-            // 收集崩溃信息
-            String crashInfo = collectCrashInfo(ex);
-            
-            // 保存崩溃信息到文件
-            saveCrashInfoToFile(crashInfo);
-            
-            // 记录到系统日志
-            Log.e(TAG, "Crash info saved: " + System.lineSeparator() + crashInfo);
+            FlightRecorder.record(FlightRecorder.Category.CRASH, thread.getName() + ": " + ex.getClass().getName());
+            FlightRecorder.getInstance().sync();
             
+            // 直接流式写入文件，不在崩溃时拼接整份报告
+            writeReport(CRASH_DIR, MAX_CRASH_FILES, "crash_", writer -> {
+                writer.write("Thread: " + thread.getName() + LINE);
+                writer.write(LINE);
+                writer.write("Exception Stack Trace:" + LINE);
+                PrintWriter printWriter = new PrintWriter(writer);
+                ex.printStackTrace(printWriter);
+                printWriter.flush();
+            });
         } catch (Exception e) {
             Log.e(TAG, "Error handling crash", e);
         }
@@ -76,34 +125,172 @@ public class CrashHandler implements Thread.UncaughtExceptionHandler {
     }
     
     /**
-     * 收集崩溃信息
+     * 主线程卡顿时写入卡顿报告，包含主线程和其他线程的堆栈
      */
-    private String collectCrashInfo(Throwable ex) {
-        StringBuilder sb = new StringBuilder();
-        
-        // 时间戳
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault());
-        sb.append("Crash Time: ").append(dateFormat.format(new Date())).append(System.lineSeparator());
-        sb.append(System.lineSeparator());
+    private void onMainThreadStall(long stalledMs, StackTraceElement[] mainStack) {
+        writeReport(STALL_DIR, MAX_STALL_FILES, STALL_PREFIX, writer -> {
+            writer.write("Main thread stalled: " + stalledMs + "ms" + LINE);
+            writer.write(LINE);
+            writer.write("Main Thread Stack:" + LINE);
+            writeStack(writer, mainStack);
+            writer.write(LINE);
+            writer.write(TaskScheduler.getInstance().getStats() + LINE);
+            writer.write(LINE);
+            writer.write("Other Threads:" + LINE);
+            Thread mainThread = Looper.getMainLooper().getThread();
+            for (Map.Entry<Thread, StackTraceElement[]> entry : Thread.getAllStackTraces().entrySet()) {
+                Thread other = entry.getKey();
+                if (other == mainThread || entry.getValue().length == 0) {
+                    continue;
+                }
+                writer.write("\"" + other.getName() + "\" " + other.getState() + LINE);
+                writeStack(writer, entry.getValue());
+                writer.write(LINE);
+            }
+        });
+    }
+    
+    /**
+     * 检查上次进程退出原因（Android 11+），ANR和原生崩溃没有经过Java异常处理器，
+     * 在这里结合上次运行的飞行记录补写报告；低版本只在上次运行以未恢复的卡顿结束时补写
+     */
+    private void reportPreviousExit() {
+        FlightRecorder.PreviousSession previous = FlightRecorder.getInstance().getPreviousSession();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+            List<ApplicationExitInfo> exits = activityManager.getHistoricalProcessExitReasons(context.getPackageName(), 0, 1);
+            if (exits.isEmpty()) {
+                return;
+            }
+            ApplicationExitInfo exit = exits.get(0);
+            SharedPreferences preferences = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+            if (exit.getTimestamp() <= preferences.getLong(KEY_LAST_EXIT_TIMESTAMP, 0)) {
+                return;
+            }
+            preferences.edit().putLong(KEY_LAST_EXIT_TIMESTAMP, exit.getTimestamp()).apply();
+            if (exit.getReason() != ApplicationExitInfo.REASON_ANR
+                    && exit.getReason() != ApplicationExitInfo.REASON_CRASH_NATIVE) {
+                return;
+            }
+            String prefix = exit.getReason() == ApplicationExitInfo.REASON_ANR ? "anr_exit_" : "native_crash_";
+            writeReport(CRASH_DIR, MAX_CRASH_FILES, prefix, writer -> {
+                writer.write("Previous Exit: " + exit.getReason() + " " + exit.getDescription() + LINE);
+                writer.write("Exit Time: " + formatTime(exit.getTimestamp()) + LINE);
+                writer.write("Importance: " + exit.getImportance() + LINE);
+                writer.write(LINE);
+                writePreviousSession(writer, previous);
+                if (exit.getReason() == ApplicationExitInfo.REASON_ANR) {
+                    writeExitTrace(writer, exit);
+                }
+            });
+        } else if (previous != null && previous.getLastCategory() == FlightRecorder.Category.STALL) {
+            writeReport(CRASH_DIR, MAX_CRASH_FILES, "anr_exit_", writer -> {
+                writer.write("Previous session ended while main thread was stalled" + LINE);
+                writer.write(LINE);
+                writePreviousSession(writer, previous);
+            });
+        }
+    }
+    
+    private void writePreviousSession(Writer writer, FlightRecorder.PreviousSession previous) throws IOException {
+        writer.write("Previous Session Breadcrumbs:" + LINE);
+        if (previous == null) {
+            writer.write("(none)" + LINE);
+            return;
+        }
+        writer.write("Started: " + formatTime(previous.getStartTime()) + ", pid " + previous.getPid() + LINE);
+        for (String event : previous.getEvents()) {
+            writer.write(event + LINE);
+        }
+        writer.write(LINE);
+    }
+    
+    @RequiresApi(api = Build.VERSION_CODES.R)
+    private void writeExitTrace(Writer writer, ApplicationExitInfo exit) throws IOException {
+        try (InputStream trace = exit.getTraceInputStream()) {
+            if (trace == null) {
+                return;
+            }
+            writer.write("System ANR Trace:" + LINE);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(trace, StandardCharsets.UTF_8));
+            char[] buffer = new char[8192];
+            int total = 0;
+            int read;
+            while (total < MAX_TRACE_CHARS && (read = reader.read(buffer)) != -1) {
+                writer.write(buffer, 0, read);
+                total += read;
+            }
+        }
+    }
+    
+    /**
+     * 报告正文
+     */
+    private interface ReportBody {
+        void write(Writer writer) throws IOException;
+    }
+    
+    /**
+     * 写入一份报告：基本信息、正文和本次运行的飞行记录
+     * @param dirName 报告目录
+     * @param maxFiles 该目录保留的报告数
+     */
+    private synchronized void writeReport(String dirName, int maxFiles, String prefix, ReportBody body) {
+        try {
+            // 创建报告目录
+            File reportDir = new File(context.getFilesDir(), dirName);
+            if (!reportDir.exists()) {
+                reportDir.mkdirs();
+            }
+            
+            // 生成文件名
+            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault());
+            File reportFile = new File(reportDir, prefix + dateFormat.format(new Date()) + ".txt");
+            
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(reportFile), StandardCharsets.UTF_8))) {
+                writeBasicInfo(writer);
+                body.write(writer);
+                writer.write(LINE);
+                writer.write("Breadcrumbs:" + LINE);
+                FlightRecorder.getInstance().dump(writer);
+            }
+            
+            Log.d(TAG, "Report saved to: " + reportFile.getAbsolutePath());
+            
+            // 清理该目录下旧的报告
+            cleanOldCrashFiles(reportDir, maxFiles);
+            
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to save report", e);
+        }
+    }
+    
+    /**
+     * 写入时间、应用、设备和内存信息
+     */
+    private void writeBasicInfo(Writer writer) throws IOException {
+        writer.write("Report Time: " + formatTime(System.currentTimeMillis()) + LINE);
+        writer.write(LINE);
         
         // 应用信息
         try {
             PackageManager pm = context.getPackageManager();
-            PackageInfo pi = pm.getPackageInfo(context.getPackageName(), PackageManager.GET_ACTIVITIES);
-            sb.append("App Version: ").append(pi.versionName).append(" (").append(pi.versionCode).append(")").append(System.lineSeparator());
-            sb.append("Package Name: ").append(pi.packageName).append(System.lineSeparator());
+            PackageInfo pi = pm.getPackageInfo(context.getPackageName(), 0);
+            writer.write("App Version: " + pi.versionName + " (" + pi.versionCode + ")" + LINE);
+            writer.write("Package Name: " + pi.packageName + LINE);
         } catch (Exception e) {
-            sb.append("App Info: Unable to collect").append(System.lineSeparator());
+            writer.write("App Info: Unable to collect" + LINE);
         }
-        sb.append(System.lineSeparator());
+        writer.write(LINE);
         
         // 设备信息
-        sb.append("Device Info:").append(System.lineSeparator());
-        sb.append("Brand: ").append(Build.BRAND).append(System.lineSeparator());
-        sb.append("Model: ").append(Build.MODEL).append(System.lineSeparator());
-        sb.append("Device: ").append(Build.DEVICE).append(System.lineSeparator());
-        sb.append("Android Version: ").append(Build.VERSION.RELEASE).append(" (API ").append(Build.VERSION.SDK_INT).append(")").append(System.lineSeparator());
-        sb.append(System.lineSeparator());
+        writer.write("Device Info:" + LINE);
+        writer.write("Brand: " + Build.BRAND + LINE);
+        writer.write("Model: " + Build.MODEL + LINE);
+        writer.write("Device: " + Build.DEVICE + LINE);
+        writer.write("Android Version: " + Build.VERSION.RELEASE + " (API " + Build.VERSION.SDK_INT + ")" + LINE);
+        writer.write(LINE);
         
         // 内存信息
         Runtime runtime = Runtime.getRuntime();
@@ -112,67 +299,37 @@ public class CrashHandler implements Thread.UncaughtExceptionHandler {
         long usedMemory = totalMemory - freeMemory;
         long maxMemory = runtime.maxMemory();
         
-        sb.append("Memory Info:").append(System.lineSeparator());
-        sb.append("Used: ").append(usedMemory / 1024 / 1024).append("MB").append(System.lineSeparator());
-        sb.append("Free: ").append(freeMemory / 1024 / 1024).append("MB").append(System.lineSeparator());
-        sb.append("Total: ").append(totalMemory / 1024 / 1024).append("MB").append(System.lineSeparator());
-        sb.append("Max: ").append(maxMemory / 1024 / 1024).append("MB").append(System.lineSeparator());
-        sb.append("Usage: ").append(String.format("%.1f%%", (usedMemory * 100.0 / maxMemory))).append(System.lineSeparator());
-        sb.append(System.lineSeparator());
-        
-        // 异常堆栈
-        sb.append("Exception Stack Trace:").append(System.lineSeparator());
-        StringWriter sw = new StringWriter();
-        PrintWriter pw = new PrintWriter(sw);
-        ex.printStackTrace(pw);
-        sb.append(sw.toString());
-        
-        return sb.toString();
+        writer.write("Memory Info:" + LINE);
+        writer.write("Used: " + usedMemory / 1024 / 1024 + "MB" + LINE);
+        writer.write("Free: " + freeMemory / 1024 / 1024 + "MB" + LINE);
+        writer.write("Total: " + totalMemory / 1024 / 1024 + "MB" + LINE);
+        writer.write("Max: " + maxMemory / 1024 / 1024 + "MB" + LINE);
+        writer.write("Usage: " + String.format(Locale.US, "%.1f%%", (usedMemory * 100.0 / maxMemory)) + LINE);
+        writer.write(LINE);
     }
     
-    /**
-     * 保存崩溃信息到文件
-     */
-    private void saveCrashInfoToFile(String crashInfo) {
-        try {
-            // 创建崩溃日志目录
-            File crashDir = new File(context.getFilesDir(), CRASH_DIR);
-            if (!crashDir.exists()) {
-                crashDir.mkdirs();
-            }
-            
-            // 生成文件名
-            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault());
-            String fileName = "crash_" + dateFormat.format(new Date()) + ".txt";
-            File crashFile = new File(crashDir, fileName);
-            
-            // 写入文件
-            FileOutputStream fos = new FileOutputStream(crashFile);
-            fos.write(crashInfo.getBytes());
-            fos.close();
-            
-            Log.d(TAG, "Crash info saved to: " + crashFile.getAbsolutePath());
-            
-            // 清理旧的崩溃文件（保留最近10个）
-            cleanOldCrashFiles(crashDir);
-            
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to save crash info to file", e);
+    private static void writeStack(Writer writer, StackTraceElement[] stack) throws IOException {
+        for (StackTraceElement element : stack) {
+            writer.write("    at " + element + LINE);
         }
     }
     
+    private static String formatTime(long timeMillis) {
+        return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault()).format(new Date(timeMillis));
+    }
+    
     /**
-     * 清理旧的崩溃文件
+     * 清理旧的报告文件，保留最近maxFiles个
      */
-    private void cleanOldCrashFiles(File crashDir) {
+    private void cleanOldCrashFiles(File crashDir, int maxFiles) {
         try {
             File[] files = crashDir.listFiles();
-            if (files != null && files.length > 10) {
+            if (files != null && files.length > maxFiles) {
                 // 按修改时间排序
                 java.util.Arrays.sort(files, (f1, f2) -> Long.compare(f1.lastModified(), f2.lastModified()));
                 
                 // 删除最旧的文件
-                for (int i = 0; i < files.length - 10; i++) {
+                for (int i = 0; i < files.length - maxFiles; i++) {
                     if (files[i].delete()) {
                         Log.d(TAG, "Deleted old crash file: " + files[i].getName());
                     }
@@ -183,6 +340,27 @@ public class CrashHandler implements Thread.UncaughtExceptionHandler {
         }
     }
     
+    /**
+     * 旧版本把卡顿报告写在崩溃目录里，移到卡顿目录
+     */
+    private synchronized void moveLegacyStallFiles() {
+        File[] legacy = new File(context.getFilesDir(), CRASH_DIR)
+                .listFiles((dir, name) -> name.startsWith(STALL_PREFIX));
+        if (legacy == null || legacy.length == 0) {
+            return;
+        }
+        File stallDir = new File(context.getFilesDir(), STALL_DIR);
+        if (!stallDir.exists()) {
+            stallDir.mkdirs();
+        }
+        for (File file : legacy) {
+            if (!file.renameTo(new File(stallDir, file.getName()))) {
+                file.delete();
+            }
+        }
+        cleanOldCrashFiles(stallDir, MAX_STALL_FILES);
+    }
+    
     /**
      * 获取最近的崩溃文件
      */
@@ -0,0 +1,625 @@
+package com.wenxing.runyitong.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.pdf.PdfRenderer;
+import android.os.Build;
+import android.os.Environment;
+import android.os.FileObserver;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.ParcelFileDescriptor;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 已下载书籍目录
+ * 在本地索引Downloads/books下的PDF：路径、大小、内容摘要、页数、最近打开时间和首页封面缩略图。
+ * 书架直接读取索引，不再每次扫描目录；目录变化通过FileObserver和下载/删除回调增量同步，
+ * 只有在应用未运行期间目录被修改时才做一次对账。
+ * 先索引元数据并通知书架，封面在第二轮逐本渲染，每完成一本通知一次。
+ */
+public class DownloadedBookCatalog {
+    private static final String TAG = "DownloadedBookCatalog";
+    private static final String PREF_NAME = "downloaded_book_catalog";
+    private static final String KEY_ENTRIES = "entries";
+    private static final String KEY_DIR_LAST_MODIFIED = "dir_last_modified";
+    private static final String COVER_DIR = "book_covers";
+    private static final int COVER_WIDTH = 240;
+    private static final int COVER_QUALITY = 80;
+    // 内容摘要只读取文件头部，避免大文件整篇哈希
+    private static final int HASH_SAMPLE_BYTES = 64 * 1024;
+
+    private static volatile DownloadedBookCatalog instance;
+
+    private final Context context;
+    private final SharedPreferences sharedPreferences;
+    private final Gson gson;
+    private final ExecutorService catalogExecutor;
+    private final Handler mainHandler;
+    private final File booksDir;
+
+    // 以路径为键的索引，由this保护
+    private final Map<String, BookEntry> entries = new LinkedHashMap<>();
+    private final Set<CatalogListener> listeners = new HashSet<>();
+    private FileObserver directoryObserver;
+
+    /**
+     * 目录条目
+     */
+    public static class BookEntry {
+        private String filePath;
+        private String title;
+        private long fileSize;
+        private long lastModified;
+        private String contentHash;
+        private int pageCount;
+        private long lastOpenedTime;
+        private String coverPath;
+        // 封面文件是否已生成，由目录线程在渲染或删除封面时维护，绑定列表时不必访问文件系统
+        private volatile boolean coverReady;
+
+        public BookEntry() {}
+
+        public String getFilePath() { return filePath; }
+        public String getTitle() { return title; }
+        public long getFileSize() { return fileSize; }
+        public long getLastModified() { return lastModified; }
+        public String getContentHash() { return contentHash; }
+        public int getPageCount() { return pageCount; }
+        public long getLastOpenedTime() { return lastOpenedTime; }
+        public String getCoverPath() { return coverPath; }
+
+        public File getFile() {
+            return new File(filePath);
+        }
+
+        public File getCoverFile() {
+            return coverPath != null ? new File(coverPath) : null;
+        }
+
+        public boolean hasCover() {
+            return coverReady && coverPath != null;
+        }
+
+        // 访问文件系统，只在目录线程调用
+        boolean coverFileExists() {
+            return coverPath != null && new File(coverPath).exists();
+        }
+    }
+
+    /**
+     * 目录变化监听，在主线程回调
+     */
+    public interface CatalogListener {
+        void onCatalogChanged();
+    }
+
+    private DownloadedBookCatalog(Context context) {
+        this.context = context.getApplicationContext();
+        this.sharedPreferences = this.context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        this.gson = new Gson();
+        this.catalogExecutor = TaskScheduler.getInstance().newQueue("BookCatalog", TaskScheduler.Lane.USER_VISIBLE, 1);
+        this.mainHandler = new Handler(Looper.getMainLooper());
+        this.booksDir = new File(Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS), "books");
+        loadEntries();
+    }
+
+    public static DownloadedBookCatalog getInstance(Context context) {
+        if (instance == null) {
+            synchronized (DownloadedBookCatalog.class) {
+                if (instance == null) {
+                    instance = new DownloadedBookCatalog(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    public File getBooksDirectory() {
+        return booksDir;
+    }
+
+    /**
+     * 按最近打开时间排序的书籍文件列表，直接读取索引
+     */
+    public synchronized List<File> getBookFiles() {
+        List<BookEntry> sorted = new ArrayList<>(entries.values());
+        Collections.sort(sorted, (a, b) -> {
+            if (a.lastOpenedTime != b.lastOpenedTime) {
+                return Long.compare(b.lastOpenedTime, a.lastOpenedTime);
+            }
+            return a.title.compareTo(b.title);
+        });
+
+        List<File> files = new ArrayList<>(sorted.size());
+        for (BookEntry entry : sorted) {
+            files.add(entry.getFile());
+        }
+        return files;
+    }
+
+    public synchronized BookEntry getEntry(File file) {
+        return file != null ? entries.get(file.getAbsolutePath()) : null;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * 新书下载或生成完成后调用，后台计算元数据并渲染封面
+     */
+    public void onBookAdded(File file) {
+        if (file == null) {
+            return;
+        }
+        catalogExecutor.execute(() -> {
+            if (indexFile(file)) {
+                persistEntries();
+                notifyChanged();
+            }
+            renderMissingCovers();
+        });
+    }
+
+    /**
+     * 书籍删除后调用
+     */
+    public void onBookRemoved(File file) {
+        if (file == null) {
+            return;
+        }
+        BookEntry removed;
+        synchronized (this) {
+            removed = entries.remove(file.getAbsolutePath());
+        }
+        if (removed != null) {
+            catalogExecutor.execute(() -> {
+                deleteCover(removed);
+                persistEntries();
+            });
+            notifyChanged();
+        }
+    }
+
+    /**
+     * 记录书籍被打开
+     */
+    public void onBookOpened(File file) {
+        if (file == null) {
+            return;
+        }
+        synchronized (this) {
+            BookEntry entry = entries.get(file.getAbsolutePath());
+            if (entry == null) {
+                return;
+            }
+            entry.lastOpenedTime = System.currentTimeMillis();
+        }
+        catalogExecutor.execute(this::persistEntries);
+    }
+
+    /**
+     * 只有目录在应用之外被修改过（修改时间与记录不一致）时才对账一次
+     */
+    public void syncIfDirectoryChanged() {
+        catalogExecutor.execute(() -> {
+            long dirModified = booksDir.lastModified();
+            long recorded = sharedPreferences.getLong(KEY_DIR_LAST_MODIFIED, -1);
+            boolean needsReconcile = dirModified != recorded;
+
+            synchronized (this) {
+                // 文件本身被替换时大小或修改时间会变化
+                for (BookEntry entry : entries.values()) {
+                    File file = entry.getFile();
+                    if (!file.exists() || file.length() != entry.fileSize || file.lastModified() != entry.lastModified) {
+                        needsReconcile = true;
+                        break;
+                    }
+                }
+            }
+
+            if (needsReconcile) {
+                reconcile();
+            } else {
+                // 核对封面文件是否还在，补齐上次未完成的封面
+                boolean changed = false;
+                for (BookEntry entry : snapshotEntries()) {
+                    boolean exists = entry.coverFileExists();
+                    if (entry.coverReady != exists) {
+                        entry.coverReady = exists;
+                        changed = true;
+                    }
+                }
+                if (changed) {
+                    persistEntries();
+                    notifyChanged();
+                }
+                renderMissingCovers();
+            }
+        });
+    }
+
+    /**
+     * 开始监听书籍目录的变化
+     */
+    public synchronized void startWatching() {
+        if (directoryObserver != null) {
+            return;
+        }
+        if (!booksDir.exists()) {
+            booksDir.mkdirs();
+        }
+
+        int mask = FileObserver.CLOSE_WRITE | FileObserver.DELETE | FileObserver.MOVED_FROM | FileObserver.MOVED_TO;
+        directoryObserver = createDirectoryObserver(mask);
+        directoryObserver.startWatching();
+        Log.d(TAG, "开始监听书籍目录: " + booksDir.getAbsolutePath());
+    }
+
+    /**
+     * API 29起使用File参数的构造方法，旧构造方法只在低版本使用
+     */
+    @SuppressWarnings("deprecation")
+    private FileObserver createDirectoryObserver(int mask) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            return new FileObserver(booksDir, mask) {
+                @Override
+                public void onEvent(int event, String path) {
+                    onDirectoryEvent(event, path);
+                }
+            };
+        }
+        return new FileObserver(booksDir.getAbsolutePath(), mask) {
+            @Override
+            public void onEvent(int event, String path) {
+                onDirectoryEvent(event, path);
+            }
+        };
+    }
+
+    private void onDirectoryEvent(int event, String path) {
+        if (path == null || !path.toLowerCase(Locale.ROOT).endsWith(".pdf")) {
+            return;
+        }
+        File file = new File(booksDir, path);
+        int type = event & FileObserver.ALL_EVENTS;
+        if (type == FileObserver.DELETE || type == FileObserver.MOVED_FROM) {
+            onBookRemoved(file);
+        } else {
+            onBookAdded(file);
+        }
+    }
+
+    public synchronized void stopWatching() {
+        if (directoryObserver != null) {
+            directoryObserver.stopWatching();
+            directoryObserver = null;
+        }
+    }
+
+    public synchronized void addListener(CatalogListener listener) {
+        if (listener != null) {
+            listeners.add(listener);
+        }
+    }
+
+    public synchronized void removeListener(CatalogListener listener) {
+        listeners.remove(listener);
+    }
+
+    // 全量对账，仅在目录于应用外被修改时执行
+    private void reconcile() {
+        File[] files = booksDir.listFiles();
+        Set<String> present = new HashSet<>();
+        boolean changed = false;
+
+        if (files != null) {
+            for (File file : files) {
+                if (file.isFile() && file.getName().toLowerCase(Locale.ROOT).endsWith(".pdf")) {
+                    present.add(file.getAbsolutePath());
+                    if (indexFile(file)) {
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        List<BookEntry> removed = new ArrayList<>();
+        synchronized (this) {
+            for (String path : new ArrayList<>(entries.keySet())) {
+                if (!present.contains(path)) {
+                    removed.add(entries.remove(path));
+                }
+            }
+        }
+        for (BookEntry entry : removed) {
+            deleteCover(entry);
+            changed = true;
+        }
+
+        persistEntries();
+        if (changed) {
+            notifyChanged();
+        }
+        Log.d(TAG, "书籍目录对账完成，共 " + size() + " 本，移除 " + removed.size() + " 本");
+        renderMissingCovers();
+    }
+
+    /**
+     * 第二轮：逐本渲染缺少的封面，每完成一本保存并通知一次。在目录线程执行
+     */
+    private void renderMissingCovers() {
+        for (BookEntry entry : snapshotEntries()) {
+            if (entry.coverReady) {
+                continue;
+            }
+            synchronized (this) {
+                // 渲染期间可能已被移除或替换
+                if (entries.get(entry.filePath) != entry) {
+                    continue;
+                }
+            }
+            // 旧版本索引没有记录封面状态，封面文件已存在时不必重新渲染
+            if (entry.coverFileExists() || renderCover(entry)) {
+                entry.coverReady = true;
+                persistEntries();
+                notifyChanged();
+            }
+        }
+    }
+
+    /**
+     * 为文件建立或更新元数据索引，封面留给renderMissingCovers，返回索引是否有变化。在目录线程执行
+     */
+    private boolean indexFile(File file) {
+        if (!file.exists() || !file.isFile() || file.length() == 0 || !file.canRead()) {
+            synchronized (this) {
+                BookEntry removed = entries.remove(file.getAbsolutePath());
+                if (removed != null) {
+                    deleteCover(removed);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        String path = file.getAbsolutePath();
+        BookEntry existing;
+        synchronized (this) {
+            existing = entries.get(path);
+        }
+        if (existing != null && existing.fileSize == file.length()
+                && existing.lastModified == file.lastModified()) {
+            return false;
+        }
+
+        BookEntry entry = new BookEntry();
+        entry.filePath = path;
+        entry.title = stripExtension(file.getName());
+        entry.fileSize = file.length();
+        entry.lastModified = file.lastModified();
+        entry.contentHash = computeContentHash(file);
+        entry.lastOpenedTime = existing != null ? existing.lastOpenedTime : 0;
+
+        if (existing != null && existing.contentHash != null && existing.contentHash.equals(entry.contentHash)
+                && existing.pageCount > 0) {
+            entry.pageCount = existing.pageCount;
+            entry.coverPath = existing.coverPath;
+            entry.coverReady = existing.coverFileExists();
+        } else {
+            if (existing != null) {
+                deleteCover(existing);
+            }
+            entry.pageCount = readPageCount(file);
+        }
+
+        if (entry.pageCount <= 0) {
+            // 无法解析的PDF不进入书架
+            Log.w(TAG, "跳过无效的PDF文件: " + file.getName());
+            synchronized (this) {
+                return entries.remove(path) != null;
+            }
+        }
+
+        synchronized (this) {
+            entries.put(path, entry);
+        }
+        return true;
+    }
+
+    /**
+     * 只读取页数，不渲染页面
+     */
+    private int readPageCount(File file) {
+        try (ParcelFileDescriptor descriptor = ParcelFileDescriptor.open(file, ParcelFileDescriptor.MODE_READ_ONLY);
+             PdfRenderer renderer = new PdfRenderer(descriptor)) {
+            return renderer.getPageCount();
+        } catch (Exception e) {
+            Log.w(TAG, "读取PDF页数失败: " + file.getName(), e);
+            return 0;
+        }
+    }
+
+    /**
+     * 读取页数并渲染首页封面，返回是否成功
+     */
+    private boolean renderCover(BookEntry entry) {
+        ParcelFileDescriptor descriptor = null;
+        PdfRenderer renderer = null;
+        PdfRenderer.Page page = null;
+        Bitmap cover = null;
+        try {
+            descriptor = ParcelFileDescriptor.open(entry.getFile(), ParcelFileDescriptor.MODE_READ_ONLY);
+            renderer = new PdfRenderer(descriptor);
+            entry.pageCount = renderer.getPageCount();
+            if (entry.pageCount <= 0) {
+                return false;
+            }
+
+            page = renderer.openPage(0);
+            int width = COVER_WIDTH;
+            int height = Math.max(1, (int) ((float) page.getHeight() / page.getWidth() * width));
+            cover = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            cover.eraseColor(Color.WHITE);
+            page.render(cover, null, null, PdfRenderer.Page.RENDER_MODE_FOR_DISPLAY);
+
+            File coverFile = getCoverFile(entry);
+            try (FileOutputStream out = new FileOutputStream(coverFile)) {
+                cover.compress(Bitmap.CompressFormat.JPEG, COVER_QUALITY, out);
+            }
+            entry.coverPath = coverFile.getAbsolutePath();
+            entry.coverReady = true;
+            return true;
+        } catch (Exception | OutOfMemoryError e) {
+            Log.e(TAG, "渲染封面失败: " + entry.filePath, e);
+            return false;
+        } finally {
+            if (cover != null) {
+                cover.recycle();
+            }
+            try {
+                if (page != null) {
+                    page.close();
+                }
+                if (renderer != null) {
+                    renderer.close();
+                }
+                if (descriptor != null) {
+                    descriptor.close();
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "关闭PDF时发生错误", e);
+            }
+        }
+    }
+
+    private String computeContentHash(File file) {
+        try (InputStream in = new FileInputStream(file)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] buffer = new byte[8192];
+            int total = 0;
+            int read;
+            while (total < HASH_SAMPLE_BYTES && (read = in.read(buffer, 0, Math.min(buffer.length, HASH_SAMPLE_BYTES - total))) != -1) {
+                digest.update(buffer, 0, read);
+                total += read;
+            }
+            // 长度参与摘要，区分头部相同的文件
+            digest.update(Long.toString(file.length()).getBytes());
+
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (Exception e) {
+            Log.w(TAG, "计算文件摘要失败: " + file.getName(), e);
+            return null;
+        }
+    }
+
+    private File getCoverFile(BookEntry entry) {
+        File dir = new File(context.getFilesDir(), COVER_DIR);
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        String key = entry.contentHash != null ? entry.contentHash : Integer.toHexString(entry.filePath.hashCode());
+        return new File(dir, "cover_" + key + ".jpg");
+    }
+
+    private void deleteCover(BookEntry entry) {
+        entry.coverReady = false;
+        File cover = entry.getCoverFile();
+        if (cover == null || !cover.exists()) {
+            return;
+        }
+        // 相同内容的副本共用封面
+        synchronized (this) {
+            for (BookEntry other : entries.values()) {
+                if (other != entry && entry.coverPath.equals(other.coverPath)) {
+                    return;
+                }
+            }
+        }
+        cover.delete();
+    }
+
+    private synchronized List<BookEntry> snapshotEntries() {
+        return new ArrayList<>(entries.values());
+    }
+
+    private void loadEntries() {
+        try {
+            String json = sharedPreferences.getString(KEY_ENTRIES, null);
+            if (json == null || json.isEmpty()) {
+                return;
+            }
+            Type listType = new TypeToken<List<BookEntry>>(){}.getType();
+            List<BookEntry> list = gson.fromJson(json, listType);
+            if (list != null) {
+                synchronized (this) {
+                    for (BookEntry entry : list) {
+                        if (entry != null && entry.filePath != null) {
+                            entries.put(entry.filePath, entry);
+                        }
+                    }
+                }
+            }
+            Log.d(TAG, "加载书籍目录: " + entries.size() + " 本");
+        } catch (Exception e) {
+            Log.e(TAG, "加载书籍目录失败", e);
+        }
+    }
+
+    private void persistEntries() {
+        try {
+            String json = gson.toJson(snapshotEntries());
+            sharedPreferences.edit()
+                    .putString(KEY_ENTRIES, json)
+                    .putLong(KEY_DIR_LAST_MODIFIED, booksDir.lastModified())
+                    .apply();
+        } catch (Exception e) {
+            Log.e(TAG, "保存书籍目录失败", e);
+        }
+    }
+
+    private void notifyChanged() {
+        mainHandler.post(() -> {
+            List<CatalogListener> snapshot;
+            synchronized (this) {
+                snapshot = new ArrayList<>(listeners);
+            }
+            for (CatalogListener listener : snapshot) {
+                listener.onCatalogChanged();
+            }
+        });
+    }
+
+    private static String stripExtension(String fileName) {
+        if (fileName.toLowerCase(Locale.ROOT).endsWith(".pdf")) {
+            return fileName.substring(0, fileName.length() - 4);
+        }
+        return fileName;
+    }
+}
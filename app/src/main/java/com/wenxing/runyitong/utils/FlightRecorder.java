@@ -0,0 +1,417 @@
+package com.wenxing.runyitong.utils;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+import android.os.Bundle;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentActivity;
+import androidx.fragment.app.FragmentManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * 飞行记录器
+ * 页面切换、网络请求、图片任务等关键事件以定长记录写入预分配的环形缓冲区，
+ * 缓冲区映射到文件（mmap），进程被杀死后最近的事件仍保留在页缓存中，下次启动可读出。
+ * 写入只有一次原子自增和若干绝对位置写，不加锁、不分配对象，可在热路径上调用。
+ */
+public class FlightRecorder {
+    private static final String TAG = "FlightRecorder";
+    private static final String RECORD_DIR = "flight_recorder";
+    private static final String RECORD_FILE = "breadcrumbs.bin";
+
+    // 容量须为2的幂
+    private static final int CAPACITY = 512;
+    private static final int RECORD_SIZE = 128;
+    private static final int HEADER_SIZE = 64;
+    private static final int MAGIC = 0x46524543; // "FREC"
+    private static final int FORMAT_VERSION = 1;
+
+    // 记录内偏移
+    private static final int OFFSET_SEQUENCE = 0;
+    private static final int OFFSET_TIME = 8;
+    private static final int OFFSET_VALUE = 16;
+    private static final int OFFSET_CATEGORY = 24;
+    private static final int OFFSET_MAIN_THREAD = 25;
+    private static final int OFFSET_LENGTH = 26;
+    private static final int OFFSET_MESSAGE = 28;
+    private static final int MAX_MESSAGE_BYTES = RECORD_SIZE - OFFSET_MESSAGE;
+
+    // 头部偏移
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_VERSION = 4;
+    private static final int HEADER_CAPACITY = 8;
+    private static final int HEADER_RECORD_SIZE = 12;
+    private static final int HEADER_SESSION_START = 16;
+    private static final int HEADER_PID = 24;
+
+    /**
+     * 表示不带数值
+     */
+    public static final long NO_VALUE = Long.MIN_VALUE;
+
+    private static volatile FlightRecorder instance;
+
+    /**
+     * 事件类别
+     */
+    public enum Category {
+        LIFECYCLE("生命周期"),
+        SCREEN("页面"),
+        NETWORK("网络"),
+        IMAGE("图片"),
+        MEMORY("内存"),
+        STALL("卡顿"),
+        STALL_END("卡顿恢复"),
+        JANK("掉帧"),
+        CRASH("崩溃");
+
+        private final String displayName;
+
+        Category(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    /**
+     * 上一次运行留下的事件
+     */
+    public static class PreviousSession {
+        private final long startTime;
+        private final int pid;
+        private final List<String> events;
+        private final Category lastCategory;
+
+        PreviousSession(long startTime, int pid, List<String> events, Category lastCategory) {
+            this.startTime = startTime;
+            this.pid = pid;
+            this.events = events;
+            this.lastCategory = lastCategory;
+        }
+
+        public long getStartTime() { return startTime; }
+        public int getPid() { return pid; }
+        public List<String> getEvents() { return events; }
+        public Category getLastCategory() { return lastCategory; }
+    }
+
+    private final AtomicLong sequence = new AtomicLong(0);
+    private final Thread mainThread = Looper.getMainLooper().getThread();
+    private volatile ByteBuffer buffer;
+    private boolean memoryMapped;
+    private PreviousSession previousSession;
+
+    private FlightRecorder() {}
+
+    public static FlightRecorder getInstance() {
+        if (instance == null) {
+            synchronized (FlightRecorder.class) {
+                if (instance == null) {
+                    instance = new FlightRecorder();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 映射记录文件，先读出上次运行的事件再清空，之后才开始记录
+     */
+    public synchronized void init(Context context) {
+        if (buffer != null) {
+            return;
+        }
+        ByteBuffer mapped = null;
+        File dir = new File(context.getApplicationContext().getFilesDir(), RECORD_DIR);
+        if (dir.isDirectory() || dir.mkdirs()) {
+            try (RandomAccessFile file = new RandomAccessFile(new File(dir, RECORD_FILE), "rw");
+                 FileChannel channel = file.getChannel()) {
+                // 映射在通道关闭后仍然有效
+                MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) CAPACITY * RECORD_SIZE);
+                mapped = map;
+                memoryMapped = true;
+            } catch (IOException e) {
+                Log.e(TAG, "映射记录文件失败，只在内存中记录", e);
+            }
+        }
+        if (mapped == null) {
+            mapped = ByteBuffer.allocate(HEADER_SIZE + CAPACITY * RECORD_SIZE);
+        }
+
+        previousSession = readSession(mapped);
+        resetSession(mapped);
+        buffer = mapped;
+        record(Category.LIFECYCLE, "进程启动", android.os.Process.myPid());
+    }
+
+    /**
+     * 记录事件，未初始化时忽略。message应尽量使用常量，数值通过value传入避免拼接字符串
+     */
+    public static void record(Category category, String message) {
+        getInstance().append(category, message, NO_VALUE);
+    }
+
+    public static void record(Category category, String message, long value) {
+        getInstance().append(category, message, value);
+    }
+
+    private void append(Category category, String message, long value) {
+        ByteBuffer target = buffer;
+        if (target == null) {
+            return;
+        }
+        long seq = sequence.incrementAndGet();
+        int base = HEADER_SIZE + (int) (seq & (CAPACITY - 1)) * RECORD_SIZE;
+
+        // 先作废序号，写完内容后再写入序号，读取方据此判断记录是否完整
+        target.putLong(base + OFFSET_SEQUENCE, 0);
+        target.putLong(base + OFFSET_TIME, System.currentTimeMillis());
+        target.putLong(base + OFFSET_VALUE, value);
+        target.put(base + OFFSET_CATEGORY, (byte) category.ordinal());
+        target.put(base + OFFSET_MAIN_THREAD, (byte) (Thread.currentThread() == mainThread ? 1 : 0));
+        int length = encode(target, base + OFFSET_MESSAGE, message);
+        target.putShort(base + OFFSET_LENGTH, (short) length);
+        target.putLong(base + OFFSET_SEQUENCE, seq);
+    }
+
+    /**
+     * 按UTF-8写入消息，超长截断，不分配对象
+     */
+    private static int encode(ByteBuffer target, int offset, String message) {
+        if (message == null) {
+            return 0;
+        }
+        int position = 0;
+        for (int i = 0; i < message.length(); i++) {
+            char c = message.charAt(i);
+            if (c < 0x80) {
+                if (position + 1 > MAX_MESSAGE_BYTES) break;
+                target.put(offset + position++, (byte) c);
+            } else if (c < 0x800) {
+                if (position + 2 > MAX_MESSAGE_BYTES) break;
+                target.put(offset + position++, (byte) (0xC0 | (c >> 6)));
+                target.put(offset + position++, (byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                // 截断时不拆分代理对，统一替换为问号
+                if (position + 1 > MAX_MESSAGE_BYTES) break;
+                target.put(offset + position++, (byte) '?');
+                if (Character.isHighSurrogate(c) && i + 1 < message.length() && Character.isLowSurrogate(message.charAt(i + 1))) {
+                    i++;
+                }
+            } else {
+                if (position + 3 > MAX_MESSAGE_BYTES) break;
+                target.put(offset + position++, (byte) (0xE0 | (c >> 12)));
+                target.put(offset + position++, (byte) (0x80 | ((c >> 6) & 0x3F)));
+                target.put(offset + position++, (byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        return position;
+    }
+
+    /**
+     * 把映射的页面刷到文件，崩溃时调用，正常情况下由系统回写
+     */
+    public void sync() {
+        ByteBuffer target = buffer;
+        if (memoryMapped && target instanceof MappedByteBuffer) {
+            ((MappedByteBuffer) target).force();
+        }
+    }
+
+    /**
+     * 上一次运行的事件，没有时返回null
+     */
+    public PreviousSession getPreviousSession() {
+        return previousSession;
+    }
+
+    /**
+     * 按时间顺序输出当前运行的事件，用于崩溃和卡顿报告
+     */
+    public void dump(Writer writer) throws IOException {
+        ByteBuffer source = buffer;
+        if (source == null) {
+            writer.write("(飞行记录器未初始化)\n");
+            return;
+        }
+        for (String line : readEvents(source, null)) {
+            writer.write(line);
+            writer.write('\n');
+        }
+    }
+
+    /**
+     * 记录Activity和Fragment的可见切换
+     */
+    public static void trackScreens(Application application) {
+        FragmentManager.FragmentLifecycleCallbacks fragmentCallbacks = new FragmentManager.FragmentLifecycleCallbacks() {
+            @Override
+            public void onFragmentResumed(@NonNull FragmentManager fm, @NonNull Fragment fragment) {
+                record(Category.SCREEN, fragment.getClass().getSimpleName() + " 可见");
+            }
+
+            @Override
+            public void onFragmentPaused(@NonNull FragmentManager fm, @NonNull Fragment fragment) {
+                record(Category.SCREEN, fragment.getClass().getSimpleName() + " 离开");
+            }
+        };
+
+        application.registerActivityLifecycleCallbacks(new Application.ActivityLifecycleCallbacks() {
+            @Override
+            public void onActivityCreated(@NonNull Activity activity, Bundle savedInstanceState) {
+                record(Category.SCREEN, activity.getClass().getSimpleName() + " 创建");
+                if (activity instanceof FragmentActivity) {
+                    ((FragmentActivity) activity).getSupportFragmentManager()
+                            .registerFragmentLifecycleCallbacks(fragmentCallbacks, true);
+                }
+            }
+
+            @Override
+            public void onActivityStarted(@NonNull Activity activity) {
+            }
+
+            @Override
+            public void onActivityResumed(@NonNull Activity activity) {
+                record(Category.SCREEN, activity.getClass().getSimpleName() + " 可见");
+            }
+
+            @Override
+            public void onActivityPaused(@NonNull Activity activity) {
+                record(Category.SCREEN, activity.getClass().getSimpleName() + " 离开");
+            }
+
+            @Override
+            public void onActivityStopped(@NonNull Activity activity) {
+            }
+
+            @Override
+            public void onActivitySaveInstanceState(@NonNull Activity activity, @NonNull Bundle outState) {
+            }
+
+            @Override
+            public void onActivityDestroyed(@NonNull Activity activity) {
+                record(Category.SCREEN, activity.getClass().getSimpleName() + " 销毁");
+            }
+        });
+    }
+
+    /**
+     * 网络请求拦截器，记录方法、路径和状态码，数值为耗时毫秒
+     */
+    public static Interceptor networkInterceptor() {
+        return chain -> {
+            Request request = chain.request();
+            String path = request.method() + " " + request.url().encodedPath();
+            long start = SystemClock.uptimeMillis();
+            record(Category.NETWORK, path);
+            try {
+                Response response = chain.proceed(request);
+                record(Category.NETWORK, path + " -> " + response.code(), SystemClock.uptimeMillis() - start);
+                return response;
+            } catch (IOException e) {
+                record(Category.NETWORK, path + " 失败: " + e.getClass().getSimpleName(), SystemClock.uptimeMillis() - start);
+                throw e;
+            }
+        };
+    }
+
+    private PreviousSession readSession(ByteBuffer source) {
+        if (source.getInt(HEADER_MAGIC) != MAGIC || source.getInt(HEADER_VERSION) != FORMAT_VERSION
+                || source.getInt(HEADER_CAPACITY) != CAPACITY || source.getInt(HEADER_RECORD_SIZE) != RECORD_SIZE) {
+            return null;
+        }
+        Category[] lastCategory = new Category[1];
+        List<String> events = readEvents(source, lastCategory);
+        if (events.isEmpty()) {
+            return null;
+        }
+        return new PreviousSession(source.getLong(HEADER_SESSION_START), (int) source.getLong(HEADER_PID),
+                events, lastCategory[0]);
+    }
+
+    private void resetSession(ByteBuffer target) {
+        target.putInt(HEADER_MAGIC, MAGIC);
+        target.putInt(HEADER_VERSION, FORMAT_VERSION);
+        target.putInt(HEADER_CAPACITY, CAPACITY);
+        target.putInt(HEADER_RECORD_SIZE, RECORD_SIZE);
+        target.putLong(HEADER_SESSION_START, System.currentTimeMillis());
+        target.putLong(HEADER_PID, android.os.Process.myPid());
+        for (int slot = 0; slot < CAPACITY; slot++) {
+            target.putLong(HEADER_SIZE + slot * RECORD_SIZE + OFFSET_SEQUENCE, 0);
+        }
+    }
+
+    /**
+     * 读出完整的记录并按序号排序，只在报告时调用
+     */
+    private static List<String> readEvents(ByteBuffer source, Category[] lastCategory) {
+        long[] sequences = new long[CAPACITY];
+        int count = 0;
+        for (int slot = 0; slot < CAPACITY; slot++) {
+            long seq = source.getLong(HEADER_SIZE + slot * RECORD_SIZE + OFFSET_SEQUENCE);
+            if (seq > 0 && (seq & (CAPACITY - 1)) == slot) {
+                sequences[count++] = seq;
+            }
+        }
+        long[] ordered = Arrays.copyOf(sequences, count);
+        Arrays.sort(ordered);
+
+        SimpleDateFormat format = new SimpleDateFormat("MM-dd HH:mm:ss.SSS", Locale.getDefault());
+        Category[] categories = Category.values();
+        List<String> events = new ArrayList<>(count);
+        for (long seq : ordered) {
+            int base = HEADER_SIZE + (int) (seq & (CAPACITY - 1)) * RECORD_SIZE;
+            int categoryIndex = source.get(base + OFFSET_CATEGORY);
+            Category category = categoryIndex >= 0 && categoryIndex < categories.length
+                    ? categories[categoryIndex] : Category.LIFECYCLE;
+            int length = Math.max(0, Math.min(MAX_MESSAGE_BYTES, source.getShort(base + OFFSET_LENGTH)));
+            byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) {
+                bytes[i] = source.get(base + OFFSET_MESSAGE + i);
+            }
+            long value = source.getLong(base + OFFSET_VALUE);
+
+            StringBuilder line = new StringBuilder();
+            line.append(format.format(new Date(source.getLong(base + OFFSET_TIME))))
+                    .append(source.get(base + OFFSET_MAIN_THREAD) == 1 ? " [主] " : " [后] ")
+                    .append('[').append(category.getDisplayName()).append("] ")
+                    .append(new String(bytes, StandardCharsets.UTF_8));
+            if (value != NO_VALUE) {
+                line.append(" (").append(value).append(')');
+            }
+            events.add(line.toString());
+            if (lastCategory != null) {
+                lastCategory[0] = category;
+            }
+        }
+        return events;
+    }
+}
@@ -0,0 +1,450 @@
+package com.wenxing.runyitong.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ColorMatrix;
+import android.graphics.ColorMatrixColorFilter;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.net.Uri;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * 非破坏性图片编辑会话
+ * 只记录编辑步骤，不修改原图。渲染时把所有几何步骤合成为一个Matrix、
+ * 所有颜色步骤合成为一个ColorMatrix，一次绘制完成。
+ * 预览使用缓存的屏幕分辨率解码结果，导出时才解码一次、编码一次。
+ * 导出只区域解码编辑结果实际用到的原图区域，裁剪舌面、面部等小区域时保留原图细节。
+ * 所有坐标都基于按EXIF方向摆正后的画面。
+ */
+public class ImageEditSession {
+    private static final String TAG = "ImageEditSession";
+    // 导出结果最长边
+    private static final int MAX_EXPORT_SIDE = 1920;
+
+    /**
+     * 单个编辑步骤
+     * BRIGHTNESS的value为亮度偏移（-1~1），CONTRAST的value为对比度倍数，
+     * CROP的cropRect为相对当前画面的归一化矩形（0~1）
+     */
+    public static class EditStep {
+        private final ImageUtils.EditOperation operation;
+        private final float value;
+        private final RectF cropRect;
+
+        private EditStep(ImageUtils.EditOperation operation, float value, RectF cropRect) {
+            this.operation = operation;
+            this.value = value;
+            this.cropRect = cropRect;
+        }
+
+        public static EditStep of(ImageUtils.EditOperation operation) {
+            return new EditStep(operation, 0f, null);
+        }
+
+        public static EditStep brightness(float delta) {
+            return new EditStep(ImageUtils.EditOperation.BRIGHTNESS, Math.max(-1f, Math.min(1f, delta)), null);
+        }
+
+        public static EditStep contrast(float scale) {
+            return new EditStep(ImageUtils.EditOperation.CONTRAST, Math.max(0f, scale), null);
+        }
+
+        public static EditStep crop(RectF normalizedRect) {
+            RectF rect = new RectF(
+                    clamp01(normalizedRect.left), clamp01(normalizedRect.top),
+                    clamp01(normalizedRect.right), clamp01(normalizedRect.bottom));
+            return new EditStep(ImageUtils.EditOperation.CROP, 0f, rect);
+        }
+
+        public ImageUtils.EditOperation getOperation() { return operation; }
+        public float getValue() { return value; }
+        public RectF getCropRect() { return cropRect; }
+
+        private static float clamp01(float value) {
+            return Math.max(0f, Math.min(1f, value));
+        }
+    }
+
+    /**
+     * 导出回调，在图片处理线程回调
+     */
+    public interface ExportCallback {
+        void onExported(Uri editedUri);
+        void onError(String error);
+    }
+
+    private final Uri sourceUri;
+    private final List<EditStep> steps = new ArrayList<>();
+
+    // 预览源图只在图片处理线程访问
+    private Bitmap previewSource;
+    private int previewMaxWidth;
+    private int previewMaxHeight;
+    private Future<?> previewTask;
+
+    public ImageEditSession(Uri sourceUri) {
+        if (sourceUri == null) {
+            throw new IllegalArgumentException("sourceUri不能为空");
+        }
+        this.sourceUri = sourceUri;
+    }
+
+    public Uri getSourceUri() {
+        return sourceUri;
+    }
+
+    public synchronized void addEdit(ImageUtils.EditOperation operation) {
+        switch (operation) {
+            case BRIGHTNESS:
+            case CONTRAST:
+            case CROP:
+                throw new IllegalArgumentException(operation + " 需要参数，请使用addStep");
+            default:
+                steps.add(EditStep.of(operation));
+                break;
+        }
+    }
+
+    public synchronized void addStep(EditStep step) {
+        if (step.getOperation() == ImageUtils.EditOperation.CROP
+                && (step.getCropRect().width() <= 0 || step.getCropRect().height() <= 0)) {
+            Log.w(TAG, "忽略无效的裁剪区域: " + step.getCropRect());
+            return;
+        }
+        steps.add(step);
+    }
+
+    public synchronized boolean undo() {
+        if (steps.isEmpty()) {
+            return false;
+        }
+        steps.remove(steps.size() - 1);
+        return true;
+    }
+
+    public synchronized void reset() {
+        steps.clear();
+    }
+
+    public synchronized boolean hasEdits() {
+        return !steps.isEmpty();
+    }
+
+    public synchronized int getEditCount() {
+        return steps.size();
+    }
+
+    /**
+     * 只有裁剪步骤时，返回合成后相对原图（按EXIF摆正）的归一化区域，
+     * 上传时可直接区域解码，不必先导出整张编辑结果；有其他步骤或没有编辑时返回null
+     */
+    public synchronized RectF getCropOnlyRegion() {
+        if (steps.isEmpty()) {
+            return null;
+        }
+        RectF region = new RectF(0f, 0f, 1f, 1f);
+        for (EditStep step : steps) {
+            if (step.getOperation() != ImageUtils.EditOperation.CROP) {
+                return null;
+            }
+            RectF crop = step.getCropRect();
+            float width = region.width();
+            float height = region.height();
+            region.set(region.left + crop.left * width, region.top + crop.top * height,
+                    region.left + crop.right * width, region.top + crop.bottom * height);
+        }
+        return region;
+    }
+
+    private synchronized List<EditStep> snapshotSteps() {
+        return new ArrayList<>(steps);
+    }
+
+    /**
+     * 按屏幕分辨率异步渲染预览，源图只解码一次并在会话内复用
+     * @param callback 在图片处理线程回调；结果用完后可通过ImageUtils.releaseBitmap归还
+     */
+    public Future<?> renderPreviewAsync(Context context, int maxWidth, int maxHeight, ImageUtils.ImageProcessCallback callback) {
+        if (previewTask != null && !previewTask.isDone()) {
+            // 新的预览覆盖未完成的旧预览
+            previewTask.cancel(true);
+        }
+
+        final Context appContext = context.getApplicationContext();
+        final List<EditStep> snapshot = snapshotSteps();
+        previewTask = ImageUtils.submitImageTask(() -> {
+            try {
+                Bitmap source = getPreviewSource(appContext, maxWidth, maxHeight);
+                if (source == null) {
+                    callback.onError("无法加载图片");
+                    return;
+                }
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+
+                Bitmap preview = render(source, snapshot, true);
+                if (Thread.currentThread().isInterrupted()) {
+                    ImageUtils.releaseBitmap(preview);
+                    return;
+                }
+                callback.onSuccess(preview);
+            } catch (Exception | OutOfMemoryError e) {
+                Log.e(TAG, "渲染预览失败", e);
+                BitmapPool.getInstance().clear();
+                callback.onError("渲染预览失败: " + e.getMessage());
+            }
+        });
+        return previewTask;
+    }
+
+    /**
+     * 异步导出完整分辨率结果
+     */
+    public Future<?> exportAsync(Context context, ExportCallback callback) {
+        final Context appContext = context.getApplicationContext();
+        return ImageUtils.submitImageTask(() -> {
+            Uri editedUri = exportBlocking(appContext);
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            if (editedUri != null) {
+                callback.onExported(editedUri);
+            } else {
+                callback.onError("导出编辑后的图片失败");
+            }
+        });
+    }
+
+    /**
+     * 同步导出：解码一次、应用合成后的变换一次、编码一次
+     * @return 编辑后图片的Uri，没有编辑时返回原图Uri，失败返回null
+     */
+    public Uri exportBlocking(Context context) {
+        List<EditStep> snapshot = snapshotSteps();
+        if (snapshot.isEmpty()) {
+            return sourceUri;
+        }
+
+        Bitmap regionBitmap = null;
+        Bitmap result = null;
+        try (ImageRegionDecoder regionDecoder = ImageRegionDecoder.open(context, sourceUri)) {
+            long start = System.currentTimeMillis();
+            Geometry geometry = computeGeometry(regionDecoder.getWidth(), regionDecoder.getHeight(), snapshot);
+
+            // 反推结果画面对应的原图区域，只解码这一块
+            RectF sourceBounds = new RectF(0, 0, geometry.width, geometry.height);
+            Matrix inverse = new Matrix();
+            if (!geometry.matrix.invert(inverse)) {
+                return null;
+            }
+            inverse.mapRect(sourceBounds);
+            Rect region = new Rect();
+            sourceBounds.roundOut(region);
+            if (!region.intersect(0, 0, regionDecoder.getWidth(), regionDecoder.getHeight())) {
+                Log.w(TAG, "编辑结果为空区域");
+                return null;
+            }
+
+            float outputLongest = Math.max(geometry.width, geometry.height);
+            float regionLongest = Math.max(region.width(), region.height());
+            int maxRegionSide = Math.round(MAX_EXPORT_SIDE * regionLongest / Math.max(1f, outputLongest));
+            int sampleSize = ImageRegionDecoder.computeSampleSize(region.width(), region.height(), maxRegionSide);
+            regionBitmap = regionDecoder.decodeRegion(region, sampleSize);
+            if (regionBitmap == null) {
+                return null;
+            }
+
+            // 区域位图坐标 -> 原图坐标 -> 编辑后坐标 -> 按采样率缩小
+            float scale = region.width() / (float) regionBitmap.getWidth();
+            Matrix drawMatrix = new Matrix();
+            drawMatrix.setScale(scale, scale);
+            drawMatrix.postTranslate(region.left, region.top);
+            drawMatrix.postConcat(geometry.matrix);
+            drawMatrix.postScale(1f / scale, 1f / scale);
+            result = draw(regionBitmap, drawMatrix,
+                    Math.max(1, Math.round(geometry.width / scale)),
+                    Math.max(1, Math.round(geometry.height / scale)),
+                    geometry);
+            ImageUtils.releaseBitmap(regionBitmap);
+            regionBitmap = null;
+
+            Uri editedUri = ImageUtils.saveBitmapToUri(context, result, "edited_image_" + System.currentTimeMillis());
+            Log.d(TAG, "导出 " + snapshot.size() + " 步编辑，解码区域 " + region.toShortString()
+                    + " 采样率 " + sampleSize + "，耗时 " + (System.currentTimeMillis() - start) + "ms");
+            return editedUri;
+        } catch (Exception | OutOfMemoryError e) {
+            Log.e(TAG, "导出编辑结果失败", e);
+            BitmapPool.getInstance().clear();
+            return null;
+        } finally {
+            ImageUtils.releaseBitmap(regionBitmap);
+            ImageUtils.releaseBitmap(result);
+        }
+    }
+
+    /**
+     * 释放缓存的预览源图
+     */
+    public void release() {
+        if (previewTask != null && !previewTask.isDone()) {
+            previewTask.cancel(true);
+        }
+        ImageUtils.submitImageTask(() -> {
+            ImageUtils.releaseBitmap(previewSource);
+            previewSource = null;
+        });
+    }
+
+    private Bitmap getPreviewSource(Context context, int maxWidth, int maxHeight) throws java.io.IOException {
+        if (previewSource != null && !previewSource.isRecycled()
+                && previewMaxWidth == maxWidth && previewMaxHeight == maxHeight) {
+            return previewSource;
+        }
+
+        ImageUtils.releaseBitmap(previewSource);
+        previewSource = null;
+        // 预览与导出使用同样按EXIF摆正的画面，裁剪坐标才能对应
+        try (ImageRegionDecoder regionDecoder = ImageRegionDecoder.open(context, sourceUri)) {
+            previewSource = regionDecoder.decodeOverview(Math.max(maxWidth, maxHeight));
+        }
+        previewMaxWidth = maxWidth;
+        previewMaxHeight = maxHeight;
+        return previewSource;
+    }
+
+    /**
+     * 按编辑步骤渲染，结果为位图池中的新位图
+     */
+    static Bitmap render(Bitmap source, List<EditStep> steps) {
+        return render(source, steps, false);
+    }
+
+    private static Bitmap render(Bitmap source, List<EditStep> steps, boolean keepSource) {
+        if (steps.isEmpty()) {
+            if (!keepSource) {
+                return source;
+            }
+            Bitmap copy = BitmapPool.getInstance().get(source.getWidth(), source.getHeight(), Bitmap.Config.ARGB_8888);
+            new Canvas(copy).drawBitmap(source, 0, 0, null);
+            return copy;
+        }
+
+        Geometry geometry = computeGeometry(source.getWidth(), source.getHeight(), steps);
+        return draw(source, geometry.matrix,
+                Math.max(1, Math.round(geometry.width)), Math.max(1, Math.round(geometry.height)), geometry);
+    }
+
+    /**
+     * 合成后的编辑变换
+     */
+    private static class Geometry {
+        final Matrix matrix = new Matrix();
+        final ColorMatrix colorMatrix = new ColorMatrix();
+        boolean hasColorStep;
+        float width;
+        float height;
+    }
+
+    /**
+     * 把编辑步骤合成为一个Matrix和一个ColorMatrix
+     */
+    private static Geometry computeGeometry(float sourceWidth, float sourceHeight, List<EditStep> steps) {
+        Geometry geometry = new Geometry();
+        float width = sourceWidth;
+        float height = sourceHeight;
+        Matrix matrix = geometry.matrix;
+        ColorMatrix colorMatrix = geometry.colorMatrix;
+
+        // 每一步都作用在上一步的输出画面上，平移保证结果落在画布内
+        for (EditStep step : steps) {
+            switch (step.getOperation()) {
+                case ROTATE_90_CW: {
+                    matrix.postRotate(90);
+                    matrix.postTranslate(height, 0);
+                    float swap = width;
+                    width = height;
+                    height = swap;
+                    break;
+                }
+                case ROTATE_90_CCW: {
+                    matrix.postRotate(-90);
+                    matrix.postTranslate(0, width);
+                    float swap = width;
+                    width = height;
+                    height = swap;
+                    break;
+                }
+                case FLIP_HORIZONTAL:
+                    matrix.postScale(-1, 1);
+                    matrix.postTranslate(width, 0);
+                    break;
+                case FLIP_VERTICAL:
+                    matrix.postScale(1, -1);
+                    matrix.postTranslate(0, height);
+                    break;
+                case CROP: {
+                    RectF crop = step.getCropRect();
+                    matrix.postTranslate(-crop.left * width, -crop.top * height);
+                    width = crop.width() * width;
+                    height = crop.height() * height;
+                    break;
+                }
+                case BRIGHTNESS: {
+                    float offset = step.getValue() * 255f;
+                    colorMatrix.postConcat(new ColorMatrix(new float[]{
+                            1, 0, 0, 0, offset,
+                            0, 1, 0, 0, offset,
+                            0, 0, 1, 0, offset,
+                            0, 0, 0, 1, 0}));
+                    geometry.hasColorStep = true;
+                    break;
+                }
+                case CONTRAST: {
+                    float scale = step.getValue();
+                    float translate = (1f - scale) * 128f;
+                    colorMatrix.postConcat(new ColorMatrix(new float[]{
+                            scale, 0, 0, 0, translate,
+                            0, scale, 0, 0, translate,
+                            0, 0, scale, 0, translate,
+                            0, 0, 0, 1, 0}));
+                    geometry.hasColorStep = true;
+                    break;
+                }
+            }
+        }
+
+        geometry.width = width;
+        geometry.height = height;
+        return geometry;
+    }
+
+    /**
+     * 一次绘制到位图池中的目标位图
+     */
+    private static Bitmap draw(Bitmap source, Matrix matrix, int targetWidth, int targetHeight, Geometry geometry) {
+        Bitmap target = BitmapPool.getInstance().get(targetWidth, targetHeight, Bitmap.Config.ARGB_8888);
+        target.eraseColor(Color.TRANSPARENT);
+
+        Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+        if (geometry.hasColorStep) {
+            paint.setColorFilter(new ColorMatrixColorFilter(geometry.colorMatrix));
+        }
+        new Canvas(target).drawBitmap(source, matrix, paint);
+        return target;
+    }
+
+    static List<EditStep> singleStep(ImageUtils.EditOperation operation) {
+        return Collections.singletonList(EditStep.of(operation));
+    }
+}
@@ -0,0 +1,267 @@
+package com.wenxing.runyitong.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 本地图片质量检测
+ * 在约256像素的缩略图上计算拉普拉斯方差（模糊）、亮度直方图（曝光）和主体覆盖率，
+ * 舌诊、面诊上传前先在本地拦截明显不合格的照片，避免浪费一次AI分析。
+ */
+public class ImageQualityAnalyzer {
+    private static final String TAG = "ImageQualityAnalyzer";
+
+    // 分析用缩略图最长边
+    private static final int ANALYSIS_LONG_SIDE = 256;
+
+    // 拉普拉斯方差阈值
+    private static final double BLUR_REJECT = 40;
+    private static final double BLUR_WARN = 100;
+    // 亮度阈值
+    private static final int DARK_LEVEL = 20;
+    private static final int BRIGHT_LEVEL = 245;
+    private static final double MEAN_DARK_REJECT = 40;
+    private static final double MEAN_DARK_WARN = 70;
+    private static final double CLIPPED_REJECT = 0.45;
+    private static final double CLIPPED_WARN = 0.2;
+    // 主体覆盖率阈值
+    private static final double COVERAGE_REJECT = 0.05;
+    private static final double COVERAGE_WARN = 0.15;
+
+    /**
+     * 拍摄主体
+     */
+    public enum Subject {
+        TONGUE("舌面"),
+        FACE("面部");
+
+        private final String displayName;
+
+        Subject(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    /**
+     * 检测结论
+     */
+    public enum Verdict {
+        PASS,
+        WARN,
+        REJECT
+    }
+
+    /**
+     * 检测报告
+     */
+    public static class QualityReport {
+        private final Verdict verdict;
+        private final List<String> issues;
+        private final double sharpness;
+        private final double meanLuminance;
+        private final double darkRatio;
+        private final double brightRatio;
+        private final double coverage;
+        private final long elapsedMs;
+
+        QualityReport(Verdict verdict, List<String> issues, double sharpness, double meanLuminance,
+                      double darkRatio, double brightRatio, double coverage, long elapsedMs) {
+            this.verdict = verdict;
+            this.issues = Collections.unmodifiableList(issues);
+            this.sharpness = sharpness;
+            this.meanLuminance = meanLuminance;
+            this.darkRatio = darkRatio;
+            this.brightRatio = brightRatio;
+            this.coverage = coverage;
+            this.elapsedMs = elapsedMs;
+        }
+
+        public Verdict getVerdict() { return verdict; }
+        public List<String> getIssues() { return issues; }
+        public double getSharpness() { return sharpness; }
+        public double getMeanLuminance() { return meanLuminance; }
+        public double getDarkRatio() { return darkRatio; }
+        public double getBrightRatio() { return brightRatio; }
+        public double getCoverage() { return coverage; }
+        public long getElapsedMs() { return elapsedMs; }
+
+        /**
+         * 面向用户的问题描述，每条一行
+         */
+        public String getIssuesText() {
+            StringBuilder builder = new StringBuilder();
+            for (String issue : issues) {
+                if (builder.length() > 0) {
+                    builder.append('\n');
+                }
+                builder.append("• ").append(issue);
+            }
+            return builder.toString();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s 清晰度=%.1f 平均亮度=%.1f 欠曝=%.2f 过曝=%.2f 覆盖率=%.2f 耗时=%dms",
+                    verdict, sharpness, meanLuminance, darkRatio, brightRatio, coverage, elapsedMs);
+        }
+    }
+
+    private ImageQualityAnalyzer() {
+    }
+
+    /**
+     * 检测图片质量，需在后台线程调用
+     */
+    public static QualityReport analyze(Context context, Uri imageUri, Subject subject) throws IOException {
+        long start = System.currentTimeMillis();
+        Bitmap frame;
+        try (ImageRegionDecoder regionDecoder = ImageRegionDecoder.open(context, imageUri)) {
+            frame = regionDecoder.decodeOverview(ANALYSIS_LONG_SIDE);
+        } catch (IOException e) {
+            frame = ImageUtils.decodeSampled(context, imageUri, ANALYSIS_LONG_SIDE, ANALYSIS_LONG_SIDE);
+        }
+        if (frame == null) {
+            throw new IOException("无法解码图片: " + imageUri);
+        }
+        try {
+            QualityReport report = analyze(frame, subject, start);
+            Log.d(TAG, subject + ": " + report);
+            return report;
+        } finally {
+            ImageUtils.releaseBitmap(frame);
+        }
+    }
+
+    private static QualityReport analyze(Bitmap frame, Subject subject, long start) {
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        int[] pixels = new int[width * height];
+        frame.getPixels(pixels, 0, width, 0, 0, width, height);
+
+        int[] luma = new int[pixels.length];
+        int[] histogram = new int[256];
+        long lumaSum = 0;
+        int subjectPixels = 0;
+        for (int i = 0; i < pixels.length; i++) {
+            int color = pixels[i];
+            int r = (color >> 16) & 0xFF;
+            int g = (color >> 8) & 0xFF;
+            int b = color & 0xFF;
+            int y = (77 * r + 150 * g + 29 * b) >> 8;
+            luma[i] = y;
+            histogram[y]++;
+            lumaSum += y;
+            if (isSubjectPixel(r, g, b, subject)) {
+                subjectPixels++;
+            }
+        }
+
+        int total = pixels.length;
+        double meanLuminance = lumaSum / (double) total;
+        int dark = 0;
+        for (int level = 0; level <= DARK_LEVEL; level++) {
+            dark += histogram[level];
+        }
+        int bright = 0;
+        for (int level = BRIGHT_LEVEL; level < 256; level++) {
+            bright += histogram[level];
+        }
+        double darkRatio = dark / (double) total;
+        double brightRatio = bright / (double) total;
+        double sharpness = laplacianVariance(luma, width, height);
+        double coverage = subjectPixels / (double) total;
+
+        Verdict verdict = Verdict.PASS;
+        List<String> issues = new ArrayList<>();
+
+        if (sharpness < BLUR_REJECT) {
+            verdict = Verdict.REJECT;
+            issues.add("照片模糊，请对焦后保持手机稳定重新拍摄");
+        } else if (sharpness < BLUR_WARN) {
+            verdict = worse(verdict, Verdict.WARN);
+            issues.add("照片略有模糊，可能影响识别准确度");
+        }
+
+        if (meanLuminance < MEAN_DARK_REJECT || darkRatio > CLIPPED_REJECT) {
+            verdict = Verdict.REJECT;
+            issues.add("光线太暗，请在明亮自然光下拍摄");
+        } else if (meanLuminance < MEAN_DARK_WARN || darkRatio > CLIPPED_WARN) {
+            verdict = worse(verdict, Verdict.WARN);
+            issues.add("光线偏暗，颜色可能失真");
+        }
+
+        if (brightRatio > CLIPPED_REJECT) {
+            verdict = Verdict.REJECT;
+            issues.add("曝光过度，请避免强光直射或关闭闪光灯");
+        } else if (brightRatio > CLIPPED_WARN) {
+            verdict = worse(verdict, Verdict.WARN);
+            issues.add("部分区域过亮，颜色可能失真");
+        }
+
+        if (coverage < COVERAGE_REJECT) {
+            verdict = Verdict.REJECT;
+            issues.add("未检测到" + subject.getDisplayName() + "，请将" + subject.getDisplayName() + "置于画面中央");
+        } else if (coverage < COVERAGE_WARN) {
+            verdict = worse(verdict, Verdict.WARN);
+            issues.add(subject.getDisplayName() + "在画面中占比过小，请靠近一些拍摄");
+        }
+
+        return new QualityReport(verdict, issues, sharpness, meanLuminance, darkRatio, brightRatio,
+                coverage, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 4邻域拉普拉斯响应的方差，越小越模糊
+     */
+    private static double laplacianVariance(int[] luma, int width, int height) {
+        if (width < 3 || height < 3) {
+            return 0;
+        }
+        double sum = 0;
+        double sumSquares = 0;
+        int count = 0;
+        for (int y = 1; y < height - 1; y++) {
+            int row = y * width;
+            for (int x = 1; x < width - 1; x++) {
+                int index = row + x;
+                int response = luma[index - width] + luma[index + width]
+                        + luma[index - 1] + luma[index + 1] - 4 * luma[index];
+                sum += response;
+                sumSquares += (double) response * response;
+                count++;
+            }
+        }
+        double mean = sum / count;
+        return sumSquares / count - mean * mean;
+    }
+
+    /**
+     * 基于YCbCr的肤色判断，舌面要求更偏红
+     */
+    private static boolean isSubjectPixel(int r, int g, int b, Subject subject) {
+        int cb = 128 + ((-43 * r - 85 * g + 128 * b) >> 8);
+        int cr = 128 + ((128 * r - 107 * g - 21 * b) >> 8);
+        if (cb < 77 || cb > 135) {
+            return false;
+        }
+        if (subject == Subject.TONGUE) {
+            return cr >= 140 && cr <= 185 && r > g + 25;
+        }
+        return cr >= 133 && cr <= 173;
+    }
+
+    private static Verdict worse(Verdict current, Verdict candidate) {
+        return candidate.ordinal() > current.ordinal() ? candidate : current;
+    }
+}
@@ -0,0 +1,325 @@
+package com.wenxing.runyitong.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.media.ExifInterface;
+import android.net.Uri;
+import android.os.Build;
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 区域解码器
+ * 基于BitmapRegionDecoder只解码需要的矩形区域，适合从几千万像素的照片中裁剪舌面、面部等感兴趣区域。
+ * 对外使用的坐标都是按EXIF方向摆正后的显示坐标，内部映射到原始像素坐标解码，解码结果也已摆正。
+ * 输出边长受maxSide限制，内存占用与原图大小无关。
+ */
+public class ImageRegionDecoder implements Closeable {
+    private static final String TAG = "ImageRegionDecoder";
+    private static final Paint BITMAP_PAINT = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    private final BitmapRegionDecoder decoder;
+    private final ExifCoordinateMapper mapper;
+
+    /**
+     * EXIF方向坐标映射：显示坐标（摆正后）与原始像素坐标互相转换
+     */
+    public static class ExifCoordinateMapper {
+        private final int rawWidth;
+        private final int rawHeight;
+        private final int orientation;
+
+        public ExifCoordinateMapper(int rawWidth, int rawHeight, int orientation) {
+            this.rawWidth = rawWidth;
+            this.rawHeight = rawHeight;
+            this.orientation = orientation;
+        }
+
+        public int getOrientation() {
+            return orientation;
+        }
+
+        /**
+         * 方向为5~8时宽高互换
+         */
+        public boolean swapsAxes() {
+            return orientation == ExifInterface.ORIENTATION_TRANSPOSE
+                    || orientation == ExifInterface.ORIENTATION_ROTATE_90
+                    || orientation == ExifInterface.ORIENTATION_TRANSVERSE
+                    || orientation == ExifInterface.ORIENTATION_ROTATE_270;
+        }
+
+        public int getDisplayWidth() {
+            return swapsAxes() ? rawHeight : rawWidth;
+        }
+
+        public int getDisplayHeight() {
+            return swapsAxes() ? rawWidth : rawHeight;
+        }
+
+        /**
+         * 显示坐标矩形映射为原始像素矩形
+         */
+        public Rect toRaw(Rect display) {
+            int[] a = toRawPoint(display.left, display.top);
+            int[] b = toRawPoint(display.right, display.bottom);
+            Rect raw = new Rect(
+                    Math.min(a[0], b[0]), Math.min(a[1], b[1]),
+                    Math.max(a[0], b[0]), Math.max(a[1], b[1]));
+            if (!raw.intersect(0, 0, rawWidth, rawHeight)) {
+                raw.setEmpty();
+            }
+            return raw;
+        }
+
+        private int[] toRawPoint(int u, int v) {
+            int w = rawWidth;
+            int h = rawHeight;
+            switch (orientation) {
+                case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+                    return new int[]{w - u, v};
+                case ExifInterface.ORIENTATION_ROTATE_180:
+                    return new int[]{w - u, h - v};
+                case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                    return new int[]{u, h - v};
+                case ExifInterface.ORIENTATION_TRANSPOSE:
+                    return new int[]{v, u};
+                case ExifInterface.ORIENTATION_ROTATE_90:
+                    return new int[]{v, h - u};
+                case ExifInterface.ORIENTATION_TRANSVERSE:
+                    return new int[]{w - v, h - u};
+                case ExifInterface.ORIENTATION_ROTATE_270:
+                    return new int[]{w - v, u};
+                default:
+                    return new int[]{u, v};
+            }
+        }
+
+        /**
+         * 把原始方向的位图（width×height）摆正所需的变换
+         */
+        public Matrix getOrientationMatrix(int width, int height) {
+            Matrix matrix = new Matrix();
+            switch (orientation) {
+                case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+                    matrix.postScale(-1, 1);
+                    matrix.postTranslate(width, 0);
+                    break;
+                case ExifInterface.ORIENTATION_ROTATE_180:
+                    matrix.postRotate(180);
+                    matrix.postTranslate(width, height);
+                    break;
+                case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                    matrix.postScale(1, -1);
+                    matrix.postTranslate(0, height);
+                    break;
+                case ExifInterface.ORIENTATION_TRANSPOSE:
+                    matrix.postRotate(90);
+                    matrix.postTranslate(height, 0);
+                    matrix.postScale(-1, 1);
+                    matrix.postTranslate(height, 0);
+                    break;
+                case ExifInterface.ORIENTATION_ROTATE_90:
+                    matrix.postRotate(90);
+                    matrix.postTranslate(height, 0);
+                    break;
+                case ExifInterface.ORIENTATION_TRANSVERSE:
+                    matrix.postRotate(90);
+                    matrix.postTranslate(height, 0);
+                    matrix.postScale(1, -1);
+                    matrix.postTranslate(0, width);
+                    break;
+                case ExifInterface.ORIENTATION_ROTATE_270:
+                    matrix.postRotate(-90);
+                    matrix.postTranslate(0, width);
+                    break;
+                default:
+                    break;
+            }
+            return matrix;
+        }
+    }
+
+    private ImageRegionDecoder(BitmapRegionDecoder decoder, ExifCoordinateMapper mapper) {
+        this.decoder = decoder;
+        this.mapper = mapper;
+    }
+
+    /**
+     * 打开图片，读取EXIF方向并创建区域解码器，需在后台线程调用
+     */
+    public static ImageRegionDecoder open(Context context, Uri imageUri) throws IOException {
+        int orientation = readOrientation(context, imageUri);
+
+        InputStream inputStream = context.getContentResolver().openInputStream(imageUri);
+        if (inputStream == null) {
+            throw new IOException("无法打开图片: " + imageUri);
+        }
+        BitmapRegionDecoder decoder;
+        try {
+            decoder = newDecoder(inputStream);
+        } finally {
+            inputStream.close();
+        }
+        if (decoder == null) {
+            throw new IOException("不支持区域解码的图片格式: " + imageUri);
+        }
+
+        ExifCoordinateMapper mapper = new ExifCoordinateMapper(decoder.getWidth(), decoder.getHeight(), orientation);
+        Log.d(TAG, "打开区域解码: " + decoder.getWidth() + "x" + decoder.getHeight() + ", EXIF方向 " + orientation);
+        return new ImageRegionDecoder(decoder, mapper);
+    }
+
+    /**
+     * API 31起isShareable参数已废弃，使用单参数版本
+     */
+    @SuppressWarnings("deprecation")
+    private static BitmapRegionDecoder newDecoder(InputStream inputStream) throws IOException {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+            return BitmapRegionDecoder.newInstance(inputStream);
+        }
+        return BitmapRegionDecoder.newInstance(inputStream, false);
+    }
+
+    private static int readOrientation(Context context, Uri imageUri) {
+        try (InputStream inputStream = context.getContentResolver().openInputStream(imageUri)) {
+            if (inputStream == null) {
+                return ExifInterface.ORIENTATION_NORMAL;
+            }
+            ExifInterface exif = new ExifInterface(inputStream);
+            return exif.getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+        } catch (Exception e) {
+            Log.w(TAG, "读取EXIF方向失败，按正常方向处理: " + e.getMessage());
+            return ExifInterface.ORIENTATION_NORMAL;
+        }
+    }
+
+    /**
+     * 摆正后的宽度
+     */
+    public int getWidth() {
+        return mapper.getDisplayWidth();
+    }
+
+    /**
+     * 摆正后的高度
+     */
+    public int getHeight() {
+        return mapper.getDisplayHeight();
+    }
+
+    public ExifCoordinateMapper getMapper() {
+        return mapper;
+    }
+
+    /**
+     * 计算区域解码的采样率，使输出最长边不超过maxSide
+     */
+    public static int computeSampleSize(int regionWidth, int regionHeight, int maxSide) {
+        int sampleSize = 1;
+        int longest = Math.max(regionWidth, regionHeight);
+        while (longest / sampleSize > maxSide) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /**
+     * 按归一化区域（0~1，显示坐标）解码，输出最长边不超过maxSide
+     */
+    public Bitmap decodeRegionToFit(RectF normalizedRegion, int maxSide) {
+        int width = getWidth();
+        int height = getHeight();
+        Rect region = new Rect(
+                Math.round(normalizedRegion.left * width),
+                Math.round(normalizedRegion.top * height),
+                Math.round(normalizedRegion.right * width),
+                Math.round(normalizedRegion.bottom * height));
+        return decodeRegion(region, computeSampleSize(region.width(), region.height(), maxSide));
+    }
+
+    /**
+     * 解码整张图片的缩略版本，最长边不超过maxSide
+     */
+    public Bitmap decodeOverview(int maxSide) {
+        return decodeRegion(new Rect(0, 0, getWidth(), getHeight()),
+                computeSampleSize(getWidth(), getHeight(), maxSide));
+    }
+
+    /**
+     * 按显示坐标区域和采样率解码，返回已摆正的位图，失败返回null
+     */
+    public Bitmap decodeRegion(Rect displayRegion, int sampleSize) {
+        Rect raw = mapper.toRaw(displayRegion);
+        if (raw.isEmpty()) {
+            Log.w(TAG, "解码区域无效: " + displayRegion);
+            return null;
+        }
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = Math.max(1, sampleSize);
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        options.inMutable = true;
+        // 与BitmapRegionDecoder的输出尺寸一致（向下取整），复用位图不会留下上次内容的边缘
+        int sampledWidth = Math.max(1, raw.width() / options.inSampleSize);
+        int sampledHeight = Math.max(1, raw.height() / options.inSampleSize);
+        options.inBitmap = BitmapPool.getInstance().getReusable(sampledWidth, sampledHeight, Bitmap.Config.ARGB_8888);
+
+        Bitmap decoded;
+        try {
+            decoded = decodeRaw(raw, options);
+        } catch (IllegalArgumentException e) {
+            // 复用位图不兼容，改为新分配
+            BitmapPool.getInstance().put(options.inBitmap);
+            options.inBitmap = null;
+            decoded = decodeRaw(raw, options);
+        }
+        if (decoded == null) {
+            BitmapPool.getInstance().put(options.inBitmap);
+            return null;
+        }
+
+        if (mapper.getOrientation() == ExifInterface.ORIENTATION_NORMAL
+                || mapper.getOrientation() == ExifInterface.ORIENTATION_UNDEFINED) {
+            return decoded;
+        }
+
+        // 按EXIF方向摆正
+        int targetWidth = mapper.swapsAxes() ? decoded.getHeight() : decoded.getWidth();
+        int targetHeight = mapper.swapsAxes() ? decoded.getWidth() : decoded.getHeight();
+        Bitmap oriented = BitmapPool.getInstance().get(targetWidth, targetHeight, Bitmap.Config.ARGB_8888);
+        oriented.eraseColor(Color.TRANSPARENT);
+        new Canvas(oriented).drawBitmap(decoded,
+                mapper.getOrientationMatrix(decoded.getWidth(), decoded.getHeight()), BITMAP_PAINT);
+        BitmapPool.getInstance().put(decoded);
+        return oriented;
+    }
+
+    private Bitmap decodeRaw(Rect raw, BitmapFactory.Options options) {
+        // BitmapRegionDecoder不支持多线程同时解码
+        synchronized (decoder) {
+            if (decoder.isRecycled()) {
+                return null;
+            }
+            return decoder.decodeRegion(raw, options);
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (decoder) {
+            decoder.recycle();
+        }
+    }
+}
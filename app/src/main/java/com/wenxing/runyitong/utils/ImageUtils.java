@@ -3,19 +3,22 @@ package com.wenxing.runyitong.utils;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
-import android.graphics.Matrix;
+import android.graphics.RectF;
 import android.net.Uri;
+import android.os.SystemClock;
 import android.util.Log;
+
+import com.wenxing.runyitong.api.LeasedFileRequestBody;
+
 import okhttp3.MediaType;
 import okhttp3.MultipartBody;
 import okhttp3.RequestBody;
 
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class ImageUtils {
     
@@ -26,8 +29,9 @@ public class ImageUtils {
     private static final int JPEG_QUALITY = 85;
     private static final int THUMBNAIL_SIZE = 200;
     
-    // 线程池用于异步图片处理
-    private static final ExecutorService imageProcessorExecutor = Executors.newFixedThreadPool(2);
+    // 图片任务逐个执行，避免多张大图同时解码占满内存
+    private static final ExecutorService imageProcessorExecutor =
+            TaskScheduler.getInstance().newQueue("ImageProcessor", TaskScheduler.Lane.USER_VISIBLE, 1);
     
     // 图片编辑操作类型
     public enum EditOperation {
@@ -54,59 +58,152 @@ public class ImageUtils {
      * @return MultipartBody.Part
      */
     public static MultipartBody.Part createImagePart(Context context, Uri imageUri, String partName) {
+        return createImagePart(context, imageUri, partName, AdaptiveImageEncoder.UploadProfile.GENERIC);
+    }
+    
+    /**
+     * 按接口配置和当前网络自适应编码后转换为MultipartBody.Part
+     * @param context 上下文
+     * @param imageUri 图片Uri
+     * @param partName 参数名称
+     * @param profile 上传接口的编码配置
+     * @return MultipartBody.Part，失败返回null
+     */
+    public static MultipartBody.Part createImagePart(Context context, Uri imageUri, String partName,
+                                                     AdaptiveImageEncoder.UploadProfile profile) {
         try {
-            // 压缩图片
-            Bitmap compressedBitmap = compressImage(context, imageUri);
-            
-            // 创建临时文件
-            File tempFile = createTempImageFile(context, compressedBitmap);
-            
-            // 创建RequestBody
-            RequestBody requestBody = RequestBody.create(
-                MediaType.parse("image/jpeg"), 
-                tempFile
-            );
-            
-            // 创建MultipartBody.Part
-            return MultipartBody.Part.createFormData(
-                partName, 
-                tempFile.getName(), 
-                requestBody
-            );
-            
-        } catch (Exception e) {
-            e.printStackTrace();
+            AdaptiveImageEncoder.EncodedImage encoded = AdaptiveImageEncoder.encode(context, imageUri, profile);
+            return toImagePart(encoded, partName);
+        } catch (Exception | OutOfMemoryError e) {
+            Log.e(TAG, "图片上传准备失败", e);
             return null;
         }
     }
     
     /**
-     * 压缩图片
+     * 只解码并上传感兴趣区域（如舌面、面部），区域内保留原图细节
      * @param context 上下文
      * @param imageUri 图片Uri
-     * @return 压缩后的Bitmap
+     * @param regionOfInterest 按EXIF方向摆正后的归一化区域（0~1）
+     * @param partName 参数名称
+     * @param profile 上传接口的编码配置
+     * @return MultipartBody.Part，失败返回null
+     */
+    public static MultipartBody.Part createRegionImagePart(Context context, Uri imageUri, RectF regionOfInterest,
+                                                           String partName, AdaptiveImageEncoder.UploadProfile profile) {
+        Bitmap regionBitmap = null;
+        try (ImageRegionDecoder regionDecoder = ImageRegionDecoder.open(context, imageUri)) {
+            regionBitmap = regionDecoder.decodeRegionToFit(regionOfInterest, Math.max(MAX_WIDTH, MAX_HEIGHT));
+            if (regionBitmap == null) {
+                return null;
+            }
+            AdaptiveImageEncoder.EncodedImage encoded = AdaptiveImageEncoder.encode(
+                    context, regionBitmap, profile, AdaptiveImageEncoder.classifyLink(context));
+            return toImagePart(encoded, partName);
+        } catch (Exception | OutOfMemoryError e) {
+            Log.e(TAG, "区域图片上传准备失败", e);
+            return null;
+        } finally {
+            releaseBitmap(regionBitmap);
+        }
+    }
+    
+    private static MultipartBody.Part toImagePart(AdaptiveImageEncoder.EncodedImage encoded, String partName) {
+        // 创建RequestBody，临时文件由发起请求的一方在请求结束后通过LeasedFileRequestBody.leaseOf释放
+        RequestBody requestBody = new LeasedFileRequestBody(
+            MediaType.parse(encoded.getMimeType()), 
+            encoded.getLease()
+        );
+        
+        // 创建MultipartBody.Part
+        return MultipartBody.Part.createFormData(
+            partName, 
+            encoded.getFile().getName(), 
+            requestBody
+        );
+    }
+    
+    /**
+     * 按目标尺寸采样解码，优先复用位图池中的位图作为inBitmap
+     * @param context 上下文
+     * @param imageUri 图片Uri
+     * @param reqWidth 目标宽度
+     * @param reqHeight 目标高度
+     * @return 解码后的可变Bitmap，用完后可通过releaseBitmap归还
      */
-    private static Bitmap compressImage(Context context, Uri imageUri) throws IOException {
+    static Bitmap decodeSampled(Context context, Uri imageUri, int reqWidth, int reqHeight) throws IOException {
         InputStream inputStream = context.getContentResolver().openInputStream(imageUri);
+        if (inputStream == null) {
+            throw new IOException("无法打开图片: " + imageUri);
+        }
         
         // 获取图片尺寸
         BitmapFactory.Options options = new BitmapFactory.Options();
         options.inJustDecodeBounds = true;
-        BitmapFactory.decodeStream(inputStream, null, options);
-        inputStream.close();
+        try {
+            BitmapFactory.decodeStream(inputStream, null, options);
+        } finally {
+            inputStream.close();
+        }
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            throw new IOException("无法解析图片尺寸");
+        }
         
         // 计算缩放比例
-        int inSampleSize = calculateInSampleSize(options, MAX_WIDTH, MAX_HEIGHT);
-        
-        // 重新打开输入流
-        inputStream = context.getContentResolver().openInputStream(imageUri);
+        int inSampleSize = calculateInSampleSize(options, reqWidth, reqHeight);
         options.inJustDecodeBounds = false;
         options.inSampleSize = inSampleSize;
+        options.inMutable = true;
         
-        Bitmap bitmap = BitmapFactory.decodeStream(inputStream, null, options);
-        inputStream.close();
+        // 采样后的尺寸按向上取整估算，保证复用的位图足够大
+        int sampledWidth = (options.outWidth + inSampleSize - 1) / inSampleSize;
+        int sampledHeight = (options.outHeight + inSampleSize - 1) / inSampleSize;
+        options.inBitmap = BitmapPool.getInstance().getReusable(sampledWidth, sampledHeight, Bitmap.Config.ARGB_8888);
         
-        return bitmap;
+        throwIfCancelled();
+        
+        // 重新打开输入流
+        inputStream = context.getContentResolver().openInputStream(imageUri);
+        if (inputStream == null) {
+            BitmapPool.getInstance().put(options.inBitmap);
+            throw new IOException("无法打开图片: " + imageUri);
+        }
+        try {
+            Bitmap bitmap = BitmapFactory.decodeStream(inputStream, null, options);
+            if (bitmap == null) {
+                BitmapPool.getInstance().put(options.inBitmap);
+            }
+            return bitmap;
+        } catch (IllegalArgumentException e) {
+            // 复用位图与解码结果不兼容，改为新分配
+            Log.w(TAG, "inBitmap复用失败，重新解码: " + e.getMessage());
+            BitmapPool.getInstance().put(options.inBitmap);
+            options.inBitmap = null;
+            inputStream.close();
+            inputStream = context.getContentResolver().openInputStream(imageUri);
+            return BitmapFactory.decodeStream(inputStream, null, options);
+        } finally {
+            if (inputStream != null) {
+                inputStream.close();
+            }
+        }
+    }
+    
+    /**
+     * 归还不再使用的Bitmap到位图池，调用后不得再使用该Bitmap
+     * @param bitmap 不再使用的Bitmap
+     */
+    public static void releaseBitmap(Bitmap bitmap) {
+        BitmapPool.getInstance().put(bitmap);
+    }
+    
+    /**
+     * 当前任务被取消时中止处理
+     */
+    private static void throwIfCancelled() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("图片任务已取消");
+        }
     }
     
     /**
@@ -134,29 +231,6 @@ public class ImageUtils {
         return inSampleSize;
     }
     
-    /**
-     * 创建临时图片文件
-     * @param context 上下文
-     * @param bitmap 图片Bitmap
-     * @return 临时文件
-     */
-    private static File createTempImageFile(Context context, Bitmap bitmap) throws IOException {
-        // 创建临时文件
-        File tempFile = File.createTempFile(
-            "temp_image_" + System.currentTimeMillis(), 
-            ".jpg", 
-            context.getCacheDir()
-        );
-        
-        // 将Bitmap保存到文件
-        FileOutputStream fos = new FileOutputStream(tempFile);
-        bitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, fos);
-        fos.flush();
-        fos.close();
-        
-        return tempFile;
-    }
-    
     /**
      * 获取图片文件大小
      * @param context 上下文
@@ -205,27 +279,82 @@ public class ImageUtils {
      * @param context 上下文
      * @param imageUri 图片Uri
      * @param operation 编辑操作
-     * @param callback 回调接口
+     * @param callback 回调接口，在后台线程回调；结果用完后可通过releaseBitmap归还
+     * @return 可用于取消任务的Future，取消后不再回调
      */
-    public static void editImageAsync(Context context, Uri imageUri, EditOperation operation, ImageProcessCallback callback) {
-        imageProcessorExecutor.execute(() -> {
+    public static Future<?> editImageAsync(Context context, Uri imageUri, EditOperation operation, ImageProcessCallback callback) {
+        return imageProcessorExecutor.submit(() -> {
+            Bitmap originalBitmap = null;
             try {
-                Bitmap originalBitmap = loadBitmapFromUri(context, imageUri);
+                originalBitmap = loadBitmapFromUri(context, imageUri);
                 if (originalBitmap == null) {
                     callback.onError("无法加载图片");
                     return;
                 }
                 
+                throwIfCancelled();
                 Bitmap editedBitmap = applyEditOperation(originalBitmap, operation);
+                if (editedBitmap != originalBitmap) {
+                    releaseBitmap(originalBitmap);
+                }
+                originalBitmap = null;
+                
+                if (Thread.currentThread().isInterrupted()) {
+                    releaseBitmap(editedBitmap);
+                    return;
+                }
                 callback.onSuccess(editedBitmap);
                 
-            } catch (Exception e) {
+            } catch (CancellationException e) {
+                Log.d(TAG, "图片编辑已取消");
+                releaseBitmap(originalBitmap);
+            } catch (Exception | OutOfMemoryError e) {
                 Log.e(TAG, "图片编辑失败", e);
+                releaseBitmap(originalBitmap);
+                BitmapPool.getInstance().clear();
                 callback.onError("图片编辑失败: " + e.getMessage());
             }
         });
     }
     
+    /**
+     * 异步生成缩略图
+     * @param context 上下文
+     * @param imageUri 图片Uri
+     * @param callback 回调接口，在后台线程回调
+     * @return 可用于取消任务的Future，取消后不再回调
+     */
+    public static Future<?> generateThumbnailAsync(Context context, Uri imageUri, ImageProcessCallback callback) {
+        return imageProcessorExecutor.submit(() -> {
+            Bitmap thumbnail = generateThumbnail(context, imageUri);
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            if (thumbnail != null) {
+                callback.onSuccess(thumbnail);
+            } else {
+                callback.onError("生成缩略图失败");
+            }
+        });
+    }
+    
+    /**
+     * 在图片处理线程执行任务，用于读取图片信息等轻量IO
+     * @param task 任务
+     * @return 可用于取消任务的Future
+     */
+    public static Future<?> submitImageTask(Runnable task) {
+        return imageProcessorExecutor.submit(() -> {
+            long start = SystemClock.uptimeMillis();
+            FlightRecorder.record(FlightRecorder.Category.IMAGE, "图片任务开始");
+            try {
+                task.run();
+            } finally {
+                FlightRecorder.record(FlightRecorder.Category.IMAGE, "图片任务结束，耗时ms", SystemClock.uptimeMillis() - start);
+            }
+        });
+    }
+    
     /**
      * 应用编辑操作
      * @param bitmap 原始图片
@@ -233,26 +362,17 @@ public class ImageUtils {
      * @return 编辑后的图片
      */
     private static Bitmap applyEditOperation(Bitmap bitmap, EditOperation operation) {
-        Matrix matrix = new Matrix();
-        
         switch (operation) {
             case ROTATE_90_CW:
-                matrix.postRotate(90);
-                break;
             case ROTATE_90_CCW:
-                matrix.postRotate(-90);
-                break;
             case FLIP_HORIZONTAL:
-                matrix.postScale(-1, 1);
-                break;
             case FLIP_VERTICAL:
-                matrix.postScale(1, -1);
-                break;
+                // 与编辑会话共用同一渲染路径，目标位图取自位图池
+                return ImageEditSession.render(bitmap, ImageEditSession.singleStep(operation));
             default:
+                // 裁剪、亮度、对比度需要参数，通过ImageEditSession使用
                 return bitmap;
         }
-        
-        return Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
     }
     
     /**
@@ -261,27 +381,8 @@ public class ImageUtils {
      * @param imageUri 图片Uri
      * @return Bitmap对象
      */
-    private static Bitmap loadBitmapFromUri(Context context, Uri imageUri) throws IOException {
-        InputStream inputStream = context.getContentResolver().openInputStream(imageUri);
-        
-        // 获取图片尺寸
-        BitmapFactory.Options options = new BitmapFactory.Options();
-        options.inJustDecodeBounds = true;
-        BitmapFactory.decodeStream(inputStream, null, options);
-        inputStream.close();
-        
-        // 计算缩放比例
-        int inSampleSize = calculateInSampleSize(options, MAX_WIDTH, MAX_HEIGHT);
-        
-        // 重新打开输入流并加载图片
-        inputStream = context.getContentResolver().openInputStream(imageUri);
-        options.inJustDecodeBounds = false;
-        options.inSampleSize = inSampleSize;
-        
-        Bitmap bitmap = BitmapFactory.decodeStream(inputStream, null, options);
-        inputStream.close();
-        
-        return bitmap;
+    static Bitmap loadBitmapFromUri(Context context, Uri imageUri) throws IOException {
+        return decodeSampled(context, imageUri, MAX_WIDTH, MAX_HEIGHT);
     }
     
     /**
@@ -292,28 +393,14 @@ public class ImageUtils {
      */
     public static Bitmap generateThumbnail(Context context, Uri imageUri) {
         try {
-            InputStream inputStream = context.getContentResolver().openInputStream(imageUri);
-            
-            BitmapFactory.Options options = new BitmapFactory.Options();
-            options.inJustDecodeBounds = true;
-            BitmapFactory.decodeStream(inputStream, null, options);
-            inputStream.close();
-            
-            // 计算缩略图缩放比例
-            int inSampleSize = calculateInSampleSize(options, THUMBNAIL_SIZE, THUMBNAIL_SIZE);
-            
-            inputStream = context.getContentResolver().openInputStream(imageUri);
-            options.inJustDecodeBounds = false;
-            options.inSampleSize = inSampleSize;
-            
-            Bitmap thumbnail = BitmapFactory.decodeStream(inputStream, null, options);
-            inputStream.close();
-            
-            return thumbnail;
-            
-        } catch (IOException e) {
+            return decodeSampled(context, imageUri, THUMBNAIL_SIZE, THUMBNAIL_SIZE);
+        } catch (IOException | CancellationException e) {
             Log.e(TAG, "生成缩略图失败", e);
             return null;
+        } catch (OutOfMemoryError e) {
+            Log.e(TAG, "生成缩略图内存不足", e);
+            BitmapPool.getInstance().clear();
+            return null;
         }
     }
     
@@ -326,13 +413,13 @@ public class ImageUtils {
      */
     public static Uri saveBitmapToUri(Context context, Bitmap bitmap, String filename) {
         try {
-            File tempFile = new File(context.getCacheDir(), filename + ".jpg");
-            FileOutputStream fos = new FileOutputStream(tempFile);
-            bitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, fos);
-            fos.flush();
-            fos.close();
+            // 编辑结果可能被再次预览或上传，立即释放租约，由临时文件区按LRU和过期时间清理
+            TempFileArena.Lease lease = TempFileArena.getInstance(context).write(
+                    TempFileArena.Scope.EDIT, filename + "_", ".jpg",
+                    out -> bitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, out));
+            lease.release();
             
-            return Uri.fromFile(tempFile);
+            return Uri.fromFile(lease.getFile());
             
         } catch (IOException e) {
             Log.e(TAG, "保存图片失败", e);
@@ -341,31 +428,11 @@ public class ImageUtils {
     }
     
     /**
-     * 清理缓存目录中的临时图片文件
+     * 清理临时图片文件，按各功能的容量上限和过期时间在后台清理
      * @param context 上下文
      */
     public static void cleanupTempFiles(Context context) {
-        imageProcessorExecutor.execute(() -> {
-            try {
-                File cacheDir = context.getCacheDir();
-                File[] files = cacheDir.listFiles((dir, name) -> 
-                    name.startsWith("temp_image_") && name.endsWith(".jpg"));
-                
-                if (files != null) {
-                    long currentTime = System.currentTimeMillis();
-                    for (File file : files) {
-                        // 删除超过1小时的临时文件
-                        if (currentTime - file.lastModified() > 3600000) {
-                            if (file.delete()) {
-                                Log.d(TAG, "删除临时文件: " + file.getName());
-                            }
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                Log.e(TAG, "清理临时文件失败", e);
-            }
-        });
+        TempFileArena.getInstance(context).sweepAsync();
     }
     
     /**
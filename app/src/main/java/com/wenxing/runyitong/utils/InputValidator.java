@@ -0,0 +1,285 @@
+package com.wenxing.runyitong.utils;
+
+import java.util.regex.Pattern;
+
+/**
+ * 输入验证规则
+ * 只依赖JDK的纯Java实现，供ValidationManager的实时校验和登录注册页直接调用，
+ * 也可以在JVM基准测试模块中直接编译运行
+ */
+public final class InputValidator {
+
+    // 验证规则常量
+    private static final int USERNAME_MIN_LENGTH = 3;
+    private static final int USERNAME_MAX_LENGTH = 20;
+    private static final int PASSWORD_MIN_LENGTH = 6;
+    private static final int PASSWORD_MAX_LENGTH = 20;
+    private static final int VERIFICATION_CODE_LENGTH = 6;
+
+    // 正则表达式模式
+    private static final Pattern USERNAME_PATTERN = Pattern.compile("^[a-zA-Z0-9_\\u4e00-\\u9fa5]+$");
+    private static final Pattern PHONE_PATTERN = Pattern.compile("^1[3-9]\\d{9}$");
+    private static final Pattern VERIFICATION_CODE_PATTERN = Pattern.compile("^\\d{6}$");
+    // 与android.util.Patterns.EMAIL_ADDRESS相同的规则
+    private static final Pattern EMAIL_PATTERN = Pattern.compile(
+            "[a-zA-Z0-9\\+\\.\\_\\%\\-\\+]{1,256}" +
+            "\\@" +
+            "[a-zA-Z0-9][a-zA-Z0-9\\-]{0,64}" +
+            "(" +
+                "\\." +
+                "[a-zA-Z0-9][a-zA-Z0-9\\-]{0,25}" +
+            ")+");
+    // 密码强度的字符类别，预编译避免每次按键都重新编译正则
+    private static final Pattern LOWERCASE_PATTERN = Pattern.compile("[a-z]");
+    private static final Pattern UPPERCASE_PATTERN = Pattern.compile("[A-Z]");
+    private static final Pattern DIGIT_PATTERN = Pattern.compile("\\d");
+    private static final Pattern SPECIAL_CHAR_PATTERN = Pattern.compile("[!@#$%^&*()_+\\-=\\[\\]{};':\\\\|,.<>/?]");
+
+    // 密码强度级别
+    public enum PasswordStrength {
+        WEAK(1, "弱", 0xFFF44336),
+        MEDIUM(2, "中等", 0xFFFF9800),
+        STRONG(3, "强", 0xFF4CAF50),
+        VERY_STRONG(4, "很强", 0xFF2196F3);
+
+        private final int level;
+        private final String description;
+        private final int color;
+
+        PasswordStrength(int level, String description, int color) {
+            this.level = level;
+            this.description = description;
+            this.color = color;
+        }
+
+        public int getLevel() { return level; }
+        public String getDescription() { return description; }
+        public int getColor() { return color; }
+    }
+
+    /**
+     * 验证结果类
+     */
+    public static class ValidationResult {
+        private final boolean isValid;
+        private final String errorMessage;
+        private final PasswordStrength passwordStrength;
+
+        public ValidationResult(boolean isValid, String errorMessage) {
+            this.isValid = isValid;
+            this.errorMessage = errorMessage;
+            this.passwordStrength = null;
+        }
+
+        public ValidationResult(boolean isValid, String errorMessage, PasswordStrength passwordStrength) {
+            this.isValid = isValid;
+            this.errorMessage = errorMessage;
+            this.passwordStrength = passwordStrength;
+        }
+
+        public boolean isValid() { return isValid; }
+        public String getErrorMessage() { return errorMessage; }
+        public PasswordStrength getPasswordStrength() { return passwordStrength; }
+    }
+
+    private InputValidator() {}
+
+    /**
+     * 验证用户名
+     * @param username 用户名
+     * @return 验证结果
+     */
+    public static ValidationResult validateUsername(String username) {
+        if (isEmpty(username)) {
+            return new ValidationResult(false, "用户名不能为空");
+        }
+
+        if (username.length() < USERNAME_MIN_LENGTH) {
+            return new ValidationResult(false, "用户名至少需要" + USERNAME_MIN_LENGTH + "个字符");
+        }
+
+        if (username.length() > USERNAME_MAX_LENGTH) {
+            return new ValidationResult(false, "用户名不能超过" + USERNAME_MAX_LENGTH + "个字符");
+        }
+
+        if (!USERNAME_PATTERN.matcher(username).matches()) {
+            return new ValidationResult(false, "用户名只能包含字母、数字、下划线和中文");
+        }
+
+        return new ValidationResult(true, null);
+    }
+
+    /**
+     * 验证密码
+     * @param password 密码
+     * @return 验证结果
+     */
+    public static ValidationResult validatePassword(String password) {
+        if (isEmpty(password)) {
+            return new ValidationResult(false, "密码不能为空");
+        }
+
+        if (password.length() < PASSWORD_MIN_LENGTH) {
+            return new ValidationResult(false, "密码至少需要" + PASSWORD_MIN_LENGTH + "个字符");
+        }
+
+        if (password.length() > PASSWORD_MAX_LENGTH) {
+            return new ValidationResult(false, "密码不能超过" + PASSWORD_MAX_LENGTH + "个字符");
+        }
+
+        PasswordStrength strength = calculatePasswordStrength(password);
+        return new ValidationResult(true, null, strength);
+    }
+
+    /**
+     * 验证邮箱
+     * @param email 邮箱
+     * @return 验证结果
+     */
+    public static ValidationResult validateEmail(String email) {
+        if (isEmpty(email)) {
+            return new ValidationResult(false, "邮箱不能为空");
+        }
+
+        if (!EMAIL_PATTERN.matcher(email).matches()) {
+            return new ValidationResult(false, "请输入正确的邮箱格式");
+        }
+
+        return new ValidationResult(true, null);
+    }
+
+    /**
+     * 验证手机号
+     * @param phone 手机号
+     * @return 验证结果
+     */
+    public static ValidationResult validatePhone(String phone) {
+        if (isEmpty(phone)) {
+            return new ValidationResult(false, "手机号不能为空");
+        }
+
+        if (!PHONE_PATTERN.matcher(phone).matches()) {
+            return new ValidationResult(false, "请输入正确的11位手机号");
+        }
+
+        return new ValidationResult(true, null);
+    }
+
+    /**
+     * 验证验证码
+     * @param code 验证码
+     * @return 验证结果
+     */
+    public static ValidationResult validateVerificationCode(String code) {
+        if (isEmpty(code)) {
+            return new ValidationResult(false, "验证码不能为空");
+        }
+
+        if (code.length() != VERIFICATION_CODE_LENGTH) {
+            return new ValidationResult(false, "验证码应为" + VERIFICATION_CODE_LENGTH + "位数字");
+        }
+
+        if (!VERIFICATION_CODE_PATTERN.matcher(code).matches()) {
+            return new ValidationResult(false, "验证码只能包含数字");
+        }
+
+        return new ValidationResult(true, null);
+    }
+
+    /**
+     * 验证确认密码
+     * @param password 原密码
+     * @param confirmPassword 确认密码
+     * @return 验证结果
+     */
+    public static ValidationResult validateConfirmPassword(String password, String confirmPassword) {
+        if (isEmpty(confirmPassword)) {
+            return new ValidationResult(false, "确认密码不能为空");
+        }
+
+        if (!password.equals(confirmPassword)) {
+            return new ValidationResult(false, "两次输入的密码不一致");
+        }
+
+        return new ValidationResult(true, null);
+    }
+
+    /**
+     * 计算密码强度
+     * @param password 密码
+     * @return 密码强度
+     */
+    public static PasswordStrength calculatePasswordStrength(String password) {
+        if (isEmpty(password)) {
+            return PasswordStrength.WEAK;
+        }
+
+        int score = 0;
+
+        // 长度加分
+        if (password.length() >= 8) score += 1;
+        if (password.length() >= 12) score += 1;
+
+        // 字符类型加分
+        if (LOWERCASE_PATTERN.matcher(password).find()) score += 1; // 小写字母
+        if (UPPERCASE_PATTERN.matcher(password).find()) score += 1; // 大写字母
+        if (DIGIT_PATTERN.matcher(password).find()) score += 1;     // 数字
+        if (SPECIAL_CHAR_PATTERN.matcher(password).find()) score += 1; // 特殊字符
+
+        // 复杂度加分
+        if (password.length() >= 10 && score >= 3) score += 1;
+
+        // 根据得分返回强度
+        if (score <= 2) return PasswordStrength.WEAK;
+        else if (score <= 4) return PasswordStrength.MEDIUM;
+        else if (score <= 6) return PasswordStrength.STRONG;
+        else return PasswordStrength.VERY_STRONG;
+    }
+
+    /**
+     * 快速验证所有字段
+     * @param fields 字段数组，每个元素包含 [字段名, 字段值, 验证类型]
+     * @return 第一个验证失败的结果，如果全部通过则返回成功结果
+     */
+    public static ValidationResult validateAllFields(String[]... fields) {
+        for (String[] field : fields) {
+            if (field.length < 3) continue;
+
+            String fieldName = field[0];
+            String fieldValue = field[1];
+            String validationType = field[2];
+
+            ValidationResult result;
+            switch (validationType.toLowerCase()) {
+                case "username":
+                    result = validateUsername(fieldValue);
+                    break;
+                case "password":
+                    result = validatePassword(fieldValue);
+                    break;
+                case "email":
+                    result = validateEmail(fieldValue);
+                    break;
+                case "phone":
+                    result = validatePhone(fieldValue);
+                    break;
+                case "verification_code":
+                    result = validateVerificationCode(fieldValue);
+                    break;
+                default:
+                    continue;
+            }
+
+            if (!result.isValid()) {
+                return new ValidationResult(false, fieldName + ": " + result.getErrorMessage());
+            }
+        }
+
+        return new ValidationResult(true, "所有字段验证通过");
+    }
+
+    // 等价于TextUtils.isEmpty，避免依赖Android框架类
+    private static boolean isEmpty(CharSequence text) {
+        return text == null || text.length() == 0;
+    }
+}
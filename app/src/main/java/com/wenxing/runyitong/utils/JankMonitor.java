@@ -0,0 +1,556 @@
+package com.wenxing.runyitong.utils;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.Display;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * 掉帧监控
+ * 通过Choreographer逐帧回调测量相邻两帧的间隔，按当前页面和交互阶段（进入页面、滑动、动画）
+ * 分别累计到固定分桶的直方图，可随时输出P50/P90/P99、掉帧数和慢帧比例，用于对比优化前后的效果。
+ * 页面静止时不需要出帧，也就不注册帧回调，避免空转唤醒vsync；
+ * 只有页面刚进入、列表滑动或登记了动画时才测量。所有统计在主线程更新，输出可在任意线程调用。
+ */
+public class JankMonitor {
+    private static final String TAG = "JankMonitor";
+
+    // 页面进入后测量转场和首屏渲染的时长
+    private static final long ENTER_WINDOW_MS = 1000;
+    // 超过该间隔视为冻帧
+    private static final long FROZEN_FRAME_MS = 700;
+    // 慢帧阈值为帧预算的倍数
+    private static final float SLOW_FRAME_FACTOR = 1.5f;
+    // 直方图：0-99ms按1ms分桶，100-999ms按50ms分桶，之后为溢出桶
+    private static final int FINE_BUCKETS = 100;
+    private static final int COARSE_BUCKET_MS = 50;
+    private static final int COARSE_BUCKETS = 18;
+    private static final int BUCKET_COUNT = FINE_BUCKETS + COARSE_BUCKETS + 1;
+    private static final String EXPORT_DIR = "frame_metrics";
+
+    /**
+     * 交互阶段，同时存在时按滑动、动画、进入页面的顺序归属
+     */
+    public enum Phase {
+        ENTER("进入页面"),
+        SCROLL("滑动"),
+        ANIMATION("动画");
+
+        private final String displayName;
+
+        Phase(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    private static volatile JankMonitor instance;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // 按页面名保存统计，保持首次出现的顺序
+    private final Map<String, ScreenStats> screens = new LinkedHashMap<>();
+    private final Map<RecyclerView, ScrollTracker> scrollTrackers = new WeakHashMap<>();
+
+    // 以下字段只在主线程访问
+    private ScreenStats currentScreen;
+    private int activeScrolls = 0;
+    private int activeAnimations = 0;
+    private boolean entering = false;
+    private boolean foreground = false;
+    private boolean frameCallbackPosted = false;
+    private long lastFrameNanos = 0;
+    private long frameIntervalNanos = 16_666_667L;
+
+    private final Runnable endEnterWindow = () -> {
+        entering = false;
+        updateFrameCallback();
+    };
+
+    // 预先创建，逐帧复用
+    private final Choreographer.FrameCallback frameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            frameCallbackPosted = false;
+            if (lastFrameNanos != 0 && currentScreen != null) {
+                recordFrame(currentPhase(), frameTimeNanos - lastFrameNanos);
+            }
+            if (isMeasuring()) {
+                lastFrameNanos = frameTimeNanos;
+                frameCallbackPosted = true;
+                Choreographer.getInstance().postFrameCallback(this);
+            } else {
+                lastFrameNanos = 0;
+            }
+        }
+    };
+
+    private JankMonitor() {
+    }
+
+    public static JankMonitor getInstance() {
+        if (instance == null) {
+            synchronized (JankMonitor.class) {
+                if (instance == null) {
+                    instance = new JankMonitor();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 跟随Activity的前后台切换开始和暂停测量，在Application.onCreate中调用一次
+     */
+    public void install(Application application) {
+        application.registerActivityLifecycleCallbacks(new Application.ActivityLifecycleCallbacks() {
+            @Override
+            public void onActivityCreated(@NonNull Activity activity, Bundle savedInstanceState) {
+            }
+
+            @Override
+            public void onActivityStarted(@NonNull Activity activity) {
+            }
+
+            @Override
+            public void onActivityResumed(@NonNull Activity activity) {
+                updateRefreshRate(activity);
+                foreground = true;
+                enterScreen(activity.getClass().getSimpleName());
+            }
+
+            @Override
+            public void onActivityPaused(@NonNull Activity activity) {
+                foreground = false;
+                updateFrameCallback();
+            }
+
+            @Override
+            public void onActivityStopped(@NonNull Activity activity) {
+            }
+
+            @Override
+            public void onActivitySaveInstanceState(@NonNull Activity activity, @NonNull Bundle outState) {
+            }
+
+            @Override
+            public void onActivityDestroyed(@NonNull Activity activity) {
+            }
+        });
+    }
+
+    /**
+     * 切换当前页面，之后的帧计入该页面；同一Activity内切换Fragment时由宿主调用
+     * @param screenName 页面名称
+     */
+    public void enterScreen(String screenName) {
+        if (!isMainThread()) {
+            mainHandler.post(() -> enterScreen(screenName));
+            return;
+        }
+        synchronized (this) {
+            currentScreen = obtainStats(screenName);
+        }
+        entering = true;
+        // 切换页面后的第一帧间隔包含了上一个页面，不计入
+        lastFrameNanos = 0;
+        mainHandler.removeCallbacks(endEnterWindow);
+        mainHandler.postDelayed(endEnterWindow, ENTER_WINDOW_MS);
+        updateFrameCallback();
+    }
+
+    /**
+     * 记录页面加载耗时，由PerformanceManager.PageLoadMonitor调用
+     */
+    public synchronized void recordPageLoad(String screenName, long loadTimeMs) {
+        obtainStats(screenName).recordLoad(loadTimeMs);
+    }
+
+    /**
+     * 跟踪列表的滑动状态，滑动和惯性滚动期间的帧计入滑动阶段
+     */
+    public void trackScroll(RecyclerView recyclerView) {
+        if (recyclerView == null || scrollTrackers.containsKey(recyclerView)) {
+            return;
+        }
+        ScrollTracker tracker = new ScrollTracker();
+        scrollTrackers.put(recyclerView, tracker);
+        recyclerView.addOnScrollListener(tracker);
+    }
+
+    /**
+     * 停止跟踪列表，列表正在滑动时同时结束滑动阶段
+     */
+    public void untrackScroll(RecyclerView recyclerView) {
+        if (recyclerView == null) {
+            return;
+        }
+        ScrollTracker tracker = scrollTrackers.remove(recyclerView);
+        if (tracker != null) {
+            recyclerView.removeOnScrollListener(tracker);
+            tracker.setScrolling(false);
+        }
+    }
+
+    /**
+     * 开始一段动画，须与endAnimation成对调用，在主线程调用
+     */
+    public void beginAnimation() {
+        activeAnimations++;
+        updateFrameCallback();
+    }
+
+    /**
+     * 结束一段动画
+     */
+    public void endAnimation() {
+        if (activeAnimations > 0) {
+            activeAnimations--;
+        }
+        updateFrameCallback();
+    }
+
+    /**
+     * 清空所有统计，开始新一轮对比测量
+     */
+    public synchronized void reset() {
+        for (ScreenStats stats : screens.values()) {
+            stats.reset();
+        }
+        Log.d(TAG, "掉帧统计已清空");
+    }
+
+    /**
+     * 以文本形式输出各页面的统计
+     */
+    public synchronized void dump(Writer writer) throws IOException {
+        writer.write("Frame metrics (frame budget " + (frameIntervalNanos / 1000) + "us)\n");
+        for (ScreenStats stats : screens.values()) {
+            stats.dump(writer);
+        }
+    }
+
+    /**
+     * 把统计输出到日志
+     */
+    public void dumpToLog() {
+        StringWriter writer = new StringWriter();
+        try {
+            dump(writer);
+        } catch (IOException e) {
+            // StringWriter不会抛出
+        }
+        for (String line : writer.toString().split("\n")) {
+            Log.i(TAG, line);
+        }
+    }
+
+    /**
+     * 导出JSON格式的统计，便于脚本对比
+     */
+    public synchronized String exportJson() {
+        JsonObject root = new JsonObject();
+        root.addProperty("timestamp", System.currentTimeMillis());
+        root.addProperty("frameBudgetUs", frameIntervalNanos / 1000);
+        JsonArray array = new JsonArray();
+        for (ScreenStats stats : screens.values()) {
+            array.add(stats.toJson());
+        }
+        root.add("screens", array);
+        return new Gson().toJson(root);
+    }
+
+    /**
+     * 导出统计到应用外部文件目录下的frame_metrics，可用adb pull取出
+     * @return 导出的文件，失败返回null
+     */
+    public File exportToFile(Context context) {
+        File baseDir = context.getExternalFilesDir(null);
+        if (baseDir == null) {
+            baseDir = context.getFilesDir();
+        }
+        File dir = new File(baseDir, EXPORT_DIR);
+        if (!dir.exists() && !dir.mkdirs()) {
+            Log.e(TAG, "创建导出目录失败: " + dir);
+            return null;
+        }
+        String time = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault()).format(new Date());
+        File file = new File(dir, "frames_" + time + ".json");
+        try (Writer writer = new FileWriter(file)) {
+            writer.write(exportJson());
+            Log.d(TAG, "掉帧统计已导出: " + file.getAbsolutePath());
+            return file;
+        } catch (IOException e) {
+            Log.e(TAG, "导出掉帧统计失败", e);
+            return null;
+        }
+    }
+
+    private ScreenStats obtainStats(String screenName) {
+        ScreenStats stats = screens.get(screenName);
+        if (stats == null) {
+            stats = new ScreenStats(screenName);
+            screens.put(screenName, stats);
+        }
+        return stats;
+    }
+
+    private void recordFrame(Phase phase, long intervalNanos) {
+        long budget = frameIntervalNanos;
+        int dropped = (int) Math.max(0, (intervalNanos + budget / 2) / budget - 1);
+        long intervalMs = intervalNanos / 1_000_000;
+        synchronized (this) {
+            currentScreen.histograms[phase.ordinal()].record(intervalMs, dropped,
+                    intervalNanos > budget * SLOW_FRAME_FACTOR, intervalMs >= FROZEN_FRAME_MS);
+        }
+        if (intervalMs >= FROZEN_FRAME_MS) {
+            FlightRecorder.record(FlightRecorder.Category.JANK, currentScreen.name + " 冻帧ms", intervalMs);
+        }
+    }
+
+    private Phase currentPhase() {
+        if (activeScrolls > 0) {
+            return Phase.SCROLL;
+        }
+        if (activeAnimations > 0) {
+            return Phase.ANIMATION;
+        }
+        return Phase.ENTER;
+    }
+
+    private boolean isMeasuring() {
+        return foreground && (entering || activeScrolls > 0 || activeAnimations > 0);
+    }
+
+    private void updateFrameCallback() {
+        if (isMeasuring() && !frameCallbackPosted) {
+            frameCallbackPosted = true;
+            lastFrameNanos = 0;
+            Choreographer.getInstance().postFrameCallback(frameCallback);
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private void updateRefreshRate(Activity activity) {
+        Display display = activity.getWindowManager().getDefaultDisplay();
+        float refreshRate = display != null ? display.getRefreshRate() : 60f;
+        if (refreshRate >= 30f) {
+            frameIntervalNanos = (long) (1_000_000_000L / refreshRate);
+        }
+    }
+
+    private static boolean isMainThread() {
+        return Looper.myLooper() == Looper.getMainLooper();
+    }
+
+    /**
+     * 列表滑动状态跟踪
+     */
+    private class ScrollTracker extends RecyclerView.OnScrollListener {
+        private boolean scrolling = false;
+
+        @Override
+        public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+            setScrolling(newState != RecyclerView.SCROLL_STATE_IDLE);
+        }
+
+        void setScrolling(boolean scrolling) {
+            if (this.scrolling == scrolling) {
+                return;
+            }
+            this.scrolling = scrolling;
+            if (scrolling) {
+                activeScrolls++;
+            } else if (activeScrolls > 0) {
+                activeScrolls--;
+            }
+            updateFrameCallback();
+        }
+    }
+
+    /**
+     * 单个页面的统计，各阶段的直方图在创建时一次分配好
+     */
+    private static class ScreenStats {
+        final String name;
+        final FrameHistogram[] histograms = new FrameHistogram[Phase.values().length];
+        int loadCount = 0;
+        long loadTotalMs = 0;
+        long loadMaxMs = 0;
+
+        ScreenStats(String name) {
+            this.name = name;
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = new FrameHistogram();
+            }
+        }
+
+        void recordLoad(long loadTimeMs) {
+            loadCount++;
+            loadTotalMs += loadTimeMs;
+            loadMaxMs = Math.max(loadMaxMs, loadTimeMs);
+        }
+
+        void reset() {
+            for (FrameHistogram histogram : histograms) {
+                histogram.reset();
+            }
+            loadCount = 0;
+            loadTotalMs = 0;
+            loadMaxMs = 0;
+        }
+
+        void dump(Writer writer) throws IOException {
+            writer.write("[" + name + "]");
+            if (loadCount > 0) {
+                writer.write(" load avg=" + (loadTotalMs / loadCount) + "ms max=" + loadMaxMs + "ms n=" + loadCount);
+            }
+            writer.write("\n");
+            for (Phase phase : Phase.values()) {
+                FrameHistogram histogram = histograms[phase.ordinal()];
+                if (histogram.frames == 0) {
+                    continue;
+                }
+                writer.write(String.format(Locale.US,
+                        "  %-5s frames=%d dropped=%d slow=%.1f%% frozen=%d p50=%dms p90=%dms p95=%dms p99=%dms max=%dms\n",
+                        phase.name(), histogram.frames, histogram.droppedFrames,
+                        histogram.frames > 0 ? histogram.slowFrames * 100.0 / histogram.frames : 0.0,
+                        histogram.frozenFrames, histogram.percentile(50), histogram.percentile(90),
+                        histogram.percentile(95), histogram.percentile(99), histogram.maxMs));
+            }
+        }
+
+        JsonObject toJson() {
+            JsonObject json = new JsonObject();
+            json.addProperty("screen", name);
+            json.addProperty("loadCount", loadCount);
+            json.addProperty("loadAvgMs", loadCount > 0 ? loadTotalMs / loadCount : 0);
+            json.addProperty("loadMaxMs", loadMaxMs);
+            JsonObject phases = new JsonObject();
+            for (Phase phase : Phase.values()) {
+                FrameHistogram histogram = histograms[phase.ordinal()];
+                if (histogram.frames > 0) {
+                    phases.add(phase.name(), histogram.toJson());
+                }
+            }
+            json.add("phases", phases);
+            return json;
+        }
+    }
+
+    /**
+     * 帧间隔直方图，记录时不分配对象；百分位取所在分桶的上界
+     */
+    private static class FrameHistogram {
+        final long[] buckets = new long[BUCKET_COUNT];
+        long frames = 0;
+        long droppedFrames = 0;
+        long slowFrames = 0;
+        long frozenFrames = 0;
+        long maxMs = 0;
+
+        void record(long intervalMs, int dropped, boolean slow, boolean frozen) {
+            buckets[bucketOf(intervalMs)]++;
+            frames++;
+            droppedFrames += dropped;
+            if (slow) {
+                slowFrames++;
+            }
+            if (frozen) {
+                frozenFrames++;
+            }
+            if (intervalMs > maxMs) {
+                maxMs = intervalMs;
+            }
+        }
+
+        long percentile(int percent) {
+            if (frames == 0) {
+                return 0;
+            }
+            long target = (frames * percent + 99) / 100;
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += buckets[i];
+                if (seen >= target) {
+                    return i == BUCKET_COUNT - 1 ? maxMs : Math.min(upperBoundOf(i), maxMs);
+                }
+            }
+            return maxMs;
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                buckets[i] = 0;
+            }
+            frames = 0;
+            droppedFrames = 0;
+            slowFrames = 0;
+            frozenFrames = 0;
+            maxMs = 0;
+        }
+
+        JsonObject toJson() {
+            JsonObject json = new JsonObject();
+            json.addProperty("frames", frames);
+            json.addProperty("droppedFrames", droppedFrames);
+            json.addProperty("slowFrames", slowFrames);
+            json.addProperty("frozenFrames", frozenFrames);
+            json.addProperty("p50Ms", percentile(50));
+            json.addProperty("p90Ms", percentile(90));
+            json.addProperty("p95Ms", percentile(95));
+            json.addProperty("p99Ms", percentile(99));
+            json.addProperty("maxMs", maxMs);
+            // 只导出非空分桶，键为分桶上界毫秒数
+            JsonObject histogram = new JsonObject();
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                if (buckets[i] > 0) {
+                    histogram.addProperty(i == BUCKET_COUNT - 1 ? "overflow" : String.valueOf(upperBoundOf(i)), buckets[i]);
+                }
+            }
+            json.add("histogram", histogram);
+            return json;
+        }
+
+        static int bucketOf(long intervalMs) {
+            if (intervalMs < FINE_BUCKETS) {
+                return (int) Math.max(0, intervalMs);
+            }
+            long coarse = (intervalMs - FINE_BUCKETS) / COARSE_BUCKET_MS;
+            return coarse < COARSE_BUCKETS ? FINE_BUCKETS + (int) coarse : BUCKET_COUNT - 1;
+        }
+
+        static long upperBoundOf(int bucket) {
+            if (bucket < FINE_BUCKETS) {
+                return bucket + 1;
+            }
+            return FINE_BUCKETS + (long) (bucket - FINE_BUCKETS + 1) * COARSE_BUCKET_MS;
+        }
+    }
+}
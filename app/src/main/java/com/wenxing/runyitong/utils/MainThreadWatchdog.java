@@ -0,0 +1,110 @@
+package com.wenxing.runyitong.utils;
+
+import android.os.Debug;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * 主线程看门狗
+ * 后台线程定期向主线程投递一个心跳任务，心跳超过阈值未执行说明主线程卡住，
+ * 此时抓取主线程及其他线程的堆栈交给监听者（写卡顿报告），恢复后记录卡顿时长。
+ * 阈值小于系统5秒的输入ANR，被系统杀死前就能留下现场。
+ */
+public class MainThreadWatchdog {
+    private static final String TAG = "MainThreadWatchdog";
+
+    // 心跳间隔
+    private static final long CHECK_INTERVAL_MS = 1000;
+    // 主线程无响应超过该时长视为卡顿
+    private static final long STALL_THRESHOLD_MS = 4000;
+
+    /**
+     * 卡顿回调，在看门狗线程调用
+     */
+    public interface Listener {
+        void onMainThreadStall(long stalledMs, StackTraceElement[] mainStack);
+    }
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Listener listener;
+    private volatile long lastHeartbeat = SystemClock.uptimeMillis();
+    private volatile boolean heartbeatPending = false;
+    private volatile boolean running = false;
+    private Thread thread;
+
+    // 预先创建，避免每次心跳分配对象
+    private final Runnable heartbeat = () -> {
+        lastHeartbeat = SystemClock.uptimeMillis();
+        heartbeatPending = false;
+    };
+
+    public MainThreadWatchdog(Listener listener) {
+        this.listener = listener;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::loop, "MainThreadWatchdog");
+        thread.setDaemon(true);
+        thread.start();
+        Log.d(TAG, "主线程看门狗已启动");
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    private void loop() {
+        long stallStart = 0;
+        boolean reported = false;
+        while (running) {
+            if (!heartbeatPending) {
+                heartbeatPending = true;
+                mainHandler.post(heartbeat);
+            }
+            try {
+                Thread.sleep(CHECK_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            long now = SystemClock.uptimeMillis();
+            if (!heartbeatPending) {
+                if (reported) {
+                    long stalledMs = lastHeartbeat - stallStart;
+                    FlightRecorder.record(FlightRecorder.Category.STALL_END, "主线程恢复响应，卡顿ms", stalledMs);
+                    Log.w(TAG, "主线程恢复响应，卡顿 " + stalledMs + "ms");
+                }
+                stallStart = 0;
+                reported = false;
+                continue;
+            }
+
+            if (stallStart == 0) {
+                // 心跳投递后最迟在上一次检查时应已执行
+                stallStart = now - CHECK_INTERVAL_MS;
+            }
+            long stalledMs = now - stallStart;
+            if (!reported && stalledMs >= STALL_THRESHOLD_MS && !Debug.isDebuggerConnected()) {
+                reported = true;
+                StackTraceElement[] mainStack = Looper.getMainLooper().getThread().getStackTrace();
+                FlightRecorder.record(FlightRecorder.Category.STALL, "主线程无响应ms", stalledMs);
+                Log.w(TAG, "主线程无响应 " + stalledMs + "ms");
+                try {
+                    listener.onMainThreadStall(stalledMs, mainStack);
+                } catch (Exception e) {
+                    Log.e(TAG, "处理卡顿失败", e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package com.wenxing.runyitong.utils;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 内存压力协调器
+ * 统一接收系统的onTrimMemory/onLowMemory回调，并周期检查堆使用率，按压力等级依次收缩已登记的缓存：
+ * 先丢弃可随时丢弃的（位图复用池等），再收缩重建有代价的（页面位图、Glide内存缓存、接口结果缓存等）。
+ * 同时向位图生产方提供当前可用的分配预算和预取预算，内存紧张时先停预取、再限制大图分配。
+ * Android 8.0起位图像素分配在native内存，预算改按系统可用内存计算，不再受Java堆上限约束。
+ * 进入后台时主动释放缓存，降低被系统优先回收的概率。
+ */
+public class MemoryCoordinator implements ComponentCallbacks2 {
+    private static final String TAG = "MemoryCoordinator";
+
+    // 周期检查堆使用率的间隔
+    private static final long CHECK_INTERVAL_MS = 30_000;
+    // 系统上报的压力保持时长，之后回落到按堆使用率判断
+    private static final long SYSTEM_PRESSURE_HOLD_MS = 60_000;
+    // 堆使用率阈值
+    private static final float HEAP_MODERATE_RATIO = 0.70f;
+    private static final float HEAP_LOW_RATIO = 0.80f;
+    private static final float HEAP_CRITICAL_RATIO = 0.90f;
+    // 预取最多使用剩余可用内存的比例
+    private static final float PREFETCH_RATIO = 0.25f;
+    // 物理内存不超过该值视为小内存设备，预算按比例收紧
+    private static final long LOW_RAM_TOTAL_BYTES = 3L * 1024 * 1024 * 1024;
+    private static final float LOW_RAM_BUDGET_FACTOR = 0.75f;
+    // 系统可用内存的查询结果在该时长内复用，避免每次分配都跨进程查询
+    private static final long SYSTEM_MEMORY_REFRESH_MS = 1000;
+
+    /**
+     * 内存压力等级
+     */
+    public enum Pressure {
+        NORMAL(0.8f),
+        MODERATE(0.5f),
+        LOW(0.3f),
+        CRITICAL(0.1f);
+
+        // 大图分配最多使用剩余可用内存的比例
+        final float budgetRatio;
+
+        Pressure(float budgetRatio) {
+            this.budgetRatio = budgetRatio;
+        }
+    }
+
+    /**
+     * 缓存收缩优先级，压力上升时先收缩DISPOSABLE
+     */
+    public enum Priority {
+        // 丢弃后只影响复用率，如位图复用池
+        DISPOSABLE,
+        // 丢弃后需要重新解码、渲染或请求，如页面位图、图片内存缓存、接口结果缓存
+        REBUILDABLE
+    }
+
+    /**
+     * 可收缩的缓存
+     */
+    public interface TrimmableCache {
+        /**
+         * 当前占用的字节数，无法估计时返回-1
+         */
+        long getSizeBytes();
+
+        /**
+         * 收缩到当前大小的keepFraction，0表示在不影响当前显示的前提下尽量释放；在主线程调用
+         */
+        void trimToFraction(float keepFraction);
+    }
+
+    private static final class Entry {
+        final String name;
+        final Priority priority;
+        final TrimmableCache cache;
+
+        Entry(String name, Priority priority, TrimmableCache cache) {
+            this.name = name;
+            this.priority = priority;
+            this.cache = cache;
+        }
+    }
+
+    private static volatile MemoryCoordinator instance;
+
+    private final CopyOnWriteArrayList<Entry> entries = new CopyOnWriteArrayList<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runtime runtime = Runtime.getRuntime();
+    private volatile boolean lowRamDevice = false;
+    private volatile ActivityManager activityManager;
+    // 以下两个字段由this保护
+    private final ActivityManager.MemoryInfo systemMemoryInfo = new ActivityManager.MemoryInfo();
+    private long systemMemoryTime = 0;
+    private volatile Pressure systemPressure = Pressure.NORMAL;
+    private volatile long systemPressureTime = 0;
+    private volatile Pressure heapPressure = Pressure.NORMAL;
+    // 最近一次已执行的收缩等级，同一等级不重复收缩
+    private volatile Pressure lastShed = Pressure.NORMAL;
+    private volatile boolean started = false;
+    private int shedCount = 0;
+
+    private final Runnable periodicCheck = new Runnable() {
+        @Override
+        public void run() {
+            TaskScheduler.getInstance().execute(TaskScheduler.Lane.MAINTENANCE, MemoryCoordinator.this::checkHeap);
+            mainHandler.postDelayed(this, CHECK_INTERVAL_MS);
+        }
+    };
+
+    private MemoryCoordinator() {
+    }
+
+    public static MemoryCoordinator getInstance() {
+        if (instance == null) {
+            synchronized (MemoryCoordinator.class) {
+                if (instance == null) {
+                    instance = new MemoryCoordinator();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 注册系统内存回调并开始周期检查，在Application.onCreate中调用一次
+     */
+    public void start(Context context) {
+        if (started) {
+            return;
+        }
+        started = true;
+        Context appContext = context.getApplicationContext();
+        activityManager = (ActivityManager) appContext.getSystemService(Context.ACTIVITY_SERVICE);
+        if (activityManager != null) {
+            ActivityManager.MemoryInfo memoryInfo = new ActivityManager.MemoryInfo();
+            activityManager.getMemoryInfo(memoryInfo);
+            lowRamDevice = activityManager.isLowRamDevice() || memoryInfo.totalMem <= LOW_RAM_TOTAL_BYTES;
+            Log.d(TAG, "设备内存: " + (memoryInfo.totalMem / 1024 / 1024) + "MB, 堆上限: "
+                    + (runtime.maxMemory() / 1024 / 1024) + "MB, 小内存设备: " + lowRamDevice);
+        }
+        appContext.registerComponentCallbacks(this);
+        mainHandler.postDelayed(periodicCheck, CHECK_INTERVAL_MS);
+    }
+
+    /**
+     * 登记缓存，同名缓存会被替换
+     */
+    public void register(String name, Priority priority, TrimmableCache cache) {
+        unregister(name);
+        entries.add(new Entry(name, priority, cache));
+    }
+
+    public void unregister(String name) {
+        for (Entry entry : entries) {
+            if (entry.name.equals(name)) {
+                entries.remove(entry);
+            }
+        }
+    }
+
+    /**
+     * 当前内存压力，取系统上报和堆使用率中较严重的一个
+     */
+    public Pressure getPressure() {
+        Pressure system = systemPressure;
+        if (system != Pressure.NORMAL && SystemClock.uptimeMillis() - systemPressureTime > SYSTEM_PRESSURE_HOLD_MS) {
+            system = Pressure.NORMAL;
+        }
+        Pressure heap = heapPressure;
+        return system.ordinal() >= heap.ordinal() ? system : heap;
+    }
+
+    /**
+     * 剩余可用堆内存
+     */
+    public long getAvailableHeapBytes() {
+        return runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+    }
+
+    /**
+     * 剩余可用于位图像素的内存：8.0以下位图在Java堆上，取剩余堆内存；
+     * 8.0起位图在native内存，取系统可用内存中高于低内存阈值的部分
+     */
+    public long getAvailableBitmapBytes() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O || activityManager == null) {
+            return getAvailableHeapBytes();
+        }
+        return getAvailableSystemBytes();
+    }
+
+    /**
+     * 按当前压力可用于单次大块分配（如页面位图）的预算
+     */
+    public long getAllocationBudgetBytes() {
+        float ratio = getPressure().budgetRatio;
+        if (lowRamDevice) {
+            ratio *= LOW_RAM_BUDGET_FACTOR;
+        }
+        return (long) (Math.max(0, getAvailableBitmapBytes()) * ratio);
+    }
+
+    /**
+     * 按当前压力可用于预取的预算，压力达到LOW后不再预取
+     */
+    public long getPrefetchBudgetBytes() {
+        Pressure pressure = getPressure();
+        if (pressure.ordinal() >= Pressure.LOW.ordinal()) {
+            return 0;
+        }
+        float ratio = pressure == Pressure.MODERATE ? PREFETCH_RATIO / 2 : PREFETCH_RATIO;
+        if (lowRamDevice) {
+            ratio *= LOW_RAM_BUDGET_FACTOR;
+        }
+        return (long) (Math.max(0, getAvailableBitmapBytes()) * ratio);
+    }
+
+    /**
+     * 判断能否分配指定大小的内存
+     */
+    public boolean canAllocate(long bytes) {
+        return bytes <= getAllocationBudgetBytes();
+    }
+
+    public boolean isLowRamDevice() {
+        return lowRamDevice;
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        // 级别数值不是按严重程度连续排列的：后台级别 >= BACKGROUND，前台运行级别 < UI_HIDDEN
+        Pressure shed;
+        if (level >= TRIM_MEMORY_MODERATE) {
+            // 在后台且即将被回收，尽量释放
+            shed = Pressure.CRITICAL;
+        } else if (level >= TRIM_MEMORY_UI_HIDDEN) {
+            // 界面不可见：复用池没有意义，其余减半
+            shed = Pressure.LOW;
+        } else if (level >= TRIM_MEMORY_RUNNING_CRITICAL) {
+            shed = Pressure.CRITICAL;
+        } else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            shed = Pressure.LOW;
+        } else if (level >= TRIM_MEMORY_RUNNING_MODERATE) {
+            shed = Pressure.MODERATE;
+        } else {
+            return;
+        }
+        if (level < TRIM_MEMORY_UI_HIDDEN) {
+            // 只有前台运行时的压力才限制生产方预算，回到前台后不受后台收缩影响
+            systemPressure = shed;
+            systemPressureTime = SystemClock.uptimeMillis();
+        }
+        shed(shed, "onTrimMemory(" + level + ")");
+    }
+
+    @Override
+    public void onLowMemory() {
+        systemPressure = Pressure.CRITICAL;
+        systemPressureTime = SystemClock.uptimeMillis();
+        shed(Pressure.CRITICAL, "onLowMemory");
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+    }
+
+    /**
+     * 按压力等级收缩缓存，可在任意线程调用，实际收缩在主线程执行
+     */
+    public void shed(Pressure pressure, String reason) {
+        if (pressure == Pressure.NORMAL) {
+            return;
+        }
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            mainHandler.post(() -> shed(pressure, reason));
+            return;
+        }
+
+        long before = getUsedHeapBytes();
+        List<String> trimmed = new ArrayList<>();
+        for (Priority priority : Priority.values()) {
+            float keep = keepFraction(priority, pressure);
+            if (keep >= 1f) {
+                continue;
+            }
+            for (Entry entry : entries) {
+                if (entry.priority != priority) {
+                    continue;
+                }
+                try {
+                    entry.cache.trimToFraction(keep);
+                    trimmed.add(entry.name);
+                } catch (Exception e) {
+                    Log.e(TAG, "收缩缓存失败: " + entry.name, e);
+                }
+            }
+        }
+        lastShed = pressure;
+        shedCount++;
+        long freed = before - getUsedHeapBytes();
+        Log.w(TAG, "内存压力 " + pressure + " (" + reason + ")，已收缩: " + trimmed
+                + "，堆变化 " + (freed / 1024) + "KB");
+        FlightRecorder.record(FlightRecorder.Category.MEMORY, "收缩缓存 " + pressure, freed / 1024);
+    }
+
+    /**
+     * 各缓存的占用和当前预算
+     */
+    public String getStats() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.US, "MemoryCoordinator: pressure=%s heap=%dMB/%dMB budget=%dMB prefetch=%dMB shed=%d lowRam=%b",
+                getPressure(), getUsedHeapBytes() / 1024 / 1024, runtime.maxMemory() / 1024 / 1024,
+                getAllocationBudgetBytes() / 1024 / 1024, getPrefetchBudgetBytes() / 1024 / 1024,
+                shedCount, lowRamDevice));
+        for (Entry entry : entries) {
+            long size = entry.cache.getSizeBytes();
+            sb.append("\n  ").append(entry.name).append(" [").append(entry.priority).append("] ")
+                    .append(size >= 0 ? (size / 1024) + "KB" : "unknown");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 按堆使用率更新压力，压力升高时主动收缩；在后台线程执行
+     */
+    private void checkHeap() {
+        float usage = (float) getUsedHeapBytes() / runtime.maxMemory();
+        Pressure pressure;
+        if (usage >= HEAP_CRITICAL_RATIO) {
+            pressure = Pressure.CRITICAL;
+        } else if (usage >= HEAP_LOW_RATIO) {
+            pressure = Pressure.LOW;
+        } else if (usage >= HEAP_MODERATE_RATIO) {
+            pressure = Pressure.MODERATE;
+        } else {
+            pressure = Pressure.NORMAL;
+        }
+        heapPressure = pressure;
+        if (pressure == Pressure.NORMAL) {
+            lastShed = Pressure.NORMAL;
+        } else if (pressure.ordinal() > lastShed.ordinal()) {
+            shed(pressure, String.format(Locale.US, "堆使用率 %.0f%%", usage * 100));
+        }
+    }
+
+    private synchronized long getAvailableSystemBytes() {
+        long now = SystemClock.uptimeMillis();
+        if (systemMemoryTime == 0 || now - systemMemoryTime >= SYSTEM_MEMORY_REFRESH_MS) {
+            activityManager.getMemoryInfo(systemMemoryInfo);
+            systemMemoryTime = now;
+        }
+        // 低于threshold时系统开始回收后台进程，只把阈值以上的部分算作可用
+        return systemMemoryInfo.lowMemory ? 0 : systemMemoryInfo.availMem - systemMemoryInfo.threshold;
+    }
+
+    private long getUsedHeapBytes() {
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static float keepFraction(Priority priority, Pressure pressure) {
+        switch (pressure) {
+            case MODERATE:
+                return priority == Priority.DISPOSABLE ? 0.5f : 1f;
+            case LOW:
+                return priority == Priority.DISPOSABLE ? 0f : 0.5f;
+            case CRITICAL:
+                return 0f;
+            default:
+                return 1f;
+        }
+    }
+}
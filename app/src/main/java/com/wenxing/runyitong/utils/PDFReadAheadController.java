@@ -0,0 +1,227 @@
+package com.wenxing.runyitong.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * PDF阅读预读控制器
+ * 监听页面列表的滚动方向和速度，提前以预览分辨率渲染前方N页；
+ * N随滚动速度增大，同时受内存预算限制。滚动停止后把可视页面升级为最终分辨率。
+ */
+public class PDFReadAheadController {
+    private static final String TAG = "PDFReadAheadController";
+
+    // 预读页数范围
+    public static final int MIN_READ_AHEAD = 2;
+    public static final int MAX_READ_AHEAD = 12;
+    // 每增加一页预读所需的速度（像素/毫秒）
+    private static final float VELOCITY_PER_EXTRA_PAGE = 1.5f;
+    // 超过该速度视为快速滚动，新绑定的页面先渲染预览
+    private static final float FAST_SCROLL_VELOCITY = 3.0f;
+    // 速度平滑系数
+    private static final float VELOCITY_SMOOTHING = 0.3f;
+    // 滚动停止后等待多久再升级分辨率
+    private static final long SETTLE_DELAY_MS = 200;
+    // 预读窗口之外额外保留的页数（覆盖RecyclerView的视图缓存）
+    private static final int RETAIN_MARGIN = 3;
+
+    /**
+     * 预读目标，由页面适配器实现
+     */
+    public interface PrerenderTarget {
+        int getPageCount();
+        void prerenderPage(int position, boolean preview);
+        void upgradePage(int position);
+        void releasePagesOutside(int firstKept, int lastKept);
+        long estimatePageBytes(boolean preview);
+        void onReadAheadChanged(int readAheadCount);
+    }
+
+    private final PrerenderTarget target;
+    private final Handler mainHandler;
+    private RecyclerView recyclerView;
+
+    private float velocity = 0f; // 像素/毫秒，带方向
+    private long lastScrollTime = 0;
+    private int direction = 1;
+    private int readAheadCount = MIN_READ_AHEAD;
+    private int lastFirstVisible = RecyclerView.NO_POSITION;
+    private int lastLastVisible = RecyclerView.NO_POSITION;
+
+    private final Runnable settleRunnable = this::onScrollSettled;
+
+    private final RecyclerView.OnScrollListener scrollListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(@NonNull RecyclerView rv, int dx, int dy) {
+            int delta = isVertical() ? dy : dx;
+            if (delta == 0) {
+                return;
+            }
+            trackVelocity(delta);
+            scheduleReadAhead(false);
+        }
+
+        @Override
+        public void onScrollStateChanged(@NonNull RecyclerView rv, int newState) {
+            mainHandler.removeCallbacks(settleRunnable);
+            if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                mainHandler.postDelayed(settleRunnable, SETTLE_DELAY_MS);
+            }
+        }
+    };
+
+    public PDFReadAheadController(PrerenderTarget target) {
+        if (target == null) {
+            throw new IllegalArgumentException("PrerenderTarget不能为空");
+        }
+        this.target = target;
+        this.mainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    public void attach(RecyclerView recyclerView) {
+        detach();
+        this.recyclerView = recyclerView;
+        if (recyclerView != null) {
+            recyclerView.addOnScrollListener(scrollListener);
+        }
+    }
+
+    public void detach() {
+        mainHandler.removeCallbacks(settleRunnable);
+        if (recyclerView != null) {
+            recyclerView.removeOnScrollListener(scrollListener);
+            recyclerView = null;
+        }
+        velocity = 0f;
+        lastScrollTime = 0;
+        lastFirstVisible = RecyclerView.NO_POSITION;
+        lastLastVisible = RecyclerView.NO_POSITION;
+    }
+
+    /**
+     * 是否正在快速滚动，快速滚动时新页面先以预览分辨率渲染
+     */
+    public boolean isScrollingFast() {
+        return recyclerView != null
+                && recyclerView.getScrollState() != RecyclerView.SCROLL_STATE_IDLE
+                && Math.abs(velocity) >= FAST_SCROLL_VELOCITY;
+    }
+
+    public int getReadAheadCount() {
+        return readAheadCount;
+    }
+
+    public float getVelocity() {
+        return velocity;
+    }
+
+    private boolean isVertical() {
+        if (recyclerView != null && recyclerView.getLayoutManager() instanceof LinearLayoutManager) {
+            return ((LinearLayoutManager) recyclerView.getLayoutManager()).getOrientation() == RecyclerView.VERTICAL;
+        }
+        return true;
+    }
+
+    private void trackVelocity(int delta) {
+        long now = SystemClock.uptimeMillis();
+        long elapsed = lastScrollTime > 0 ? now - lastScrollTime : 0;
+        lastScrollTime = now;
+
+        if (elapsed <= 0 || elapsed > 100) {
+            // 刚开始滚动或中断过，只记录方向
+            direction = delta > 0 ? 1 : -1;
+            return;
+        }
+
+        float instant = (float) delta / elapsed;
+        velocity = velocity + VELOCITY_SMOOTHING * (instant - velocity);
+        direction = velocity >= 0 ? 1 : -1;
+    }
+
+    private int computeReadAheadCount() {
+        int bySpeed = MIN_READ_AHEAD + (int) (Math.abs(velocity) / VELOCITY_PER_EXTRA_PAGE);
+        int count = Math.min(MAX_READ_AHEAD, bySpeed);
+
+        long pageBytes = target.estimatePageBytes(true);
+        if (pageBytes > 0) {
+            // 预取预算随内存压力收紧，压力较高时不再预读
+            long budget = MemoryCoordinator.getInstance().getPrefetchBudgetBytes();
+            int byMemory = (int) Math.max(0, budget / pageBytes);
+            count = Math.min(count, byMemory);
+        }
+
+        return Math.max(0, count);
+    }
+
+    private void scheduleReadAhead(boolean force) {
+        if (recyclerView == null || !(recyclerView.getLayoutManager() instanceof LinearLayoutManager)) {
+            return;
+        }
+
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        int first = layoutManager.findFirstVisibleItemPosition();
+        int last = layoutManager.findLastVisibleItemPosition();
+        if (first == RecyclerView.NO_POSITION || last == RecyclerView.NO_POSITION) {
+            return;
+        }
+
+        int newCount = computeReadAheadCount();
+        boolean countChanged = newCount != readAheadCount;
+        if (!force && !countChanged && first == lastFirstVisible && last == lastLastVisible) {
+            return;
+        }
+
+        lastFirstVisible = first;
+        lastLastVisible = last;
+        if (countChanged) {
+            readAheadCount = newCount;
+            target.onReadAheadChanged(newCount);
+        }
+
+        int pageCount = target.getPageCount();
+        if (direction > 0) {
+            for (int i = 1; i <= readAheadCount && last + i < pageCount; i++) {
+                target.prerenderPage(last + i, true);
+            }
+        } else {
+            for (int i = 1; i <= readAheadCount && first - i >= 0; i++) {
+                target.prerenderPage(first - i, true);
+            }
+        }
+    }
+
+    private void onScrollSettled() {
+        if (recyclerView == null || !(recyclerView.getLayoutManager() instanceof LinearLayoutManager)) {
+            return;
+        }
+
+        velocity = 0f;
+        lastScrollTime = 0;
+
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        int first = layoutManager.findFirstVisibleItemPosition();
+        int last = layoutManager.findLastVisibleItemPosition();
+        if (first == RecyclerView.NO_POSITION || last == RecyclerView.NO_POSITION) {
+            return;
+        }
+
+        // 可视页面升级为最终分辨率
+        for (int position = first; position <= last; position++) {
+            target.upgradePage(position);
+        }
+
+        // 停止后仍按阅读方向保持少量预读
+        scheduleReadAhead(true);
+
+        int margin = readAheadCount + RETAIN_MARGIN;
+        target.releasePagesOutside(Math.max(0, first - margin), last + margin);
+
+        Log.d(TAG, "滚动停止，升级页面 [" + first + ", " + last + "]，预读 " + readAheadCount + " 页");
+    }
+}
@@ -0,0 +1,519 @@
+package com.wenxing.runyitong.utils;
+
+import android.graphics.Bitmap;
+import android.graphics.pdf.PdfRenderer;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * PDF页面渲染调度器
+ * PdfRenderer同一时间只允许打开一页且不是线程安全的，因此每个文档只由一个专属线程访问。
+ * 待渲染请求按与可视区域的距离排序，滑出预取范围的请求会被取消，
+ * 连续的缩放变化会被合并为一次重新渲染。
+ */
+public class PDFRenderScheduler {
+    private static final String TAG = "PDFRenderScheduler";
+
+    // 渲染位图的最大边长，避免内存问题
+    private static final int MAX_BITMAP_SIZE = 2048;
+    // 默认预取距离（可视区域之外保留的页数）
+    public static final int DEFAULT_PREFETCH_DISTANCE = 3;
+    // 缩放合并窗口
+    private static final long ZOOM_COALESCE_DELAY_MS = 150;
+
+    /**
+     * 渲染结果回调，始终在主线程调用
+     */
+    public interface RenderCallback {
+        void onRenderComplete(int pageIndex, Bitmap bitmap, int originalWidth, int originalHeight, float zoom);
+        void onRenderFailed(int pageIndex, String errorMessage);
+        void onRenderCancelled(int pageIndex);
+    }
+
+    /**
+     * 缩放合并完成回调，在主线程调用
+     */
+    public interface ZoomChangeListener {
+        void onZoomApplied(float zoom);
+    }
+
+    /**
+     * 渲染请求
+     */
+    private static class RenderRequest {
+        final int pageIndex;
+        final float zoom;
+        final int generation;
+        final long sequence;
+        final RenderCallback callback;
+        volatile boolean cancelled;
+
+        RenderRequest(int pageIndex, float zoom, int generation, long sequence, RenderCallback callback) {
+            this.pageIndex = pageIndex;
+            this.zoom = zoom;
+            this.generation = generation;
+            this.sequence = sequence;
+            this.callback = callback;
+        }
+    }
+
+    private final PdfRenderer pdfRenderer;
+    private final Handler mainHandler;
+    private final Object lock = new Object();
+    private final PriorityQueue<RenderRequest> queue;
+    private final Map<Integer, RenderRequest> pendingByPage = new HashMap<>();
+    // 每页最近一次提交的请求序号，用于识别已被新请求取代的旧请求
+    private final Map<Integer, Long> latestSequenceByPage = new HashMap<>();
+    private final Thread ownerThread;
+
+    private volatile boolean running = true;
+
+    // 以下字段由lock保护
+    private int generation = 0;
+    private int firstVisiblePage = 0;
+    private int lastVisiblePage = 0;
+    private int prefetchDistance = DEFAULT_PREFETCH_DISTANCE;
+    private long sequenceCounter = 0;
+    private RenderRequest inFlight;
+    // 渲染线程退出前执行的最后一个任务（如关闭PdfRenderer），以及线程是否已退出
+    private Runnable terminationAction;
+    private boolean terminated = false;
+    private int completedCount = 0;
+    private int cancelledCount = 0;
+
+    // 缩放合并（仅在主线程访问）
+    private Runnable pendingZoomTask;
+
+    public PDFRenderScheduler(PdfRenderer pdfRenderer) {
+        if (pdfRenderer == null) {
+            throw new IllegalArgumentException("PdfRenderer不能为空");
+        }
+
+        this.pdfRenderer = pdfRenderer;
+        this.mainHandler = new Handler(Looper.getMainLooper());
+        this.queue = new PriorityQueue<>(16, (a, b) -> {
+            int distanceA = distanceFromViewport(a.pageIndex);
+            int distanceB = distanceFromViewport(b.pageIndex);
+            if (distanceA != distanceB) {
+                return Integer.compare(distanceA, distanceB);
+            }
+            return Long.compare(a.sequence, b.sequence);
+        });
+
+        this.ownerThread = new Thread(this::runLoop, "PDFRender-owner");
+        this.ownerThread.setPriority(Thread.NORM_PRIORITY - 1);
+        this.ownerThread.start();
+
+        Log.d(TAG, "渲染调度器已启动");
+    }
+
+    /**
+     * 提交页面渲染请求，同一页面的旧请求会被替换
+     * @return 调度器已关闭时返回false
+     */
+    public boolean submit(int pageIndex, float zoom, RenderCallback callback) {
+        if (!running || callback == null) {
+            return false;
+        }
+
+        synchronized (lock) {
+            RenderRequest existing = pendingByPage.remove(pageIndex);
+            if (existing != null) {
+                queue.remove(existing);
+            }
+
+            RenderRequest request = new RenderRequest(pageIndex, zoom, generation, sequenceCounter++, callback);
+            pendingByPage.put(pageIndex, request);
+            latestSequenceByPage.put(pageIndex, request.sequence);
+            queue.add(request);
+            lock.notifyAll();
+        }
+        return true;
+    }
+
+    /**
+     * 取消指定页面的渲染请求
+     */
+    public void cancel(int pageIndex) {
+        RenderRequest removed;
+        synchronized (lock) {
+            removed = pendingByPage.remove(pageIndex);
+            if (removed != null) {
+                queue.remove(removed);
+                cancelledCount++;
+            }
+            if (inFlight != null && inFlight.pageIndex == pageIndex) {
+                inFlight.cancelled = true;
+            }
+        }
+
+        if (removed != null) {
+            postCancelled(removed);
+        }
+    }
+
+    /**
+     * 更新可视区域，重新排序队列并取消超出预取范围的请求
+     */
+    public void setVisibleRange(int firstPage, int lastPage) {
+        if (firstPage < 0 || lastPage < firstPage) {
+            return;
+        }
+
+        List<RenderRequest> stale = new ArrayList<>();
+        synchronized (lock) {
+            if (firstPage == firstVisiblePage && lastPage == lastVisiblePage) {
+                return;
+            }
+
+            firstVisiblePage = firstPage;
+            lastVisiblePage = lastPage;
+
+            // 可视区域变化后比较结果也会变化，需要重建堆
+            List<RenderRequest> remaining = new ArrayList<>(queue.size());
+            for (RenderRequest request : queue) {
+                if (distanceFromViewport(request.pageIndex) > prefetchDistance) {
+                    stale.add(request);
+                    pendingByPage.remove(request.pageIndex);
+                } else {
+                    remaining.add(request);
+                }
+            }
+            queue.clear();
+            queue.addAll(remaining);
+            cancelledCount += stale.size();
+
+            if (inFlight != null && distanceFromViewport(inFlight.pageIndex) > prefetchDistance) {
+                inFlight.cancelled = true;
+            }
+        }
+
+        for (RenderRequest request : stale) {
+            postCancelled(request);
+        }
+
+        if (!stale.isEmpty()) {
+            Log.d(TAG, "可视区域 [" + firstPage + ", " + lastPage + "]，取消过期请求 " + stale.size() + " 个");
+        }
+    }
+
+    /**
+     * 设置预取距离
+     */
+    public void setPrefetchDistance(int distance) {
+        synchronized (lock) {
+            prefetchDistance = Math.max(0, distance);
+        }
+    }
+
+    public int getPrefetchDistance() {
+        synchronized (lock) {
+            return prefetchDistance;
+        }
+    }
+
+    /**
+     * 合并连续的缩放变化，只有最后一次变化会在短暂延迟后生效。
+     * 生效时所有旧缩放级别的请求都会作废。必须在主线程调用。
+     */
+    public void requestZoom(float zoom, ZoomChangeListener listener) {
+        if (!running) {
+            return;
+        }
+
+        if (pendingZoomTask != null) {
+            mainHandler.removeCallbacks(pendingZoomTask);
+        }
+
+        pendingZoomTask = () -> {
+            pendingZoomTask = null;
+            if (!running) {
+                return;
+            }
+            invalidateAll();
+            if (listener != null) {
+                listener.onZoomApplied(zoom);
+            }
+        };
+        mainHandler.postDelayed(pendingZoomTask, ZOOM_COALESCE_DELAY_MS);
+    }
+
+    /**
+     * 作废所有待渲染和正在渲染的请求
+     */
+    public void invalidateAll() {
+        List<RenderRequest> dropped;
+        synchronized (lock) {
+            generation++;
+            dropped = new ArrayList<>(queue);
+            queue.clear();
+            pendingByPage.clear();
+            cancelledCount += dropped.size();
+            if (inFlight != null) {
+                inFlight.cancelled = true;
+            }
+        }
+
+        for (RenderRequest request : dropped) {
+            postCancelled(request);
+        }
+    }
+
+    /**
+     * 当前排队中的请求数量
+     */
+    public int getQueueDepth() {
+        synchronized (lock) {
+            return queue.size();
+        }
+    }
+
+    /**
+     * 获取调度统计信息
+     */
+    public String getStats() {
+        synchronized (lock) {
+            return "排队: " + queue.size() + ", 完成: " + completedCount + ", 取消: " + cancelledCount;
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 关闭调度器，不等待当前渲染结束
+     */
+    public void shutdown() {
+        shutdown(null);
+    }
+
+    /**
+     * 关闭调度器并立即返回，渲染线程结束当前页后退出；
+     * onTerminated作为渲染线程的最后一个任务执行，用于关闭PdfRenderer，线程已退出时在调用线程执行
+     */
+    public void shutdown(Runnable onTerminated) {
+        if (!running) {
+            return;
+        }
+        running = false;
+
+        if (pendingZoomTask != null) {
+            mainHandler.removeCallbacks(pendingZoomTask);
+            pendingZoomTask = null;
+        }
+
+        boolean runNow;
+        synchronized (lock) {
+            queue.clear();
+            pendingByPage.clear();
+            if (inFlight != null) {
+                inFlight.cancelled = true;
+            }
+            runNow = terminated;
+            if (!terminated) {
+                terminationAction = onTerminated;
+            }
+            lock.notifyAll();
+        }
+        if (runNow && onTerminated != null) {
+            onTerminated.run();
+        }
+
+        Log.d(TAG, "渲染调度器已关闭，" + getStats());
+    }
+
+    // 渲染线程主循环，退出前执行关闭时登记的任务
+    private void runLoop() {
+        try {
+            renderLoop();
+        } finally {
+            Runnable action;
+            synchronized (lock) {
+                terminated = true;
+                action = terminationAction;
+                terminationAction = null;
+            }
+            if (action != null) {
+                try {
+                    action.run();
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "渲染线程退出任务执行失败", e);
+                }
+            }
+        }
+    }
+
+    private void renderLoop() {
+        while (running) {
+            RenderRequest request;
+            synchronized (lock) {
+                while (running && queue.isEmpty()) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (!running) {
+                    return;
+                }
+                request = queue.poll();
+                pendingByPage.remove(request.pageIndex);
+                inFlight = request;
+            }
+
+            try {
+                renderPage(request);
+            } finally {
+                synchronized (lock) {
+                    inFlight = null;
+                }
+            }
+        }
+    }
+
+    private void renderPage(RenderRequest request) {
+        if (isStale(request)) {
+            postCancelled(request);
+            return;
+        }
+
+        PdfRenderer.Page pdfPage = null;
+        Bitmap bitmap = null;
+        try {
+            if (request.pageIndex < 0 || request.pageIndex >= pdfRenderer.getPageCount()) {
+                throw new IllegalArgumentException("页面索引超出范围: " + request.pageIndex);
+            }
+
+            pdfPage = pdfRenderer.openPage(request.pageIndex);
+
+            int originalWidth = pdfPage.getWidth();
+            int originalHeight = pdfPage.getHeight();
+            if (originalWidth <= 0 || originalHeight <= 0) {
+                throw new IllegalStateException("页面尺寸无效: " + originalWidth + "x" + originalHeight);
+            }
+
+            float effectiveZoom = Math.max(0.1f, Math.min(5.0f, request.zoom));
+            int width = Math.max(1, (int) (originalWidth * effectiveZoom));
+            int height = Math.max(1, (int) (originalHeight * effectiveZoom));
+
+            if (width > MAX_BITMAP_SIZE || height > MAX_BITMAP_SIZE) {
+                float scale = Math.min((float) MAX_BITMAP_SIZE / width, (float) MAX_BITMAP_SIZE / height);
+                width = Math.max(1, (int) (width * scale));
+                height = Math.max(1, (int) (height * scale));
+            }
+
+            // 按当前内存压力下的预算检查，内存紧张时宁可失败也不触发OOM
+            long requiredMemory = (long) width * height * 4;
+            if (!MemoryCoordinator.getInstance().canAllocate(requiredMemory)) {
+                throw new OutOfMemoryError("内存不足，无法创建bitmap: 需要 " + (requiredMemory / 1024 / 1024) + "MB");
+            }
+
+            // 打开页面后再检查一次，尽量不浪费渲染
+            if (isStale(request)) {
+                postCancelled(request);
+                return;
+            }
+
+            bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            pdfPage.render(bitmap, null, null, PdfRenderer.Page.RENDER_MODE_FOR_DISPLAY);
+
+            postComplete(request, bitmap, originalWidth, originalHeight, effectiveZoom);
+            bitmap = null;
+        } catch (OutOfMemoryError e) {
+            Log.e(TAG, "内存不足，无法渲染页面 " + (request.pageIndex + 1), e);
+            postFailed(request, "内存不足");
+        } catch (Exception e) {
+            Log.e(TAG, "渲染页面 " + (request.pageIndex + 1) + " 失败", e);
+            postFailed(request, "加载失败: " + e.getMessage());
+        } finally {
+            if (bitmap != null && !bitmap.isRecycled()) {
+                bitmap.recycle();
+            }
+            if (pdfPage != null) {
+                try {
+                    pdfPage.close();
+                } catch (Exception e) {
+                    Log.w(TAG, "关闭PDF页面时发生错误", e);
+                }
+            }
+        }
+    }
+
+    private boolean isStale(RenderRequest request) {
+        if (!running || request.cancelled) {
+            return true;
+        }
+        synchronized (lock) {
+            return request.generation != generation;
+        }
+    }
+
+    /**
+     * 同一页面之后又提交过请求时，旧请求的取消回调不应再改动页面状态
+     */
+    private boolean isSuperseded(RenderRequest request) {
+        synchronized (lock) {
+            Long latest = latestSequenceByPage.get(request.pageIndex);
+            return latest != null && latest > request.sequence;
+        }
+    }
+
+    private void deliverCancelled(RenderRequest request) {
+        if (isSuperseded(request)) {
+            return;
+        }
+        request.callback.onRenderCancelled(request.pageIndex);
+    }
+
+    // 调用方需持有lock
+    private int distanceFromViewport(int pageIndex) {
+        if (pageIndex < firstVisiblePage) {
+            return firstVisiblePage - pageIndex;
+        }
+        if (pageIndex > lastVisiblePage) {
+            return pageIndex - lastVisiblePage;
+        }
+        return 0;
+    }
+
+    private void postComplete(RenderRequest request, Bitmap bitmap, int originalWidth, int originalHeight, float zoom) {
+        mainHandler.post(() -> {
+            // 投递期间请求可能已经作废
+            if (isStale(request)) {
+                if (!bitmap.isRecycled()) {
+                    bitmap.recycle();
+                }
+                deliverCancelled(request);
+                return;
+            }
+            synchronized (lock) {
+                completedCount++;
+            }
+            request.callback.onRenderComplete(request.pageIndex, bitmap, originalWidth, originalHeight, zoom);
+        });
+    }
+
+    private void postFailed(RenderRequest request, String errorMessage) {
+        mainHandler.post(() -> {
+            if (isStale(request)) {
+                deliverCancelled(request);
+                return;
+            }
+            request.callback.onRenderFailed(request.pageIndex, errorMessage);
+        });
+    }
+
+    private void postCancelled(RenderRequest request) {
+        mainHandler.post(() -> deliverCancelled(request));
+    }
+}
@@ -0,0 +1,141 @@
+package com.wenxing.runyitong.utils;
+
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.RectF;
+import android.graphics.drawable.Drawable;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * PDF搜索命中高亮层
+ * 作为页面ImageView的前景绘制，不修改页面位图。
+ * 命中矩形为页面归一化坐标，绘制时映射到位图在视图中的实际显示区域，
+ * 因此预览/高清位图切换和缩放都不需要重新计算。
+ */
+public class PDFSearchHighlightDrawable extends Drawable {
+    private static final int HIT_COLOR = 0x55FFEB3B;
+    private static final int ACTIVE_FILL_COLOR = 0x66FF9800;
+    private static final int ACTIVE_STROKE_COLOR = 0xFFFF9800;
+    private static final float ACTIVE_STROKE_WIDTH = 3f;
+
+    private final Paint hitPaint;
+    private final Paint activeFillPaint;
+    private final Paint activeStrokePaint;
+
+    private final List<RectF> hitRects = new ArrayList<>();
+    private final List<RectF> activeRects = new ArrayList<>();
+    private final RectF contentRect = new RectF();
+    private final RectF drawRect = new RectF();
+
+    public PDFSearchHighlightDrawable() {
+        hitPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        hitPaint.setStyle(Paint.Style.FILL);
+        hitPaint.setColor(HIT_COLOR);
+
+        activeFillPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        activeFillPaint.setStyle(Paint.Style.FILL);
+        activeFillPaint.setColor(ACTIVE_FILL_COLOR);
+
+        activeStrokePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        activeStrokePaint.setStyle(Paint.Style.STROKE);
+        activeStrokePaint.setStrokeWidth(ACTIVE_STROKE_WIDTH);
+        activeStrokePaint.setColor(ACTIVE_STROKE_COLOR);
+    }
+
+    /**
+     * 设置本页所有命中矩形和当前选中命中的矩形
+     */
+    public void setHits(List<RectF> hits, List<RectF> active) {
+        hitRects.clear();
+        activeRects.clear();
+        if (hits != null) {
+            hitRects.addAll(hits);
+        }
+        if (active != null) {
+            activeRects.addAll(active);
+        }
+        invalidateSelf();
+    }
+
+    public void clearHits() {
+        if (hitRects.isEmpty() && activeRects.isEmpty()) {
+            return;
+        }
+        hitRects.clear();
+        activeRects.clear();
+        invalidateSelf();
+    }
+
+    public boolean hasHits() {
+        return !hitRects.isEmpty() || !activeRects.isEmpty();
+    }
+
+    /**
+     * 设置页面位图在视图中的显示区域（视图坐标）
+     */
+    public void setContentRect(RectF rect) {
+        if (rect == null) {
+            contentRect.setEmpty();
+        } else if (contentRect.equals(rect)) {
+            return;
+        } else {
+            contentRect.set(rect);
+        }
+        invalidateSelf();
+    }
+
+    @Override
+    public void draw(@NonNull Canvas canvas) {
+        if (contentRect.isEmpty() || !hasHits()) {
+            return;
+        }
+
+        for (RectF rect : hitRects) {
+            canvas.drawRect(mapRect(rect), hitPaint);
+        }
+        for (RectF rect : activeRects) {
+            RectF mapped = mapRect(rect);
+            canvas.drawRect(mapped, activeFillPaint);
+            canvas.drawRect(mapped, activeStrokePaint);
+        }
+    }
+
+    private RectF mapRect(RectF normalized) {
+        float width = contentRect.width();
+        float height = contentRect.height();
+        drawRect.set(
+                contentRect.left + normalized.left * width,
+                contentRect.top + normalized.top * height,
+                contentRect.left + normalized.right * width,
+                contentRect.top + normalized.bottom * height);
+        return drawRect;
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        hitPaint.setAlpha(Math.round(Math.min(255, alpha) * (HIT_COLOR >>> 24) / 255f));
+        activeFillPaint.setAlpha(Math.round(Math.min(255, alpha) * (ACTIVE_FILL_COLOR >>> 24) / 255f));
+        activeStrokePaint.setAlpha(alpha);
+        invalidateSelf();
+    }
+
+    @Override
+    public void setColorFilter(@Nullable ColorFilter colorFilter) {
+        hitPaint.setColorFilter(colorFilter);
+        activeFillPaint.setColorFilter(colorFilter);
+        activeStrokePaint.setColorFilter(colorFilter);
+        invalidateSelf();
+    }
+
+    @Override
+    public int getOpacity() {
+        return PixelFormat.TRANSLUCENT;
+    }
+}
@@ -1,9 +1,11 @@
 package com.wenxing.runyitong.utils;
 
+import android.graphics.RectF;
 import android.graphics.pdf.PdfRenderer;
 import android.util.Log;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -18,6 +20,8 @@ public class PDFSearchUtils {
         private int endIndex;
         private String contextBefore;
         private String contextAfter;
+        // 命中文本在页面上的归一化矩形（0~1，左上角为原点），每行一个
+        private List<RectF> hitRects = Collections.emptyList();
         
         public SearchResult(int pageNumber, String matchedText, int startIndex, int endIndex, 
                           String contextBefore, String contextAfter) {
@@ -37,6 +41,13 @@ public class PDFSearchUtils {
         public int getEndIndex() { return endIndex; }
         public String getContextBefore() { return contextBefore; }
         public String getContextAfter() { return contextAfter; }
+        public List<RectF> getHitRects() { return hitRects; }
+        
+        public void setHitRects(List<RectF> hitRects) {
+            this.hitRects = hitRects != null ? hitRects : Collections.<RectF>emptyList();
+        }
+        
+        public boolean hasHitRects() { return !hitRects.isEmpty(); }
         
         public String getDisplayText() {
             return "第 " + (pageNumber + 1) + " 页: ..." + contextBefore + 
@@ -168,6 +179,46 @@ public class PDFSearchUtils {
         return results;
     }
     
+    /**
+     * 基于文本索引在PDF中搜索，结果附带命中文本的页面位置矩形
+     * 需在后台线程调用，首次搜索时会逐页提取文本
+     */
+    public static List<SearchResult> searchInPDF(PDFTextIndex textIndex, String query, SearchOptions options) {
+        List<SearchResult> results = new ArrayList<>();
+        
+        if (textIndex == null || query == null || query.trim().isEmpty()) {
+            return results;
+        }
+        
+        String cleanQuery = cleanSearchQuery(query);
+        if (cleanQuery.isEmpty()) {
+            return results;
+        }
+        
+        try {
+            int pageCount = textIndex.getPageCount();
+            Log.d(TAG, "开始索引搜索，共 " + pageCount + " 页，关键词: " + cleanQuery);
+            
+            for (int i = 0; i < pageCount && results.size() < options.getMaxResults(); i++) {
+                List<SearchResult> pageResults = searchInPageText(i, textIndex.getPageText(i), cleanQuery, options);
+                for (SearchResult result : pageResults) {
+                    result.setHitRects(textIndex.getRectsForRange(i, result.getStartIndex(), result.getEndIndex()));
+                    results.add(result);
+                    if (results.size() >= options.getMaxResults()) {
+                        break;
+                    }
+                }
+            }
+            
+            Log.d(TAG, "索引搜索完成，找到 " + results.size() + " 个结果");
+            
+        } catch (Exception e) {
+            Log.e(TAG, "搜索过程中发生错误", e);
+        }
+        
+        return results;
+    }
+    
     /**
      * 模拟页面搜索（实际应用中需要真正的PDF文本提取）
      */
@@ -187,13 +238,18 @@ public class PDFSearchUtils {
      * 注意：这是一个模拟实现，实际需要PDF文本提取功能
      */
     private static List<SearchResult> searchInPage(int pageNumber, String query, SearchOptions options) {
+        // 模拟页面文本内容（实际应该从PDF页面提取文本）
+        return searchInPageText(pageNumber, generateMockPageText(pageNumber), query, options);
+    }
+    
+    /**
+     * 在给定的页面文本中搜索
+     */
+    private static List<SearchResult> searchInPageText(int pageNumber, String pageText, String query, SearchOptions options) {
         List<SearchResult> results = new ArrayList<>();
         
         try {
-            // 模拟页面文本内容（实际应该从PDF页面提取文本）
-            String pageText = generateMockPageText(pageNumber);
-            
-            if (pageText.isEmpty()) {
+            if (pageText == null || pageText.isEmpty()) {
                 return results;
             }
             
@@ -0,0 +1,277 @@
+package com.wenxing.runyitong.utils;
+
+import android.graphics.RectF;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.itextpdf.text.Rectangle;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.parser.ImageRenderInfo;
+import com.itextpdf.text.pdf.parser.LineSegment;
+import com.itextpdf.text.pdf.parser.PdfReaderContentParser;
+import com.itextpdf.text.pdf.parser.RenderListener;
+import com.itextpdf.text.pdf.parser.TextRenderInfo;
+import com.itextpdf.text.pdf.parser.Vector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * PDF文本索引
+ * 使用iText逐页提取文本，同时记录每个字符的位置框。
+ * 位置框以页面宽高归一化（0~1，左上角为原点，已按页面旋转换算），与渲染分辨率无关，
+ * 可直接映射到任意尺寸的页面位图上绘制搜索高亮。
+ * 所有页面的文本常驻内存用于搜索，字符位置框按LRU缓存，被淘汰后按需重新提取。
+ */
+public class PDFTextIndex {
+    private static final String TAG = "PDFTextIndex";
+    // 字符位置框缓存上限（字节）
+    private static final int MAX_BOX_CACHE_BYTES = 4 * 1024 * 1024;
+    // 基线变化超过字高的该比例时视为换行
+    private static final float LINE_BREAK_RATIO = 0.5f;
+
+    private final String pdfPath;
+    private PdfReader reader;
+    private String[] pageTexts;
+    private final LruCache<Integer, float[]> boxCache;
+
+    /**
+     * 单页提取结果：文本和每个字符的归一化位置框（每个字符4个float：left, top, right, bottom）
+     */
+    public static class PageText {
+        public final String text;
+        public final float[] charBoxes;
+
+        PageText(String text, float[] charBoxes) {
+            this.text = text;
+            this.charBoxes = charBoxes;
+        }
+    }
+
+    public PDFTextIndex(String pdfPath) {
+        this.pdfPath = pdfPath;
+        this.boxCache = new LruCache<Integer, float[]>(MAX_BOX_CACHE_BYTES) {
+            @Override
+            protected int sizeOf(Integer key, float[] value) {
+                return value.length * 4;
+            }
+        };
+    }
+
+    /**
+     * 打开文档，需在后台线程调用
+     */
+    public synchronized void open() throws java.io.IOException {
+        if (reader != null) {
+            return;
+        }
+        reader = new PdfReader(pdfPath);
+        pageTexts = new String[reader.getNumberOfPages()];
+        Log.d(TAG, "打开文本索引: " + pdfPath + ", 共 " + pageTexts.length + " 页");
+    }
+
+    public synchronized int getPageCount() {
+        return pageTexts != null ? pageTexts.length : 0;
+    }
+
+    /**
+     * 获取页面文本（页码从0开始），首次访问时提取，需在后台线程调用
+     */
+    public synchronized String getPageText(int pageIndex) {
+        if (!isValidPage(pageIndex)) {
+            return "";
+        }
+        if (pageTexts[pageIndex] == null) {
+            extractPage(pageIndex);
+        }
+        return pageTexts[pageIndex] != null ? pageTexts[pageIndex] : "";
+    }
+
+    /**
+     * 获取文本区间[start, end)的高亮矩形，同一行的字符合并为一个矩形
+     */
+    public synchronized List<RectF> getRectsForRange(int pageIndex, int start, int end) {
+        List<RectF> rects = new ArrayList<>();
+        if (!isValidPage(pageIndex) || start >= end) {
+            return rects;
+        }
+
+        float[] boxes = boxCache.get(pageIndex);
+        if (boxes == null) {
+            PageText pageText = extractPage(pageIndex);
+            boxes = pageText != null ? pageText.charBoxes : null;
+        }
+        if (boxes == null) {
+            return rects;
+        }
+
+        int charCount = boxes.length / 4;
+        RectF current = null;
+        for (int i = Math.max(0, start); i < Math.min(end, charCount); i++) {
+            float left = boxes[i * 4];
+            float top = boxes[i * 4 + 1];
+            float right = boxes[i * 4 + 2];
+            float bottom = boxes[i * 4 + 3];
+            if (right <= left || bottom <= top) {
+                // 插入的换行符没有位置
+                continue;
+            }
+
+            if (current != null && isSameLine(current, top, bottom)) {
+                current.union(left, top, right, bottom);
+            } else {
+                current = new RectF(left, top, right, bottom);
+                rects.add(current);
+            }
+        }
+        return rects;
+    }
+
+    public synchronized void close() {
+        if (reader != null) {
+            reader.close();
+            reader = null;
+        }
+        boxCache.evictAll();
+    }
+
+    private boolean isValidPage(int pageIndex) {
+        return reader != null && pageTexts != null && pageIndex >= 0 && pageIndex < pageTexts.length;
+    }
+
+    private static boolean isSameLine(RectF line, float top, float bottom) {
+        float overlap = Math.min(line.bottom, bottom) - Math.max(line.top, top);
+        float height = Math.min(line.height(), bottom - top);
+        return overlap > height * 0.5f;
+    }
+
+    // 调用方需持有锁
+    private PageText extractPage(int pageIndex) {
+        int pageNumber = pageIndex + 1; // iText页码从1开始
+        try {
+            Rectangle cropBox = reader.getCropBox(pageNumber);
+            int rotation = reader.getPageRotation(pageNumber);
+            GlyphCollector collector = new GlyphCollector(cropBox, rotation);
+            new PdfReaderContentParser(reader).processContent(pageNumber, collector);
+
+            PageText pageText = collector.build();
+            pageTexts[pageIndex] = pageText.text;
+            boxCache.put(pageIndex, pageText.charBoxes);
+            return pageText;
+        } catch (Exception e) {
+            Log.e(TAG, "提取第 " + pageNumber + " 页文本失败", e);
+            pageTexts[pageIndex] = "";
+            return null;
+        }
+    }
+
+    /**
+     * 收集字符及其位置
+     */
+    private static class GlyphCollector implements RenderListener {
+        private final float llx;
+        private final float lly;
+        private final float width;
+        private final float height;
+        private final int rotation;
+
+        private final StringBuilder text = new StringBuilder();
+        private float[] boxes = new float[256];
+        private float lastBaseline = Float.NaN;
+        private float lastCharHeight = 0f;
+
+        GlyphCollector(Rectangle cropBox, int rotation) {
+            this.llx = cropBox.getLeft();
+            this.lly = cropBox.getBottom();
+            this.width = Math.max(1f, cropBox.getWidth());
+            this.height = Math.max(1f, cropBox.getHeight());
+            this.rotation = ((rotation % 360) + 360) % 360;
+        }
+
+        @Override
+        public void beginTextBlock() {}
+
+        @Override
+        public void endTextBlock() {}
+
+        @Override
+        public void renderImage(ImageRenderInfo renderInfo) {}
+
+        @Override
+        public void renderText(TextRenderInfo renderInfo) {
+            for (TextRenderInfo charInfo : renderInfo.getCharacterRenderInfos()) {
+                String glyph = charInfo.getText();
+                if (glyph == null || glyph.isEmpty()) {
+                    continue;
+                }
+
+                LineSegment descent = charInfo.getDescentLine();
+                LineSegment ascent = charInfo.getAscentLine();
+                Vector bottomLeft = descent.getStartPoint();
+                Vector topRight = ascent.getEndPoint();
+
+                float x0 = Math.min(bottomLeft.get(Vector.I1), topRight.get(Vector.I1));
+                float x1 = Math.max(bottomLeft.get(Vector.I1), topRight.get(Vector.I1));
+                float y0 = Math.min(bottomLeft.get(Vector.I2), topRight.get(Vector.I2));
+                float y1 = Math.max(bottomLeft.get(Vector.I2), topRight.get(Vector.I2));
+
+                float baseline = charInfo.getBaseline().getStartPoint().get(Vector.I2);
+                float charHeight = y1 - y0;
+                if (!Float.isNaN(lastBaseline)
+                        && Math.abs(baseline - lastBaseline) > Math.max(charHeight, lastCharHeight) * LINE_BREAK_RATIO) {
+                    appendChar('\n', 0, 0, 0, 0);
+                }
+                lastBaseline = baseline;
+                lastCharHeight = charHeight;
+
+                // 转为左上角原点的归一化坐标
+                float u0 = (x0 - llx) / width;
+                float u1 = (x1 - llx) / width;
+                float v0 = 1f - (y1 - lly) / height;
+                float v1 = 1f - (y0 - lly) / height;
+
+                for (int i = 0; i < glyph.length(); i++) {
+                    appendRotated(glyph.charAt(i), u0, v0, u1, v1);
+                }
+            }
+        }
+
+        private void appendRotated(char c, float u0, float v0, float u1, float v1) {
+            // 按页面顺时针旋转角度换算到显示坐标
+            switch (rotation) {
+                case 90:
+                    appendChar(c, 1f - v1, u0, 1f - v0, u1);
+                    break;
+                case 180:
+                    appendChar(c, 1f - u1, 1f - v1, 1f - u0, 1f - v0);
+                    break;
+                case 270:
+                    appendChar(c, v0, 1f - u1, v1, 1f - u0);
+                    break;
+                default:
+                    appendChar(c, u0, v0, u1, v1);
+                    break;
+            }
+        }
+
+        private void appendChar(char c, float left, float top, float right, float bottom) {
+            int index = text.length();
+            if ((index + 1) * 4 > boxes.length) {
+                float[] grown = new float[boxes.length * 2];
+                System.arraycopy(boxes, 0, grown, 0, boxes.length);
+                boxes = grown;
+            }
+            text.append(c);
+            boxes[index * 4] = left;
+            boxes[index * 4 + 1] = top;
+            boxes[index * 4 + 2] = right;
+            boxes[index * 4 + 3] = bottom;
+        }
+
+        PageText build() {
+            float[] trimmed = new float[text.length() * 4];
+            System.arraycopy(boxes, 0, trimmed, 0, trimmed.length);
+            return new PageText(text.toString(), trimmed);
+        }
+    }
+}
@@ -9,8 +9,6 @@ import android.view.ViewTreeObserver;
 
 import java.lang.ref.WeakReference;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
 /**
@@ -24,8 +22,8 @@ public class PerformanceManager {
     // 单例实例
     private static volatile PerformanceManager instance;
     
-    // 线程池
-    private final ExecutorService backgroundExecutor;
+    // 后台任务统一交给TaskScheduler，关闭时通过令牌取消
+    private final TaskScheduler.CancellationToken backgroundToken;
     private final Handler mainHandler;
     
     // 网络请求缓存
@@ -40,13 +38,28 @@ public class PerformanceManager {
     private static final long MEMORY_WARNING_THRESHOLD = 80; // 80%内存使用率警告
     
     private PerformanceManager() {
-        backgroundExecutor = Executors.newFixedThreadPool(3);
+        backgroundToken = new TaskScheduler.CancellationToken();
         mainHandler = new Handler(Looper.getMainLooper());
         requestCache = new ConcurrentHashMap<>();
         runtime = Runtime.getRuntime();
         
-        // 启动内存监控
-        startMemoryMonitoring();
+        // 内存监控由MemoryCoordinator统一负责，这里只登记请求缓存
+        MemoryCoordinator.getInstance().register("PerformanceManager.requestCache",
+                MemoryCoordinator.Priority.REBUILDABLE, new MemoryCoordinator.TrimmableCache() {
+                    @Override
+                    public long getSizeBytes() {
+                        return -1;
+                    }
+                    
+                    @Override
+                    public void trimToFraction(float keepFraction) {
+                        if (keepFraction <= 0f) {
+                            clearAllCache();
+                        } else {
+                            cleanExpiredCache();
+                        }
+                    }
+                });
     }
     
     public static PerformanceManager getInstance() {
@@ -79,6 +92,7 @@ public class PerformanceManager {
     
     /**
      * 页面加载性能监控
+     * 加载耗时同时计入JankMonitor，与该页面的帧统计一起输出
      */
     public static class PageLoadMonitor {
         private final String pageName;
@@ -95,6 +109,7 @@ public class PerformanceManager {
             endTime = System.currentTimeMillis();
             long loadTime = endTime - startTime;
             Log.d(TAG, "页面加载完成: " + pageName + ", 耗时: " + loadTime + "ms");
+            JankMonitor.getInstance().recordPageLoad(pageName, loadTime);
             
             if (loadTime > 3000) {
                 Log.w(TAG, "页面加载较慢: " + pageName + ", 建议优化");
@@ -113,6 +128,13 @@ public class PerformanceManager {
                 });
             }
         }
+        
+        /**
+         * 输出所有页面的加载耗时和掉帧统计到日志，对比优化效果时调用
+         */
+        public void dumpFrameStats() {
+            JankMonitor.getInstance().dumpToLog();
+        }
     }
     
     /**
@@ -123,7 +145,21 @@ public class PerformanceManager {
      * @return Future对象，可用于取消任务
      */
     public <T> Future<?> executeAsync(BackgroundTask<T> task, MainThreadCallback<T> callback) {
-        return backgroundExecutor.submit(() -> {
+        return executeAsync(TaskScheduler.Lane.USER_VISIBLE, null, task, callback);
+    }
+    
+    /**
+     * 在指定优先级通道异步执行任务
+     * @param lane 优先级通道
+     * @param token 取消令牌，可用TaskScheduler.CancellationToken.forLifecycle绑定页面生命周期，可为null
+     * @param task 后台任务
+     * @param callback 主线程回调
+     * @param <T> 结果类型
+     * @return Future对象，可用于取消任务
+     */
+    public <T> Future<?> executeAsync(TaskScheduler.Lane lane, TaskScheduler.CancellationToken token,
+                                      BackgroundTask<T> task, MainThreadCallback<T> callback) {
+        Runnable work = () -> {
             try {
                 T result = task.execute();
                 mainHandler.post(() -> {
@@ -139,7 +175,9 @@ public class PerformanceManager {
                     }
                 });
             }
-        });
+        };
+        // 未指定令牌的任务挂到管理器的令牌上，随管理器关闭一起取消，完成后自动注销
+        return TaskScheduler.getInstance().submit(lane, token != null ? token : backgroundToken, work);
     }
     
     /**
@@ -273,35 +311,6 @@ public class PerformanceManager {
         }
     }
     
-    /**
-     * 启动内存监控
-     */
-    private void startMemoryMonitoring() {
-        backgroundExecutor.submit(() -> {
-            while (!Thread.currentThread().isInterrupted()) {
-                try {
-                    Thread.sleep(30000); // 每30秒检查一次
-                    
-                    MemoryInfo memoryInfo = getMemoryInfo();
-                    if (memoryInfo.isLowMemory) {
-                        Log.w(TAG, "内存使用率较高: " + memoryInfo.getFormattedInfo());
-                        
-                        // 自动清理缓存
-                        cleanExpiredCache();
-                        
-                        // 建议进行垃圾回收
-                        System.gc();
-                    }
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
-                } catch (Exception e) {
-                    Log.e(TAG, "内存监控异常", e);
-                }
-            }
-        });
-    }
-    
     /**
      * 优化Activity内存使用
      * @param activity Activity实例
@@ -392,33 +401,22 @@ public class PerformanceManager {
     public void processBatch(java.util.List<Runnable> tasks, int batchSize, long batchDelay) {
         if (tasks == null || tasks.isEmpty()) return;
         
-        backgroundExecutor.submit(() -> {
-            for (int i = 0; i < tasks.size(); i += batchSize) {
-                int endIndex = Math.min(i + batchSize, tasks.size());
-                java.util.List<Runnable> batch = tasks.subList(i, endIndex);
-                
-                // 在主线程执行批次任务
-                mainHandler.post(() -> {
-                    for (Runnable task : batch) {
-                        try {
-                            task.run();
-                        } catch (Exception e) {
-                            Log.e(TAG, "批次任务执行失败", e);
-                        }
-                    }
-                });
-                
-                // 批次间延迟
-                if (i + batchSize < tasks.size()) {
+        // 各批次按间隔直接投递到主线程，不需要后台线程等待
+        for (int i = 0; i < tasks.size(); i += batchSize) {
+            int endIndex = Math.min(i + batchSize, tasks.size());
+            java.util.List<Runnable> batch = tasks.subList(i, endIndex);
+            
+            // 在主线程执行批次任务
+            mainHandler.postDelayed(() -> {
+                for (Runnable task : batch) {
                     try {
-                        Thread.sleep(batchDelay);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        break;
+                        task.run();
+                    } catch (Exception e) {
+                        Log.e(TAG, "批次任务执行失败", e);
                     }
                 }
-            }
-        });
+            }, (long) (i / batchSize) * batchDelay);
+        }
     }
     
     /**
@@ -450,9 +448,8 @@ public class PerformanceManager {
      * 关闭性能管理器
      */
     public void shutdown() {
-        if (backgroundExecutor != null && !backgroundExecutor.isShutdown()) {
-            backgroundExecutor.shutdown();
-        }
+        backgroundToken.cancel();
+        MemoryCoordinator.getInstance().unregister("PerformanceManager.requestCache");
         clearAllCache();
         debounceMap.clear();
     }
@@ -0,0 +1,289 @@
+package com.wenxing.runyitong.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+import com.google.gson.Gson;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * PDF阅读进度存储
+ * 按书籍保存最后阅读的页码、页内滚动偏移、缩放级别和缩放模式，
+ * 并保存最后一页的低分辨率快照，重新打开时可立即显示
+ */
+public class ReadingPositionStore {
+    private static final String TAG = "ReadingPositionStore";
+    private static final String PREF_NAME = "pdf_reading_positions";
+    private static final String KEY_STATE = "state_path_";
+    // 旧版本按路径hashCode保存，不同路径可能冲突，读取时迁移到新键
+    private static final String LEGACY_KEY_STATE = "state_";
+    private static final String SNAPSHOT_DIR = "reading_snapshots";
+    private static final int SNAPSHOT_MAX_WIDTH = 360;
+    private static final int SNAPSHOT_QUALITY = 70;
+
+    private final Context context;
+    private final SharedPreferences sharedPreferences;
+    private final Gson gson;
+    private final ExecutorService snapshotExecutor;
+
+    /**
+     * 阅读状态数据模型
+     */
+    public static class ReadingState {
+        private String pdfPath;
+        private int pageNumber;
+        private int scrollOffset;
+        private float zoomLevel = PDFZoomUtils.DEFAULT_ZOOM;
+        private String zoomMode = PDFZoomUtils.ZoomMode.MANUAL.name();
+        private long timestamp;
+
+        public ReadingState() {}
+
+        public ReadingState(String pdfPath, int pageNumber, int scrollOffset, float zoomLevel, PDFZoomUtils.ZoomMode zoomMode) {
+            this.pdfPath = pdfPath;
+            this.pageNumber = pageNumber;
+            this.scrollOffset = scrollOffset;
+            this.zoomLevel = zoomLevel;
+            this.zoomMode = zoomMode != null ? zoomMode.name() : PDFZoomUtils.ZoomMode.MANUAL.name();
+            this.timestamp = System.currentTimeMillis();
+        }
+
+        // Getters and Setters
+        public String getPdfPath() { return pdfPath; }
+        public void setPdfPath(String pdfPath) { this.pdfPath = pdfPath; }
+
+        public int getPageNumber() { return pageNumber; }
+        public void setPageNumber(int pageNumber) { this.pageNumber = pageNumber; }
+
+        public int getScrollOffset() { return scrollOffset; }
+        public void setScrollOffset(int scrollOffset) { this.scrollOffset = scrollOffset; }
+
+        public float getZoomLevel() { return zoomLevel; }
+        public void setZoomLevel(float zoomLevel) { this.zoomLevel = zoomLevel; }
+
+        public PDFZoomUtils.ZoomMode getZoomMode() {
+            try {
+                return PDFZoomUtils.ZoomMode.valueOf(zoomMode);
+            } catch (Exception e) {
+                return PDFZoomUtils.ZoomMode.MANUAL;
+            }
+        }
+        public void setZoomMode(PDFZoomUtils.ZoomMode zoomMode) {
+            this.zoomMode = zoomMode != null ? zoomMode.name() : PDFZoomUtils.ZoomMode.MANUAL.name();
+        }
+
+        public long getTimestamp() { return timestamp; }
+        public void setTimestamp(long timestamp) { this.timestamp = timestamp; }
+    }
+
+    public ReadingPositionStore(Context context) {
+        this.context = context.getApplicationContext();
+        this.sharedPreferences = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        this.gson = new Gson();
+        this.snapshotExecutor = TaskScheduler.getInstance().newQueue("ReadingSnapshot", TaskScheduler.Lane.MAINTENANCE, 1);
+    }
+
+    /**
+     * 保存阅读状态，pageBitmap不为空时同时保存快照
+     */
+    public void saveReadingState(ReadingState state, Bitmap pageBitmap) {
+        if (state == null || state.getPdfPath() == null) {
+            return;
+        }
+
+        try {
+            state.setTimestamp(System.currentTimeMillis());
+            sharedPreferences.edit().putString(getKey(state.getPdfPath()), gson.toJson(state)).apply();
+            Log.d(TAG, "保存阅读进度: 第 " + (state.getPageNumber() + 1) + " 页, " + state.getPdfPath());
+        } catch (Exception e) {
+            Log.e(TAG, "保存阅读进度失败", e);
+            return;
+        }
+
+        if (pageBitmap != null && !pageBitmap.isRecycled()) {
+            saveSnapshot(state.getPdfPath(), pageBitmap);
+        }
+    }
+
+    /**
+     * 获取阅读状态，没有记录时返回null
+     */
+    public ReadingState getReadingState(String pdfPath) {
+        if (pdfPath == null) {
+            return null;
+        }
+
+        try {
+            String json = sharedPreferences.getString(getKey(pdfPath), null);
+            if (json == null || json.isEmpty()) {
+                return migrateLegacyState(pdfPath);
+            }
+            return gson.fromJson(json, ReadingState.class);
+        } catch (Exception e) {
+            Log.e(TAG, "读取阅读进度失败", e);
+            return null;
+        }
+    }
+
+    /**
+     * 加载最后阅读页面的快照，快照很小，可以在主线程直接解码
+     */
+    public Bitmap loadSnapshot(String pdfPath) {
+        if (pdfPath == null) {
+            return null;
+        }
+
+        File snapshotFile = getSnapshotFile(pdfPath);
+        if (!snapshotFile.exists()) {
+            return null;
+        }
+
+        try {
+            return BitmapFactory.decodeFile(snapshotFile.getAbsolutePath());
+        } catch (Exception | OutOfMemoryError e) {
+            Log.e(TAG, "加载阅读快照失败", e);
+            return null;
+        }
+    }
+
+    /**
+     * 清除指定书籍的阅读状态和快照
+     */
+    public void clearReadingState(String pdfPath) {
+        if (pdfPath == null) {
+            return;
+        }
+
+        sharedPreferences.edit().remove(getKey(pdfPath)).remove(getLegacyKey(pdfPath)).apply();
+        File snapshotFile = getSnapshotFile(pdfPath);
+        if (snapshotFile.exists() && !snapshotFile.delete()) {
+            Log.w(TAG, "删除阅读快照失败: " + snapshotFile.getAbsolutePath());
+        }
+        Log.d(TAG, "清除阅读进度: " + pdfPath);
+    }
+
+    /**
+     * 关闭快照写入队列，已提交的快照继续写完
+     */
+    public void shutdown() {
+        snapshotExecutor.shutdown();
+    }
+
+    private void saveSnapshot(String pdfPath, Bitmap pageBitmap) {
+        // 在调用线程上缩小，避免后台线程访问可能被回收的页面位图
+        Bitmap snapshot;
+        try {
+            int width = pageBitmap.getWidth();
+            int height = pageBitmap.getHeight();
+            if (width > SNAPSHOT_MAX_WIDTH) {
+                float scale = (float) SNAPSHOT_MAX_WIDTH / width;
+                snapshot = Bitmap.createScaledBitmap(pageBitmap, SNAPSHOT_MAX_WIDTH, Math.max(1, (int) (height * scale)), true);
+            } else {
+                snapshot = pageBitmap.copy(Bitmap.Config.ARGB_8888, false);
+            }
+        } catch (Exception | OutOfMemoryError e) {
+            Log.e(TAG, "生成阅读快照失败", e);
+            return;
+        }
+
+        if (snapshot == null) {
+            return;
+        }
+
+        final Bitmap finalSnapshot = snapshot;
+        snapshotExecutor.execute(() -> {
+            File snapshotFile = getSnapshotFile(pdfPath);
+            File tempFile = new File(snapshotFile.getParentFile(), snapshotFile.getName() + ".tmp");
+            try (FileOutputStream out = new FileOutputStream(tempFile)) {
+                finalSnapshot.compress(Bitmap.CompressFormat.JPEG, SNAPSHOT_QUALITY, out);
+            } catch (Exception e) {
+                Log.e(TAG, "写入阅读快照失败", e);
+                tempFile.delete();
+                return;
+            } finally {
+                finalSnapshot.recycle();
+            }
+
+            // 先写临时文件再重命名，避免进程被杀时留下半个快照
+            if (!tempFile.renameTo(snapshotFile)) {
+                Log.w(TAG, "重命名阅读快照失败");
+                tempFile.delete();
+            }
+        });
+    }
+
+    /**
+     * 读取旧版本按hashCode保存的进度，记录的路径一致时迁移到新键和新快照文件名
+     * 路径不一致说明是另一本书冲突写入的，不能使用
+     */
+    private ReadingState migrateLegacyState(String pdfPath) {
+        String legacyKey = getLegacyKey(pdfPath);
+        String json = sharedPreferences.getString(legacyKey, null);
+        if (json == null || json.isEmpty()) {
+            return null;
+        }
+
+        ReadingState state = gson.fromJson(json, ReadingState.class);
+        if (state == null || !pdfPath.equals(state.getPdfPath())) {
+            return null;
+        }
+
+        sharedPreferences.edit().putString(getKey(pdfPath), json).remove(legacyKey).apply();
+        File legacySnapshot = getLegacySnapshotFile(pdfPath);
+        if (legacySnapshot.exists() && !legacySnapshot.renameTo(getSnapshotFile(pdfPath))) {
+            legacySnapshot.delete();
+        }
+        Log.d(TAG, "迁移旧版阅读进度: " + pdfPath);
+        return state;
+    }
+
+    private File getSnapshotDir() {
+        File dir = new File(context.getFilesDir(), SNAPSHOT_DIR);
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        return dir;
+    }
+
+    private File getSnapshotFile(String pdfPath) {
+        return new File(getSnapshotDir(), "snapshot_" + digestPath(pdfPath) + ".jpg");
+    }
+
+    private File getLegacySnapshotFile(String pdfPath) {
+        return new File(getSnapshotDir(), "snapshot_" + pdfPath.hashCode() + ".jpg");
+    }
+
+    // 直接以路径为键，不同书籍不会互相覆盖
+    private String getKey(String pdfPath) {
+        return KEY_STATE + pdfPath;
+    }
+
+    private String getLegacyKey(String pdfPath) {
+        return LEGACY_KEY_STATE + pdfPath.hashCode();
+    }
+
+    /**
+     * 快照文件名使用路径的SHA-1，路径本身可能含有不能用作文件名的字符
+     */
+    private static String digestPath(String pdfPath) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest(pdfPath.getBytes(StandardCharsets.UTF_8))) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (Exception e) {
+            // SHA-1在所有Android版本上都可用，这里只是兜底
+            return Integer.toHexString(pdfPath.hashCode()) + "_" + pdfPath.length();
+        }
+    }
+}
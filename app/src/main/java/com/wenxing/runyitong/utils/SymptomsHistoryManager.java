@@ -2,33 +2,77 @@ package com.wenxing.runyitong.utils;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.util.Log;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 症状历史记录管理器
- * 负责存储和检索用户输入的症状描述历史记录
+ * 负责存储和检索用户输入的症状描述历史记录。
+ * 历史记录只在首次使用时从SharedPreferences解析一次，之后全部在内存中读写，
+ * 修改合并后在后台线程延迟写回；同时维护单字/二元组倒排索引（中文按字切分），
+ * 输入时的联想查询只访问命中的索引项，不再遍历历史逐条解析。
  */
 public class SymptomsHistoryManager {
+    private static final String TAG = "SymptomsHistoryManager";
     private static final String PREFS_NAME = "symptoms_history";
     private static final String KEY_HISTORY = "history_list";
-    private static final int MAX_HISTORY_SIZE = 10; // 最多保存10条历史记录
-    
-    private SharedPreferences sharedPreferences;
-    private Gson gson;
-    
+    private static final int MAX_HISTORY_SIZE = 100; // 最多保存100条历史记录，供输入联想
+    // 修改后延迟写回，合并连续修改
+    private static final long WRITE_DELAY_MS = 500;
+
+    private static volatile SymptomsHistoryManager instance;
+
+    private final SharedPreferences sharedPreferences;
+    private final Gson gson;
+    private final TaskScheduler.TaskQueue writeExecutor;
+    private final AtomicBoolean writeScheduled = new AtomicBoolean(false);
+
+    // 以下字段由this保护
+    // 按最近使用排序，最新的在前
+    private final List<String> history = new ArrayList<>();
+    // 每条记录的使用序号，越大越新
+    private final Map<String, Long> sequences = new HashMap<>();
+    // 每条记录归一化后的文本
+    private final Map<String, String> normalizedTexts = new HashMap<>();
+    // 单字和二元组到记录的倒排索引
+    private final Map<String, Set<String>> gramIndex = new HashMap<>();
+    private long nextSequence = 0;
+    private int version = 0;
+    private int persistedVersion = 0;
+
     /**
      * 构造函数
      * @param context 上下文对象
      */
-    public SymptomsHistoryManager(Context context) {
-        sharedPreferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    private SymptomsHistoryManager(Context context) {
+        sharedPreferences = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
         gson = new Gson();
+        writeExecutor = TaskScheduler.getInstance().newQueue("SymptomsHistoryWriter", TaskScheduler.Lane.MAINTENANCE, 1);
+        load();
+    }
+
+    public static SymptomsHistoryManager getInstance(Context context) {
+        if (instance == null) {
+            synchronized (SymptomsHistoryManager.class) {
+                if (instance == null) {
+                    instance = new SymptomsHistoryManager(context);
+                }
+            }
+        }
+        return instance;
     }
-    
+
     /**
      * 添加症状描述到历史记录
      * @param symptom 症状描述文本
@@ -37,83 +81,321 @@ public class SymptomsHistoryManager {
         if (symptom == null || symptom.trim().isEmpty()) {
             return;
         }
-        
+
         symptom = symptom.trim();
-        List<String> history = getHistory();
-        
-        // 如果已存在相同的症状，先移除
-        history.remove(symptom);
-        
-        // 添加到列表开头
-        history.add(0, symptom);
-        
-        // 限制历史记录数量
-        if (history.size() > MAX_HISTORY_SIZE) {
-            history = history.subList(0, MAX_HISTORY_SIZE);
-        }
-        
-        saveHistory(history);
-    }
-    
+        synchronized (this) {
+            // 如果已存在相同的症状，先移除
+            if (history.remove(symptom)) {
+                unindex(symptom);
+            }
+
+            // 添加到列表开头
+            history.add(0, symptom);
+            index(symptom, ++nextSequence);
+
+            // 限制历史记录数量
+            while (history.size() > MAX_HISTORY_SIZE) {
+                unindex(history.remove(history.size() - 1));
+            }
+            version++;
+        }
+        scheduleWrite();
+    }
+
     /**
      * 获取症状历史记录列表
-     * @return 历史记录列表
+     * @return 历史记录列表的副本，最新的在前
      */
-    public List<String> getHistory() {
-        String json = sharedPreferences.getString(KEY_HISTORY, null);
-        if (json == null) {
+    public synchronized List<String> getHistory() {
+        return new ArrayList<>(history);
+    }
+
+    /**
+     * 获取最近的若干条历史记录
+     * @param limit 最多返回的条数
+     * @return 历史记录列表的副本，最新的在前
+     */
+    public synchronized List<String> getRecentHistory(int limit) {
+        return new ArrayList<>(history.subList(0, Math.min(limit, history.size())));
+    }
+
+    /**
+     * 按输入内容联想历史记录
+     * 输入按非文字字符切成若干片段，每个片段都须出现在记录中；
+     * 以输入开头的记录排在前面，其余按最近使用排序，与输入完全相同的记录不返回。
+     * @param input 当前输入
+     * @param limit 最多返回的条数
+     * @return 匹配的历史记录
+     */
+    public List<String> suggest(String input, int limit) {
+        List<String> segments = segments(normalize(input));
+        if (segments.isEmpty() || limit <= 0) {
             return new ArrayList<>();
         }
-        
-        try {
-            Type listType = new TypeToken<List<String>>(){}.getType();
-            List<String> history = gson.fromJson(json, listType);
-            return history != null ? history : new ArrayList<>();
-        } catch (Exception e) {
-            e.printStackTrace();
-            return new ArrayList<>();
+        String trimmedInput = input.trim();
+        String prefix = segments.get(0);
+
+        List<String> matches = new ArrayList<>();
+        synchronized (this) {
+            // 从最短的倒排表开始筛选
+            Set<String> candidates = null;
+            for (String segment : segments) {
+                for (String gram : grams(segment)) {
+                    Set<String> postings = gramIndex.get(gram);
+                    if (postings == null) {
+                        return matches;
+                    }
+                    if (candidates == null || postings.size() < candidates.size()) {
+                        candidates = postings;
+                    }
+                }
+            }
+            if (candidates == null) {
+                return matches;
+            }
+
+            for (String candidate : candidates) {
+                if (candidate.equals(trimmedInput)) {
+                    continue;
+                }
+                String text = normalizedTexts.get(candidate);
+                boolean matched = true;
+                for (String segment : segments) {
+                    if (!text.contains(segment)) {
+                        matched = false;
+                        break;
+                    }
+                }
+                if (matched) {
+                    matches.add(candidate);
+                }
+            }
+
+            Collections.sort(matches, (a, b) -> {
+                boolean aPrefix = normalizedTexts.get(a).startsWith(prefix);
+                boolean bPrefix = normalizedTexts.get(b).startsWith(prefix);
+                if (aPrefix != bPrefix) {
+                    return aPrefix ? -1 : 1;
+                }
+                return Long.compare(sequences.get(b), sequences.get(a));
+            });
         }
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
     }
-    
+
     /**
      * 清空历史记录
      */
     public void clearHistory() {
-        sharedPreferences.edit().remove(KEY_HISTORY).apply();
+        synchronized (this) {
+            history.clear();
+            sequences.clear();
+            normalizedTexts.clear();
+            gramIndex.clear();
+            version++;
+        }
+        scheduleWrite();
     }
-    
+
     /**
      * 删除指定的历史记录
      * @param symptom 要删除的症状描述
      */
     public void removeSymptom(String symptom) {
-        List<String> history = getHistory();
-        history.remove(symptom);
-        saveHistory(history);
+        synchronized (this) {
+            if (!history.remove(symptom)) {
+                return;
+            }
+            unindex(symptom);
+            version++;
+        }
+        scheduleWrite();
     }
-    
+
     /**
-     * 保存历史记录到SharedPreferences
-     * @param history 历史记录列表
+     * 立即在后台写回尚未保存的修改，页面进入后台时调用
      */
-    private void saveHistory(List<String> history) {
-        String json = gson.toJson(history);
-        sharedPreferences.edit().putString(KEY_HISTORY, json).apply();
+    public void flush() {
+        writeExecutor.execute(this::writeNow);
     }
-    
+
     /**
      * 检查是否有历史记录
      * @return 如果有历史记录返回true，否则返回false
      */
-    public boolean hasHistory() {
-        return !getHistory().isEmpty();
+    public synchronized boolean hasHistory() {
+        return !history.isEmpty();
     }
-    
+
     /**
      * 获取历史记录数量
      * @return 历史记录数量
      */
-    public int getHistoryCount() {
-        return getHistory().size();
+    public synchronized int getHistoryCount() {
+        return history.size();
+    }
+
+    /**
+     * 从SharedPreferences加载历史记录并建立索引，只在创建时执行一次
+     */
+    private void load() {
+        String json = sharedPreferences.getString(KEY_HISTORY, null);
+        if (json == null) {
+            return;
+        }
+
+        List<String> stored = null;
+        try {
+            Type listType = new TypeToken<List<String>>(){}.getType();
+            stored = gson.fromJson(json, listType);
+        } catch (Exception e) {
+            Log.e(TAG, "解析症状历史记录失败", e);
+        }
+        if (stored == null) {
+            return;
+        }
+
+        synchronized (this) {
+            for (String symptom : stored) {
+                if (symptom == null || symptom.trim().isEmpty() || history.contains(symptom)
+                        || history.size() >= MAX_HISTORY_SIZE) {
+                    continue;
+                }
+                history.add(symptom);
+            }
+            // 列表靠前的更新，序号更大
+            nextSequence = history.size();
+            for (int i = 0; i < history.size(); i++) {
+                index(history.get(i), history.size() - i);
+            }
+        }
+    }
+
+    private void scheduleWrite() {
+        if (writeScheduled.compareAndSet(false, true)) {
+            writeExecutor.executeDelayed(this::writeNow, WRITE_DELAY_MS);
+        }
+    }
+
+    /**
+     * 保存历史记录到SharedPreferences，在写回线程调用
+     */
+    private void writeNow() {
+        writeScheduled.set(false);
+        List<String> snapshot;
+        int snapshotVersion;
+        synchronized (this) {
+            if (version == persistedVersion) {
+                return;
+            }
+            snapshot = new ArrayList<>(history);
+            snapshotVersion = version;
+        }
+
+        SharedPreferences.Editor editor = sharedPreferences.edit();
+        if (snapshot.isEmpty()) {
+            editor.remove(KEY_HISTORY);
+        } else {
+            editor.putString(KEY_HISTORY, gson.toJson(snapshot));
+        }
+        if (editor.commit()) {
+            synchronized (this) {
+                persistedVersion = Math.max(persistedVersion, snapshotVersion);
+            }
+        } else {
+            Log.w(TAG, "保存症状历史记录失败");
+        }
+    }
+
+    private void index(String symptom, long sequence) {
+        String text = normalize(symptom);
+        sequences.put(symptom, sequence);
+        normalizedTexts.put(symptom, text);
+        for (String segment : segments(text)) {
+            for (String gram : allGrams(segment)) {
+                Set<String> postings = gramIndex.get(gram);
+                if (postings == null) {
+                    postings = new HashSet<>();
+                    gramIndex.put(gram, postings);
+                }
+                postings.add(symptom);
+            }
+        }
+    }
+
+    private void unindex(String symptom) {
+        sequences.remove(symptom);
+        String text = normalizedTexts.remove(symptom);
+        if (text == null) {
+            return;
+        }
+        for (String segment : segments(text)) {
+            for (String gram : allGrams(segment)) {
+                Set<String> postings = gramIndex.get(gram);
+                if (postings != null) {
+                    postings.remove(symptom);
+                    if (postings.isEmpty()) {
+                        gramIndex.remove(gram);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 统一为小写，便于英文缩写匹配
+     */
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 按标点、空白等非文字字符切分，中文汉字属于文字字符，连续汉字为一个片段
+     */
+    private static List<String> segments(String text) {
+        List<String> segments = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.isLetterOrDigit(text.charAt(i))) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0) {
+                segments.add(text.substring(start, i));
+                start = -1;
+            }
+        }
+        if (start >= 0) {
+            segments.add(text.substring(start));
+        }
+        return segments;
+    }
+
+    /**
+     * 建立索引用：片段中的每个单字和相邻二元组
+     */
+    private static List<String> allGrams(String segment) {
+        List<String> grams = new ArrayList<>(segment.length() * 2);
+        for (int i = 0; i < segment.length(); i++) {
+            grams.add(segment.substring(i, i + 1));
+            if (i + 1 < segment.length()) {
+                grams.add(segment.substring(i, i + 2));
+            }
+        }
+        return grams;
+    }
+
+    /**
+     * 查询用：单字片段查单字，否则查所有相邻二元组
+     */
+    private static List<String> grams(String segment) {
+        if (segment.length() == 1) {
+            return Collections.singletonList(segment);
+        }
+        List<String> grams = new ArrayList<>(segment.length() - 1);
+        for (int i = 0; i + 1 < segment.length(); i++) {
+            grams.add(segment.substring(i, i + 2));
+        }
+        return grams;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,584 @@
+package com.wenxing.runyitong.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 全局任务调度器
+ * 应用内所有后台任务共用一组按CPU核数限定的工作线程，按优先级通道取任务：
+ * 界面关键任务最先执行，预取和维护任务合计最多占用除一个线程外的全部线程，
+ * 保证后台预取再多也总有线程留给用户可见的工作。
+ * 需要顺序执行或限制并发的模块通过newQueue创建任务队列，用法与ExecutorService相同；
+ * 取消令牌可批量取消一组任务，并可绑定到页面生命周期。
+ * 独占资源的线程（PdfRenderer渲染线程、主线程看门狗）不在此调度。
+ */
+public class TaskScheduler {
+    private static final String TAG = "TaskScheduler";
+
+    // 工作线程空闲超过该时长后退出
+    private static final long KEEP_ALIVE_MS = 15_000;
+
+    /**
+     * 优先级通道，按声明顺序从高到低
+     */
+    public enum Lane {
+        // 用户正在等待结果，如点击后的图片处理
+        UI_CRITICAL("界面关键", Process.THREAD_PRIORITY_FOREGROUND),
+        // 当前页面需要的数据，如页面加载、解码可见内容
+        USER_VISIBLE("用户可见", Process.THREAD_PRIORITY_DEFAULT),
+        // 预取即将用到的内容，不能拖慢可见内容
+        PREFETCH("预取", Process.THREAD_PRIORITY_BACKGROUND),
+        // 持久化、清理等随时可以推迟的工作
+        MAINTENANCE("维护", Process.THREAD_PRIORITY_BACKGROUND + Process.THREAD_PRIORITY_LESS_FAVORABLE);
+
+        private final String displayName;
+        private final int threadPriority;
+
+        Lane(String displayName, int threadPriority) {
+            this.displayName = displayName;
+            this.threadPriority = threadPriority;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+
+        boolean isBackground() {
+            return this == PREFETCH || this == MAINTENANCE;
+        }
+    }
+
+    private static volatile TaskScheduler instance;
+
+    private final int maxWorkers;
+    // 预取和维护合计可占用的线程数
+    private final int backgroundWorkerLimit;
+    private final Handler timerHandler = new Handler(Looper.getMainLooper());
+
+    // 以下字段由this保护
+    private final ArrayDeque<Task<?>>[] queues;
+    private final int[] running = new int[Lane.values().length];
+    private final long[] submitted = new long[Lane.values().length];
+    private final long[] completed = new long[Lane.values().length];
+    private final long[] totalWaitMs = new long[Lane.values().length];
+    private final long[] maxWaitMs = new long[Lane.values().length];
+    private final int[] maxQueueDepth = new int[Lane.values().length];
+    private int workerCount = 0;
+    private int idleWorkers = 0;
+    // 已notify但还没醒来取任务的次数，突发提交时不能都算到同一个空闲线程头上
+    private int pendingWakeups = 0;
+    private int peakWorkers = 0;
+    private int nextWorkerId = 0;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private TaskScheduler() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        // 留一个核给主线程和渲染线程
+        maxWorkers = Math.max(2, Math.min(cores - 1, 4));
+        backgroundWorkerLimit = maxWorkers - 1;
+        queues = new ArrayDeque[Lane.values().length];
+        for (int i = 0; i < queues.length; i++) {
+            queues[i] = new ArrayDeque<>();
+        }
+        Log.d(TAG, "任务调度器线程上限: " + maxWorkers);
+    }
+
+    public static TaskScheduler getInstance() {
+        if (instance == null) {
+            synchronized (TaskScheduler.class) {
+                if (instance == null) {
+                    instance = new TaskScheduler();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 在指定通道执行任务
+     */
+    public void execute(Lane lane, Runnable task) {
+        enqueue(new Task<Void>(task, null, lane, null, null));
+    }
+
+    /**
+     * 在指定通道提交任务
+     * @return 可用于取消任务的Future，取消时中断正在执行的任务
+     */
+    public Future<?> submit(Lane lane, Runnable task) {
+        return submit(lane, null, task);
+    }
+
+    /**
+     * 在指定通道提交任务，令牌取消时一并取消
+     */
+    public Future<?> submit(Lane lane, CancellationToken token, Runnable task) {
+        Task<Void> wrapped = new Task<>(task, null, lane, null, token);
+        enqueue(wrapped);
+        return wrapped;
+    }
+
+    /**
+     * 在指定通道提交有返回值的任务
+     */
+    public <T> Future<T> submit(Lane lane, CancellationToken token, Callable<T> task) {
+        Task<T> wrapped = new Task<>(task, lane, null, token);
+        enqueue(wrapped);
+        return wrapped;
+    }
+
+    /**
+     * 延迟后在指定通道执行任务，延迟期间取消则不再入队
+     */
+    public Future<?> schedule(Lane lane, Runnable task, long delayMs) {
+        Task<Void> wrapped = new Task<>(task, null, lane, null, null);
+        timerHandler.postDelayed(() -> {
+            if (!wrapped.isDone()) {
+                enqueue(wrapped);
+            }
+        }, delayMs);
+        return wrapped;
+    }
+
+    /**
+     * 创建任务队列，队列内任务按提交顺序在指定通道执行，同时最多执行maxConcurrency个
+     * @param name 队列名称，用于日志
+     * @param lane 优先级通道
+     * @param maxConcurrency 最大并发数，1为串行
+     */
+    public TaskQueue newQueue(String name, Lane lane, int maxConcurrency) {
+        return new TaskQueue(name, lane, maxConcurrency);
+    }
+
+    /**
+     * 各通道的排队数、执行数和等待时间
+     */
+    public synchronized String getStats() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.US, "TaskScheduler: workers=%d/%d peak=%d idle=%d",
+                workerCount, maxWorkers, peakWorkers, idleWorkers));
+        for (Lane lane : Lane.values()) {
+            int i = lane.ordinal();
+            sb.append(String.format(Locale.US, "\n  %s queued=%d maxQueued=%d running=%d submitted=%d completed=%d avgWait=%dms maxWait=%dms",
+                    lane.name(), queues[i].size(), maxQueueDepth[i], running[i], submitted[i], completed[i],
+                    completed[i] > 0 ? totalWaitMs[i] / completed[i] : 0, maxWaitMs[i]));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 指定通道当前排队的任务数
+     */
+    public synchronized int getQueueDepth(Lane lane) {
+        return queues[lane.ordinal()].size();
+    }
+
+    private void enqueue(Task<?> task) {
+        synchronized (this) {
+            int i = task.lane.ordinal();
+            task.enqueueTime = SystemClock.uptimeMillis();
+            queues[i].addLast(task);
+            submitted[i]++;
+            maxQueueDepth[i] = Math.max(maxQueueDepth[i], queues[i].size());
+            if (idleWorkers > pendingWakeups) {
+                pendingWakeups++;
+                notify();
+                return;
+            }
+            if (workerCount >= maxWorkers) {
+                return;
+            }
+            workerCount++;
+            peakWorkers = Math.max(peakWorkers, workerCount);
+        }
+        Thread thread = new Thread(this::workerLoop, "TaskWorker-" + nextWorkerId());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private synchronized int nextWorkerId() {
+        return ++nextWorkerId;
+    }
+
+    /**
+     * 取下一个可执行的任务，调用方持有锁；已取消的任务直接丢弃
+     */
+    private Task<?> pollEligible() {
+        int backgroundRunning = running[Lane.PREFETCH.ordinal()] + running[Lane.MAINTENANCE.ordinal()];
+        for (Lane lane : Lane.values()) {
+            if (lane.isBackground() && backgroundRunning >= backgroundWorkerLimit) {
+                break;
+            }
+            // 维护任务同时只执行一个
+            if (lane == Lane.MAINTENANCE && running[lane.ordinal()] > 0) {
+                break;
+            }
+            ArrayDeque<Task<?>> queue = queues[lane.ordinal()];
+            Task<?> task;
+            while ((task = queue.pollFirst()) != null) {
+                if (!task.isDone()) {
+                    return task;
+                }
+                task.finishQueued();
+            }
+        }
+        return null;
+    }
+
+    private void workerLoop() {
+        while (true) {
+            Task<?> task;
+            synchronized (this) {
+                long idleStart = SystemClock.uptimeMillis();
+                while ((task = pollEligible()) == null) {
+                    long remaining = KEEP_ALIVE_MS - (SystemClock.uptimeMillis() - idleStart);
+                    if (remaining <= 0) {
+                        workerCount--;
+                        return;
+                    }
+                    idleWorkers++;
+                    try {
+                        wait(remaining);
+                    } catch (InterruptedException e) {
+                        // 工作线程不响应中断，继续取任务
+                    } finally {
+                        idleWorkers--;
+                        if (pendingWakeups > 0) {
+                            pendingWakeups--;
+                        }
+                    }
+                }
+                int i = task.lane.ordinal();
+                running[i]++;
+                long waitMs = SystemClock.uptimeMillis() - task.enqueueTime;
+                totalWaitMs[i] += waitMs;
+                maxWaitMs[i] = Math.max(maxWaitMs[i], waitMs);
+            }
+
+            try {
+                Process.setThreadPriority(task.lane.threadPriority);
+            } catch (IllegalArgumentException | SecurityException e) {
+                Log.w(TAG, "设置线程优先级失败: " + task.lane.name());
+            }
+            try {
+                task.run();
+            } catch (Throwable t) {
+                Log.e(TAG, "任务执行异常", t);
+            } finally {
+                // 清除任务取消时留下的中断标记，避免影响下一个任务
+                Thread.interrupted();
+                synchronized (this) {
+                    int i = task.lane.ordinal();
+                    running[i]--;
+                    completed[i]++;
+                    if (task.lane.isBackground() && idleWorkers > 0) {
+                        // 后台通道释放了名额，唤醒等待中的线程
+                        notifyAll();
+                    }
+                }
+                task.finishRun();
+            }
+        }
+    }
+
+    /**
+     * 调度单元，完成后从取消令牌和所属队列中移除
+     */
+    private static final class Task<V> extends FutureTask<V> {
+        final Lane lane;
+        final TaskQueue owner;
+        final CancellationToken token;
+        long enqueueTime;
+
+        Task(Runnable runnable, V result, Lane lane, TaskQueue owner, CancellationToken token) {
+            super(runnable, result);
+            this.lane = lane;
+            this.owner = owner;
+            this.token = token;
+            register();
+        }
+
+        Task(Callable<V> callable, Lane lane, TaskQueue owner, CancellationToken token) {
+            super(callable);
+            this.lane = lane;
+            this.owner = owner;
+            this.token = token;
+            register();
+        }
+
+        private void register() {
+            if (token != null) {
+                token.register(this);
+            }
+        }
+
+        @Override
+        protected void done() {
+            if (token != null) {
+                token.unregister(this);
+            }
+        }
+
+        /**
+         * 任务执行结束
+         */
+        void finishRun() {
+            if (owner != null) {
+                owner.onTaskFinished(this);
+            }
+        }
+
+        /**
+         * 任务在排队时已被取消，未执行就出队
+         */
+        void finishQueued() {
+            if (owner != null) {
+                owner.onTaskFinished(this);
+            }
+        }
+    }
+
+    /**
+     * 任务队列
+     * 按提交顺序把任务交给调度器，同时最多maxConcurrency个在执行，
+     * 替代各模块原先自建的单线程或固定大小线程池，但不独占线程。
+     */
+    public final class TaskQueue extends AbstractExecutorService {
+        private final String name;
+        private final Lane lane;
+        private final int maxConcurrency;
+        // 以下字段由this保护
+        private final ArrayDeque<Task<?>> pending = new ArrayDeque<>();
+        private final Set<Task<?>> active = new HashSet<>();
+        private boolean shutdown = false;
+
+        TaskQueue(String name, Lane lane, int maxConcurrency) {
+            this.name = name;
+            this.lane = lane;
+            this.maxConcurrency = Math.max(1, maxConcurrency);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            Task<?> task = command instanceof Task && ((Task<?>) command).owner == this
+                    ? (Task<?>) command
+                    : new Task<Void>(command, null, lane, this, null);
+            synchronized (this) {
+                if (shutdown) {
+                    throw new RejectedExecutionException("任务队列已关闭: " + name);
+                }
+                pending.addLast(task);
+            }
+            dispatch();
+        }
+
+        /**
+         * 延迟后按队列顺序执行，队列关闭后到期的任务直接丢弃
+         */
+        public void executeDelayed(Runnable command, long delayMs) {
+            timerHandler.postDelayed(() -> {
+                try {
+                    execute(command);
+                } catch (RejectedExecutionException e) {
+                    Log.d(TAG, "任务队列已关闭，丢弃延迟任务: " + name);
+                }
+            }, delayMs);
+        }
+
+        @Override
+        protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+            return new Task<>(runnable, value, lane, this, null);
+        }
+
+        @Override
+        protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+            return new Task<>(callable, lane, this, null);
+        }
+
+        /**
+         * 不再接受新任务，已提交的任务继续执行
+         */
+        @Override
+        public synchronized void shutdown() {
+            shutdown = true;
+            notifyAll();
+        }
+
+        /**
+         * 不再接受新任务，丢弃排队中的任务并中断正在执行的任务
+         */
+        @NonNull
+        @Override
+        public List<Runnable> shutdownNow() {
+            List<Runnable> dropped;
+            List<Task<?>> running;
+            synchronized (this) {
+                shutdown = true;
+                dropped = new ArrayList<>(pending);
+                pending.clear();
+                running = new ArrayList<>(active);
+                notifyAll();
+            }
+            for (Runnable task : dropped) {
+                ((Task<?>) task).cancel(false);
+            }
+            for (Task<?> task : running) {
+                task.cancel(true);
+            }
+            return dropped;
+        }
+
+        @Override
+        public synchronized boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public synchronized boolean isTerminated() {
+            return shutdown && pending.isEmpty() && active.isEmpty();
+        }
+
+        @Override
+        public synchronized boolean awaitTermination(long timeout, @NonNull TimeUnit unit) throws InterruptedException {
+            long deadline = SystemClock.uptimeMillis() + unit.toMillis(timeout);
+            while (!isTerminated()) {
+                long remaining = deadline - SystemClock.uptimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                wait(remaining);
+            }
+            return true;
+        }
+
+        /**
+         * 排队中尚未交给调度器的任务数
+         */
+        public synchronized int getPendingCount() {
+            return pending.size();
+        }
+
+        private void dispatch() {
+            List<Task<?>> ready = null;
+            synchronized (this) {
+                while (active.size() < maxConcurrency && !pending.isEmpty()) {
+                    Task<?> task = pending.pollFirst();
+                    active.add(task);
+                    if (ready == null) {
+                        ready = new ArrayList<>(1);
+                    }
+                    ready.add(task);
+                }
+            }
+            if (ready != null) {
+                for (Task<?> task : ready) {
+                    enqueue(task);
+                }
+            }
+        }
+
+        void onTaskFinished(Task<?> task) {
+            synchronized (this) {
+                active.remove(task);
+                notifyAll();
+            }
+            dispatch();
+        }
+    }
+
+    /**
+     * 取消令牌
+     * 登记在令牌上的任务在令牌取消时一起取消：排队中的不再执行，执行中的收到中断。
+     */
+    public static final class CancellationToken {
+        private final Set<Future<?>> futures = new HashSet<>();
+        private boolean cancelled = false;
+
+        /**
+         * 创建随页面销毁自动取消的令牌，需在主线程调用
+         */
+        public static CancellationToken forLifecycle(LifecycleOwner owner) {
+            CancellationToken token = new CancellationToken();
+            Lifecycle lifecycle = owner.getLifecycle();
+            if (lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) {
+                token.cancel();
+                return token;
+            }
+            lifecycle.addObserver(new LifecycleEventObserver() {
+                @Override
+                public void onStateChanged(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+                    if (event == Lifecycle.Event.ON_DESTROY) {
+                        source.getLifecycle().removeObserver(this);
+                        token.cancel();
+                    }
+                }
+            });
+            return token;
+        }
+
+        public synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * 取消令牌上登记的全部任务，之后登记的任务会立即取消
+         */
+        public void cancel() {
+            List<Future<?>> toCancel;
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                cancelled = true;
+                toCancel = new ArrayList<>(futures);
+                futures.clear();
+            }
+            for (Future<?> future : toCancel) {
+                future.cancel(true);
+            }
+        }
+
+        void register(Future<?> future) {
+            boolean cancelNow;
+            synchronized (this) {
+                cancelNow = cancelled;
+                if (!cancelNow) {
+                    futures.add(future);
+                }
+            }
+            if (cancelNow) {
+                future.cancel(true);
+            }
+        }
+
+        synchronized void unregister(Future<?> future) {
+            futures.remove(future);
+        }
+    }
+}
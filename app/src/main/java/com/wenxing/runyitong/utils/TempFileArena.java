@@ -0,0 +1,387 @@
+package com.wenxing.runyitong.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 临时文件区
+ * 上传、编辑等功能的临时文件统一放在缓存目录下按功能划分的子目录中，
+ * 每个功能有独立的容量上限和过期时间。文件以引用计数租约的形式交给调用方，
+ * 请求结束释放租约后立即删除或留给后台按LRU清理，不再依赖页面销毁时扫描整个缓存目录。
+ */
+public class TempFileArena {
+    private static final String TAG = "TempFileArena";
+    private static final String ROOT_DIR = "temp_arena";
+    // 旧版本直接写在缓存目录下的临时文件前缀
+    private static final String[] LEGACY_PREFIXES = {"temp_image_", "edited_image_"};
+    private static final long LEGACY_MAX_AGE_MS = 60 * 60 * 1000L;
+
+    private static volatile TempFileArena instance;
+
+    /**
+     * 临时文件所属功能
+     */
+    public enum Scope {
+        // 待上传的压缩图片，请求结束即删除
+        UPLOAD("upload", 40 * 1024 * 1024L, 60 * 60 * 1000L, true, 30 * 60 * 1000L),
+        // 编辑导出的图片，可能被再次预览或上传，释放后保留到清理
+        EDIT("edit", 30 * 1024 * 1024L, 24 * 60 * 60 * 1000L, false, 0);
+
+        final String dirName;
+        final long quotaBytes;
+        final long maxAgeMs;
+        final boolean deleteOnRelease;
+        // 租约超过该时长仍未释放视为泄漏，0表示不判定
+        final long leaseTimeoutMs;
+
+        Scope(String dirName, long quotaBytes, long maxAgeMs, boolean deleteOnRelease, long leaseTimeoutMs) {
+            this.dirName = dirName;
+            this.quotaBytes = quotaBytes;
+            this.maxAgeMs = maxAgeMs;
+            this.deleteOnRelease = deleteOnRelease;
+            this.leaseTimeoutMs = leaseTimeoutMs;
+        }
+    }
+
+    /**
+     * 写入文件内容
+     */
+    public interface ContentWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    /**
+     * 临时文件租约，引用计数归零后文件可被删除
+     */
+    public final class Lease {
+        private final File file;
+        private final Scope scope;
+        private final long createdAt;
+        private int refCount = 1;
+
+        Lease(File file, Scope scope) {
+            this.file = file;
+            this.scope = scope;
+            this.createdAt = System.currentTimeMillis();
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public Scope getScope() {
+            return scope;
+        }
+
+        /**
+         * 增加一个持有者
+         */
+        public Lease retain() {
+            synchronized (TempFileArena.this) {
+                if (refCount <= 0) {
+                    throw new IllegalStateException("租约已释放: " + file.getName());
+                }
+                refCount++;
+            }
+            return this;
+        }
+
+        /**
+         * 释放一个持有者，重复释放会被忽略
+         */
+        public void release() {
+            onLeaseReleased(this);
+        }
+    }
+
+    private final File rootDir;
+    private final File legacyDir;
+    private final ExecutorService sweepExecutor;
+    private final AtomicBoolean sweepPending = new AtomicBoolean(false);
+
+    // 以绝对路径为键的未释放租约，由this保护
+    private final Map<String, Lease> activeLeases = new HashMap<>();
+    // 各功能当前占用字节数，创建/删除时增量维护，清理时按实际文件校正，由this保护
+    private final long[] usageBytes = new long[Scope.values().length];
+    private final int[] fileCounts = new int[Scope.values().length];
+    private long sweepCount = 0;
+    private long evictedFiles = 0;
+    private long evictedBytes = 0;
+    private long leakedLeases = 0;
+    private boolean legacySwept = false;
+
+    private TempFileArena(Context context) {
+        File cacheDir = context.getApplicationContext().getCacheDir();
+        this.legacyDir = cacheDir;
+        this.rootDir = new File(cacheDir, ROOT_DIR);
+        this.sweepExecutor = TaskScheduler.getInstance().newQueue("TempFileArena", TaskScheduler.Lane.MAINTENANCE, 1);
+    }
+
+    public static TempFileArena getInstance(Context context) {
+        if (instance == null) {
+            synchronized (TempFileArena.class) {
+                if (instance == null) {
+                    instance = new TempFileArena(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 在指定功能目录下创建文件并写入内容，返回引用计数为1的租约
+     */
+    public Lease write(Scope scope, String prefix, String suffix, ContentWriter writer) throws IOException {
+        File dir = new File(rootDir, scope.dirName);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("无法创建临时目录: " + dir);
+        }
+        File file = File.createTempFile(prefix, suffix, dir);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            writer.write(out);
+        } catch (IOException | RuntimeException e) {
+            file.delete();
+            throw e;
+        }
+
+        Lease lease = new Lease(file, scope);
+        boolean overQuota;
+        synchronized (this) {
+            activeLeases.put(file.getAbsolutePath(), lease);
+            usageBytes[scope.ordinal()] += file.length();
+            fileCounts[scope.ordinal()]++;
+            overQuota = usageBytes[scope.ordinal()] > scope.quotaBytes;
+        }
+        if (overQuota) {
+            sweepAsync();
+        }
+        return lease;
+    }
+
+    /**
+     * 写入字节数组
+     */
+    public Lease write(Scope scope, String prefix, String suffix, byte[] data) throws IOException {
+        return write(scope, prefix, suffix, out -> out.write(data));
+    }
+
+    private void onLeaseReleased(Lease lease) {
+        boolean delete;
+        synchronized (this) {
+            if (lease.refCount <= 0) {
+                return;
+            }
+            if (--lease.refCount > 0) {
+                return;
+            }
+            activeLeases.remove(lease.file.getAbsolutePath());
+            delete = lease.scope.deleteOnRelease;
+        }
+        if (delete) {
+            deleteFile(lease.scope, lease.file);
+        } else {
+            // 更新修改时间作为最近使用时间，LRU清理时靠后
+            lease.file.setLastModified(System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * 在后台清理过期文件并把各功能目录压到容量上限以内，已在排队时不重复提交
+     */
+    public void sweepAsync() {
+        if (!sweepPending.compareAndSet(false, true)) {
+            return;
+        }
+        sweepExecutor.execute(() -> {
+            sweepPending.set(false);
+            try {
+                sweep();
+            } catch (Exception e) {
+                Log.e(TAG, "清理临时文件失败", e);
+            }
+        });
+    }
+
+    private void sweep() {
+        long start = System.currentTimeMillis();
+        sweepLegacyFiles(start);
+        for (Scope scope : Scope.values()) {
+            sweepScope(scope, start);
+        }
+        synchronized (this) {
+            sweepCount++;
+        }
+        Log.d(TAG, "清理完成，耗时 " + (System.currentTimeMillis() - start) + "ms，" + getStats());
+    }
+
+    private void sweepScope(Scope scope, long now) {
+        File[] files = new File(rootDir, scope.dirName).listFiles();
+        if (files == null) {
+            synchronized (this) {
+                usageBytes[scope.ordinal()] = 0;
+                fileCounts[scope.ordinal()] = 0;
+            }
+            return;
+        }
+
+        long total = 0;
+        List<File> candidates = new ArrayList<>();
+        for (File file : files) {
+            long length = file.length();
+            if (!isReferenced(file, now) && now - file.lastModified() > scope.maxAgeMs) {
+                if (file.delete()) {
+                    recordEviction(length);
+                    continue;
+                }
+            }
+            total += length;
+            candidates.add(file);
+        }
+
+        int remaining = candidates.size();
+        if (total > scope.quotaBytes) {
+            // 最久未使用的先删，正在使用的跳过
+            File[] lru = candidates.toArray(new File[0]);
+            long[] lastModified = new long[lru.length];
+            for (int i = 0; i < lru.length; i++) {
+                lastModified[i] = lru[i].lastModified();
+            }
+            Integer[] order = new Integer[lru.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(lastModified[a], lastModified[b]));
+            for (int i = 0; i < order.length && total > scope.quotaBytes; i++) {
+                File file = lru[order[i]];
+                if (isReferenced(file, now)) {
+                    continue;
+                }
+                long length = file.length();
+                if (file.delete()) {
+                    recordEviction(length);
+                    total -= length;
+                    remaining--;
+                }
+            }
+            if (total > scope.quotaBytes) {
+                Log.w(TAG, scope + " 使用中的文件已超出容量上限: " + total / 1024 + "KB");
+            }
+        }
+
+        synchronized (this) {
+            usageBytes[scope.ordinal()] = total;
+            fileCounts[scope.ordinal()] = remaining;
+        }
+    }
+
+    /**
+     * 文件是否仍被租约持有，超时未释放的租约视为泄漏并回收
+     */
+    private synchronized boolean isReferenced(File file, long now) {
+        Lease lease = activeLeases.get(file.getAbsolutePath());
+        if (lease == null) {
+            return false;
+        }
+        if (lease.scope.leaseTimeoutMs > 0 && now - lease.createdAt > lease.scope.leaseTimeoutMs) {
+            Log.w(TAG, "租约超时未释放，按泄漏回收: " + file.getName());
+            lease.refCount = 0;
+            activeLeases.remove(file.getAbsolutePath());
+            leakedLeases++;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 旧版本写在缓存目录根下的临时图片，进程内只清理一次
+     */
+    private void sweepLegacyFiles(long now) {
+        synchronized (this) {
+            if (legacySwept) {
+                return;
+            }
+            legacySwept = true;
+        }
+        File[] files = legacyDir.listFiles((dir, name) -> {
+            for (String prefix : LEGACY_PREFIXES) {
+                if (name.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        });
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            long length = file.length();
+            if (file.isFile() && now - file.lastModified() > LEGACY_MAX_AGE_MS && file.delete()) {
+                recordEviction(length);
+            }
+        }
+    }
+
+    private void deleteFile(Scope scope, File file) {
+        long length = file.length();
+        if (file.delete()) {
+            synchronized (this) {
+                usageBytes[scope.ordinal()] = Math.max(0, usageBytes[scope.ordinal()] - length);
+                fileCounts[scope.ordinal()] = Math.max(0, fileCounts[scope.ordinal()] - 1);
+            }
+        }
+    }
+
+    private synchronized void recordEviction(long length) {
+        evictedFiles++;
+        evictedBytes += length;
+    }
+
+    /**
+     * 指定功能当前占用的字节数
+     */
+    public synchronized long getUsageBytes(Scope scope) {
+        return usageBytes[scope.ordinal()];
+    }
+
+    /**
+     * 所有功能占用的字节数
+     */
+    public synchronized long getTotalUsageBytes() {
+        long total = 0;
+        for (long bytes : usageBytes) {
+            total += bytes;
+        }
+        return total;
+    }
+
+    public synchronized int getActiveLeaseCount() {
+        return activeLeases.size();
+    }
+
+    /**
+     * 各功能占用及清理统计
+     */
+    public synchronized String getStats() {
+        StringBuilder builder = new StringBuilder();
+        for (Scope scope : Scope.values()) {
+            builder.append(String.format(Locale.US, "%s %d个/%dKB(上限%dKB) ", scope,
+                    fileCounts[scope.ordinal()], usageBytes[scope.ordinal()] / 1024, scope.quotaBytes / 1024));
+        }
+        builder.append(String.format(Locale.US, "使用中 %d，清理 %d次，已删除 %d个/%dKB，泄漏 %d",
+                activeLeases.size(), sweepCount, evictedFiles, evictedBytes / 1024, leakedLeases));
+        return builder.toString();
+    }
+}
@@ -0,0 +1,521 @@
+package com.wenxing.runyitong.utils;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.util.AttributeSet;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import androidx.annotation.LayoutRes;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.appcompat.widget.AppCompatButton;
+import androidx.appcompat.widget.AppCompatEditText;
+import androidx.appcompat.widget.AppCompatImageView;
+import androidx.appcompat.widget.AppCompatTextView;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * 列表行视图预热
+ * 同一页面内同一种行布局的多个列表共用一个RecycledViewPool（如页面内切换的Fragment、重建的列表），
+ * 回收的ViewHolder可被直接复用；池按页面区分，ViewHolder只会回到创建它的页面，不会带着别的页面的主题和引用；
+ * 主线程空闲时在后台线程预先加载行布局，再在空闲时创建ViewHolder放入池中，
+ * 列表首次布局和首次滚动时不再同步加载整屏卡片；嵌套在外层列表中的行可配置初始预取数量。
+ * 池中和预加载的视图持有创建它们的Activity，页面销毁时一并清除，不会保留已销毁页面的视图。
+ * 除预加载本身外，所有方法都在主线程调用。
+ */
+public class ViewPrewarmer {
+    private static final String TAG = "ViewPrewarmer";
+
+    // 行类型对应Adapter的默认视图类型
+    private static final int VIEW_TYPE = 0;
+
+    /**
+     * 行类型：一种行布局及其预热参数
+     * 共享池要求ViewHolder不引用某个Adapter实例（静态内部类、点击事件在绑定时设置），
+     * 不满足时用notShared()，只预加载布局，池仍属于各自的列表
+     */
+    public static final class RowType {
+        private final String name;
+        @LayoutRes
+        private final int layoutRes;
+        private int prewarmCount = 4;
+        private int maxRecycled = 8;
+        private int initialPrefetchCount = 0;
+        private boolean shared = true;
+
+        public RowType(String name, @LayoutRes int layoutRes) {
+            this.name = name;
+            this.layoutRes = layoutRes;
+        }
+
+        /**
+         * 预热的ViewHolder数量，一般取一屏可见的行数
+         */
+        public RowType prewarm(int count) {
+            this.prewarmCount = count;
+            return this;
+        }
+
+        /**
+         * 池中最多保留的ViewHolder数量
+         */
+        public RowType maxRecycled(int count) {
+            this.maxRecycled = count;
+            return this;
+        }
+
+        /**
+         * 作为嵌套行时，外层列表预取这一行时一并准备的子项数量
+         */
+        public RowType initialPrefetch(int count) {
+            this.initialPrefetchCount = count;
+            return this;
+        }
+
+        public RowType notShared() {
+            this.shared = false;
+            return this;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private static volatile ViewPrewarmer instance;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // 以下字段只在主线程访问
+    private final Map<Activity, Map<RowType, PrewarmPool>> sharedPools = new WeakHashMap<>();
+    private final Map<RowType, List<View>> prewarmedViews = new HashMap<>();
+    private final Map<RowType, Integer> inflatingCounts = new HashMap<>();
+    private final Map<RowType, List<WeakReference<RecyclerView>>> attachedLists = new HashMap<>();
+    // 在后台线程加载失败的行类型（布局中有只能在主线程创建的视图），之后不再预加载
+    private final Set<RowType> asyncUnsupported = new HashSet<>();
+    private final Set<Activity> observedActivities = Collections.newSetFromMap(new WeakHashMap<>());
+    private boolean holderIdleHandlerQueued = false;
+    private long prewarmedCount = 0;
+    private long hitCount = 0;
+    private long missCount = 0;
+
+    private ViewPrewarmer() {
+        MemoryCoordinator.getInstance().register(TAG, MemoryCoordinator.Priority.DISPOSABLE,
+                new MemoryCoordinator.TrimmableCache() {
+                    @Override
+                    public long getSizeBytes() {
+                        return -1;
+                    }
+
+                    @Override
+                    public void trimToFraction(float keepFraction) {
+                        // 池中的ViewHolder无法按字节估算，收缩时全部释放，下次进入页面时重新预热
+                        clear();
+                    }
+                });
+    }
+
+    public static ViewPrewarmer getInstance() {
+        if (instance == null) {
+            synchronized (ViewPrewarmer.class) {
+                if (instance == null) {
+                    instance = new ViewPrewarmer();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 为列表设置该行类型的回收池并开始预热，需在setAdapter之后调用
+     */
+    public void attach(RecyclerView recyclerView, RowType rowType) {
+        Activity activity = findActivity(recyclerView.getContext());
+        RecyclerView.RecycledViewPool pool;
+        if (rowType.shared && canSharePool(activity)) {
+            pool = getSharedPool(activity, rowType);
+        } else {
+            pool = new PrewarmPool();
+            pool.setMaxRecycledViews(VIEW_TYPE, rowType.maxRecycled);
+        }
+        recyclerView.setRecycledViewPool(pool);
+
+        if (rowType.initialPrefetchCount > 0 && recyclerView.getLayoutManager() instanceof LinearLayoutManager) {
+            ((LinearLayoutManager) recyclerView.getLayoutManager()).setInitialPrefetchItemCount(rowType.initialPrefetchCount);
+        }
+
+        if (activity == null) {
+            return;
+        }
+        List<WeakReference<RecyclerView>> lists = attachedLists.get(rowType);
+        if (lists == null) {
+            lists = new ArrayList<>();
+            attachedLists.put(rowType, lists);
+        }
+        boolean alreadyAttached = false;
+        for (WeakReference<RecyclerView> ref : lists) {
+            alreadyAttached |= ref.get() == recyclerView;
+        }
+        if (!alreadyAttached) {
+            lists.add(new WeakReference<>(recyclerView));
+        }
+
+        prewarm(activity, rowType);
+        queueHolderCreation();
+    }
+
+    /**
+     * 在主线程空闲时后台预加载行布局，页面还没有创建列表时也可以提前调用
+     */
+    public void prewarm(Activity activity, RowType rowType) {
+        if (asyncUnsupported.contains(rowType) || !isAlive(activity)) {
+            return;
+        }
+        int available = countPrewarmedViews(rowType, activity) + getInflatingCount(rowType);
+        if (rowType.shared && canSharePool(activity)) {
+            available += getSharedPool(activity, rowType).getRecycledViewCount(VIEW_TYPE);
+        }
+        int count = rowType.prewarmCount - available;
+        if (count <= 0) {
+            return;
+        }
+        observe(activity);
+        inflatingCounts.put(rowType, getInflatingCount(rowType) + count);
+
+        // 等首帧和当前的界面工作完成后再开始，预加载不和页面启动抢CPU
+        Looper.myQueue().addIdleHandler(() -> {
+            TaskScheduler.getInstance().execute(TaskScheduler.Lane.PREFETCH,
+                    () -> inflateInBackground(activity, rowType, count));
+            return false;
+        });
+    }
+
+    /**
+     * 供Adapter的onCreateViewHolder调用：有同一页面预加载好的视图时直接取用，否则同步加载
+     */
+    public View inflate(ViewGroup parent, RowType rowType) {
+        Activity activity = findActivity(parent.getContext());
+        List<View> views = prewarmedViews.get(rowType);
+        if (views != null && activity != null) {
+            for (Iterator<View> it = views.iterator(); it.hasNext(); ) {
+                View view = it.next();
+                if (findActivity(view.getContext()) == activity) {
+                    it.remove();
+                    hitCount++;
+                    return view;
+                }
+            }
+        }
+        missCount++;
+        return LayoutInflater.from(parent.getContext()).inflate(rowType.layoutRes, parent, false);
+    }
+
+    /**
+     * 释放所有预加载的视图和共享池中的ViewHolder
+     */
+    public void clear() {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            mainHandler.post(this::clear);
+            return;
+        }
+        prewarmedViews.clear();
+        for (Map<RowType, PrewarmPool> pools : sharedPools.values()) {
+            for (PrewarmPool pool : pools.values()) {
+                pool.clear();
+            }
+        }
+        Log.d(TAG, "已释放预热的列表行视图");
+    }
+
+    public String getStats() {
+        int pooled = 0;
+        for (Map<RowType, PrewarmPool> pools : sharedPools.values()) {
+            for (PrewarmPool pool : pools.values()) {
+                pooled += pool.getRecycledViewCount(VIEW_TYPE);
+            }
+        }
+        int prewarmed = 0;
+        for (List<View> views : prewarmedViews.values()) {
+            prewarmed += views.size();
+        }
+        return "ViewPrewarmer: 预加载=" + prewarmedCount + " 命中=" + hitCount + " 未命中=" + missCount
+                + " 待用视图=" + prewarmed + " 共享池=" + pooled;
+    }
+
+    /**
+     * 池中的ViewHolder引用页面，池只能在页面销毁时清除，不能观察生命周期的页面不共享
+     */
+    private static boolean canSharePool(@Nullable Activity activity) {
+        return activity instanceof LifecycleOwner && isAlive(activity);
+    }
+
+    private RecyclerView.RecycledViewPool getSharedPool(Activity activity, RowType rowType) {
+        Map<RowType, PrewarmPool> pools = sharedPools.get(activity);
+        if (pools == null) {
+            pools = new HashMap<>();
+            sharedPools.put(activity, pools);
+            observe(activity);
+        }
+        PrewarmPool pool = pools.get(rowType);
+        if (pool == null) {
+            pool = new PrewarmPool();
+            pool.setMaxRecycledViews(VIEW_TYPE, rowType.maxRecycled);
+            pools.put(rowType, pool);
+        }
+        return pool;
+    }
+
+    /**
+     * 后台线程：用不带页面Factory2的LayoutInflater加载行布局，AppCompat的Factory2不是线程安全的；
+     * 以FrameLayout为父布局解析布局参数，添加到列表时由LayoutManager转换
+     */
+    private void inflateInBackground(Activity activity, RowType rowType, int count) {
+        int inflated = 0;
+        try {
+            LayoutInflater inflater = new BackgroundInflater(activity);
+            FrameLayout parent = new FrameLayout(activity);
+            for (; inflated < count && isAlive(activity); inflated++) {
+                View view = inflater.inflate(rowType.layoutRes, parent, false);
+                mainHandler.post(() -> onViewInflated(activity, rowType, view));
+            }
+        } catch (RuntimeException e) {
+            Log.w(TAG, "行布局不支持后台加载，改为按需同步加载: " + rowType, e);
+            mainHandler.post(() -> asyncUnsupported.add(rowType));
+        } finally {
+            int remaining = count - inflated;
+            if (remaining > 0) {
+                mainHandler.post(() -> inflatingCounts.put(rowType, getInflatingCount(rowType) - remaining));
+            }
+        }
+    }
+
+    /**
+     * 后台加载用的LayoutInflater，与androidx AsyncLayoutInflater的BasicInflater一样不复制页面的Factory；
+     * 行布局用到app:tint等属性的基础控件直接创建对应的AppCompat控件，其余按系统包名查找
+     */
+    private static final class BackgroundInflater extends LayoutInflater {
+        private static final String[] CLASS_PREFIXES = {"android.widget.", "android.webkit.", "android.app."};
+
+        BackgroundInflater(Context context) {
+            super(context);
+        }
+
+        @Override
+        public LayoutInflater cloneInContext(Context newContext) {
+            return new BackgroundInflater(newContext);
+        }
+
+        @Override
+        protected View onCreateView(String name, AttributeSet attrs) throws ClassNotFoundException {
+            switch (name) {
+                case "TextView":
+                    return new AppCompatTextView(getContext(), attrs);
+                case "ImageView":
+                    return new AppCompatImageView(getContext(), attrs);
+                case "Button":
+                    return new AppCompatButton(getContext(), attrs);
+                case "EditText":
+                    return new AppCompatEditText(getContext(), attrs);
+                default:
+                    break;
+            }
+            for (String prefix : CLASS_PREFIXES) {
+                try {
+                    View view = createView(name, prefix, attrs);
+                    if (view != null) {
+                        return view;
+                    }
+                } catch (ClassNotFoundException e) {
+                    // 换下一个包名继续查找
+                }
+            }
+            return super.onCreateView(name, attrs);
+        }
+    }
+
+    private void onViewInflated(Activity activity, RowType rowType, View view) {
+        inflatingCounts.put(rowType, getInflatingCount(rowType) - 1);
+        if (!isAlive(activity)) {
+            return;
+        }
+        List<View> views = prewarmedViews.get(rowType);
+        if (views == null) {
+            views = new ArrayList<>();
+            prewarmedViews.put(rowType, views);
+        }
+        views.add(view);
+        prewarmedCount++;
+        queueHolderCreation();
+    }
+
+    /**
+     * 主线程空闲时把预加载的视图交给已挂载列表的Adapter创建ViewHolder，每次空闲只创建一个
+     */
+    private void queueHolderCreation() {
+        if (holderIdleHandlerQueued) {
+            return;
+        }
+        holderIdleHandlerQueued = true;
+        Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+            @Override
+            public boolean queueIdle() {
+                boolean more = createOneHolder();
+                holderIdleHandlerQueued = more;
+                return more;
+            }
+        });
+    }
+
+    private boolean createOneHolder() {
+        for (Map.Entry<RowType, List<WeakReference<RecyclerView>>> entry : attachedLists.entrySet()) {
+            RowType rowType = entry.getKey();
+            for (Iterator<WeakReference<RecyclerView>> it = entry.getValue().iterator(); it.hasNext(); ) {
+                RecyclerView recyclerView = it.next().get();
+                Activity activity = recyclerView != null ? findActivity(recyclerView.getContext()) : null;
+                if (recyclerView == null || !isAlive(activity)) {
+                    it.remove();
+                    continue;
+                }
+                RecyclerView.Adapter<?> adapter = recyclerView.getAdapter();
+                RecyclerView.RecycledViewPool pool = recyclerView.getRecycledViewPool();
+                if (adapter == null
+                        || pool.getRecycledViewCount(VIEW_TYPE) >= rowType.prewarmCount
+                        || countPrewarmedViews(rowType, activity) == 0) {
+                    continue;
+                }
+                // onCreateViewHolder通过inflate()取走一个预加载的视图，这里只剩查找子控件的开销
+                RecyclerView.ViewHolder holder = adapter.createViewHolder(recyclerView, VIEW_TYPE);
+                pool.putRecycledView(holder);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int countPrewarmedViews(RowType rowType, Activity activity) {
+        List<View> views = prewarmedViews.get(rowType);
+        if (views == null) {
+            return 0;
+        }
+        int count = 0;
+        for (View view : views) {
+            if (findActivity(view.getContext()) == activity) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int getInflatingCount(RowType rowType) {
+        Integer count = inflatingCounts.get(rowType);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * 页面销毁时清除该页面创建的视图
+     */
+    private void observe(Activity activity) {
+        if (!(activity instanceof LifecycleOwner) || !observedActivities.add(activity)) {
+            return;
+        }
+        ((LifecycleOwner) activity).getLifecycle().addObserver(new LifecycleEventObserver() {
+            @Override
+            public void onStateChanged(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+                if (event == Lifecycle.Event.ON_DESTROY) {
+                    source.getLifecycle().removeObserver(this);
+                    observedActivities.remove(activity);
+                    purge(activity);
+                }
+            }
+        });
+    }
+
+    private void purge(Activity activity) {
+        for (List<View> views : prewarmedViews.values()) {
+            for (Iterator<View> it = views.iterator(); it.hasNext(); ) {
+                if (findActivity(it.next().getContext()) == activity) {
+                    it.remove();
+                }
+            }
+        }
+        Map<RowType, PrewarmPool> pools = sharedPools.remove(activity);
+        if (pools != null) {
+            for (PrewarmPool pool : pools.values()) {
+                pool.clear();
+            }
+        }
+    }
+
+    @Nullable
+    private static Activity findActivity(Context context) {
+        while (context instanceof ContextWrapper) {
+            if (context instanceof Activity) {
+                return (Activity) context;
+            }
+            context = ((ContextWrapper) context).getBaseContext();
+        }
+        return null;
+    }
+
+    private static boolean isAlive(@Nullable Activity activity) {
+        return activity != null && !activity.isFinishing() && !activity.isDestroyed();
+    }
+
+    /**
+     * 不接收、不返回已结束页面创建的ViewHolder的回收池
+     * 页面销毁后仍挂着该池的列表可能在拆除时继续回收，这里直接丢弃
+     */
+    private static final class PrewarmPool extends RecyclerView.RecycledViewPool {
+        @Override
+        public void putRecycledView(RecyclerView.ViewHolder scrap) {
+            Activity owner = findActivity(scrap.itemView.getContext());
+            if (owner != null && !isAlive(owner)) {
+                return;
+            }
+            super.putRecycledView(scrap);
+        }
+
+        @Nullable
+        @Override
+        public RecyclerView.ViewHolder getRecycledView(int viewType) {
+            RecyclerView.ViewHolder holder;
+            do {
+                holder = super.getRecycledView(viewType);
+            } while (holder != null && !isUsable(holder));
+            return holder;
+        }
+
+        private static boolean isUsable(RecyclerView.ViewHolder holder) {
+            Activity owner = findActivity(holder.itemView.getContext());
+            return owner == null || isAlive(owner);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.wenxing.runyitong.benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.wenxing.runyitong.api.ApiGson;
+import com.wenxing.runyitong.api.ApiResponse;
+import com.wenxing.runyitong.api.HospitalListResponse;
+import com.wenxing.runyitong.api.ProductListResponse;
+import com.wenxing.runyitong.model.SymptomAnalysis;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 接口响应反序列化
+ * 与Retrofit的GsonConverterFactory一样先取TypeAdapter再读JsonReader，
+ * Gson配置与ApiClient相同，响应内容录制自本地后端
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApiResponseParsingBenchmark {
+
+    private Gson gson;
+    private TypeAdapter<ApiResponse<HospitalListResponse>> hospitalsAdapter;
+    private TypeAdapter<ApiResponse<ProductListResponse>> productsAdapter;
+    private TypeAdapter<ApiResponse<SymptomAnalysis>> analysisAdapter;
+    private String hospitalsJson;
+    private String productsJson;
+    private String analysisJson;
+
+    @Setup
+    public void setUp() {
+        gson = ApiGson.create();
+        hospitalsAdapter = gson.getAdapter(new TypeToken<ApiResponse<HospitalListResponse>>() {});
+        productsAdapter = gson.getAdapter(new TypeToken<ApiResponse<ProductListResponse>>() {});
+        analysisAdapter = gson.getAdapter(new TypeToken<ApiResponse<SymptomAnalysis>>() {});
+        hospitalsJson = Payloads.read("hospitals.json");
+        productsJson = Payloads.read("products.json");
+        analysisJson = Payloads.read("symptom_analysis.json");
+    }
+
+    @Benchmark
+    public ApiResponse<HospitalListResponse> hospitals() throws IOException {
+        return hospitalsAdapter.read(gson.newJsonReader(new StringReader(hospitalsJson)));
+    }
+
+    @Benchmark
+    public ApiResponse<ProductListResponse> products() throws IOException {
+        return productsAdapter.read(gson.newJsonReader(new StringReader(productsJson)));
+    }
+
+    @Benchmark
+    public ApiResponse<SymptomAnalysis> symptomAnalysis() throws IOException {
+        return analysisAdapter.read(gson.newJsonReader(new StringReader(analysisJson)));
+    }
+}
@@ -0,0 +1,59 @@
+package com.wenxing.runyitong.benchmark;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * 基准测试用的Context：文件目录指向临时目录，SharedPreferences保存在内存中
+ */
+class BenchmarkContext extends Context {
+    private final File rootDir;
+    private final Map<String, SharedPreferences> preferences = new HashMap<>();
+
+    BenchmarkContext() throws IOException {
+        this.rootDir = Files.createTempDirectory("runyitong-bench").toFile();
+    }
+
+    @Override
+    public Context getApplicationContext() {
+        return this;
+    }
+
+    @Override
+    public synchronized SharedPreferences getSharedPreferences(String name, int mode) {
+        return preferences.computeIfAbsent(name, key -> new InMemorySharedPreferences());
+    }
+
+    @Override
+    public File getFilesDir() {
+        return mkdirs(new File(rootDir, "files"));
+    }
+
+    @Override
+    public File getCacheDir() {
+        return mkdirs(new File(rootDir, "cache"));
+    }
+
+    /**
+     * 删除临时目录
+     */
+    void delete() throws IOException {
+        try (Stream<Path> paths = Files.walk(rootDir.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    private static File mkdirs(File dir) {
+        dir.mkdirs();
+        return dir;
+    }
+}
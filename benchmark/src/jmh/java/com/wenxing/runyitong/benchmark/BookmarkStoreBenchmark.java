@@ -0,0 +1,93 @@
+package com.wenxing.runyitong.benchmark;
+
+import com.wenxing.runyitong.utils.BookmarkManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 书签存储：翻页时的书签判断、书签列表和最近书签查询，以及增删书签的前台开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookmarkStoreBenchmark {
+
+    private static final int BOOK_COUNT = 20;
+
+    @Param({"20", "500"})
+    public int bookmarksPerBook;
+
+    private BenchmarkContext context;
+    private BookmarkManager bookmarks;
+    private String[] books;
+    private int page;
+
+    @Setup
+    public void setUp() throws IOException {
+        context = new BenchmarkContext();
+        bookmarks = BookmarkManager.getInstance(context);
+
+        books = new String[BOOK_COUNT];
+        for (int b = 0; b < BOOK_COUNT; b++) {
+            books[b] = "/storage/emulated/0/Android/data/com.wenxing.runyitong/files/books/book_" + b + ".pdf";
+            bookmarks.clearBookmarks(books[b]);
+            for (int p = 0; p < bookmarksPerBook; p++) {
+                // 隔页添加书签，判断时一半命中一半不命中
+                bookmarks.addBookmark(books[b], p * 2, "第" + (p * 2 + 1) + "页", "");
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.delete();
+    }
+
+    /**
+     * 每次翻页都会判断当前页是否有书签
+     */
+    @Benchmark
+    public boolean hasBookmark() {
+        page = (page + 1) % (bookmarksPerBook * 2);
+        return bookmarks.hasBookmark(books[page % BOOK_COUNT], page);
+    }
+
+    @Benchmark
+    public List<BookmarkManager.Bookmark> bookmarksOfBook() {
+        return bookmarks.getBookmarks(books[0]);
+    }
+
+    @Benchmark
+    public List<BookmarkManager.Bookmark> recentBookmarks() {
+        return bookmarks.getRecentBookmarks(20);
+    }
+
+    /**
+     * 添加再删除同一书签，写日志在后台执行
+     */
+    @Benchmark
+    public boolean addAndRemove() {
+        String book = books[BOOK_COUNT - 1];
+        int newPage = bookmarksPerBook * 2 + 1;
+        bookmarks.addBookmark(book, newPage, "临时书签", "");
+        return bookmarks.removeBookmark(book, newPage);
+    }
+}
@@ -0,0 +1,137 @@
+package com.wenxing.runyitong.benchmark;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.Paragraph;
+import com.itextpdf.text.pdf.PdfWriter;
+import com.wenxing.runyitong.utils.PDFSearchUtils;
+import com.wenxing.runyitong.utils.PDFTextIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 阅读器搜索：基于PDFTextIndex的全文搜索（含命中矩形计算）和结果高亮
+ * 测试文档在Setup中用iText生成，内容固定，各次运行可比
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PDFSearchBenchmark {
+
+    private static final int PAGE_COUNT = 40;
+    private static final int PARAGRAPHS_PER_PAGE = 6;
+    private static final String[] SENTENCES = {
+            "Regular health checks help detect chronic conditions such as hypertension and diabetes early.",
+            "The treatment plan combines herbal prescriptions with dietary therapy and moderate exercise.",
+            "Patients with high blood pressure should reduce salt intake and monitor readings twice a day.",
+            "Acupuncture may relieve tension headaches when combined with adequate sleep and hydration.",
+            "Telemedicine extends specialist consultation to rural clinics with limited diagnostic equipment.",
+            "Laboratory results should be interpreted together with symptoms, history and physical examination.",
+            "Seasonal changes in temperature often aggravate joint pain in elderly patients.",
+            "Doctors recommend follow-up visits every two weeks during the first month of treatment.",
+    };
+
+    @Param({"treatment", "blood pressure", "nonexistent term"})
+    public String query;
+
+    private File pdfFile;
+    private PDFTextIndex textIndex;
+    private PDFSearchUtils.SearchOptions options;
+    private String longPageText;
+
+    @Setup
+    public void setUp() throws IOException, DocumentException {
+        pdfFile = File.createTempFile("runyitong-bench", ".pdf");
+        writeDocument(pdfFile);
+
+        // 首次搜索时才逐页提取文本，这里提前提取，测的是之后每次搜索的开销
+        textIndex = new PDFTextIndex(pdfFile.getAbsolutePath());
+        textIndex.open();
+        StringBuilder allText = new StringBuilder();
+        for (int i = 0; i < textIndex.getPageCount(); i++) {
+            allText.append(textIndex.getPageText(i)).append('\n');
+        }
+        longPageText = allText.toString();
+        options = new PDFSearchUtils.SearchOptions();
+    }
+
+    @TearDown
+    public void tearDown() {
+        textIndex.close();
+        pdfFile.delete();
+    }
+
+    /**
+     * 已建立文本索引后的搜索，每个命中都计算页面矩形
+     */
+    @Benchmark
+    public List<PDFSearchUtils.SearchResult> searchIndexed() {
+        return PDFSearchUtils.searchInPDF(textIndex, query, options);
+    }
+
+    /**
+     * 打开文档后的第一次搜索，包含逐页文本提取
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 10)
+    public List<PDFSearchUtils.SearchResult> searchCold() throws IOException {
+        PDFTextIndex coldIndex = new PDFTextIndex(pdfFile.getAbsolutePath());
+        try {
+            coldIndex.open();
+            return PDFSearchUtils.searchInPDF(coldIndex, query, options);
+        } finally {
+            coldIndex.close();
+        }
+    }
+
+    @Benchmark
+    public String highlight() {
+        return PDFSearchUtils.highlightSearchResults(longPageText, query, options);
+    }
+
+    private static void writeDocument(File file) throws IOException, DocumentException {
+        Random random = new Random(42);
+        Document document = new Document();
+        try (OutputStream out = new FileOutputStream(file)) {
+            PdfWriter.getInstance(document, out);
+            document.open();
+            for (int page = 0; page < PAGE_COUNT; page++) {
+                if (page > 0) {
+                    document.newPage();
+                }
+                for (int p = 0; p < PARAGRAPHS_PER_PAGE; p++) {
+                    StringBuilder paragraph = new StringBuilder();
+                    for (int s = 0; s < 3; s++) {
+                        paragraph.append(SENTENCES[random.nextInt(SENTENCES.length)]).append(' ');
+                    }
+                    document.add(new Paragraph(paragraph.toString()));
+                }
+            }
+            document.close();
+        }
+    }
+}
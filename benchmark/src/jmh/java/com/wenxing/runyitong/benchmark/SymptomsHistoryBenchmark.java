@@ -0,0 +1,95 @@
+package com.wenxing.runyitong.benchmark;
+
+import com.wenxing.runyitong.utils.SymptomsHistoryManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 症状历史记录：输入联想和新增记录，历史记录保持在上限100条
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SymptomsHistoryBenchmark {
+
+    private static final int HISTORY_SIZE = 100;
+    private static final String[] PARTS = {
+            "头痛", "发热", "咳嗽有痰", "咽喉肿痛", "失眠多梦", "心烦易怒", "口干口苦", "胃脘胀痛",
+            "食欲不振", "大便干结", "腰膝酸软", "手足冰凉", "头晕乏力", "夜间盗汗", "关节疼痛", "鼻塞流涕",
+    };
+
+    private BenchmarkContext context;
+    private SymptomsHistoryManager history;
+    private String[] symptoms;
+    private int cursor;
+
+    @Setup
+    public void setUp() throws IOException {
+        context = new BenchmarkContext();
+        history = SymptomsHistoryManager.getInstance(context);
+        history.clearHistory();
+
+        Random random = new Random(42);
+        symptoms = new String[HISTORY_SIZE * 2];
+        for (int i = 0; i < symptoms.length; i++) {
+            symptoms[i] = PARTS[random.nextInt(PARTS.length)] + "，" + PARTS[random.nextInt(PARTS.length)]
+                    + "，持续" + (1 + random.nextInt(14)) + "天";
+        }
+        for (int i = 0; i < HISTORY_SIZE; i++) {
+            history.addSymptom(symptoms[i]);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.delete();
+    }
+
+    /**
+     * 输入一个词时的联想
+     */
+    @Benchmark
+    public List<String> suggestSingleTerm() {
+        return history.suggest("失眠", 5);
+    }
+
+    /**
+     * 输入多个片段时的联想，每个片段都须命中
+     */
+    @Benchmark
+    public List<String> suggestMultipleTerms() {
+        return history.suggest("头痛 持续", 5);
+    }
+
+    @Benchmark
+    public List<String> suggestNoMatch() {
+        return history.suggest("视物模糊", 5);
+    }
+
+    /**
+     * 新增一条记录并挤出最旧的一条，写回在后台合并执行
+     */
+    @Benchmark
+    public void addSymptom() {
+        history.addSymptom(symptoms[cursor]);
+        cursor = (cursor + 1) % symptoms.length;
+    }
+}
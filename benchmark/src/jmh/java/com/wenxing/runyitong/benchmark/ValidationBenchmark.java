@@ -0,0 +1,88 @@
+package com.wenxing.runyitong.benchmark;
+
+import com.wenxing.runyitong.utils.InputValidator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 输入验证规则，每次按键都会在主线程调用
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+
+    @Param({"valid", "invalid"})
+    public String input;
+
+    private String username;
+    private String password;
+    private String email;
+    private String phone;
+    private String code;
+
+    @Setup
+    public void setUp() {
+        if ("valid".equals(input)) {
+            username = "张三_zhang3";
+            password = "Zx9#kLm2pQ!r";
+            email = "zhang.san+health@example-hospital.com.cn";
+            phone = "13812345678";
+            code = "482913";
+        } else {
+            username = "zhang san!";
+            password = "abc";
+            email = "zhang.san@@example";
+            phone = "1381234567";
+            code = "48a913";
+        }
+    }
+
+    @Benchmark
+    public InputValidator.ValidationResult username() {
+        return InputValidator.validateUsername(username);
+    }
+
+    @Benchmark
+    public InputValidator.ValidationResult password() {
+        return InputValidator.validatePassword(password);
+    }
+
+    @Benchmark
+    public InputValidator.ValidationResult email() {
+        return InputValidator.validateEmail(email);
+    }
+
+    @Benchmark
+    public InputValidator.ValidationResult phone() {
+        return InputValidator.validatePhone(phone);
+    }
+
+    /**
+     * 注册表单提交时的整体校验
+     */
+    @Benchmark
+    public InputValidator.ValidationResult registrationForm() {
+        return InputValidator.validateAllFields(
+                new String[]{"用户名", username, "username"},
+                new String[]{"密码", password, "password"},
+                new String[]{"邮箱", email, "email"},
+                new String[]{"手机号", phone, "phone"},
+                new String[]{"验证码", code, "verification_code"});
+    }
+}
@@ -0,0 +1,185 @@
+package com.wenxing.runyitong.loadtest;
+
+import com.wenxing.runyitong.api.ApiResponse;
+import com.wenxing.runyitong.api.ApiService;
+import com.wenxing.runyitong.api.AppointmentCreate;
+import com.wenxing.runyitong.api.DepartmentListResponse;
+import com.wenxing.runyitong.api.DoctorListResponse;
+import com.wenxing.runyitong.api.HospitalListResponse;
+import com.wenxing.runyitong.api.ProductListResponse;
+import com.wenxing.runyitong.model.Book;
+import com.wenxing.runyitong.model.Department;
+import com.wenxing.runyitong.model.Doctor;
+import com.wenxing.runyitong.model.Hospital;
+import com.wenxing.runyitong.model.Product;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * 压测中的用户流程，按应用里对应页面的请求顺序调用ApiService。
+ * 每一步的耗时记在“流程/接口方法”名下，失败时抛出异常结束当前流程
+ */
+final class ClientFlows {
+
+    enum Flow {
+        // 首页浏览：医院列表、商品列表、商品详情
+        BROWSE,
+        // 预约挂号：医院、科室、医生、提交预约
+        BOOK,
+        // 处方拍照分析：上传图片并等待AI分析结果
+        ANALYZE,
+        // 图书下载：书目、详情、流式下载PDF
+        DOWNLOAD
+    }
+
+    static final class FlowException extends IOException {
+        FlowException(String message) {
+            super(message);
+        }
+    }
+
+    private static final MediaType JPEG = MediaType.parse("image/jpeg");
+    private static final int DOWNLOAD_BUFFER_SIZE = 8 * 1024;
+
+    private final ApiService api;
+    private final LatencyRecorder recorder;
+    private final byte[] image;
+    private final Random random;
+
+    ClientFlows(ApiService api, LatencyRecorder recorder, byte[] image, long seed) {
+        this.api = api;
+        this.recorder = recorder;
+        this.image = image;
+        this.random = new Random(seed);
+    }
+
+    void run(Flow flow) throws IOException {
+        switch (flow) {
+            case BROWSE:
+                browse();
+                break;
+            case BOOK:
+                book();
+                break;
+            case ANALYZE:
+                analyze();
+                break;
+            case DOWNLOAD:
+                download();
+                break;
+        }
+    }
+
+    private void browse() throws IOException {
+        step("browse/getHospitals", api.getHospitals());
+        ApiResponse<ProductListResponse> products = step("browse/getProducts", api.getProducts(0, 20, null, null));
+        List<Product> items = products.getData() != null ? products.getData().getItems() : null;
+        int productId = items != null && !items.isEmpty() ? items.get(random.nextInt(items.size())).getId() : 1;
+        step("browse/getProductDetail", api.getProductDetail(productId));
+    }
+
+    private void book() throws IOException {
+        ApiResponse<HospitalListResponse> hospitals = step("book/getHospitals", api.getHospitals());
+        List<Hospital> hospitalList = hospitals.getData() != null ? hospitals.getData().getHospitals() : null;
+        int hospitalId = hospitalList != null && !hospitalList.isEmpty()
+                ? hospitalList.get(random.nextInt(hospitalList.size())).getId() : 1;
+
+        ApiResponse<DepartmentListResponse> departments =
+                step("book/getHospitalDepartments", api.getHospitalDepartments(hospitalId));
+        List<Department> departmentList = departments.getData() != null ? departments.getData().getDepartments() : null;
+        int departmentId = departmentList != null && !departmentList.isEmpty()
+                ? departmentList.get(random.nextInt(departmentList.size())).getId() : 1;
+
+        ApiResponse<DoctorListResponse> doctors = step("book/getDoctors", api.getDoctors(departmentId, hospitalId));
+        List<Doctor> doctorList = doctors.getData() != null ? doctors.getData().getDoctors() : null;
+        int doctorId = doctorList != null && !doctorList.isEmpty() ? doctorList.get(0).getId() : 1;
+
+        String tomorrow = new SimpleDateFormat("yyyy-MM-dd", Locale.CHINA)
+                .format(new Date(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1)));
+        step("book/createAppointment", api.createAppointment(new AppointmentCreate(
+                "压测用户", "13800000000", "110101199001011234",
+                doctorId, hospitalId, departmentId, tomorrow, "09:00-10:00", "头痛三天，伴有低热")));
+    }
+
+    private void analyze() throws IOException {
+        MultipartBody.Part part = MultipartBody.Part.createFormData(
+                "image", "prescription.jpg", RequestBody.create(image, JPEG));
+        step("analyze/analyzePrescriptionImage", api.analyzePrescriptionImage(part));
+    }
+
+    private void download() throws IOException {
+        ApiResponse<List<Book>> books = step("download/getChineseMedicineBooks", api.getChineseMedicineBooks());
+        List<Book> bookList = books.getData();
+        int bookId = bookList != null && !bookList.isEmpty() ? bookList.get(random.nextInt(bookList.size())).getId() : 1;
+        step("download/getBook", api.getBook(bookId));
+
+        // 与BookDetailActivity一样流式读取，分别记录首字节和整体耗时
+        LatencyRecorder.Series total = recorder.series("download/downloadBookPdf");
+        LatencyRecorder.Series firstByte = recorder.series("download/downloadBookPdf.firstByte");
+        long start = System.nanoTime();
+        try {
+            Response<ResponseBody> response = api.downloadBookPdf(bookId).execute();
+            if (!response.isSuccessful() || response.body() == null) {
+                total.addError();
+                throw new FlowException("downloadBookPdf HTTP " + response.code());
+            }
+            try (ResponseBody body = response.body()) {
+                BufferedSource source = body.source();
+                byte[] buffer = new byte[DOWNLOAD_BUFFER_SIZE];
+                long bytes = 0;
+                int read;
+                boolean first = true;
+                while ((read = source.read(buffer)) != -1) {
+                    if (first) {
+                        firstByte.add(elapsedMicros(start));
+                        first = false;
+                    }
+                    bytes += read;
+                }
+                total.add(elapsedMicros(start));
+                total.addBytes(bytes);
+            }
+        } catch (FlowException e) {
+            throw e;
+        } catch (IOException e) {
+            total.addError();
+            throw e;
+        }
+    }
+
+    private <T> T step(String name, Call<T> call) throws IOException {
+        LatencyRecorder.Series series = recorder.series(name);
+        long start = System.nanoTime();
+        Response<T> response;
+        try {
+            response = call.execute();
+        } catch (IOException e) {
+            series.addError();
+            throw e;
+        }
+        if (!response.isSuccessful() || response.body() == null) {
+            series.addError();
+            throw new FlowException(name + " HTTP " + response.code());
+        }
+        series.add(elapsedMicros(start));
+        return response.body();
+    }
+
+    private static long elapsedMicros(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+    }
+}
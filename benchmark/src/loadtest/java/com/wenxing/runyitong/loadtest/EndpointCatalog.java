@@ -0,0 +1,124 @@
+package com.wenxing.runyitong.loadtest;
+
+import com.wenxing.runyitong.api.ApiService;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import retrofit2.http.DELETE;
+import retrofit2.http.GET;
+import retrofit2.http.POST;
+import retrofit2.http.PUT;
+
+/**
+ * 从ApiService的Retrofit注解生成路由表，录制和回放都按路由（方法+路径模板）归档，
+ * 新增接口不需要改这里
+ */
+final class EndpointCatalog {
+    private static final Pattern PATH_PARAM = Pattern.compile("\\{[^/}]+\\}");
+
+    static final class Endpoint {
+        final String httpMethod;
+        final String template;
+        final List<String> methodNames = new ArrayList<>();
+        private final Pattern pattern;
+        private final int literalLength;
+
+        Endpoint(String httpMethod, String template) {
+            this.httpMethod = httpMethod;
+            this.template = template;
+            this.pattern = compile(template);
+            this.literalLength = PATH_PARAM.matcher(template).replaceAll("").length();
+        }
+
+        String key() {
+            return httpMethod + " " + template;
+        }
+
+        boolean matches(String method, String path) {
+            return httpMethod.equals(method) && pattern.matcher(path).matches();
+        }
+
+        private static Pattern compile(String template) {
+            StringBuilder regex = new StringBuilder();
+            Matcher matcher = PATH_PARAM.matcher(template);
+            int last = 0;
+            while (matcher.find()) {
+                regex.append(Pattern.quote(template.substring(last, matcher.start()))).append("[^/]+");
+                last = matcher.end();
+            }
+            regex.append(Pattern.quote(template.substring(last)));
+            return Pattern.compile(regex.toString());
+        }
+    }
+
+    private final List<Endpoint> endpoints;
+
+    private EndpointCatalog(List<Endpoint> endpoints) {
+        this.endpoints = endpoints;
+    }
+
+    static EndpointCatalog fromApiService() {
+        Map<String, Endpoint> byKey = new LinkedHashMap<>();
+        for (Method method : ApiService.class.getDeclaredMethods()) {
+            for (Annotation annotation : method.getAnnotations()) {
+                String httpMethod = null;
+                String path = null;
+                if (annotation instanceof GET) {
+                    httpMethod = "GET";
+                    path = ((GET) annotation).value();
+                } else if (annotation instanceof POST) {
+                    httpMethod = "POST";
+                    path = ((POST) annotation).value();
+                } else if (annotation instanceof PUT) {
+                    httpMethod = "PUT";
+                    path = ((PUT) annotation).value();
+                } else if (annotation instanceof DELETE) {
+                    httpMethod = "DELETE";
+                    path = ((DELETE) annotation).value();
+                }
+                if (httpMethod != null) {
+                    Endpoint endpoint = new Endpoint(httpMethod, normalize(path));
+                    byKey.computeIfAbsent(endpoint.key(), key -> endpoint).methodNames.add(method.getName());
+                }
+            }
+        }
+        List<Endpoint> endpoints = new ArrayList<>(byKey.values());
+        // 字面部分更长的优先，"products/pharmacy"先于"products/{id}"匹配
+        endpoints.sort(Comparator.comparingInt((Endpoint e) -> e.literalLength).reversed());
+        return new EndpointCatalog(endpoints);
+    }
+
+    /**
+     * 按请求方法和路径（不含查询参数）查找路由，未在ApiService中声明时返回null
+     */
+    Endpoint match(String method, String path) {
+        String normalized = normalize(path);
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint.matches(method, normalized)) {
+                return endpoint;
+            }
+        }
+        return null;
+    }
+
+    List<Endpoint> all() {
+        return Collections.unmodifiableList(endpoints);
+    }
+
+    private static String normalize(String path) {
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = path.substring(0, query);
+        }
+        return path.startsWith("/") ? path.substring(1) : path;
+    }
+}
@@ -0,0 +1,96 @@
+package com.wenxing.runyitong.loadtest;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.SocketPolicy;
+
+/**
+ * 回放时注入的网络条件：固定延迟加抖动、下行带宽限制和错误注入
+ */
+final class FaultProfile {
+
+    enum ErrorMode {
+        // 返回503，走重试拦截器的服务器错误分支
+        HTTP,
+        // 收到请求后断开连接，走网络错误分支
+        DISCONNECT,
+        MIXED
+    }
+
+    private static final long THROTTLE_PERIOD_MS = 100;
+
+    final long latencyMs;
+    final long jitterMs;
+    final int bandwidthKbps;
+    final double errorRate;
+    final ErrorMode errorMode;
+    private final Random random;
+
+    FaultProfile(long latencyMs, long jitterMs, int bandwidthKbps, double errorRate, ErrorMode errorMode, long seed) {
+        this.latencyMs = latencyMs;
+        this.jitterMs = jitterMs;
+        this.bandwidthKbps = bandwidthKbps;
+        this.errorRate = errorRate;
+        this.errorMode = errorMode;
+        this.random = new Random(seed);
+    }
+
+    static FaultProfile from(Options options) {
+        return new FaultProfile(
+                options.getLong("latency-ms", 0),
+                options.getLong("jitter-ms", 0),
+                options.getInt("bandwidth-kbps", 0),
+                options.getDouble("error-rate", 0),
+                ErrorMode.valueOf(options.get("error-mode", "mixed").toUpperCase()),
+                options.getLong("seed", 1));
+    }
+
+    synchronized boolean shouldFail() {
+        return errorRate > 0 && random.nextDouble() < errorRate;
+    }
+
+    synchronized MockResponse failure() {
+        boolean disconnect = errorMode == ErrorMode.DISCONNECT
+                || (errorMode == ErrorMode.MIXED && random.nextBoolean());
+        MockResponse response = new MockResponse();
+        if (disconnect) {
+            return delay(response.setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST));
+        }
+        return delay(response.setResponseCode(503)
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"success\":false,\"message\":\"注入的服务器错误\",\"error_code\":\"INJECTED\"}"));
+    }
+
+    /**
+     * 按配置的延迟和带宽处理正常响应
+     */
+    MockResponse shape(MockResponse response) {
+        delay(response);
+        if (bandwidthKbps > 0) {
+            long bytesPerPeriod = Math.max(1, bandwidthKbps * 1024L / 8 * THROTTLE_PERIOD_MS / 1000);
+            response.throttleBody(bytesPerPeriod, THROTTLE_PERIOD_MS, TimeUnit.MILLISECONDS);
+        }
+        return response;
+    }
+
+    private MockResponse delay(MockResponse response) {
+        long delay = latencyMs;
+        if (jitterMs > 0) {
+            synchronized (this) {
+                delay += (long) (random.nextDouble() * jitterMs);
+            }
+        }
+        if (delay > 0) {
+            response.setHeadersDelay(delay, TimeUnit.MILLISECONDS);
+        }
+        return response;
+    }
+
+    @Override
+    public String toString() {
+        return "延迟 " + latencyMs + "ms(+" + jitterMs + "ms抖动), 带宽 "
+                + (bandwidthKbps > 0 ? bandwidthKbps + "kbps" : "不限") + ", 错误率 " + errorRate + " (" + errorMode + ")";
+    }
+}
@@ -0,0 +1,78 @@
+package com.wenxing.runyitong.loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 按名称记录耗时样本（微秒）和失败次数，结束后计算分位数
+ */
+final class LatencyRecorder {
+
+    static final class Series {
+        private long[] samples = new long[256];
+        private int count;
+        private int errors;
+        private long bytes;
+
+        synchronized void add(long micros) {
+            if (count == samples.length) {
+                samples = Arrays.copyOf(samples, count * 2);
+            }
+            samples[count++] = micros;
+        }
+
+        synchronized void addError() {
+            errors++;
+        }
+
+        synchronized void addBytes(long value) {
+            bytes += value;
+        }
+
+        synchronized Map<String, Object> summarize(double elapsedSeconds) {
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("count", count);
+            summary.put("errors", errors);
+            summary.put("throughputPerSec", round(count / elapsedSeconds));
+            summary.put("p50Ms", percentileMs(sorted, 50));
+            summary.put("p90Ms", percentileMs(sorted, 90));
+            summary.put("p95Ms", percentileMs(sorted, 95));
+            summary.put("p99Ms", percentileMs(sorted, 99));
+            summary.put("maxMs", sorted.length > 0 ? round(sorted[sorted.length - 1] / 1000.0) : 0);
+            if (bytes > 0) {
+                summary.put("bytes", bytes);
+            }
+            return summary;
+        }
+
+        // 最近秩法
+        private static double percentileMs(long[] sorted, double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+            return round(sorted[Math.max(0, rank - 1)] / 1000.0);
+        }
+
+        private static double round(double value) {
+            return Math.round(value * 100) / 100.0;
+        }
+    }
+
+    private final ConcurrentMap<String, Series> series = new ConcurrentHashMap<>();
+
+    Series series(String name) {
+        return series.computeIfAbsent(name, key -> new Series());
+    }
+
+    Map<String, Map<String, Object>> summarize(double elapsedSeconds) {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        series.keySet().stream().sorted().forEach(name -> result.put(name, series.get(name).summarize(elapsedSeconds)));
+        return result;
+    }
+}
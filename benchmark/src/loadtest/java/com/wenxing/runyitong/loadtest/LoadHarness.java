@@ -0,0 +1,197 @@
+package com.wenxing.runyitong.loadtest;
+
+import com.google.gson.GsonBuilder;
+import com.wenxing.runyitong.api.ApiGson;
+import com.wenxing.runyitong.api.ApiService;
+import com.wenxing.runyitong.api.RetryInterceptor;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import okhttp3.OkHttpClient;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+/**
+ * 端到端压测：多个虚拟用户并发执行客户端流程，统计各接口和各流程的耗时分位数。
+ * 客户端使用应用中的ApiService、Gson配置和重试拦截器，超时与ApiClient一致，
+ * 对着回放服务运行时结果可复现，用于比较重试、缓存、流式下载等改动。
+ *
+ * <pre>
+ * LoadHarness [--base-url http://127.0.0.1:8089/] [--users 8] [--warmup-s 5] [--duration-s 60]
+ *             [--flows browse,book,analyze,download] [--retry true] [--image 处方.jpg]
+ *             [--report build/loadtest/report.json] [--seed 1]
+ * </pre>
+ */
+public final class LoadHarness {
+
+    public static void main(String[] args) throws Exception {
+        Options options = new Options(args);
+        String baseUrl = options.get("base-url", "http://127.0.0.1:8089/");
+        int users = options.getInt("users", 8);
+        long warmupMs = TimeUnit.SECONDS.toMillis(options.getLong("warmup-s", 5));
+        long durationMs = TimeUnit.SECONDS.toMillis(options.getLong("duration-s", 60));
+        boolean retry = options.getBoolean("retry", true);
+        long seed = options.getLong("seed", 1);
+        List<ClientFlows.Flow> flows = parseFlows(options.get("flows", "browse,book,analyze,download"));
+        String imagePath = options.get("image", null);
+        byte[] image = imagePath != null ? Files.readAllBytes(new File(imagePath).toPath()) : sampleImage(seed);
+        File reportFile = new File(options.get("report", "build/loadtest/report.json"));
+
+        ApiService api = createApiService(baseUrl, retry);
+        LatencyRecorder warmupRecorder = new LatencyRecorder();
+        LatencyRecorder recorder = new LatencyRecorder();
+
+        System.out.println(String.format(Locale.ROOT, "%d个用户，预热%ds，压测%ds，流程%s，重试%s，图片%dKB",
+                users, warmupMs / 1000, durationMs / 1000, flows, retry ? "开启" : "关闭", image.length / 1024));
+
+        long start = System.currentTimeMillis();
+        long measureStart = start + warmupMs;
+        long end = measureStart + durationMs;
+        ExecutorService executor = Executors.newFixedThreadPool(users);
+        for (int user = 0; user < users; user++) {
+            int userIndex = user;
+            executor.execute(() -> runUser(userIndex, api, flows, image, seed,
+                    warmupRecorder, recorder, measureStart, end));
+        }
+        executor.shutdown();
+        executor.awaitTermination(durationMs + warmupMs + TimeUnit.MINUTES.toMillis(5), TimeUnit.MILLISECONDS);
+
+        double elapsedSeconds = durationMs / 1000.0;
+        Map<String, Map<String, Object>> summary = recorder.summarize(elapsedSeconds);
+        printTable(summary);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("baseUrl", baseUrl);
+        config.put("users", users);
+        config.put("warmupSeconds", warmupMs / 1000);
+        config.put("durationSeconds", durationMs / 1000);
+        config.put("flows", flows);
+        config.put("retry", retry);
+        config.put("imageBytes", image.length);
+        config.put("seed", seed);
+        report.put("config", config);
+        report.put("results", summary);
+        File parent = reportFile.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        try (Writer writer = Files.newBufferedWriter(reportFile.toPath(), StandardCharsets.UTF_8)) {
+            new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create().toJson(report, writer);
+        }
+        System.out.println("报告已写入 " + reportFile.getAbsolutePath());
+        System.exit(0);
+    }
+
+    /**
+     * 单个虚拟用户：从各自的起点轮流执行流程，预热期间的数据单独记录后丢弃
+     */
+    private static void runUser(int userIndex, ApiService api, List<ClientFlows.Flow> flows, byte[] image, long seed,
+                                LatencyRecorder warmupRecorder, LatencyRecorder recorder, long measureStart, long end) {
+        ClientFlows warmupFlows = new ClientFlows(api, warmupRecorder, image, seed + userIndex);
+        ClientFlows measuredFlows = new ClientFlows(api, recorder, image, seed + userIndex);
+        int next = userIndex % flows.size();
+        long now;
+        while ((now = System.currentTimeMillis()) < end) {
+            boolean measuring = now >= measureStart;
+            ClientFlows.Flow flow = flows.get(next);
+            next = (next + 1) % flows.size();
+
+            LatencyRecorder.Series series = (measuring ? recorder : warmupRecorder)
+                    .series("flow/" + flow.name().toLowerCase(Locale.ROOT));
+            long startNanos = System.nanoTime();
+            try {
+                (measuring ? measuredFlows : warmupFlows).run(flow);
+                series.add(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+            } catch (IOException | RuntimeException e) {
+                series.addError();
+            }
+        }
+    }
+
+    private static ApiService createApiService(String baseUrl, boolean retry) {
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .connectTimeout(45, TimeUnit.SECONDS)
+                .readTimeout(60, TimeUnit.SECONDS)
+                .writeTimeout(60, TimeUnit.SECONDS);
+        if (retry) {
+            builder.addInterceptor(new RetryInterceptor());
+        }
+        return new Retrofit.Builder()
+                .baseUrl(baseUrl)
+                .client(builder.build())
+                .addConverterFactory(GsonConverterFactory.create(ApiGson.create()))
+                .build()
+                .create(ApiService.class);
+    }
+
+    private static List<ClientFlows.Flow> parseFlows(String value) {
+        List<ClientFlows.Flow> flows = new ArrayList<>();
+        for (String name : value.split(",")) {
+            if (!name.trim().isEmpty()) {
+                flows.add(ClientFlows.Flow.valueOf(name.trim().toUpperCase(Locale.ROOT)));
+            }
+        }
+        if (flows.isEmpty()) {
+            throw new IllegalArgumentException("至少需要一个流程");
+        }
+        return flows;
+    }
+
+    /**
+     * 生成固定内容的处方照片替身，尺寸和体积与相机照片压缩后上传的图片相近
+     */
+    private static byte[] sampleImage(long seed) throws IOException {
+        Random random = new Random(seed);
+        BufferedImage image = new BufferedImage(1280, 960, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(new Color(246, 242, 232));
+        g.fillRect(0, 0, image.getWidth(), image.getHeight());
+        g.setColor(new Color(40, 40, 40));
+        for (int line = 0; line < 24; line++) {
+            int y = 60 + line * 36;
+            for (int x = 80; x < 1200; x += 14 + random.nextInt(10)) {
+                g.fillRect(x, y, 8 + random.nextInt(6), 18 + random.nextInt(6));
+            }
+        }
+        g.dispose();
+        for (int i = 0; i < 200_000; i++) {
+            int x = random.nextInt(image.getWidth());
+            int y = random.nextInt(image.getHeight());
+            int shade = 200 + random.nextInt(56);
+            image.setRGB(x, y, new Color(shade, shade - 4, shade - 12).getRGB());
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        return out.toByteArray();
+    }
+
+    private static void printTable(Map<String, Map<String, Object>> summary) {
+        System.out.println(String.format(Locale.ROOT, "%-44s %7s %6s %9s %9s %9s %9s %9s",
+                "名称", "次数", "失败", "p50(ms)", "p90(ms)", "p95(ms)", "p99(ms)", "max(ms)"));
+        summary.forEach((name, s) -> System.out.println(String.format(Locale.ROOT,
+                "%-44s %7d %6d %9.1f %9.1f %9.1f %9.1f %9.1f",
+                name, (Integer) s.get("count"), (Integer) s.get("errors"),
+                (Double) s.get("p50Ms"), (Double) s.get("p90Ms"), (Double) s.get("p95Ms"),
+                (Double) s.get("p99Ms"), (Double) s.get("maxMs"))));
+    }
+}
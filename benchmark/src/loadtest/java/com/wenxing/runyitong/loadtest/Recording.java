@@ -0,0 +1,15 @@
+package com.wenxing.runyitong.loadtest;
+
+/**
+ * 一条录制的响应，每个路由保存一条，文本响应原样保存，二进制响应（如图书PDF）保存为Base64
+ */
+final class Recording {
+    String route;
+    String requestPath;
+    int status;
+    String contentType;
+    String body;
+    String bodyBase64;
+    long upstreamMillis;
+    long recordedAt;
+}
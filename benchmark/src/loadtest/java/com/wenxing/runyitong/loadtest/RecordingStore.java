@@ -0,0 +1,74 @@
+package com.wenxing.runyitong.loadtest;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 录制目录，每个路由一个JSON文件，便于评审时查看和替换
+ */
+final class RecordingStore {
+    private final File dir;
+    private final Gson gson = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+    private final Map<String, Recording> recordings = new ConcurrentHashMap<>();
+    // 回放时解码后的响应体，避免每次请求重复解码
+    private final Map<String, byte[]> bodies = new ConcurrentHashMap<>();
+
+    RecordingStore(File dir) {
+        this.dir = dir;
+    }
+
+    void load() throws IOException {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(".json"));
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                Recording recording = gson.fromJson(reader, Recording.class);
+                if (recording != null && recording.route != null) {
+                    recordings.put(recording.route, recording);
+                }
+            }
+        }
+    }
+
+    Recording get(String route) {
+        return recordings.get(route);
+    }
+
+    byte[] body(Recording recording) {
+        return bodies.computeIfAbsent(recording.route, route -> recording.bodyBase64 != null
+                ? Base64.getDecoder().decode(recording.bodyBase64)
+                : recording.body != null ? recording.body.getBytes(StandardCharsets.UTF_8) : new byte[0]);
+    }
+
+    synchronized void save(Recording recording) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("无法创建录制目录: " + dir);
+        }
+        File file = new File(dir, fileName(recording.route));
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            gson.toJson(recording, writer);
+        }
+        recordings.put(recording.route, recording);
+        bodies.remove(recording.route);
+    }
+
+    int size() {
+        return recordings.size();
+    }
+
+    private static String fileName(String route) {
+        return route.replaceAll("[^A-Za-z0-9_-]+", "_").replaceAll("_+$", "") + ".json";
+    }
+}
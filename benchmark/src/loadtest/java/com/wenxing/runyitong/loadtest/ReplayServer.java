@@ -0,0 +1,236 @@
+package com.wenxing.runyitong.loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+
+/**
+ * 录制回放后端
+ * record模式作为代理转发到真实后端（Backend-Python），按ApiService路由保存响应；
+ * replay模式只用录制的响应应答，可叠加延迟、带宽限制和错误注入，不需要后端和AI服务即可压测客户端。
+ *
+ * <pre>
+ * ReplayServer record --upstream http://127.0.0.1:8000/ [--port 8089] [--dir recordings]
+ * ReplayServer replay [--port 8089] [--dir recordings] [--latency-ms 0] [--jitter-ms 0]
+ *                     [--bandwidth-kbps 0] [--error-rate 0] [--error-mode http|disconnect|mixed] [--seed 1]
+ * </pre>
+ */
+public final class ReplayServer {
+
+    private final EndpointCatalog catalog;
+    private final RecordingStore store;
+    private final Map<String, AtomicLong> served = new ConcurrentHashMap<>();
+    private final Set<String> missing = ConcurrentHashMap.newKeySet();
+    private MockWebServer server;
+
+    ReplayServer(EndpointCatalog catalog, RecordingStore store) {
+        this.catalog = catalog;
+        this.store = store;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new Options(args);
+        String mode = options.command() != null ? options.command() : "replay";
+        EndpointCatalog catalog = EndpointCatalog.fromApiService();
+        RecordingStore store = new RecordingStore(new File(options.get("dir", "recordings")));
+        store.load();
+
+        ReplayServer replayServer = new ReplayServer(catalog, store);
+        Dispatcher dispatcher;
+        if ("record".equals(mode)) {
+            HttpUrl upstream = HttpUrl.get(options.get("upstream", "http://127.0.0.1:8000/"));
+            dispatcher = replayServer.recordingDispatcher(upstream);
+            System.out.println("录制模式，转发到 " + upstream);
+        } else if ("replay".equals(mode)) {
+            FaultProfile faults = FaultProfile.from(options);
+            dispatcher = replayServer.replayDispatcher(faults);
+            System.out.println("回放模式，" + faults);
+        } else {
+            throw new IllegalArgumentException("未知模式: " + mode + "，应为record或replay");
+        }
+
+        replayServer.printCoverage();
+        replayServer.start(dispatcher, options.getInt("port", 8089));
+        Runtime.getRuntime().addShutdownHook(new Thread(replayServer::printSummary));
+        Thread.currentThread().join();
+    }
+
+    void start(Dispatcher dispatcher, int port) throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(dispatcher);
+        // 监听所有网卡，模拟器通过10.0.2.2访问
+        server.start(InetAddress.getByName("0.0.0.0"), port);
+        System.out.println("监听端口 " + server.getPort());
+    }
+
+    /**
+     * 转发到真实后端并保存响应
+     */
+    Dispatcher recordingDispatcher(HttpUrl upstream) {
+        OkHttpClient client = new OkHttpClient.Builder()
+                .connectTimeout(45, TimeUnit.SECONDS)
+                // AI分析接口可能需要较长时间
+                .readTimeout(180, TimeUnit.SECONDS)
+                .writeTimeout(60, TimeUnit.SECONDS)
+                .build();
+        return new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String method = request.getMethod();
+                String path = request.getPath();
+                EndpointCatalog.Endpoint endpoint = catalog.match(method, path);
+
+                Request.Builder builder = new Request.Builder().url(upstream.resolve(path.substring(1)));
+                for (String name : request.getHeaders().names()) {
+                    // 由OkHttp自行处理压缩和连接相关的头
+                    if (!name.equalsIgnoreCase("Host") && !name.equalsIgnoreCase("Content-Length")
+                            && !name.equalsIgnoreCase("Connection") && !name.equalsIgnoreCase("Accept-Encoding")) {
+                        for (String value : request.getHeaders().values(name)) {
+                            builder.addHeader(name, value);
+                        }
+                    }
+                }
+                RequestBody body = null;
+                if (!"GET".equals(method) && !"HEAD".equals(method)) {
+                    String contentType = request.getHeader("Content-Type");
+                    body = RequestBody.create(request.getBody().readByteArray(),
+                            contentType != null ? MediaType.parse(contentType) : null);
+                }
+                builder.method(method, body);
+
+                long start = System.nanoTime();
+                try (Response response = client.newCall(builder.build()).execute()) {
+                    ResponseBody responseBody = response.body();
+                    byte[] bytes = responseBody != null ? responseBody.bytes() : new byte[0];
+                    long upstreamMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    String contentType = response.header("Content-Type", "application/json");
+
+                    if (endpoint != null) {
+                        store.save(toRecording(endpoint, path, response.code(), contentType, bytes, upstreamMillis));
+                        count(endpoint.key());
+                        System.out.println("已录制 " + endpoint.key() + " -> " + response.code()
+                                + " (" + bytes.length + "字节, " + upstreamMillis + "ms)");
+                    } else {
+                        System.out.println("未在ApiService中声明，只转发不录制: " + method + " " + path);
+                    }
+                    return new MockResponse()
+                            .setResponseCode(response.code())
+                            .setHeader("Content-Type", contentType)
+                            .setBody(new Buffer().write(bytes));
+                } catch (IOException e) {
+                    System.err.println("转发失败 " + method + " " + path + ": " + e);
+                    return new MockResponse().setResponseCode(502)
+                            .setHeader("Content-Type", "application/json")
+                            .setBody("{\"success\":false,\"message\":\"上游后端不可用\"}");
+                }
+            }
+        };
+    }
+
+    /**
+     * 只用录制的响应应答
+     */
+    Dispatcher replayDispatcher(FaultProfile faults) {
+        return new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                EndpointCatalog.Endpoint endpoint = catalog.match(request.getMethod(), request.getPath());
+                if (endpoint == null) {
+                    return new MockResponse().setResponseCode(404)
+                            .setHeader("Content-Type", "application/json")
+                            .setBody("{\"detail\":\"Not Found\"}");
+                }
+                Recording recording = store.get(endpoint.key());
+                if (recording == null) {
+                    if (missing.add(endpoint.key())) {
+                        System.err.println("没有录制: " + endpoint.key());
+                    }
+                    return new MockResponse().setResponseCode(404)
+                            .setHeader("Content-Type", "application/json")
+                            .setBody("{\"success\":false,\"message\":\"没有录制: " + endpoint.key() + "\"}");
+                }
+                // 读完请求体，上传耗时计入客户端
+                request.getBody().clear();
+                count(endpoint.key());
+                if (faults.shouldFail()) {
+                    return faults.failure();
+                }
+                return faults.shape(new MockResponse()
+                        .setResponseCode(recording.status)
+                        .setHeader("Content-Type", recording.contentType)
+                        .setBody(new Buffer().write(store.body(recording))));
+            }
+        };
+    }
+
+    void printCoverage() {
+        int recorded = 0;
+        StringBuilder uncovered = new StringBuilder();
+        for (EndpointCatalog.Endpoint endpoint : catalog.all()) {
+            if (store.get(endpoint.key()) != null) {
+                recorded++;
+            } else {
+                uncovered.append("\n  ").append(endpoint.key()).append("  ").append(endpoint.methodNames);
+            }
+        }
+        System.out.println("已录制 " + recorded + "/" + catalog.all().size() + " 个路由");
+        if (uncovered.length() > 0) {
+            System.out.println("未录制:" + uncovered);
+        }
+    }
+
+    void printSummary() {
+        System.out.println("请求统计:");
+        new TreeMap<>(served).forEach((route, count) -> System.out.println("  " + route + "  " + count));
+        if (!missing.isEmpty()) {
+            System.out.println("请求了但没有录制: " + missing);
+        }
+    }
+
+    private void count(String route) {
+        served.computeIfAbsent(route, key -> new AtomicLong()).incrementAndGet();
+    }
+
+    private static Recording toRecording(EndpointCatalog.Endpoint endpoint, String path, int status,
+                                         String contentType, byte[] bytes, long upstreamMillis) {
+        Recording recording = new Recording();
+        recording.route = endpoint.key();
+        recording.requestPath = path;
+        recording.status = status;
+        recording.contentType = contentType;
+        if (isText(contentType)) {
+            recording.body = new String(bytes, StandardCharsets.UTF_8);
+        } else {
+            recording.bodyBase64 = Base64.getEncoder().encodeToString(bytes);
+        }
+        recording.upstreamMillis = upstreamMillis;
+        recording.recordedAt = System.currentTimeMillis();
+        return recording;
+    }
+
+    private static boolean isText(String contentType) {
+        String type = contentType.toLowerCase();
+        return type.contains("json") || type.startsWith("text/");
+    }
+}
@@ -0,0 +1,18 @@
+package android.content;
+
+import java.io.File;
+
+/**
+ * JVM替身：只保留存储类用到的方法，由基准测试提供内存实现
+ */
+public abstract class Context {
+    public static final int MODE_PRIVATE = 0x0000;
+
+    public abstract Context getApplicationContext();
+
+    public abstract SharedPreferences getSharedPreferences(String name, int mode);
+
+    public abstract File getFilesDir();
+
+    public abstract File getCacheDir();
+}
@@ -0,0 +1,15 @@
+package android.graphics.pdf;
+
+/**
+ * JVM替身：仅用于编译PDFSearchUtils中接收PdfRenderer的旧重载，基准测试不调用
+ */
+public final class PdfRenderer implements AutoCloseable {
+    private PdfRenderer() {}
+
+    public int getPageCount() {
+        throw new UnsupportedOperationException("PdfRenderer在JVM上不可用");
+    }
+
+    @Override
+    public void close() {}
+}
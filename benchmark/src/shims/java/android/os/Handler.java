@@ -0,0 +1,28 @@
+package android.os;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JVM替身：所有Handler共用一个守护线程模拟主线程，按延迟顺序执行投递的任务
+ */
+public class Handler {
+    private static final ScheduledExecutorService MAIN_THREAD = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "main");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public Handler(Looper looper) {}
+
+    public final boolean post(Runnable r) {
+        MAIN_THREAD.execute(r);
+        return true;
+    }
+
+    public final boolean postDelayed(Runnable r, long delayMillis) {
+        MAIN_THREAD.schedule(r, Math.max(0, delayMillis), TimeUnit.MILLISECONDS);
+        return true;
+    }
+}
@@ -0,0 +1,18 @@
+package android.os;
+
+/**
+ * JVM替身：JVM上没有消息循环，主Looper只作为Handler的标识
+ */
+public final class Looper {
+    private static final Looper MAIN = new Looper();
+
+    private Looper() {}
+
+    public static Looper getMainLooper() {
+        return MAIN;
+    }
+
+    public static Looper myLooper() {
+        return MAIN;
+    }
+}
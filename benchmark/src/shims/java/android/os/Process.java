@@ -0,0 +1,17 @@
+package android.os;
+
+/**
+ * JVM替身：线程优先级常量与框架一致，设置优先级为空操作
+ */
+public final class Process {
+    public static final int THREAD_PRIORITY_DEFAULT = 0;
+    public static final int THREAD_PRIORITY_BACKGROUND = 10;
+    public static final int THREAD_PRIORITY_FOREGROUND = -2;
+    public static final int THREAD_PRIORITY_DISPLAY = -4;
+    public static final int THREAD_PRIORITY_LESS_FAVORABLE = 1;
+    public static final int THREAD_PRIORITY_MORE_FAVORABLE = -1;
+
+    private Process() {}
+
+    public static void setThreadPriority(int priority) {}
+}
@@ -0,0 +1,16 @@
+package android.os;
+
+/**
+ * JVM替身：以System.nanoTime模拟开机后单调时钟
+ */
+public final class SystemClock {
+    private SystemClock() {}
+
+    public static long uptimeMillis() {
+        return System.nanoTime() / 1_000_000L;
+    }
+
+    public static long elapsedRealtime() {
+        return System.nanoTime() / 1_000_000L;
+    }
+}